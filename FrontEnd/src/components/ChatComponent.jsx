@@ -3,12 +3,14 @@
 import React, { useEffect, useState, useRef } from "react";
 import { Client } from "@stomp/stompjs";
 import SockJS from "sockjs-client";
-import { FiSend, FiUser, FiWifi, FiWifiOff } from "react-icons/fi";
-import { sendMessageAPI, getMessagesWithUser } from "../services/api";
+import { FiSearch, FiSend, FiUser, FiWifi, FiWifiOff, FiX } from "react-icons/fi";
+import { sendMessageAPI, getMessagesWithUser, syncMessages, searchMessages } from "../services/api";
 import { useAuth } from "../context/AuthContext";
 import axios from "axios";
 import axiosInstance from "../utils/axiosInstance";
 
+const HISTORY_PAGE_SIZE = 50; // server default page size for chat history
+
 const ChatComponent = ({
   receiverId,
   receiverName: propReceiverName,
@@ -21,9 +23,19 @@ const ChatComponent = ({
   const [messages, setMessages] = useState([]);
   const [input, setInput] = useState("");
   const [connected, setConnected] = useState(false);
+  const [hasOlder, setHasOlder] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const [showSearch, setShowSearch] = useState(false);
+  const [searchQuery, setSearchQuery] = useState("");
+  const [searchHits, setSearchHits] = useState(null); // null = nothing searched yet
+  const [searchCursor, setSearchCursor] = useState(null);
+  const [searching, setSearching] = useState(false);
   const stompClientRef = useRef(null);
   const messagesEndRef = useRef(null);
+  const scrollBoxRef = useRef(null);
+  const keepScroll = useRef(null); // ✅ Set while prepending older messages: scroll height before the prepend
   const typingTimeout = useRef(null);
+  const lastSeq = useRef(0); // ✅ Highest conversation seq on screen; a jump means we missed messages
 
   const themeColors = {
     admin: { primary: "#2563eb", gradient: "linear-gradient(135deg, #2563eb, #60a5fa)" },
@@ -37,8 +49,14 @@ const ChatComponent = ({
     console.log("🔎 ChatComponent init", { tokenPresent: !!token, user, receiverId });
   }, [token, user, receiverId]);
 
-  // Auto-scroll to bottom when messages change
+  // Auto-scroll to bottom when messages change (but stay in place when older ones were prepended)
   useEffect(() => {
+    if (keepScroll.current !== null && scrollBoxRef.current) {
+      const box = scrollBoxRef.current;
+      box.scrollTop += box.scrollHeight - keepScroll.current;
+      keepScroll.current = null;
+      return;
+    }
     messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
     if (messages.length > 0) {
       const last = messages[messages.length - 1];
@@ -77,11 +95,85 @@ const ChatComponent = ({
 
     getMessagesWithUser(receiverId)
       .then((res) => {
-        setMessages(res.data || []);
+        const history = res.data || [];
+        lastSeq.current = history.reduce((max, m) => Math.max(max, m.seq || 0), 0);
+        setMessages(history);
+        setHasOlder(history.length >= HISTORY_PAGE_SIZE);
       })
       .catch((err) => console.error("❌ Error loading chat:", err));
   }, [receiverId, token, user?.id]);
 
+  // ⬆️ Page above the oldest message on screen
+  const loadOlder = () => {
+    const oldest = messages.find((m) => !m.temp && m.id && m.sentAt);
+    if (!oldest || loadingOlder) return;
+    setLoadingOlder(true);
+    getMessagesWithUser(receiverId, `${oldest.sentAt}_${oldest.id}`)
+      .then((res) => {
+        const older = res.data || [];
+        setHasOlder(older.length >= HISTORY_PAGE_SIZE);
+        if (older.length === 0) return;
+        keepScroll.current = scrollBoxRef.current?.scrollHeight ?? null;
+        setMessages((prev) => {
+          const known = new Set(prev.map((m) => m.id));
+          return [...older.filter((m) => !known.has(m.id)), ...prev];
+        });
+      })
+      .catch((err) => console.error("❌ Error loading older messages:", err))
+      .finally(() => setLoadingOlder(false));
+  };
+
+  // 🔎 Search all chats, showing the hits of this conversation (newest first); "more" continues from the cursor
+  const runSearch = (more = false) => {
+    const q = searchQuery.trim();
+    if (!q || searching) return;
+    setSearching(true);
+    searchMessages(q, more ? searchCursor : undefined)
+      .then((res) => {
+        const data = res.data || {};
+        const hits = (data.hits || []).filter((h) => String(h.partnerId) === String(receiverId));
+        setSearchHits((prev) => (more && prev ? [...prev, ...hits] : hits));
+        setSearchCursor(data.hasMore ? data.cursor : null);
+      })
+      .catch((err) => console.error("❌ Chat search failed:", err))
+      .finally(() => setSearching(false));
+  };
+
+  const closeSearch = () => {
+    setShowSearch(false);
+    setSearchQuery("");
+    setSearchHits(null);
+    setSearchCursor(null);
+  };
+
+  // Another conversation: its search starts over
+  useEffect(() => {
+    closeSearch();
+  }, [receiverId]);
+
+  // Jump to a hit that is already on screen (older ones show up after "Load older messages")
+  const showHit = (hit) => {
+    const row = document.getElementById(`chat-msg-${hit.message?.id}`);
+    if (!row) return;
+    row.scrollIntoView({ behavior: "smooth", block: "center" });
+    row.classList.add("ring-2", "ring-yellow-400");
+    setTimeout(() => row.classList.remove("ring-2", "ring-yellow-400"), 1500);
+  };
+
+  // Snippet with the matched words marked ([start, end) ranges from the server)
+  const renderSnippet = (hit) => {
+    const text = hit.snippet || "";
+    const parts = [];
+    let at = 0;
+    (hit.highlights || []).forEach(([start, end], i) => {
+      if (start > at) parts.push(text.slice(at, start));
+      parts.push(<mark key={i} className="bg-yellow-200 rounded px-0.5">{text.slice(start, end)}</mark>);
+      at = end;
+    });
+    if (at < text.length) parts.push(text.slice(at));
+    return parts;
+  };
+
   // ✅ WebSocket setup
   useEffect(() => {
     if (!token || !user?.email) {
@@ -89,6 +181,22 @@ const ChatComponent = ({
       return;
     }
 
+    // Messages after the last seq on screen, merged in seq order
+    const catchUp = () => {
+      syncMessages({ conversations: { [receiverId]: lastSeq.current } })
+        .then((res) => {
+          const missed = res.data?.messages || [];
+          if (missed.length === 0) return;
+          lastSeq.current = missed.reduce((max, m) => Math.max(max, m.seq || 0), lastSeq.current);
+          setMessages((prev) => {
+            const known = new Set(prev.map((m) => m.id));
+            const merged = [...prev, ...missed.filter((m) => !known.has(m.id))];
+            return merged.sort((a, b) => (a.seq || 0) - (b.seq || 0));
+          });
+        })
+        .catch((err) => console.error("❌ Chat sync failed:", err));
+    };
+
     console.log("🌐 Opening WS connection for chat", receiverId);
     const socket = new SockJS("http://localhost:8080/ws");
     const client = new Client({
@@ -100,6 +208,9 @@ const ChatComponent = ({
         console.log("✅ Connected to STOMP");
         setConnected(true);
 
+        // ✅ Reconnect: fetch only what this thread missed while offline
+        if (lastSeq.current) catchUp();
+
         const personalQueue = "/user/queue/messages";
         console.log("📡 Subscribing to", personalQueue);
 
@@ -116,6 +227,13 @@ const ChatComponent = ({
 
               if (msgSenderId === currentChatId || msgReceiverId === currentChatId) {
                 console.log(`📨 Message belongs to current chat (${currentChatId}), updating state`);
+
+                // ✅ Gap in the conversation sequence: fetch the missing messages
+                if (msg.seq && lastSeq.current && msg.seq > lastSeq.current + 1) {
+                  console.warn(`⚠ Missed messages (seq ${lastSeq.current} -> ${msg.seq}), syncing chat`);
+                  catchUp();
+                }
+                if (msg.seq) lastSeq.current = Math.max(lastSeq.current, msg.seq);
                 setMessages((prev) => {
                   let replaced = false;
                   const next = prev.map((m) => {
@@ -140,6 +258,28 @@ const ChatComponent = ({
           },
           { Authorization: `Bearer ${token}` }
         );
+
+        // ✅ Server could not take a message (overloaded): mark the optimistic copy as not sent
+        client.subscribe(
+          "/user/queue/errors",
+          (frame) => {
+            try {
+              const err = JSON.parse(frame.body);
+              console.warn("⚠ Message rejected by server:", err);
+              if (String(err.receiverId) !== String(receiverId)) return;
+              setMessages((prev) => {
+                const index = prev.findIndex((m) => m.temp && !m.failed && m.content === err.content);
+                if (index === -1) return prev;
+                const next = [...prev];
+                next[index] = { ...next[index], failed: true };
+                return next;
+              });
+            } catch (e) {
+              console.error("❌ Error parsing WS error frame:", e);
+            }
+          },
+          { Authorization: `Bearer ${token}` }
+        );
       },
       onStompError: (frame) => console.error("❌ STOMP error:", frame),
       onDisconnect: () => {
@@ -208,6 +348,7 @@ const ChatComponent = ({
     return (
       <div
         key={msg.id || i}
+        id={msg.id ? `chat-msg-${msg.id}` : undefined}
         className={`flex mb-2 items-end ${isSender ? "justify-end" : "justify-start"}`}
       >
         {!isSender && (
@@ -226,10 +367,12 @@ const ChatComponent = ({
         >
           {msg.content}
           <div className="text-[10px] mt-1 opacity-70 text-right">
-            {new Date(msg.sentAt).toLocaleTimeString([], {
-              hour: "2-digit",
-              minute: "2-digit",
-            })}
+            {msg.failed
+              ? "Not sent"
+              : new Date(msg.sentAt).toLocaleTimeString([], {
+                  hour: "2-digit",
+                  minute: "2-digit",
+                })}
           </div>
         </div>
       </div>
@@ -289,11 +432,78 @@ useEffect(() => {
             </p>
           </div>
         </div>
+        <button
+          onClick={() => (showSearch ? closeSearch() : setShowSearch(true))}
+          className="p-2 rounded-full hover:bg-white/20"
+          title={showSearch ? "Close search" : "Search messages"}
+        >
+          {showSearch ? <FiX size={16} /> : <FiSearch size={16} />}
+        </button>
       </div>
+      {showSearch && (
+        <div className="border-b bg-white px-3 py-2">
+          <input
+            type="text"
+            value={searchQuery}
+            onChange={(e) => setSearchQuery(e.target.value)}
+            onKeyDown={(e) => e.key === "Enter" && runSearch()}
+            placeholder='Search this chat (word*, "exact phrase")'
+            className="w-full px-3 py-1.5 border rounded-full bg-gray-50 focus:outline-none text-sm"
+            style={{ borderColor: primary }}
+            autoFocus
+          />
+          {searchHits !== null && (
+            <div className="max-h-40 overflow-y-auto mt-2 text-sm">
+              {searchHits.length === 0 && !searchCursor && (
+                <p className="text-gray-400 text-center text-xs">No matching messages</p>
+              )}
+              {searchHits.map((hit) => (
+                <div
+                  key={hit.message?.id}
+                  onClick={() => showHit(hit)}
+                  className="px-2 py-1 rounded hover:bg-gray-100 cursor-pointer"
+                >
+                  <span className="text-[10px] text-gray-500 mr-2">
+                    {new Date(hit.message?.sentAt).toLocaleString([], {
+                      day: "2-digit",
+                      month: "short",
+                      hour: "2-digit",
+                      minute: "2-digit",
+                    })}
+                  </span>
+                  {renderSnippet(hit)}
+                </div>
+              ))}
+              {searchCursor && (
+                <button
+                  onClick={() => runSearch(true)}
+                  disabled={searching}
+                  className="text-xs mt-1 w-full text-center"
+                  style={{ color: primary }}
+                >
+                  {searching ? "Searching..." : "More results"}
+                </button>
+              )}
+            </div>
+          )}
+        </div>
+      )}
       <br />
 
       {/* Messages */}
-      <div className="flex-1 overflow-y-auto px-3 py-4 scroll-smooth bg-gray-50">
+      <div ref={scrollBoxRef} className="flex-1 overflow-y-auto px-3 py-4 scroll-smooth bg-gray-50">
+        {hasOlder && (
+          <div className="text-center mb-3">
+            <button
+              onClick={loadOlder}
+              disabled={loadingOlder}
+              className="text-xs px-3 py-1 rounded-full border bg-white hover:bg-gray-100"
+              style={{ borderColor: primary, color: primary }}
+            >
+              {loadingOlder ? "Loading..." : "Load older messages"}
+            </button>
+          </div>
+        )}
         {!user?.id || messages.length === 0 ? (
           <p className="text-gray-400 text-center mt-6 text-sm">
             {user?.id ? "No messages yet. Start chatting!" : "Loading chat..."}
@@ -12,13 +12,19 @@ const ChatNotifications = () => {
   const [unreadCount, setUnreadCount] = useState(0);
   const [showDropdown, setShowDropdown] = useState(false);
   const [isConnected, setIsConnected] = useState(false);
+  const [announcements, setAnnouncements] = useState([]);
+  const [announcementUnread, setAnnouncementUnread] = useState(0);
+  const [documentUpdates, setDocumentUpdates] = useState([]);
   const { user } = useAuth();
 
 
   const stompClientRef = useRef(null);
   const subscriptionRef = useRef(null);
+  const announcementSubsRef = useRef([]);
+  const documentSubRef = useRef(null);
   const dropdownRef = useRef(null);
   const seenIds = useRef(new Set()); // ✅ Track all seen notifications by ID
+  const countVersion = useRef(0); // ✅ Latest unread-count push applied (older ones arrive late)
 
   useEffect(() => {
     fetchNotifications();
@@ -46,12 +52,16 @@ const ChatNotifications = () => {
   /** ✅ Fetch initial unread notifications */
   const fetchNotifications = async () => {
     try {
-      const response = await axiosInstance.get("/api/notifications/unread");
+      // ✅ Latest page only; the badge total comes from the server-side counter
+      const [response, countResponse] = await Promise.all([
+        axiosInstance.get("/api/notifications/unread", { params: { size: 20 } }),
+        axiosInstance.get("/api/notifications/count"),
+      ]);
       const uniqueNotifications = response.data.filter(
         (n, index, self) => index === self.findIndex((x) => x.id === n.id)
       );
       setNotifications(uniqueNotifications);
-      setUnreadCount(uniqueNotifications.length);
+      setUnreadCount(countResponse.data.count);
 
       // Store IDs of all fetched notifications
       uniqueNotifications.forEach((n) => seenIds.current.add(n.id));
@@ -62,6 +72,47 @@ const ChatNotifications = () => {
     }
   };
 
+  /** 📢 Latest announcements, their unread count and the topics they arrive on */
+  const fetchAnnouncements = async () => {
+    try {
+      const [listResponse, stateResponse] = await Promise.all([
+        axiosInstance.get("/api/announcements", { params: { size: 5 } }),
+        axiosInstance.get("/api/announcements/state"),
+      ]);
+      setAnnouncements(listResponse.data);
+      setAnnouncementUnread(stateResponse.data.unread);
+      return stateResponse.data.topics;
+    } catch (error) {
+      console.error("Failed to fetch announcements:", error);
+      return [];
+    }
+  };
+
+  const subscribeAnnouncements = async (stompClient) => {
+    const topics = await fetchAnnouncements();
+    announcementSubsRef.current = topics.map((topic) =>
+      stompClient.subscribe(topic, (message) => {
+        const announcement = JSON.parse(message.body);
+        setAnnouncements((prev) =>
+          prev.some((a) => a.id === announcement.id) ? prev : [announcement, ...prev].slice(0, 5)
+        );
+        setAnnouncementUnread((prev) => prev + 1);
+        playNotificationSound();
+      })
+    );
+  };
+
+  /** 📄 Providers: progress of their uploaded documents (latest update per document) */
+  const subscribeDocuments = (stompClient) => {
+    if (user?.role !== "PROVIDER") return;
+    documentSubRef.current = stompClient.subscribe("/user/queue/documents", (message) => {
+      const update = JSON.parse(message.body);
+      setDocumentUpdates((prev) =>
+        [update, ...prev.filter((d) => d.documentId !== update.documentId)].slice(0, 5)
+      );
+    });
+  };
+
   /** ✅ WebSocket connection and subscription */
   const connectWebSocket = () => {
     const token = localStorage.getItem("token");
@@ -86,12 +137,31 @@ const ChatNotifications = () => {
           console.log("✅ Connected to WebSocket for notifications");
           setIsConnected(true);
           stompClientRef.current = stompClient;
+          countVersion.current = 0; // accept whatever the server sends first on a new connection
 
           // Subscribe to notifications queue
           const subscription = stompClient.subscribe(
             "/user/queue/notifications",
             (message) => {
               const notification = JSON.parse(message.body);
+
+              // ✅ Server-side unread count changed (new, read or cleared notifications)
+              if (notification.type === "UNREAD_COUNT") {
+                if (notification.version > countVersion.current) {
+                  countVersion.current = notification.version;
+                  setUnreadCount(notification.total);
+                }
+                return;
+              }
+
+              // ✅ Messages that arrived while we were offline, one row per sender
+              if (notification.type === "DIGEST") {
+                console.log(`📬 ${notification.total} messages arrived while offline`);
+                fetchNotifications();
+                playNotificationSound();
+                return;
+              }
+
               console.log("🔔 New notification received:", notification);
 
               // ✅ Skip duplicates using Set
@@ -109,6 +179,8 @@ const ChatNotifications = () => {
           );
 
           subscriptionRef.current = subscription;
+          subscribeAnnouncements(stompClient);
+          subscribeDocuments(stompClient);
         },
         (error) => {
           console.error("❌ WebSocket connection error:", error);
@@ -125,6 +197,12 @@ const ChatNotifications = () => {
     if (subscriptionRef.current) {
       subscriptionRef.current.unsubscribe();
     }
+    announcementSubsRef.current.forEach((s) => s.unsubscribe());
+    announcementSubsRef.current = [];
+    if (documentSubRef.current) {
+      documentSubRef.current.unsubscribe();
+      documentSubRef.current = null;
+    }
     if (stompClientRef.current) {
       stompClientRef.current.disconnect(() => {
         console.log("🔌 Disconnected from WebSocket");
@@ -158,9 +236,14 @@ const ChatNotifications = () => {
   const markAllAsRead = async () => {
     
     try {
-      await axiosInstance.put("/api/notifications/read-all");
+      await Promise.all([
+        axiosInstance.put("/api/notifications/read-all"),
+        axiosInstance.put("/api/announcements/read"),
+      ]);
       setNotifications((prev) => prev.map((n) => ({ ...n, isRead: true })));
       setUnreadCount(0);
+      setAnnouncements((prev) => prev.map((a) => ({ ...a, read: true })));
+      setAnnouncementUnread(0);
       console.log("📊 All notifications marked as read");
     } catch (error) {
       console.error("Failed to mark all as read:", error);
@@ -227,6 +310,9 @@ const ChatNotifications = () => {
     return message.length <= maxLength ? message : message.substring(0, maxLength) + "...";
   };
 
+  const totalUnread = unreadCount + announcementUnread;
+  const unreadAnnouncements = announcements.filter((a) => !a.read);
+
   return (
     <div className="relative" ref={dropdownRef}>
       {/* 🔔 Bell Icon */}
@@ -238,9 +324,9 @@ const ChatNotifications = () => {
         <FiBell className="text-2xl text-gray-700" />
 
         {/* 🔴 Unread Badge */}
-        {unreadCount > 0 && (
+        {totalUnread > 0 && (
           <span className="absolute top-0 right-0 bg-red-500 text-white text-xs font-bold rounded-full h-5 w-5 flex items-center justify-center animate-pulse">
-            {unreadCount > 99 ? "99+" : unreadCount}
+            {totalUnread > 99 ? "99+" : totalUnread}
           </span>
         )}
 
@@ -256,9 +342,9 @@ const ChatNotifications = () => {
           {/* Header */}
           <div className="flex justify-between items-center p-4 border-b border-gray-200 bg-gradient-to-r from-blue-50 to-indigo-50">
             <h3 className="font-bold text-lg text-gray-800">
-              Notifications {unreadCount > 0 && `(${unreadCount})`}
+              Notifications {totalUnread > 0 && `(${totalUnread})`}
             </h3>
-            {unreadCount > 0 && (
+            {totalUnread > 0 && (
               <button
                 onClick={markAllAsRead}
                 className="text-sm text-blue-600 hover:text-blue-800 font-medium"
@@ -271,7 +357,38 @@ const ChatNotifications = () => {
 
           {/* Notification List */}
           <div className="overflow-y-auto flex-1">
-            {notifications.length === 0 ? (
+            {/* 📄 Document checks running or just finished */}
+            {documentUpdates.map((d) => (
+              <div key={`document-${d.documentId}`} className="p-4 border-b border-gray-100 bg-gray-50">
+                <p className="font-semibold text-sm text-gray-800">📄 {d.fileName}</p>
+                {d.status === "FAILED" ? (
+                  <p className="text-sm text-red-600 mt-1">❌ {d.error}</p>
+                ) : d.status === "DONE" ? (
+                  <p className="text-sm text-green-600 mt-1">
+                    ✅ Checked
+                    {d.width ? ` · ${d.width}×${d.height}` : ""}
+                  </p>
+                ) : (
+                  <div className="mt-2">
+                    <div className="h-1.5 bg-gray-200 rounded-full overflow-hidden">
+                      <div className="h-full bg-blue-500" style={{ width: `${d.progress}%` }}></div>
+                    </div>
+                    <p className="text-xs text-gray-500 mt-1">{d.stage}…</p>
+                  </div>
+                )}
+              </div>
+            ))}
+
+            {/* 📢 Unread announcements first */}
+            {unreadAnnouncements.map((a) => (
+              <div key={`announcement-${a.id}`} className="p-4 border-b border-gray-100 bg-amber-50">
+                <p className="font-semibold text-sm text-gray-800">📢 {a.authorName}</p>
+                <p className="text-sm text-gray-700 mt-1 whitespace-pre-line">{a.content}</p>
+                <p className="text-xs text-gray-400 mt-1">{formatTime(a.createdAt)}</p>
+              </div>
+            ))}
+
+            {notifications.length === 0 && unreadAnnouncements.length === 0 && documentUpdates.length === 0 ? (
               <div className="text-center py-12 text-gray-500">
                 <FiBell className="mx-auto text-5xl text-gray-300 mb-3" />
                 <p className="text-sm">No new notifications</p>
@@ -296,6 +413,11 @@ const ChatNotifications = () => {
                       <div className="flex justify-between items-start">
                         <p className="font-semibold text-sm text-gray-800">
                           {n.senderName}
+                          {n.collapsedCount > 1 && (
+                            <span className="ml-1 text-xs font-normal text-gray-500">
+                              ({n.collapsedCount} messages)
+                            </span>
+                          )}
                         </p>
                         {!n.isRead && (
                           <span className="h-2 w-2 bg-blue-600 rounded-full mt-1"></span>
@@ -70,7 +70,7 @@ function VerifyDocumentsTab() {
         Uploaded: {new Date(doc.uploadedAt).toLocaleString()}
       </p>
       <a
-        href={`http://localhost:8080/${doc.fileUrl.replace(/\\/g, "/")}`}
+        href={`http://localhost:8080${doc.downloadUrl}`}
         target="_blank"
         rel="noopener noreferrer"
         className="text-blue-600 underline text-sm mb-3 inline-block break-words"
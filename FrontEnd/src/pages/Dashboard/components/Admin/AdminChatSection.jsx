@@ -1,9 +1,33 @@
 import React, { useState } from 'react';
 
 import ChatComponent from '../../../../components/ChatComponent';
+import { publishAnnouncement } from '../../../../services/api';
 
 export default function AdminChatSection({ users }) {
   const [selectedUser, setSelectedUser] = useState(null);
+  const [announcement, setAnnouncement] = useState("");
+  const [targetRole, setTargetRole] = useState("");
+  const [targetLocation, setTargetLocation] = useState("");
+  const [publishing, setPublishing] = useState(false);
+
+  // 📢 One broadcast reaches every matching user; no per-user messages
+  const handlePublish = async () => {
+    if (!announcement.trim()) return;
+    setPublishing(true);
+    try {
+      await publishAnnouncement({
+        content: announcement,
+        targetRole: targetRole || null,
+        targetLocation: targetLocation || null,
+      });
+      setAnnouncement("");
+    } catch (error) {
+      console.error("Failed to publish announcement:", error);
+      alert(error.response?.data?.message || "Failed to publish announcement");
+    } finally {
+      setPublishing(false);
+    }
+  };
 
   // Show only providers and customers (not admins)
   const chatUsers = users.filter(
@@ -21,6 +45,42 @@ export default function AdminChatSection({ users }) {
           </span>
         </div>
 
+        {/* Announcement to all users, or one role / location */}
+        <div className="p-4 border-b border-[#6e290c30] space-y-2">
+          <textarea
+            value={announcement}
+            onChange={(e) => setAnnouncement(e.target.value)}
+            placeholder="Announcement to users..."
+            rows={2}
+            maxLength={2000}
+            className="w-full p-2 text-sm border border-[#6e290c30] rounded-lg focus:outline-none"
+          />
+          <div className="flex gap-2">
+            <select
+              value={targetRole}
+              onChange={(e) => setTargetRole(e.target.value)}
+              className="flex-1 p-2 text-sm border border-[#6e290c30] rounded-lg"
+            >
+              <option value="">All roles</option>
+              <option value="CUSTOMER">Customers</option>
+              <option value="PROVIDER">Providers</option>
+            </select>
+            <input
+              value={targetLocation}
+              onChange={(e) => setTargetLocation(e.target.value)}
+              placeholder="Location (optional)"
+              className="flex-1 p-2 text-sm border border-[#6e290c30] rounded-lg"
+            />
+          </div>
+          <button
+            onClick={handlePublish}
+            disabled={publishing || !announcement.trim()}
+            className="w-full py-2 text-sm font-semibold text-white bg-[#6e290c] rounded-lg disabled:opacity-50"
+          >
+            {publishing ? "Publishing..." : "📢 Publish announcement"}
+          </button>
+        </div>
+
         {chatUsers.length === 0 ? (
           <div className="p-4 text-gray-500 text-sm text-center" >
             No users available
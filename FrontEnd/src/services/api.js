@@ -133,8 +133,21 @@ export const sendMessageAPI = (messageData) =>
   API.post("/messages", messageData);
 
 // 📥 Get all messages between logged-in user and another user
-export const getMessagesWithUser = (userId) =>
-  API.get(`/messages/between/${userId}`);
+// 💬 Newest page of a chat; pass the oldest message's "{sentAt}_{id}" as before for the page above it
+export const getMessagesWithUser = (userId, before) =>
+  API.get(`/messages/between/${userId}`, { params: { before } });
+
+// 🔄 Only what changed since the client's cursor and/or per-conversation seqs ({ partnerId: lastSeq })
+export const syncMessages = (body) =>
+  API.post(`/messages/sync`, body);
+
+// 🔎 Search my chats: words must all match, "quoted words" are a phrase, word* is a prefix
+export const searchMessages = (q, before) =>
+  API.get(`/messages/search`, { params: { q, before } });
+
+// 📢 Admin broadcast: everyone, or only targetRole and/or targetLocation
+export const publishAnnouncement = (announcement) =>
+  API.post(`/announcements`, announcement);
 
 export const verifyProvider = (providerId) => {
   return API.put(`/users/${providerId}/verify`);
@@ -0,0 +1,139 @@
+package infosys.backend.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact CBOR frames for clients on the native WebSocket endpoint (/ws-native).
+ *
+ * A client opts in with a "payload-encoding: cbor" header on CONNECT; everyone else keeps
+ * getting JSON. Outgoing frames for those sessions are re-encoded from the broker's JSON
+ * to CBOR, and the sender/receiver name fields are dropped (clients already know the
+ * users by id). CBOR frames go out as binary WebSocket messages with content-type
+ * application/octet-stream;codec=cbor, because STOMP only sends binary frames for
+ * octet-stream. SockJS cannot carry binary frames, so the header is ignored there.
+ *
+ * Frame sizes before and after, and the re-encoding time, are recorded as
+ * chat.ws.frame.bytes{encoding} and chat.ws.frame.encode.
+ */
+@Component
+public class CompactFrameInterceptor implements ChannelInterceptor {
+
+    // Set by the /ws-native handshake interceptor
+    public static final String NATIVE_TRANSPORT_ATTR = "nativeTransport";
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+
+    private static final MimeType CBOR_FRAME = new MimeType("application", "octet-stream", Map.of("codec", "cbor"));
+    private static final Set<String> NAME_FIELDS = Set.of("senderName", "receiverName");
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
+    // Sessions that negotiated CBOR
+    private final Set<String> compactSessions = ConcurrentHashMap.newKeySet();
+
+    private final DistributionSummary jsonBytes;
+    private final DistributionSummary cborBytes;
+    private final Timer encodeTimer;
+
+    public CompactFrameInterceptor(MeterRegistry meterRegistry) {
+        this.jsonBytes = DistributionSummary.builder("chat.ws.frame.bytes")
+                .tag("encoding", "json")
+                .baseUnit("bytes")
+                .description("Payload size of frames for compact sessions, as JSON")
+                .register(meterRegistry);
+        this.cborBytes = DistributionSummary.builder("chat.ws.frame.bytes")
+                .tag("encoding", "cbor")
+                .baseUnit("bytes")
+                .description("Payload size of the same frames as compact CBOR")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("chat.ws.frame.encode")
+                .description("Time spent re-encoding JSON frames as CBOR")
+                .register(meterRegistry);
+    }
+
+    public ObjectMapper getCborMapper() {
+        return cborMapper;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (SimpMessageType.CONNECT.equals(type)) {
+            negotiate(StompHeaderAccessor.wrap(message));
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (SimpMessageType.MESSAGE.equals(type)
+                && sessionId != null
+                && compactSessions.contains(sessionId)
+                && message.getPayload() instanceof byte[] payload) {
+            return encode(message, payload);
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        compactSessions.remove(event.getSessionId());
+    }
+
+    // 🤝 Only native WebSocket sessions can take binary frames
+    private void negotiate(StompHeaderAccessor accessor) {
+        String requested = accessor.getFirstNativeHeader(ENCODING_HEADER);
+        if (!"cbor".equalsIgnoreCase(requested)) return;
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null && Boolean.TRUE.equals(attributes.get(NATIVE_TRANSPORT_ATTR))) {
+            compactSessions.add(accessor.getSessionId());
+        } else {
+            System.out.println("⚠️ CBOR requested over SockJS, session " + accessor.getSessionId() + " stays on JSON");
+        }
+    }
+
+    // 📦 JSON from the broker -> CBOR without name fields
+    private Message<?> encode(Message<?> message, byte[] payload) {
+        long start = System.nanoTime();
+        byte[] compact;
+        try {
+            JsonNode tree = jsonMapper.readTree(payload);
+            if (tree instanceof ObjectNode object) {
+                object.remove(NAME_FIELDS);
+            }
+            compact = cborMapper.writeValueAsBytes(tree);
+        } catch (IOException e) {
+            // Not JSON (or not ours): pass it through untouched
+            return message;
+        }
+        encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        jsonBytes.record(payload.length);
+        cborBytes.record(compact.length);
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+        headers.setContentType(CBOR_FRAME);
+        return MessageBuilder.createMessage(compact, headers.getMessageHeaders());
+    }
+}
@@ -3,6 +3,8 @@ package infosys.backend.config;
 import infosys.backend.model.User;
 import infosys.backend.repository.UserRepository;
 import infosys.backend.security.JwtUtil;
+import infosys.backend.service.DocumentUrlSigner;
+import infosys.backend.service.LastSeenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,6 +24,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final LastSeenService lastSeenService;
+
+    // Signed document links carry their own authorization; skip the user lookup
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + DocumentUrlSigner.PREFIX);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -55,6 +64,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                         );
 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                lastSeenService.record(user.getId());
 
                 // 🔹 Log for debugging
                 logger.info("Authenticated user: " + email + ", role: " + roleName);
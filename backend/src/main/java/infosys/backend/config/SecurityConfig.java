@@ -32,8 +32,9 @@ public class SecurityConfig {
                 // 🔓 Public endpoints
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/services").permitAll()  // public service listing
-                .requestMatchers("/uploads/**").permitAll()  // allow static file access
+                .requestMatchers("/files/**").permitAll()    // document downloads, checked by their link signature
                 .requestMatchers("/ws/**").permitAll()       // allow WebSocket handshake
+                .requestMatchers("/ws-native").permitAll()   // plain WebSocket handshake
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // preflight requests
 
                 // 🔐 Protected endpoints
@@ -42,13 +43,20 @@ public class SecurityConfig {
                 .requestMatchers("/bookings/**").authenticated()
                 .requestMatchers("/reviews/**").authenticated()
                 .requestMatchers("/api/messages/**").authenticated()
+                .requestMatchers("/api/conversations/**").authenticated()
                 .requestMatchers("/api/documents/**").authenticated()
                 .requestMatchers("/api/reports/**").authenticated()
+                .requestMatchers("/api/announcements/**").authenticated()
 
                 // 🧮 Admin Analytics endpoints (secured)
                 .requestMatchers("/api/admin/analytics/**").authenticated()
                 // 👉 If you want only admin role, you can use:
                 // .requestMatchers("/api/admin/analytics/**").hasRole("ADMIN")
+                .requestMatchers("/api/admin/chat/**").hasRole("ADMIN")
+
+                // 📈 Metrics (admins only)
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                 // All other requests
                 .anyRequest().authenticated()
@@ -0,0 +1,188 @@
+package infosys.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the STOMP client inbound (frames from browsers) and outbound (frames to
+ * browsers) channels.
+ *
+ * By default each channel gets a fixed-size pool with a bounded queue. When the queue is
+ * full the task runs on the submitting thread, which slows the producer down instead of
+ * dropping frames. With websocket.channel.virtual-threads=true each frame gets its own
+ * virtual thread instead (good when handlers block on the database), capped at
+ * websocket.channel.virtual-max-concurrency.
+ *
+ * Metrics per channel, in both modes: websocket.channel.active, websocket.channel.queued
+ * (frames waiting for a pool thread, or submitters waiting for a virtual-thread permit) and
+ * websocket.channel.rejected (frames that found the channel full). Sessions closed because
+ * the client could not keep up with outbound frames (see websocket.transport.*) count as
+ * websocket.sessions.slow-consumer-closed.
+ */
+@Component
+@RequiredArgsConstructor
+public class WebSocketChannelExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketChannelExecutors.class);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${websocket.channel.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.channel.virtual-max-concurrency:1000}")
+    private int virtualMaxConcurrency;
+
+    @Value("${websocket.channel.inbound.pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${websocket.channel.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.channel.outbound.pool-size:8}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.channel.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    private Counter slowConsumerClosed;
+
+    // Spring publishes the disconnect of a terminated session more than once; count each session once
+    private final Set<String> recentlyClosed = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > 1024;
+                }
+            }));
+
+    @PostConstruct
+    void registerMetrics() {
+        slowConsumerClosed = Counter.builder("websocket.sessions.slow-consumer-closed")
+                .description("Sessions closed because outbound frames backed up")
+                .register(meterRegistry);
+    }
+
+    public void configureInbound(ChannelRegistration registration) {
+        configure(registration, "inbound", inboundPoolSize, inboundQueueCapacity);
+    }
+
+    public void configureOutbound(ChannelRegistration registration) {
+        configure(registration, "outbound", outboundPoolSize, outboundQueueCapacity);
+    }
+
+    // 🐢 SESSION_NOT_RELIABLE is what Spring closes with when the send time or buffer limit is hit
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        if (CloseStatus.SESSION_NOT_RELIABLE.equals(event.getCloseStatus()) && recentlyClosed.add(event.getSessionId())) {
+            slowConsumerClosed.increment();
+            log.warn("🐢 Closed slow WebSocket session {}", event.getSessionId());
+        }
+    }
+
+    private void configure(ChannelRegistration registration, String channel, int poolSize, int queueCapacity) {
+        Counter rejected = Counter.builder("websocket.channel.rejected")
+                .tag("channel", channel)
+                .description("Tasks that found the channel full and ran on (pool) or held up (virtual) the caller")
+                .register(meterRegistry);
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("websocket.channel.active", active, AtomicInteger::get)
+                .tag("channel", channel)
+                .description("Frames currently being handled")
+                .register(meterRegistry);
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-" + channel + "-");
+            executor.setVirtualThreads(true);
+            AtomicInteger waiting = new AtomicInteger();
+            Gauge.builder("websocket.channel.queued", waiting, AtomicInteger::get)
+                    .tag("channel", channel)
+                    .description("Submitters waiting for a free virtual-thread permit")
+                    .register(meterRegistry);
+            registration.executor(limited(executor, virtualMaxConcurrency, active, waiting, rejected));
+            log.info("🧵 WebSocket {} channel on virtual threads (max {})", channel, virtualMaxConcurrency);
+            return;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ws-" + channel + "-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(task -> () -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            new ThreadPoolExecutor.CallerRunsPolicy().rejectedExecution(task, pool);
+        });
+        Gauge.builder("websocket.channel.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("channel", channel)
+                .description("Frames waiting for a channel thread")
+                .register(meterRegistry);
+        registration.taskExecutor(executor);
+    }
+
+    /**
+     * At most maxConcurrency frames run at once; at the limit the submitter waits for a permit,
+     * which is this mode's back-pressure. Each wait counts as rejected and shows up as queued.
+     * A TaskExecutor, because the broker stats bean looks the channel executors up by that type.
+     */
+    private static TaskExecutor limited(Executor executor, int maxConcurrency, AtomicInteger active,
+                                        AtomicInteger waiting, Counter rejected) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        return task -> {
+            if (!permits.tryAcquire()) {
+                rejected.increment();
+                waiting.incrementAndGet();
+                try {
+                    permits.acquireUninterruptibly();
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            try {
+                executor.execute(() -> {
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        };
+    }
+}
@@ -1,47 +1,229 @@
 package infosys.backend.config;
 
 import infosys.backend.security.JwtUtil;
+import infosys.backend.service.PresenceService;
+import jakarta.websocket.WebSocketContainer;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.RequestUpgradeStrategy;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Configuration
 @EnableWebSocketMessageBroker
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    // A misbehaving client can send thousands of rejected frames; log them at most this often
+    private static final long DROPPED_SEND_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private final AtomicLong droppedSendLoggedAt = new AtomicLong(System.nanoTime() - DROPPED_SEND_LOG_INTERVAL_NANOS);
+    private final AtomicLong droppedSendsSinceLog = new AtomicLong();
+
+    private static final String APP_PREFIX = "/app";
+
     private final JwtUtil jwtUtil;
+    private final CompactFrameInterceptor compactFrameInterceptor;
+    private final WebSocketChannelExecutors channelExecutors;
+
+    // Lazy: PresenceService needs the messaging template this configuration creates
+    @Autowired
+    @Lazy
+    private PresenceService presenceService;
+
+    @Value("${websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${websocket.native.permessage-deflate:true}")
+    private boolean permessageDeflate;
+
+    // "simple" = in-memory broker (single node), "relay" = external STOMP broker (multi-node)
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/queue", "/topic");
-        config.setApplicationDestinationPrefixes("/app");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            configureBrokerRelay(config);
+        } else {
+            // 💓 Server and client heartbeats; they keep presence sessions fresh
+            ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(1);
+            heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+            heartbeatScheduler.setDaemon(true);
+            heartbeatScheduler.initialize();
+
+            config.enableSimpleBroker("/queue", "/topic")
+                    .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(heartbeatScheduler);
+        }
+        config.setApplicationDestinationPrefixes(APP_PREFIX);
+        // Frames to one session leave in the order they were published (the outbound pool is multi-threaded)
+        config.setPreservePublishOrder(true);
+    }
+
+    /**
+     * 🌐 Relay /queue and /topic to an external STOMP broker (RabbitMQ, ActiveMQ) so any node
+     * can reach any user. Each node advertises its connected users on the registry topic,
+     * and a /user/... message for a user who is not connected locally is re-broadcast for
+     * the node that has them. The shared "system" connection reconnects on its own after a
+     * broker restart; client connections are closed and the clients reconnect.
+     */
+    private void configureBrokerRelay(MessageBrokerRegistry config) {
+        StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/queue", "/topic")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setSystemHeartbeatSendInterval(heartbeatMs)
+                .setSystemHeartbeatReceiveInterval(heartbeatMs)
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+        if (!relayVirtualHost.isBlank()) {
+            relay.setVirtualHost(relayVirtualHost);
+        }
+        log.info("🌐 STOMP broker relay to {}:{}", relayHost, relayPort);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // Frames from one session are handled in the order they arrived, so a conversation lane sees them in send order
+        registry.setPreserveReceiveOrder(true);
+
         registry
             .addEndpoint("/ws")
             .setAllowedOriginPatterns("*")
             .withSockJS();
+
+        // ⚡ Plain WebSocket (no SockJS framing): permessage-deflate and binary CBOR frames
+        registry
+            .addEndpoint("/ws-native")
+            .setAllowedOriginPatterns("*")
+            .setHandshakeHandler(new DefaultHandshakeHandler(nativeUpgradeStrategy()))
+            .addInterceptors(new HandshakeInterceptor() {
+                @Override
+                public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                               WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                    attributes.put(CompactFrameInterceptor.NATIVE_TRANSPORT_ATTR, true);
+                    return true;
+                }
+
+                @Override
+                public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Exception exception) {
+                }
+            });
+    }
+
+    // Tomcat reports no installed extensions to Spring, so permessage-deflate is announced here
+    private RequestUpgradeStrategy nativeUpgradeStrategy() {
+        if (!permessageDeflate) {
+            return new StandardWebSocketUpgradeStrategy();
+        }
+        return new StandardWebSocketUpgradeStrategy() {
+            @Override
+            protected List<WebSocketExtension> getInstalledExtensions(WebSocketContainer container) {
+                return List.of(new WebSocketExtension("permessage-deflate"));
+            }
+        };
+    }
+
+    // Inbound SEND frames with content-type application/cbor; JSON stays the default
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cbor = new MappingJackson2MessageConverter(CompactFrameInterceptor.CBOR);
+        cbor.setObjectMapper(compactFrameInterceptor.getCborMapper());
+        cbor.setStrictContentTypeMatch(true);
+        messageConverters.add(cbor);
+        return true;
+    }
+
+    /**
+     * 🐢 A client that cannot take frames as fast as they are sent (slow mobile link, frozen tab)
+     * is disconnected once one send blocks for longer than the time limit or its pending frames
+     * exceed the buffer limit, so it cannot tie up outbound threads for everyone else.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        channelExecutors.configureOutbound(registration);
+        registration.interceptors(compactFrameInterceptor);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        channelExecutors.configureInbound(registration);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor =
                         MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null) {
+                    return message;
+                }
 
                 if (StompCommand.CONNECT.equals(accessor.getCommand())) {
                     String token = accessor.getFirstNativeHeader("Authorization");
@@ -49,13 +231,39 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         token = token.substring(7);
                         String email = jwtUtil.extractUsername(token); // ✅ Extract email from JWT
                         if (email != null) {
+                            // Lower case, like the HTTP principal: user destinations and the user registry key on it
+                            email = email.toLowerCase();
                             accessor.setUser(new UsernamePasswordAuthenticationToken(email, null, null));
-                            System.out.println("✅ STOMP authenticated as " + email);
+                            log.debug("✅ STOMP authenticated as {}", email);
                         }
                     }
                 }
+
+                // 🚫 Clients only SEND to /app; /topic, /queue and /user are published by the server
+                // (announcements, presence, chat), and in relay mode they reach every node
+                if (StompCommand.SEND.equals(accessor.getCommand())
+                        && (accessor.getDestination() == null || !accessor.getDestination().startsWith(APP_PREFIX + "/"))) {
+                    logDroppedSend(accessor.getDestination());
+                    return null;
+                }
+
+                if (accessor.getSessionId() != null
+                        && !StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+                    presenceService.touch(accessor.getSessionId(), accessor.getUser());
+                }
                 return message;
             }
-        });
+        }, compactFrameInterceptor);
+    }
+
+    private void logDroppedSend(String destination) {
+        long dropped = droppedSendsSinceLog.incrementAndGet();
+        long last = droppedSendLoggedAt.get();
+        long now = System.nanoTime();
+        if (now - last < DROPPED_SEND_LOG_INTERVAL_NANOS || !droppedSendLoggedAt.compareAndSet(last, now)) {
+            return;
+        }
+        droppedSendsSinceLog.addAndGet(-dropped);
+        log.warn("⚠️ Dropped client SEND to {} ({} dropped since the last report)", destination, dropped);
     }
 }
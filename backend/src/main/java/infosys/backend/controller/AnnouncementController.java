@@ -0,0 +1,63 @@
+package infosys.backend.controller;
+
+import infosys.backend.dto.AnnouncementDTO;
+import infosys.backend.dto.AnnouncementRequest;
+import infosys.backend.dto.AnnouncementStateDTO;
+import infosys.backend.model.User;
+import infosys.backend.service.AnnouncementService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/announcements")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AnnouncementController {
+
+    private final AnnouncementService announcementService;
+
+    // 📢 Admin broadcast to everyone, or to one role and/or location
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AnnouncementDTO> publish(@RequestBody AnnouncementRequest request, Principal principal) {
+        return ResponseEntity.ok(announcementService.publish(getCurrentUser(principal), request));
+    }
+
+    // 📄 Newest first. Pass the last item's id as `before` for the next page.
+    @GetMapping
+    public ResponseEntity<List<AnnouncementDTO>> getAnnouncements(
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal
+    ) {
+        return ResponseEntity.ok(announcementService.getAnnouncements(getCurrentUser(principal), before, size));
+    }
+
+    // 🔢 Watermark, unread count and the topics to subscribe to
+    @GetMapping("/state")
+    public ResponseEntity<AnnouncementStateDTO> getState(Principal principal) {
+        return ResponseEntity.ok(announcementService.getState(getCurrentUser(principal)));
+    }
+
+    // ✅ Mark everything up to ?upTo= (an announcement id, default the latest) as read
+    @PutMapping("/read")
+    public ResponseEntity<AnnouncementStateDTO> markRead(
+            @RequestParam(required = false) Long upTo,
+            Principal principal
+    ) {
+        return ResponseEntity.ok(announcementService.markReadUpTo(getCurrentUser(principal), upTo));
+    }
+
+    private User getCurrentUser(Principal principal) {
+        if (principal instanceof UsernamePasswordAuthenticationToken) {
+            return (User) ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
+        }
+        throw new RuntimeException("Unauthenticated user");
+    }
+}
@@ -2,19 +2,23 @@ package infosys.backend.controller;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import infosys.backend.dto.RoutePlan;
 import infosys.backend.enums.BookingStatus;
 import infosys.backend.enums.Role;
 import infosys.backend.model.Booking;
 import infosys.backend.model.User;
 import infosys.backend.service.BookingService;
+import infosys.backend.service.RouteOptimizerService;
 import infosys.backend.service.UserService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -27,6 +31,9 @@ public class BookingController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private RouteOptimizerService routeOptimizerService;
+
     // Create a new booking
      @PreAuthorize("hasRole('CUSTOMER')")
     @PostMapping("/create")
@@ -50,6 +57,14 @@ public class BookingController {
         return bookingService.getBookingsByProvider(provider);
     }
 
+    // Optimised visiting order for a provider's confirmed bookings on one day
+    @PreAuthorize("hasRole('PROVIDER') or hasRole('ADMIN')")
+    @GetMapping("/provider/{providerId}/route")
+    public RoutePlan getProviderRoute(@PathVariable Long providerId,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return routeOptimizerService.getDailyRoute(providerId, date);
+    }
+
     // Update booking status
      @PreAuthorize("hasRole('PROVIDER') or hasRole('ADMIN')")
     @PutMapping("/updateStatus/{bookingId}")
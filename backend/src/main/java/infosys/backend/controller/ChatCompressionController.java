@@ -0,0 +1,36 @@
+package infosys.backend.controller;
+
+import infosys.backend.dto.ChatCompressionStatsDTO;
+import infosys.backend.service.ChatCompressionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/chat/compression")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class ChatCompressionController {
+
+    private final ChatCompressionService chatCompressionService;
+
+    // 🗜️ Codec settings and re-compression progress
+    @GetMapping
+    public ResponseEntity<ChatCompressionStatsDTO> getStats() {
+        return ResponseEntity.ok(chatCompressionService.getStats());
+    }
+
+    // 🎓 Train a dictionary on recent messages and use it for new writes
+    @PostMapping("/dictionary")
+    public ResponseEntity<ChatCompressionStatsDTO> trainDictionary() {
+        return ResponseEntity.ok(chatCompressionService.trainDictionary());
+    }
+
+    // 🔁 Run the re-compression pass now instead of waiting for the schedule
+    @PostMapping("/recompress")
+    public ResponseEntity<ChatCompressionStatsDTO> recompress() {
+        chatCompressionService.recompress();
+        return ResponseEntity.ok(chatCompressionService.getStats());
+    }
+}
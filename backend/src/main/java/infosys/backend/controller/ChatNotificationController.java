@@ -1,14 +1,18 @@
 package infosys.backend.controller;
 
 import infosys.backend.dto.ChatNotificationDTO;
+import infosys.backend.dto.ChatNotificationSyncResponse;
+import infosys.backend.dto.KeysetCursor;
 import infosys.backend.model.User;
 import infosys.backend.service.ChatNotificationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -20,24 +24,52 @@ public class ChatNotificationController {
 
     private final ChatNotificationService notificationService;
 
+    // 📄 Newest first. Pass the last item's `cursor` as `before` for the next page.
     @GetMapping("/unread")
-    public ResponseEntity<List<ChatNotificationDTO>> getUnreadNotifications(Principal principal) {
+    public ResponseEntity<List<ChatNotificationDTO>> getUnreadNotifications(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal
+    ) {
         User currentUser = getCurrentUser(principal);
-        List<ChatNotificationDTO> notifications = notificationService.getUnreadNotifications(currentUser);
+        KeysetCursor cursor = before != null ? KeysetCursor.parse(before) : null;
+        List<ChatNotificationDTO> notifications = notificationService.getUnreadNotifications(currentUser, cursor, size);
         return ResponseEntity.ok(notifications);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<ChatNotificationDTO>> getAllNotifications(Principal principal) {
+    public ResponseEntity<List<ChatNotificationDTO>> getAllNotifications(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal
+    ) {
         User currentUser = getCurrentUser(principal);
-        List<ChatNotificationDTO> notifications = notificationService.getAllNotifications(currentUser);
+        KeysetCursor cursor = before != null ? KeysetCursor.parse(before) : null;
+        List<ChatNotificationDTO> notifications = notificationService.getAllNotifications(currentUser, cursor, size);
         return ResponseEntity.ok(notifications);
     }
 
+    // 🔄 Only what was created or changed since `cursor` (from the previous call; omit it to get a starting cursor)
+    @GetMapping("/since")
+    public ResponseEntity<ChatNotificationSyncResponse> getChangedSince(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "200") int size,
+            Principal principal
+    ) {
+        User currentUser = getCurrentUser(principal);
+        KeysetCursor since = cursor != null ? KeysetCursor.parse(cursor) : null;
+        return ResponseEntity.ok(notificationService.getChangedSince(currentUser, since, size));
+    }
+
     @GetMapping("/count")
-    public ResponseEntity<Map<String, Long>> getUnreadCount(Principal principal) {
+    public ResponseEntity<Map<String, Long>> getUnreadCount(
+            @RequestParam(required = false) Long senderId,
+            Principal principal
+    ) {
         User currentUser = getCurrentUser(principal);
-        long count = notificationService.getUnreadCount(currentUser);
+        long count = senderId != null
+                ? notificationService.getUnreadCountFromSender(currentUser, senderId)
+                : notificationService.getUnreadCount(currentUser);
         return ResponseEntity.ok(Map.of("count", count));
     }
 
@@ -52,20 +84,31 @@ public class ChatNotificationController {
     }
 
     @PutMapping("/read-all")
-    public ResponseEntity<Void> markAllAsRead(Principal principal) {
+    public ResponseEntity<Map<String, Integer>> markAllAsRead(Principal principal) {
         User currentUser = getCurrentUser(principal);
-        notificationService.markAllAsRead(currentUser);
-        return ResponseEntity.ok().build();
+        int updated = notificationService.markAllAsRead(currentUser);
+        return ResponseEntity.ok(Map.of("updated", updated));
     }
 
     @PutMapping("/read-from/{senderId}")
-    public ResponseEntity<Void> markAllFromSenderAsRead(
+    public ResponseEntity<Map<String, Integer>> markAllFromSenderAsRead(
             @PathVariable Long senderId,
             Principal principal
     ) {
         User currentUser = getCurrentUser(principal);
-        notificationService.markAllFromSenderAsRead(currentUser, senderId);
-        return ResponseEntity.ok().build();
+        int updated = notificationService.markAllFromSenderAsRead(currentUser, senderId);
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
+    // ⏱️ Mark everything sent up to ?before= (ISO date-time, default now) as read
+    @PutMapping("/read-up-to")
+    public ResponseEntity<Map<String, LocalDateTime>> markReadUpTo(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            Principal principal
+    ) {
+        User currentUser = getCurrentUser(principal);
+        LocalDateTime readUpTo = notificationService.markReadUpTo(currentUser, before);
+        return ResponseEntity.ok(Map.of("readUpTo", readUpTo));
     }
 
     private User getCurrentUser(Principal principal) {
@@ -0,0 +1,50 @@
+package infosys.backend.controller;
+
+import infosys.backend.dto.ConversationDTO;
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.model.User;
+import infosys.backend.service.ConversationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/conversations")
+@RequiredArgsConstructor
+public class ConversationController {
+
+    private final ConversationService conversationService;
+
+    // 📥 Inbox, newest first. Pass the last item's `cursor` as `before` for the next page.
+    @GetMapping
+    public ResponseEntity<List<ConversationDTO>> getInbox(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal
+    ) {
+        User currentUser = getCurrentUser(principal);
+        KeysetCursor cursor = before != null ? KeysetCursor.parse(before) : null;
+        return ResponseEntity.ok(conversationService.getInbox(currentUser, cursor, size));
+    }
+
+    @PutMapping("/{partnerId}/read")
+    public ResponseEntity<Void> markConversationRead(
+            @PathVariable Long partnerId,
+            Principal principal
+    ) {
+        User currentUser = getCurrentUser(principal);
+        conversationService.markConversationRead(currentUser, partnerId);
+        return ResponseEntity.ok().build();
+    }
+
+    private User getCurrentUser(Principal principal) {
+        if (principal instanceof UsernamePasswordAuthenticationToken) {
+            return (User) ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
+        }
+        throw new RuntimeException("Unauthenticated user");
+    }
+}
@@ -54,7 +54,14 @@ public class DocumentController {
                 d.isRejected(),
                 d.getRejectionReason(),
                 d.getProvider() != null ? d.getProvider().getName() : "Unknown",
-                d.getProvider() != null ? d.getProvider().getId() : null
+                d.getProvider() != null ? d.getProvider().getId() : null,
+                d.getDownloadUrl(),
+                d.getProcessingStatus(),
+                d.getProcessingError(),
+                d.getDetectedType(),
+                d.getWidth(),
+                d.getHeight(),
+                d.getThumbnailUrl()
         )).toList();
 
         return ResponseEntity.ok(dtos);
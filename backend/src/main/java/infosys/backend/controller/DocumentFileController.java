@@ -0,0 +1,41 @@
+package infosys.backend.controller;
+
+import infosys.backend.service.DocumentDownloadService;
+import infosys.backend.service.DocumentUrlSigner;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequiredArgsConstructor
+public class DocumentFileController {
+
+    private final DocumentUrlSigner documentUrlSigner;
+    private final DocumentDownloadService documentDownloadService;
+
+    // 📄 Download a document file through a signed link (see DocumentDTO.downloadUrl)
+    @RequestMapping(value = "/files/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void download(@RequestParam(defaultValue = "") String name,
+                         @RequestParam(defaultValue = "0") long exp,
+                         @RequestParam(required = false) String sig,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        String encoded = request.getRequestURI()
+                .substring(request.getContextPath().length() + DocumentUrlSigner.PREFIX.length());
+        String key = UriUtils.decode(encoded, StandardCharsets.UTF_8);
+
+        if (!documentUrlSigner.verify(key, name, exp, sig)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        documentDownloadService.serve(key, name, request, response);
+    }
+}
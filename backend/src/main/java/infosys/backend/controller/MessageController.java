@@ -1,10 +1,19 @@
 package infosys.backend.controller;
 
+import infosys.backend.dto.ChatSyncRequest;
+import infosys.backend.dto.ChatSyncResponse;
+import infosys.backend.dto.KeysetCursor;
 import infosys.backend.dto.MessageDTO;
+import infosys.backend.dto.MessageSearchResponse;
 import infosys.backend.model.Message;
 import infosys.backend.model.User;
 import infosys.backend.service.MessageService;
 import infosys.backend.service.ChatNotificationService;
+import infosys.backend.service.ChatPersistencePipeline;
+import infosys.backend.service.ChatSyncService;
+import infosys.backend.service.ConversationDispatcher;
+import infosys.backend.service.MessageIdAllocator;
+import infosys.backend.service.MessageSearchService;
 import infosys.backend.repository.UserRepository;
 import infosys.backend.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -19,7 +28,8 @@ import org.springframework.web.bind.annotation.*;
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -31,6 +41,11 @@ public class MessageController {
     private final SimpMessagingTemplate messagingTemplate;
     private final JwtUtil jwtUtil;
     private final ChatNotificationService notificationService;
+    private final ChatPersistencePipeline persistencePipeline;
+    private final ConversationDispatcher dispatcher;
+    private final ChatSyncService chatSyncService;
+    private final MessageSearchService messageSearchService;
+    private final MessageIdAllocator messageIdAllocator;
 
     // ---------------- REST API ---------------- //
 
@@ -46,20 +61,29 @@ if (principal instanceof UsernamePasswordAuthenticationToken) {
     throw new RuntimeException("Unauthenticated user attempted to send message");
 }
 message.setSender(sender);
+message.setId(null); // ids are assigned on insert, never taken from the client
 
 
     User receiver = userRepository.findById(message.getReceiver().getId())
             .orElseThrow(() -> new RuntimeException("Receiver not found"));
     message.setReceiver(receiver);
 
-    Message saved = messageService.saveMessage(message);
+    // 🧵 Same lane as WebSocket sends, so REST and WebSocket messages share one order
+    Message saved = dispatcher.dispatch(sender.getId(), receiver.getId(), seq -> {
+        message.setSeq(seq);
+        return messageService.saveMessage(message);
+    }).join();
 
     return ResponseEntity.ok(convertToDTO(saved));
 }
 
+    // Paged chat history (oldest first). Cursors are "{sentAt}_{id}" of a message already on screen.
     @GetMapping("/between/{userId}")
 public ResponseEntity<List<MessageDTO>> getMessagesWithUser(
         @PathVariable Long userId,
+        @RequestParam(required = false) String before,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "50") int size,
         Principal principal
 ) {
     User currentUser;
@@ -72,15 +96,52 @@ public ResponseEntity<List<MessageDTO>> getMessagesWithUser(
     User otherUser = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("Other user not found"));
 
-    List<Message> messages = messageService.getMessagesBetweenUsers(currentUser, otherUser);
-    List<MessageDTO> dtos = messages.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+    List<MessageDTO> dtos = messageService.getMessagesBetweenUsers(
+            currentUser,
+            otherUser,
+            before != null ? KeysetCursor.parse(before) : null,
+            after != null ? KeysetCursor.parse(after) : null,
+            size
+    );
 
     return ResponseEntity.ok(dtos);
 }
 
 
+    // 🔎 Search the current user's chats: words must all match, "quoted words" are a phrase, word* is a prefix
+    @GetMapping("/search")
+    public ResponseEntity<MessageSearchResponse> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal
+    ) {
+        User currentUser;
+        if (principal instanceof UsernamePasswordAuthenticationToken) {
+            currentUser = (User) ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
+        } else {
+            throw new RuntimeException("Unauthenticated user");
+        }
+        return ResponseEntity.ok(messageSearchService.search(currentUser, q, before, size));
+    }
+
+
+    // 🔄 Delta sync after a reconnect: only what changed since the client's cursor / per-conversation seqs
+    @PostMapping("/sync")
+    public ResponseEntity<ChatSyncResponse> sync(
+            @RequestBody ChatSyncRequest request,
+            Principal principal
+    ) {
+        User currentUser;
+        if (principal instanceof UsernamePasswordAuthenticationToken) {
+            currentUser = (User) ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
+        } else {
+            throw new RuntimeException("Unauthenticated user");
+        }
+        return ResponseEntity.ok(chatSyncService.sync(currentUser, request));
+    }
+
+
     // ---------------- WebSocket ---------------- //
 
    @MessageMapping("/chat.sendMessage")
@@ -116,29 +177,48 @@ public void sendMessageWebSocket(
     User receiver = userRepository.findById(messageDTO.getReceiverId())
             .orElseThrow(() -> new RuntimeException("Receiver not found with ID: " + messageDTO.getReceiverId()));
 
-    Message message = Message.builder()
-            .sender(sender)
-            .receiver(receiver)
-            .content(messageDTO.getContent())
-            .sentAt(LocalDateTime.now())
-            .build();
-
-    Message saved = messageService.saveMessage(message);
-    MessageDTO dto = convertToDTO(saved);
-
-    // ✅ Broadcast to both users (real-time)
-   System.out.println("📤 Sending WebSocket message to user: " + receiver.getEmail());
-messagingTemplate.convertAndSendToUser(receiver.getEmail().toLowerCase(), "/queue/messages", dto);
-
-    messagingTemplate.convertAndSendToUser(sender.getEmail().toLowerCase(), "/queue/messages", dto);
-
-    // 🔔 Create notification for receiver
-    notificationService.createNotification(sender, receiver, messageDTO.getContent(), saved.getSentAt());
-
-    System.out.println("✅ Message saved and sent via WebSocket: " + dto);
-    System.out.println("📨 WebSocket header user: " + headerAccessor.getUser());
-System.out.println("📨 Sending to user: " + receiver.getEmail());
-
+    // 🧵 Persist and deliver on the conversation's lane, so both users see messages in send order
+    dispatcher.dispatch(sender.getId(), receiver.getId(), seq -> {
+        Message message = Message.builder()
+                .sender(sender)
+                .receiver(receiver)
+                .content(messageDTO.getContent())
+                .sentAt(LocalDateTime.now())
+                .seq(seq)
+                .build();
+
+        // ⚡ Write-behind: deliver now, persist (and notify) from the group-commit stage.
+        // The id is taken up front so the delivered copy already carries it.
+        if (persistencePipeline.isWriteBehind()) {
+            message.setId(messageIdAllocator.next());
+            if (!persistencePipeline.submit(message)) {
+                // Buffer full (database slow or down): tell the sender, deliver nothing, keep the seq unused
+                messagingTemplate.convertAndSendToUser(sender.getEmail().toLowerCase(), "/queue/errors", Map.of(
+                        "error", "Message not sent, please try again",
+                        "receiverId", receiver.getId(),
+                        "content", Objects.toString(messageDTO.getContent(), "")));
+                throw new RuntimeException("Chat persistence buffer full, message rejected");
+            }
+            MessageDTO dto = convertToDTO(message);
+            messagingTemplate.convertAndSendToUser(receiver.getEmail().toLowerCase(), "/queue/messages", dto);
+            messagingTemplate.convertAndSendToUser(sender.getEmail().toLowerCase(), "/queue/messages", dto);
+            return null;
+        }
+
+        Message saved = messageService.saveMessage(message);
+        MessageDTO dto = convertToDTO(saved);
+
+        // ✅ Broadcast to both users (real-time)
+        System.out.println("📤 Sending WebSocket message to user: " + receiver.getEmail());
+        messagingTemplate.convertAndSendToUser(receiver.getEmail().toLowerCase(), "/queue/messages", dto);
+        messagingTemplate.convertAndSendToUser(sender.getEmail().toLowerCase(), "/queue/messages", dto);
+
+        // 🔔 Create notification for receiver
+        notificationService.createNotification(saved);
+
+        System.out.println("✅ Message saved and sent via WebSocket: " + dto);
+        return null;
+    });
 }
 
 
@@ -153,7 +233,8 @@ System.out.println("📨 Sending to user: " + receiver.getEmail());
                 message.getReceiver().getId(),
                 message.getReceiver().getName(),
                 message.getContent(),
-                message.getSentAt()
+                message.getSentAt(),
+                message.getSeq()
         );
     }
 }
\ No newline at end of file
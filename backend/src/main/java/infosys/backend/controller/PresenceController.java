@@ -0,0 +1,29 @@
+package infosys.backend.controller;
+
+import infosys.backend.dto.PresenceDTO;
+import infosys.backend.dto.PresenceWatchRequest;
+import infosys.backend.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    // 👀 Watch a contact list; replies to this session only with the current snapshot,
+    // later changes for those users arrive on the same queue
+    @MessageMapping("/presence.watch")
+    @SendToUser(destinations = "/queue/presence", broadcast = false)
+    public List<PresenceDTO> watch(@Payload PresenceWatchRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        List<Long> userIds = request.getUserIds() != null ? request.getUserIds() : List.of();
+        return presenceService.watch(headerAccessor.getSessionId(), userIds);
+    }
+}
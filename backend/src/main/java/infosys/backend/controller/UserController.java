@@ -1,8 +1,10 @@
 package infosys.backend.controller;
 
+import infosys.backend.dto.PresenceDTO;
 import infosys.backend.enums.Role;
 import infosys.backend.model.User;
 import infosys.backend.repository.UserRepository;
+import infosys.backend.service.LastSeenService;
 import infosys.backend.service.PresenceService;
 import infosys.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +13,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +25,7 @@ public class UserController {
     private final UserService userService;
     private final UserRepository userRepository;
     private final PresenceService presenceService;
+    private final LastSeenService lastSeenService;
 
 
     @PreAuthorize("hasRole('ADMIN') or hasRole('CUSTOMER') or hasRole('PROVIDER')")
@@ -116,7 +120,16 @@ public ResponseEntity<String> getRoles(@PathVariable Long id, Authentication aut
 @GetMapping("/status/{id}")
 public ResponseEntity<Map<String, Object>> getUserStatus(@PathVariable Long id) {
     boolean online = presenceService.isUserOnline(id);
-    return ResponseEntity.ok(Map.of("online", online));
+    Map<String, Object> status = new HashMap<>();
+    status.put("online", online);
+    status.put("lastSeen", lastSeenService.getLastSeen(id));
+    return ResponseEntity.ok(status);
+}
+
+// 👥 Presence and last-seen for many users at once: /api/users/status?ids=1,2,3
+@GetMapping("/status")
+public ResponseEntity<List<PresenceDTO>> getUsersStatus(@RequestParam List<Long> ids) {
+    return ResponseEntity.ok(presenceService.getPresence(ids));
 }
 
 @PreAuthorize("hasRole('ADMIN')")
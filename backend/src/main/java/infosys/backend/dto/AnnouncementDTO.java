@@ -0,0 +1,29 @@
+package infosys.backend.dto;
+
+import infosys.backend.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Returned by /api/announcements and published on the /topic/announcements destinations
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnnouncementDTO {
+    public static final String TYPE = "ANNOUNCEMENT";
+
+    @Builder.Default
+    private String type = TYPE;
+    private Long id;
+    private Long authorId;
+    private String authorName;
+    private String content;
+    private Role targetRole;
+    private String targetLocation;
+    private LocalDateTime createdAt;
+    private boolean read;           // always false on the topic; the client compares id with its watermark
+}
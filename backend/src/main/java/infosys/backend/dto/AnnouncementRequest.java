@@ -0,0 +1,15 @@
+package infosys.backend.dto;
+
+import infosys.backend.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnouncementRequest {
+    private String content;
+    private Role targetRole;        // optional: only this role
+    private String targetLocation;  // optional: only users in this location
+}
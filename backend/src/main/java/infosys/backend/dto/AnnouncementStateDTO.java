@@ -0,0 +1,18 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnnouncementStateDTO {
+    private long readUpTo;          // announcements with an id up to here are read
+    private long unread;
+    private List<String> topics;    // STOMP destinations this user should subscribe to
+}
@@ -0,0 +1,22 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatCompressionStatsDTO {
+    private String settings;            // enabled/min-bytes/level/dictionary of the codec right now
+    private long dictionaryId;          // 0 = no dictionary
+    private boolean recompressRunning;
+    private List<String> tablesUpToDate; // tables whose last re-compression pass used the current settings
+    private long rowsRewritten;
+    private long bytesBefore;           // stored size of the rewritten rows before and after
+    private long bytesAfter;
+}
@@ -17,8 +17,20 @@ public class ChatNotificationDTO {
     private String senderName;
     private Long receiverId;
     private String receiverName;
+    private Long messageId;
     private String messageContent;
+    private Integer collapsedCount;     // unread messages from this sender represented by this row
     private LocalDateTime sentAt;
     private Boolean isRead;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private String cursor;              // pass as 'before' to load the next page
+
+    // Projection used by the paged queries: the receiver is the current user, so no name is selected
+    public ChatNotificationDTO(Long id, Long senderId, String senderName, Long receiverId, Long messageId,
+                               String messageContent, Integer collapsedCount, LocalDateTime sentAt,
+                               Boolean isRead, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, senderId, senderName, receiverId, null, messageId, messageContent, collapsedCount,
+                sentAt, isRead, createdAt, updatedAt, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatNotificationSyncResponse {
+    private List<ChatNotificationDTO> notifications;  // created or changed since the cursor, oldest change first
+    private LocalDateTime readUpTo;                   // everything sent up to here counts as read
+    private String cursor;                            // send back on the next fetch
+    private boolean hasMore;                          // more changes are waiting: fetch again right away
+}
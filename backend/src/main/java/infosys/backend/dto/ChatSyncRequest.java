@@ -0,0 +1,16 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSyncRequest {
+    private String cursor;                   // "cursor" from the previous sync response
+    private Map<Long, Long> conversations;   // partnerId -> highest seq the client already has
+    private Integer limit;                   // max messages per conversation / per global page
+}
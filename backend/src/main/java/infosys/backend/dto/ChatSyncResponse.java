@@ -0,0 +1,19 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatSyncResponse {
+    private List<MessageDTO> messages;            // new messages, oldest first
+    private List<ConversationDTO> conversations;  // current unread count and lastSeq of changed conversations
+    private String cursor;                        // send back on the next sync
+    private boolean hasMore;                      // more messages are waiting: sync again right away
+}
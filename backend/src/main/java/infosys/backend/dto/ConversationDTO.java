@@ -0,0 +1,24 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationDTO {
+    private Long id;
+    private Long partnerId;
+    private String partnerName;
+    private Long lastSenderId;
+    private String lastMessageSnippet;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+    private Long lastSeq;   // seq of the newest message; compare with the client's copy to spot missed messages
+    private String cursor;  // pass as 'before' to load the next page
+}
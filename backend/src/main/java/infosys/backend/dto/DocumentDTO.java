@@ -1,5 +1,6 @@
 package infosys.backend.dto;
 
+import infosys.backend.enums.ProcessingStatus;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,4 +21,13 @@ public class DocumentDTO {
     private String rejectionReason;
     private String providerName;
     private Long providerId;
+    private String downloadUrl; // signed, short-lived link to the file
+
+    // Background processing (see DocumentProcessingService)
+    private ProcessingStatus processingStatus;
+    private String processingError;
+    private String detectedType;
+    private Integer width;
+    private Integer height;
+    private String thumbnailUrl; // signed link to a small JPEG preview, when there is one
 }
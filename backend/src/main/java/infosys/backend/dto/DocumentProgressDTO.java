@@ -0,0 +1,25 @@
+package infosys.backend.dto;
+
+import infosys.backend.enums.ProcessingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pushed on /user/queue/documents to the provider while their document is processed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentProgressDTO {
+    private Long documentId;
+    private String fileName;
+    private ProcessingStatus status;
+    private int progress;           // 0-100
+    private String stage;           // validating, inspecting, thumbnail, done, retrying, failed
+    private String error;           // why it failed (or will be retried)
+    private String detectedType;
+    private Integer width;
+    private Integer height;
+    private String thumbnailUrl;
+}
@@ -0,0 +1,33 @@
+package infosys.backend.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset position in a time-ordered list: the (timestamp, id) of the last row a client has seen.
+ * Serialized as "{timestamp}_{id}", e.g. "2025-10-19T10:15:30.123_42".
+ */
+public record KeysetCursor(LocalDateTime at, Long id) {
+
+    // Sorts after every real row; used to ask for the first page with a descending query
+    public static final KeysetCursor NEWEST = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static KeysetCursor parse(String value) {
+        int sep = value.lastIndexOf('_');
+        if (sep <= 0 || sep == value.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+        try {
+            return new KeysetCursor(
+                    LocalDateTime.parse(value.substring(0, sep)),
+                    Long.parseLong(value.substring(sep + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return at + "_" + id;
+    }
+}
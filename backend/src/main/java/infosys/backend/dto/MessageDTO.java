@@ -2,10 +2,12 @@ package infosys.backend.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class MessageDTO {
     private Long id;
@@ -15,4 +17,10 @@ public class MessageDTO {
     private String receiverName;
     private String content;
     private LocalDateTime sentAt;
+    private Long seq;           // per-conversation sequence number; a jump means frames were missed
+
+    // Projection used by keyset queries: names are filled in from the already-loaded users
+    public MessageDTO(Long id, Long senderId, Long receiverId, String content, LocalDateTime sentAt, Long seq) {
+        this(id, senderId, null, receiverId, null, content, sentAt, seq);
+    }
 }
@@ -0,0 +1,19 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSearchHit {
+    private MessageDTO message;
+    private Long partnerId;             // the other participant of the conversation
+    private String snippet;             // part of the message around the first match
+    private List<int[]> highlights;     // [start, end) character ranges of matched words in the snippet
+}
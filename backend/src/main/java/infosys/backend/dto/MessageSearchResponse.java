@@ -0,0 +1,18 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSearchResponse {
+    private List<MessageSearchHit> hits;  // newest first
+    private String cursor;                // pass as 'before' to load the next page
+    private boolean hasMore;
+}
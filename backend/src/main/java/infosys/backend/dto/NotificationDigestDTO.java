@@ -0,0 +1,37 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Pushed on /user/queue/notifications when a receiver comes back: what arrived while they were away
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDigestDTO {
+    public static final String TYPE = "DIGEST";
+
+    @Builder.Default
+    private String type = TYPE;
+    private long total;             // messages covered by the digest
+    private List<Entry> entries;    // one per sender, most recent first
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private Long notificationId;    // the notification row written for this sender
+        private Long senderId;
+        private String senderName;
+        private int count;
+        private Long latestMessageId;
+        private String latestSnippet;
+        private LocalDateTime latestSentAt;
+    }
+}
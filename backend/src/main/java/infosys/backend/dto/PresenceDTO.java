@@ -0,0 +1,18 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresenceDTO {
+    private Long userId;
+    private boolean online;
+    private LocalDateTime lastSeen;
+}
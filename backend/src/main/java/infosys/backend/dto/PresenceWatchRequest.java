@@ -0,0 +1,11 @@
+package infosys.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Body of /app/presence.watch: the full set of users this session wants presence for
+@Data
+public class PresenceWatchRequest {
+    private List<Long> userIds;
+}
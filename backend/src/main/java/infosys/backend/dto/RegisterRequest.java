@@ -10,6 +10,8 @@ public class RegisterRequest {
     private String password;
     private Role role;          // CUSTOMER / PROVIDER / ADMIN
     private String location;    // human-readable address
+    private Double latitude;
+    private Double longitude;
 
     // Provider-specific fields
     private String category;
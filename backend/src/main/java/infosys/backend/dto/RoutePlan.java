@@ -0,0 +1,22 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoutePlan {
+    private Long providerId;
+    private LocalDate date;
+    private List<RouteStop> stops;
+    private double totalDistanceKm;
+    private double totalTravelMinutes;
+    private long solveTimeMicros;
+}
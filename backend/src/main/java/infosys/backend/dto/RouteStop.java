@@ -0,0 +1,22 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RouteStop {
+    private Long bookingId;
+    private Long customerId;
+    private String customerName;
+    private String location;
+    private String timeSlot;
+    private Double latitude;
+    private Double longitude;
+    private Double legDistanceKm;     // distance from the previous stop (null if coordinates are missing)
+    private Double legTravelMinutes;  // estimated drive time from the previous stop
+}
@@ -0,0 +1,22 @@
+package infosys.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pushed on /user/queue/notifications whenever the receiver's unread count changes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UnreadCountDTO {
+    public static final String TYPE = "UNREAD_COUNT";
+
+    @Builder.Default
+    private String type = TYPE;
+    private long total;
+    private Long senderId;      // sender whose count changed; null when all senders were cleared
+    private long fromSender;
+    private long version;       // increases with every change for this receiver
+}
@@ -0,0 +1,9 @@
+package infosys.backend.enums;
+
+// State of a document's background processing (and of its job in the queue)
+public enum ProcessingStatus {
+    QUEUED,
+    PROCESSING,
+    DONE,
+    FAILED
+}
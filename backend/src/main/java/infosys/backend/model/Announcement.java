@@ -0,0 +1,46 @@
+package infosys.backend.model;
+
+import infosys.backend.enums.Role;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One row per announcement, however many users it reaches; read state is each user's watermark
+@Entity
+@Table(name = "announcements")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Announcement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id", nullable = false)
+    private User author;
+
+    @Column(nullable = false, length = 2000)
+    private String content;
+
+    // Only users with this role see it; null = every role
+    @Enumerated(EnumType.STRING)
+    private Role targetRole;
+
+    // Only users in this location see it; null = everywhere
+    private String targetLocation;
+
+    // targetLocation folded the way user locations are (see AnnouncementService.locationKey)
+    private String locationKey;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,45 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message that was delivered but could not be written (see ChatPersistencePipeline).
+ * Kept as plain values, so a row can be stored even when the message itself is what the
+ * database refused; an admin can fix it up and re-insert it by hand.
+ */
+@Entity
+@Table(name = "chat_dead_letters", indexes = {
+        @Index(name = "idx_chat_dead_letter_failed", columnList = "failedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The id the message was delivered with
+    private Long messageId;
+
+    private Long senderId;
+
+    private Long receiverId;
+
+    private Long seq;
+
+    @Column(columnDefinition = "LONGTEXT")
+    private String content;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 500)
+    private String error;
+
+    private LocalDateTime failedAt;
+}
@@ -6,7 +6,14 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_notifications")
+@Table(name = "chat_notifications", indexes = {
+        // Retention sweeps walk old rows in (sentAt, id) order
+        @Index(name = "idx_chat_notification_sent", columnList = "sentAt, id"),
+        // Inbox pages: one receiver's read or unread rows, newest first
+        @Index(name = "idx_chat_notification_receiver_read_sent", columnList = "receiver_id, isRead, sentAt"),
+        // Delta fetch: one receiver's rows created or changed after a cursor
+        @Index(name = "idx_chat_notification_receiver_updated", columnList = "receiver_id, updatedAt, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,9 +32,20 @@ public class ChatNotification {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
-    @Column(nullable = false)
+    // The message this notification is about; its text is read from there, not copied
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "message_id")
+    private Message message;
+
+    // Only set on rows written before notifications referenced their message
+    @Convert(converter = CompressedTextConverter.class)
     private String messageContent;
 
+    // How many unread messages from the sender this row stands for (> 1 once collapsed)
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer collapsedCount = 1;
+
     @Column(nullable = false)
     private LocalDateTime sentAt;
 
@@ -37,8 +55,12 @@ public class ChatNotification {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    // Bumped whenever the row changes (read, collapsed), so clients can fetch just the changes
+    private LocalDateTime updatedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package infosys.backend.model;
+
+import infosys.backend.service.ChatContentCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+
+// Chat texts are compressed on the way to the database and back on the way out (see ChatContentCodec).
+// Hibernate gets converters from the Spring context, so the codec is injected like into any bean.
+@Converter
+@RequiredArgsConstructor
+public class CompressedTextConverter implements AttributeConverter<String, String> {
+
+    private final ChatContentCodec codec;
+
+    @Override
+    public String convertToDatabaseColumn(String text) {
+        return codec.encode(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return codec.decode(stored);
+    }
+}
@@ -0,0 +1,59 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per pair of users who have chatted, keyed by (lower id, higher id).
+ * Holds the inbox summary so listing conversations never touches the message table.
+ */
+@Entity
+@Table(name = "conversations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_pair", columnNames = {"user_low_id", "user_high_id"}),
+        indexes = {
+                // Inbox ordering for each side of the pair
+                @Index(name = "idx_conversation_low_recent", columnList = "user_low_id, lastMessageAt, id"),
+                @Index(name = "idx_conversation_high_recent", columnList = "user_high_id, lastMessageAt, id"),
+                // Delta sync: conversations that changed since a point in time
+                @Index(name = "idx_conversation_low_updated", columnList = "user_low_id, updatedAt"),
+                @Index(name = "idx_conversation_high_updated", columnList = "user_high_id, updatedAt")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_low_id", nullable = false)
+    private User userLow;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_high_id", nullable = false)
+    private User userHigh;
+
+    private Long lastMessageId;
+
+    @Column(length = 255)
+    private String lastMessageSnippet;
+
+    private Long lastSenderId;
+
+    private LocalDateTime lastMessageAt;
+
+    private Long lastSeq;    // highest message seq in this conversation
+
+    private LocalDateTime updatedAt;  // last new message or read-state change
+
+    @Column(nullable = false)
+    private int unreadLow;   // messages userLow has not read yet
+
+    @Column(nullable = false)
+    private int unreadHigh;  // messages userHigh has not read yet
+}
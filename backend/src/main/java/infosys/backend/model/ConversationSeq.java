@@ -0,0 +1,32 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Last seq handed out per conversation when several nodes share the chat (websocket.broker.mode=relay).
+ * Bumped with a row lock for every message (see ConversationDispatcher), so two nodes never hand
+ * out the same number; conversations.last_seq only moves once a message is stored.
+ */
+@Entity
+@Table(name = "conversation_seqs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_seq_pair", columnNames = {"user_low_id", "user_high_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationSeq {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_low_id", nullable = false)
+    private Long userLowId;
+
+    @Column(name = "user_high_id", nullable = false)
+    private Long userHighId;
+
+    @Column(nullable = false)
+    private Long lastSeq;
+}
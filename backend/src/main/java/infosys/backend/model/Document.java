@@ -2,12 +2,16 @@ package infosys.backend.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import infosys.backend.enums.ProcessingStatus;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document")
+@Table(name = "document", indexes = {
+        // Deleting a document checks whether another one still uses the same stored file
+        @Index(name = "idx_document_file_url", columnList = "fileUrl")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,6 +26,30 @@ public class Document {
     private String fileName;
     private String fileType;
     private String fileUrl;
+
+    // Content hash and size; documents with the same content share one stored file
+    @Column(length = 64)
+    private String sha256;
+    private Long sizeBytes;
+
+    // Signed link for downloading the file, filled in when documents are handed out
+    @Transient
+    private String downloadUrl;
+
+    // 🧾 Filled in by background processing (DocumentProcessingService)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ProcessingStatus processingStatus;
+    private String detectedType;     // content type from the file's magic bytes
+    private Integer width;           // images, in pixels
+    private Integer height;
+    private String thumbnailKey;     // blob key of a small JPEG preview, if one could be made
+
+    @Column(length = 255)
+    private String processingError;
+
+    @Transient
+    private String thumbnailUrl;
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
     private boolean approved = false;
@@ -0,0 +1,24 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One row per distinct document content (SHA-256), created with its first upload.
+ *
+ * The row is only a lock: uploading, deleting and thumbnailing that content lock it first,
+ * so on any number of instances a shared blob is never deleted while another upload is
+ * reusing it. Who refers to a blob is still read from the document table.
+ */
+@Entity
+@Table(name = "document_contents")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentContent {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+}
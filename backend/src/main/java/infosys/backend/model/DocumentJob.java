@@ -0,0 +1,49 @@
+package infosys.backend.model;
+
+import infosys.backend.enums.ProcessingStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One processing job per uploaded document; workers claim due rows with SELECT ... FOR UPDATE SKIP LOCKED
+@Entity
+@Table(name = "document_jobs", indexes = {
+        @Index(name = "idx_document_jobs_due", columnList = "status, runAfter")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "document_id", nullable = false)
+    private Document document;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProcessingStatus status;
+
+    // Tries so far (a claim counts as a try)
+    private int attempts;
+
+    // Not claimed before this (retry backoff)
+    @Column(nullable = false)
+    private LocalDateTime runAfter;
+
+    // A PROCESSING job whose lease ran out (worker died) is claimed again
+    private LocalDateTime lockedUntil;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,24 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Next free id of a table whose ids are handed out by the application (see MessageIdAllocator).
+ * Each node reserves a block of ids at a time by moving nextId forward.
+ */
+@Entity
+@Table(name = "id_blocks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdBlock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private Long nextId;
+}
@@ -5,14 +5,22 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "message", indexes = {
+        // Keyset pagination of one direction of a conversation
+        @Index(name = "idx_message_pair_sent", columnList = "sender_id, receiver_id, sentAt, id"),
+        // Delta sync: one conversation direction after a seq, and everything for a user after an id
+        @Index(name = "idx_message_pair_seq", columnList = "sender_id, receiver_id, seq"),
+        @Index(name = "idx_message_receiver_id", columnList = "receiver_id, id"),
+        @Index(name = "idx_message_sender_id", columnList = "sender_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Message {
 
+    // Assigned by MessageIdAllocator before the insert (write-behind delivers before it)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne
@@ -23,8 +31,13 @@ public class Message {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
+    // Long texts are stored compressed
     @Column(columnDefinition = "TEXT", nullable = false)
+    @Convert(converter = CompressedTextConverter.class)
     private String content;
 
     private LocalDateTime sentAt;
+
+    // Position in the conversation (1, 2, 3, ...); null for messages sent before it existed
+    private Long seq;
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package infosys.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One entry of the chat search index: a term that occurs in a message, filed under one of the
+ * message's participants. Searches read idx_posting_owner_term only, which keeps each user's
+ * postings for a term next to each other in message order and also holds the positions, so a
+ * query never leaves the index and never touches another user's rows. The primary key starts
+ * with the message, so new postings are appended at the end of the table.
+ */
+@Entity
+@Table(name = "message_search_postings", indexes = {
+        @Index(name = "idx_posting_owner_term", columnList = "owner_id, term, message_id, positions")
+})
+@IdClass(MessagePosting.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessagePosting {
+
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    @Id
+    @Column(length = 40)
+    private String term;
+
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    // Token positions of the term in the message ("3,17"), used for phrase queries
+    @Column(nullable = false, length = 128)
+    private String positions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long ownerId;
+        private String term;
+        private Long messageId;
+    }
+}
@@ -37,6 +37,23 @@ public class User {
     // Human-readable location only
     private String location;
 
+    // Coordinates captured at registration (used for route planning)
+    private Double latitude;
+    private Double longitude;
+
+    // Chat notifications sent at or before this instant count as read; written only by
+    // UserRepository.advanceNotificationWatermark, so saving a stale User never moves it back
+    @Column(name = "notifications_read_up_to", insertable = false, updatable = false)
+    private LocalDateTime notificationsReadUpTo;
+
+    // Announcements with an id up to this one count as read; written only by UserRepository.advanceAnnouncementWatermark
+    @Column(name = "announcements_read_up_to", insertable = false, updatable = false)
+    private Long announcementsReadUpTo;
+
+    // Written only by LastSeenService's batched flush, so saving a stale User never rewinds it
+    @Column(name = "last_seen", insertable = false, updatable = false)
+    private LocalDateTime lastSeen;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,36 @@
+package infosys.backend.repository;
+
+import infosys.backend.enums.Role;
+import infosys.backend.model.Announcement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AnnouncementRepository extends JpaRepository<Announcement, Long> {
+
+    // Announcements a user with this role and location sees, older than `before`, newest first
+    @Query("SELECT a FROM Announcement a JOIN FETCH a.author " +
+           "WHERE a.id < :before " +
+           "AND (a.targetRole IS NULL OR a.targetRole = :role) " +
+           "AND (a.locationKey IS NULL OR a.locationKey = :location) " +
+           "ORDER BY a.id DESC")
+    List<Announcement> findVisibleBefore(@Param("role") Role role,
+                                         @Param("location") String locationKey,
+                                         @Param("before") Long before,
+                                         Pageable pageable);
+
+    // How many of them are past the user's watermark (a range scan of the primary key)
+    @Query("SELECT COUNT(a) FROM Announcement a " +
+           "WHERE a.id > :after " +
+           "AND (a.targetRole IS NULL OR a.targetRole = :role) " +
+           "AND (a.locationKey IS NULL OR a.locationKey = :location)")
+    long countVisibleAfter(@Param("role") Role role,
+                           @Param("location") String locationKey,
+                           @Param("after") Long after);
+
+    @Query("SELECT MAX(a.id) FROM Announcement a")
+    Long findMaxId();
+}
@@ -10,6 +10,7 @@ import infosys.backend.model.Booking;
 import infosys.backend.model.User;
 import infosys.backend.enums.BookingStatus;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +18,7 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     List<Booking> findByCustomer(User customer);
     List<Booking> findByProvider(User provider);
+    List<Booking> findByProviderIdAndBookingDateAndStatus(Long providerId, LocalDate bookingDate, BookingStatus status);
 
     @Transactional
     @Modifying
@@ -0,0 +1,124 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.ChatNotification;
+import infosys.backend.model.Message;
+import infosys.backend.service.ChatContentCodec;
+import infosys.backend.service.MessageIdAllocator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch inserts for chat rows. IDENTITY keys stop Hibernate from batching inserts,
+ * so the write-behind pipeline goes through here instead; with
+ * rewriteBatchedStatements=true the driver sends each batch as one multi-row INSERT.
+ * Message ids come from MessageIdAllocator, so they are known before the insert.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatBatchRepository {
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO message (id, sender_id, receiver_id, content, sent_at, seq) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_NOTIFICATION =
+            "INSERT INTO chat_notifications (sender_id, receiver_id, message_id, sent_at, is_read, collapsed_count, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Plain JDBC skips the entity's attribute converter, so texts are compressed here
+    private final ChatContentCodec codec;
+    private final MessageIdAllocator messageIdAllocator;
+
+    // Inserts all messages; those without an id get one from the allocator first
+    public void insertMessages(List<Message> messages) {
+        insertMessages(messages, true);
+    }
+
+    // withContent = false: the text is kept elsewhere (LogMessageStore) and the row gets an empty one
+    public void insertMessages(List<Message> messages, boolean withContent) {
+        if (messages.isEmpty()) return;
+        for (Message m : messages) {
+            if (m.getId() == null) m.setId(messageIdAllocator.next());
+        }
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Message m = messages.get(i);
+                ps.setLong(1, m.getId());
+                ps.setLong(2, m.getSender().getId());
+                ps.setLong(3, m.getReceiver().getId());
+                ps.setString(4, withContent ? codec.encode(m.getContent()) : "");
+                ps.setTimestamp(5, Timestamp.valueOf(m.getSentAt()));
+                if (m.getSeq() != null) ps.setLong(6, m.getSeq());
+                else ps.setNull(6, Types.BIGINT);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return messages.size();
+            }
+        });
+    }
+
+    // Inserts all notifications and writes the generated ids (and timestamps) back onto them
+    public void insertNotifications(List<ChatNotification> notifications) {
+        if (notifications.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_NOTIFICATION, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ChatNotification n = notifications.get(i);
+                        ps.setLong(1, n.getSender().getId());
+                        ps.setLong(2, n.getReceiver().getId());
+                        ps.setLong(3, n.getMessage().getId());
+                        ps.setTimestamp(4, Timestamp.valueOf(n.getSentAt()));
+                        ps.setBoolean(5, Boolean.TRUE.equals(n.getIsRead()));
+                        ps.setInt(6, n.getCollapsedCount());
+                        ps.setTimestamp(7, Timestamp.valueOf(now));
+                        ps.setTimestamp(8, Timestamp.valueOf(now));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return notifications.size();
+                    }
+                },
+                keys);
+        for (ChatNotification n : notifications) {
+            n.setCreatedAt(now);
+            n.setUpdatedAt(now);
+        }
+        assignIds(keys, notifications.size(), (i, id) -> notifications.get(i).setId(id));
+    }
+
+    private interface IdSink {
+        void accept(int index, Long id);
+    }
+
+    private static void assignIds(KeyHolder keys, int expected, IdSink sink) {
+        List<Map<String, Object>> rows = keys.getKeyList();
+        if (rows.size() != expected) {
+            throw new IllegalStateException("Expected " + expected + " generated keys but got " + rows.size());
+        }
+        for (int i = 0; i < expected; i++) {
+            Object key = rows.get(i).values().iterator().next();
+            sink.accept(i, ((Number) key).longValue());
+        }
+    }
+}
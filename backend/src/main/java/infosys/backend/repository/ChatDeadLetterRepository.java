@@ -0,0 +1,9 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.ChatDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChatDeadLetterRepository extends JpaRepository<ChatDeadLetter, Long> {
+}
@@ -1,35 +1,113 @@
 package infosys.backend.repository;
 
+import infosys.backend.dto.ChatNotificationDTO;
 import infosys.backend.model.ChatNotification;
-import infosys.backend.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface ChatNotificationRepository extends JpaRepository<ChatNotification, Long> {
-    
-    List<ChatNotification> findByReceiverOrderBySentAtDesc(User receiver);
-    
-    List<ChatNotification> findByReceiverAndIsReadFalseOrderBySentAtDesc(User receiver);
-    
-    long countByReceiverAndIsReadFalse(User receiver);
-    
-    List<ChatNotification> findByReceiverAndSenderOrderBySentAtDesc(User receiver, User sender);
-    
-    // Check for duplicate notification within a time window
-    @Query("SELECT n FROM ChatNotification n WHERE n.sender = :sender AND n.receiver = :receiver " +
-           "AND n.messageContent = :content AND n.sentAt BETWEEN :startTime AND :endTime")
-    Optional<ChatNotification> findDuplicate(
-        @Param("sender") User sender, 
-        @Param("receiver") User receiver,
-        @Param("content") String content,
-        @Param("startTime") LocalDateTime startTime,
-        @Param("endTime") LocalDateTime endTime
-    );
+
+    // 📄 One page of a receiver's read or unread rows sent in (after, before-cursor), newest first.
+    // A single range scan on idx_chat_notification_receiver_read_sent; DTOs come straight from the
+    // projection, joining only the sender's name and the message text.
+    @Query("SELECT new infosys.backend.dto.ChatNotificationDTO(n.id, n.sender.id, s.name, n.receiver.id, m.id, " +
+           "COALESCE(m.content, n.messageContent), n.collapsedCount, n.sentAt, n.isRead, n.createdAt, n.updatedAt) " +
+           "FROM ChatNotification n JOIN n.sender s LEFT JOIN n.message m " +
+           "WHERE n.receiver.id = :receiverId AND n.isRead = :isRead AND n.sentAt > :after " +
+           "AND (n.sentAt < :sentAt OR (n.sentAt = :sentAt AND n.id < :id)) " +
+           "ORDER BY n.sentAt DESC, n.id DESC")
+    List<ChatNotificationDTO> findPageBefore(@Param("receiverId") Long receiverId,
+                                             @Param("isRead") boolean isRead,
+                                             @Param("after") LocalDateTime after,
+                                             @Param("sentAt") LocalDateTime sentAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    // 🔄 A receiver's rows created or changed after the (updatedAt, id) cursor, oldest change first
+    // (idx_chat_notification_receiver_updated)
+    @Query("SELECT new infosys.backend.dto.ChatNotificationDTO(n.id, n.sender.id, s.name, n.receiver.id, m.id, " +
+           "COALESCE(m.content, n.messageContent), n.collapsedCount, n.sentAt, n.isRead, n.createdAt, n.updatedAt) " +
+           "FROM ChatNotification n JOIN n.sender s LEFT JOIN n.message m " +
+           "WHERE n.receiver.id = :receiverId " +
+           "AND (n.updatedAt > :updatedAt OR (n.updatedAt = :updatedAt AND n.id > :id)) " +
+           "ORDER BY n.updatedAt ASC, n.id ASC")
+    List<ChatNotificationDTO> findChangedAfter(@Param("receiverId") Long receiverId,
+                                               @Param("updatedAt") LocalDateTime updatedAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    // Rows of [receiverId, senderId, unreadCount], used to seed the in-memory counters
+    @Query("SELECT n.receiver.id, n.sender.id, SUM(n.collapsedCount) FROM ChatNotification n " +
+           "WHERE n.isRead = false AND (n.receiver.notificationsReadUpTo IS NULL " +
+           "OR n.sentAt > n.receiver.notificationsReadUpTo) " +
+           "GROUP BY n.receiver.id, n.sender.id")
+    List<Object[]> countUnreadByReceiverAndSender();
+
+    // Rows of [senderId, unreadCount] for one receiver, honouring the receiver's own watermark
+    @Query("SELECT n.sender.id, SUM(n.collapsedCount) FROM ChatNotification n " +
+           "WHERE n.receiver.id = :receiverId AND n.isRead = false AND (n.receiver.notificationsReadUpTo IS NULL " +
+           "OR n.sentAt > n.receiver.notificationsReadUpTo) " +
+           "GROUP BY n.sender.id")
+    List<Object[]> countUnreadForReceiver(@Param("receiverId") Long receiverId);
+
+    // Rows of [senderId, unreadCount] for one receiver, counting only notifications after the watermark
+    @Query("SELECT n.sender.id, SUM(n.collapsedCount) FROM ChatNotification n " +
+           "WHERE n.receiver.id = :receiverId AND n.isRead = false AND n.sentAt > :after " +
+           "GROUP BY n.sender.id")
+    List<Object[]> countUnreadBySender(@Param("receiverId") Long receiverId, @Param("after") LocalDateTime after);
+
+    // ✅ Set-based read marking; rows under the watermark are already read and are left alone
+    @Modifying
+    @Query("UPDATE ChatNotification n SET n.isRead = true, n.updatedAt = :now " +
+           "WHERE n.receiver.id = :receiverId AND n.isRead = false AND n.sentAt > :after")
+    int markAllRead(@Param("receiverId") Long receiverId,
+                    @Param("after") LocalDateTime after,
+                    @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ChatNotification n SET n.isRead = true, n.updatedAt = :now " +
+           "WHERE n.receiver.id = :receiverId AND n.sender.id = :senderId AND n.isRead = false AND n.sentAt > :after")
+    int markAllReadFromSender(@Param("receiverId") Long receiverId,
+                              @Param("senderId") Long senderId,
+                              @Param("after") LocalDateTime after,
+                              @Param("now") LocalDateTime now);
+
+    // 🧹 Retention: ids of read rows (explicitly or by watermark) sent before the cutoff, oldest first.
+    // Keyset on (sentAt, id) so each chunk resumes where the last one stopped.
+    @Query("SELECT n.id, n.sentAt FROM ChatNotification n " +
+           "WHERE n.sentAt < :cutoff " +
+           "AND (n.sentAt > :afterSentAt OR (n.sentAt = :afterSentAt AND n.id > :afterId)) " +
+           "AND (n.isRead = true OR n.sentAt <= n.receiver.notificationsReadUpTo) " +
+           "ORDER BY n.sentAt, n.id")
+    List<Object[]> findExpiredReadChunk(@Param("cutoff") LocalDateTime cutoff,
+                                        @Param("afterSentAt") LocalDateTime afterSentAt,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    // Rows of [receiverId, senderId, newestId] for pairs with more than one unread row
+    @Query("SELECT n.receiver.id, n.sender.id, MAX(n.id) FROM ChatNotification n " +
+           "WHERE n.isRead = false AND (n.receiver.notificationsReadUpTo IS NULL " +
+           "OR n.sentAt > n.receiver.notificationsReadUpTo) " +
+           "GROUP BY n.receiver.id, n.sender.id HAVING COUNT(n) > 1")
+    List<Object[]> findCollapsibleSenders(Pageable pageable);
+
+    // Unread rows of one (receiver, sender) pair up to the newest, locked while they are merged
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM ChatNotification n " +
+           "WHERE n.receiver.id = :receiverId AND n.sender.id = :senderId AND n.isRead = false " +
+           "AND n.sentAt > :after AND n.id <= :upToId ORDER BY n.id")
+    List<ChatNotification> lockUnreadFromSender(@Param("receiverId") Long receiverId,
+                                                @Param("senderId") Long senderId,
+                                                @Param("after") LocalDateTime after,
+                                                @Param("upToId") Long upToId);
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    // Inbox row as seen by one participant
+    interface InboxEntry {
+        Long getId();
+        Long getPartnerId();
+        String getPartnerName();
+        Long getLastSenderId();
+        String getLastMessageSnippet();
+        LocalDateTime getLastMessageAt();
+        Integer getUnreadCount();
+        Long getLastSeq();
+    }
+
+    // Atomic upsert (MySQL): creates the pair on its first message, otherwise bumps the
+    // receiver's unread counter and moves the last-message summary forward.
+    @Modifying
+    @Query(value = "INSERT INTO conversations (user_low_id, user_high_id, last_message_id, last_message_snippet, " +
+            "last_sender_id, last_message_at, unread_low, unread_high, last_seq, updated_at) " +
+            "VALUES (:lowId, :highId, :messageId, :snippet, :senderId, :sentAt, :unreadLow, :unreadHigh, :lastSeq, :updatedAt) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "unread_low = unread_low + VALUES(unread_low), " +
+            "unread_high = unread_high + VALUES(unread_high), " +
+            "last_message_snippet = CASE WHEN VALUES(last_message_id) > last_message_id THEN VALUES(last_message_snippet) ELSE last_message_snippet END, " +
+            "last_sender_id = CASE WHEN VALUES(last_message_id) > last_message_id THEN VALUES(last_sender_id) ELSE last_sender_id END, " +
+            "last_message_at = CASE WHEN VALUES(last_message_id) > last_message_id THEN VALUES(last_message_at) ELSE last_message_at END, " +
+            "last_message_id = GREATEST(last_message_id, VALUES(last_message_id)), " +
+            "last_seq = GREATEST(COALESCE(last_seq, 0), COALESCE(VALUES(last_seq), 0)), " +
+            "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    void upsertLastMessage(@Param("lowId") Long lowId,
+                           @Param("highId") Long highId,
+                           @Param("messageId") Long messageId,
+                           @Param("snippet") String snippet,
+                           @Param("senderId") Long senderId,
+                           @Param("sentAt") LocalDateTime sentAt,
+                           @Param("unreadLow") int unreadLow,
+                           @Param("unreadHigh") int unreadHigh,
+                           @Param("lastSeq") Long lastSeq,
+                           @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Query("SELECT c.lastSeq FROM Conversation c WHERE c.userLow.id = :lowId AND c.userHigh.id = :highId")
+    Long findLastSeq(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    // One-off seed from existing chat history: one conversation per pair, pointing at its latest message.
+    // Compressed texts and texts kept outside the table get no snippet here (see findWithoutSnippet).
+    @Modifying
+    @Query(value = "INSERT INTO conversations (user_low_id, user_high_id, last_message_id, last_message_snippet, " +
+            "last_sender_id, last_message_at, unread_low, unread_high) " +
+            "SELECT LEAST(m.sender_id, m.receiver_id), GREATEST(m.sender_id, m.receiver_id), m.id, " +
+            "CASE WHEN m.content = '' OR m.content LIKE CONCAT(CHAR(1), 'z%') THEN NULL ELSE LEFT(m.content, 100) END, " +
+            "m.sender_id, m.sent_at, 0, 0 " +
+            "FROM message m JOIN (" +
+            "  SELECT MAX(id) AS id FROM message WHERE sender_id <> receiver_id " +
+            "  GROUP BY LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id)" +
+            ") latest ON latest.id = m.id",
+            nativeQuery = true)
+    int backfillFromMessages();
+
+    // Seeded conversations whose snippet has to come from the message store: (id, lastMessageId)
+    @Query("SELECT c.id, c.lastMessageId FROM Conversation c " +
+           "WHERE c.lastMessageSnippet IS NULL AND c.lastMessageId IS NOT NULL AND c.id > :afterId ORDER BY c.id")
+    List<Object[]> findWithoutSnippet(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageSnippet = :snippet WHERE c.id = :id AND c.lastMessageSnippet IS NULL")
+    int setSnippet(@Param("id") Long id, @Param("snippet") String snippet);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadLow = 0, c.updatedAt = :now " +
+           "WHERE c.userLow.id = :lowId AND c.userHigh.id = :highId AND c.unreadLow <> 0")
+    int clearUnreadLow(@Param("lowId") Long lowId, @Param("highId") Long highId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadHigh = 0, c.updatedAt = :now " +
+           "WHERE c.userLow.id = :lowId AND c.userHigh.id = :highId AND c.unreadHigh <> 0")
+    int clearUnreadHigh(@Param("lowId") Long lowId, @Param("highId") Long highId, @Param("now") LocalDateTime now);
+
+    // A user's conversations, newest first, strictly older than the (lastMessageAt, id) cursor.
+    // Each UNION branch is a range scan on its own recency index, limited to the page size.
+    @Query(value = "SELECT c.id AS id, c.partner_id AS partnerId, u.name AS partnerName, " +
+            "c.last_sender_id AS lastSenderId, c.last_message_snippet AS lastMessageSnippet, " +
+            "c.last_message_at AS lastMessageAt, c.unread AS unreadCount, c.last_seq AS lastSeq " +
+            "FROM (" +
+            "  (SELECT id, user_high_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_low AS unread, last_seq " +
+            "   FROM conversations WHERE user_low_id = :userId " +
+            "   AND (last_message_at < :at OR (last_message_at = :at AND id < :id)) " +
+            "   ORDER BY last_message_at DESC, id DESC LIMIT :size) " +
+            "  UNION ALL " +
+            "  (SELECT id, user_low_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_high AS unread, last_seq " +
+            "   FROM conversations WHERE user_high_id = :userId " +
+            "   AND (last_message_at < :at OR (last_message_at = :at AND id < :id)) " +
+            "   ORDER BY last_message_at DESC, id DESC LIMIT :size)" +
+            ") c JOIN users u ON u.id = c.partner_id " +
+            "ORDER BY c.last_message_at DESC, c.id DESC LIMIT :size",
+            nativeQuery = true)
+    List<InboxEntry> findInboxPage(@Param("userId") Long userId,
+                                   @Param("at") LocalDateTime at,
+                                   @Param("id") Long id,
+                                   @Param("size") int size);
+
+    // Delta sync: the user's conversations touched (new message or read-state change) at or after `since`
+    @Query(value = "SELECT c.id AS id, c.partner_id AS partnerId, u.name AS partnerName, " +
+            "c.last_sender_id AS lastSenderId, c.last_message_snippet AS lastMessageSnippet, " +
+            "c.last_message_at AS lastMessageAt, c.unread AS unreadCount, c.last_seq AS lastSeq " +
+            "FROM (" +
+            "  (SELECT id, user_high_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_low AS unread, last_seq " +
+            "   FROM conversations WHERE user_low_id = :userId AND updated_at >= :since) " +
+            "  UNION ALL " +
+            "  (SELECT id, user_low_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_high AS unread, last_seq " +
+            "   FROM conversations WHERE user_high_id = :userId AND updated_at >= :since)" +
+            ") c JOIN users u ON u.id = c.partner_id " +
+            "ORDER BY c.last_message_at DESC, c.id DESC LIMIT :size",
+            nativeQuery = true)
+    List<InboxEntry> findChangedSince(@Param("userId") Long userId,
+                                      @Param("since") LocalDateTime since,
+                                      @Param("size") int size);
+
+    // Delta sync: the user's conversations with the given partners (unique-key lookups)
+    @Query(value = "SELECT c.id AS id, c.partner_id AS partnerId, u.name AS partnerName, " +
+            "c.last_sender_id AS lastSenderId, c.last_message_snippet AS lastMessageSnippet, " +
+            "c.last_message_at AS lastMessageAt, c.unread AS unreadCount, c.last_seq AS lastSeq " +
+            "FROM (" +
+            "  (SELECT id, user_high_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_low AS unread, last_seq " +
+            "   FROM conversations WHERE user_low_id = :userId AND user_high_id IN (:partnerIds)) " +
+            "  UNION ALL " +
+            "  (SELECT id, user_low_id AS partner_id, last_sender_id, last_message_snippet, last_message_at, unread_high AS unread, last_seq " +
+            "   FROM conversations WHERE user_high_id = :userId AND user_low_id IN (:partnerIds))" +
+            ") c JOIN users u ON u.id = c.partner_id",
+            nativeQuery = true)
+    List<InboxEntry> findWithPartners(@Param("userId") Long userId,
+                                      @Param("partnerIds") Collection<Long> partnerIds);
+}
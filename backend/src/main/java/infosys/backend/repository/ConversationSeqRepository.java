@@ -0,0 +1,29 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.ConversationSeq;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversationSeqRepository extends JpaRepository<ConversationSeq, Long> {
+
+    // Takes the next number; the row stays locked until the transaction ends. 0 if the pair has no row yet.
+    @Modifying
+    @Query(value = "UPDATE conversation_seqs SET last_seq = last_seq + 1 " +
+            "WHERE user_low_id = :lowId AND user_high_id = :highId", nativeQuery = true)
+    int increment(@Param("lowId") long lowId, @Param("highId") long highId);
+
+    // First number of a pair (MySQL upsert): `seq` if the row is new, otherwise the next one after
+    // what another node took in the meantime
+    @Modifying
+    @Query(value = "INSERT INTO conversation_seqs (user_low_id, user_high_id, last_seq) VALUES (:lowId, :highId, :seq) " +
+            "ON DUPLICATE KEY UPDATE last_seq = GREATEST(last_seq + 1, VALUES(last_seq))", nativeQuery = true)
+    void seed(@Param("lowId") long lowId, @Param("highId") long highId, @Param("seq") long seq);
+
+    @Query(value = "SELECT last_seq FROM conversation_seqs WHERE user_low_id = :lowId AND user_high_id = :highId",
+            nativeQuery = true)
+    Long findLastSeq(@Param("lowId") long lowId, @Param("highId") long highId);
+}
@@ -0,0 +1,29 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.DocumentContent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, String> {
+
+    // MySQL: no error if another upload created the row first
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO document_contents (sha256) VALUES (:sha256)", nativeQuery = true)
+    void insertIfAbsent(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM DocumentContent c WHERE c.sha256 = :sha256")
+    Optional<DocumentContent> lockBySha256(@Param("sha256") String sha256);
+
+    // Holds the content's row lock until the transaction ends; must run inside one
+    default void lock(String sha256) {
+        insertIfAbsent(sha256);
+        lockBySha256(sha256);
+    }
+}
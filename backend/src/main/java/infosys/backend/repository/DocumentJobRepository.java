@@ -0,0 +1,71 @@
+package infosys.backend.repository;
+
+import infosys.backend.enums.ProcessingStatus;
+import infosys.backend.model.DocumentJob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface DocumentJobRepository extends JpaRepository<DocumentJob, Long> {
+
+    /**
+     * Ids of jobs that are due: queued and past their backoff, or processing with an expired
+     * lease, and with tries left. Rows another worker has locked are skipped instead of waited
+     * for, so workers never queue up behind each other. Must run in the transaction that then
+     * marks them PROCESSING.
+     */
+    @Query(value = "SELECT id FROM document_jobs " +
+                   "WHERE ((status = 'QUEUED' AND run_after <= :now) " +
+                   "    OR (status = 'PROCESSING' AND locked_until < :now)) " +
+                   "  AND attempts < :maxAttempts " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockDueIds(@Param("now") LocalDateTime now,
+                          @Param("maxAttempts") int maxAttempts,
+                          @Param("limit") int limit);
+
+    // Jobs whose last allowed try lost its lease: nobody will finish them, they are to be failed
+    @Query(value = "SELECT id FROM document_jobs " +
+                   "WHERE status = 'PROCESSING' AND locked_until < :now AND attempts >= :maxAttempts " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockExhaustedIds(@Param("now") LocalDateTime now,
+                                @Param("maxAttempts") int maxAttempts,
+                                @Param("limit") int limit);
+
+    // The job row, locked until the transaction ends (a worker recording its result)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM DocumentJob j WHERE j.id = :id")
+    Optional<DocumentJob> lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE DocumentJob j SET j.status = :status, j.attempts = j.attempts + 1, j.lockedUntil = :lockedUntil " +
+           "WHERE j.id IN :ids")
+    void markClaimed(@Param("ids") List<Long> ids,
+                     @Param("status") ProcessingStatus status,
+                     @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Query("SELECT j FROM DocumentJob j JOIN FETCH j.document d LEFT JOIN FETCH d.provider WHERE j.id = :id")
+    Optional<DocumentJob> findWithDocument(@Param("id") Long id);
+
+    long countByStatus(ProcessingStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DocumentJob j WHERE j.document.id = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DocumentJob j WHERE j.document.id IN " +
+           "(SELECT d.id FROM Document d WHERE d.provider.id = :providerId)")
+    void deleteByProviderId(@Param("providerId") Long providerId);
+}
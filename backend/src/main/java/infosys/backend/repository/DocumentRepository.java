@@ -12,4 +12,8 @@ import java.util.List;
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByProvider(User provider);
     void deleteByProviderId(Long providerId);
+    long countByFileUrl(String fileUrl);
+    List<Document> findByFileUrlStartingWith(String prefix);
+    List<Document> findByProcessingStatusIsNull();
+    long countByThumbnailKey(String thumbnailKey);
 }
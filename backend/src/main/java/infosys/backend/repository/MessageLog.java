@@ -0,0 +1,494 @@
+package infosys.backend.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented message log on memory-mapped files.
+ *
+ * Records are appended to the active segment, a preallocated file mapped with
+ * {@link FileChannel#map}; when a record does not fit, the segment is sealed and a new one is
+ * started. A segment is named after its base offset, and a record's offset is the segment's
+ * base plus the record's position in it, so an offset stays valid until the segment is compacted.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   int  length     whole record, header included
+ *   int  crc32c     of everything after this field
+ *   byte type       1 = message, 2 = commit
+ *   byte flags      bit 0: message known to be committed
+ *   6 bytes padding
+ *   message: long id, senderId, receiverId, seq (Long.MIN_VALUE = none), sentAt (epoch micros, UTC); UTF-8 text
+ *   commit:  int count; count message ids
+ * </pre>
+ * A zero length marks the end of the written part of a segment. On open every segment is
+ * scanned up to the first record that is cut short or fails its checksum (a torn write), and
+ * appending continues there.
+ *
+ * Durability: appends land in the page cache. A flusher thread forces written segments to disk
+ * every {@code fsyncIntervalMs} and wakes the appenders waiting in {@link #awaitDurable}, so one
+ * fsync covers every append in that window (group commit). With an interval of 0 every
+ * awaitDurable call forces the log itself.
+ *
+ * Appends are serialized; reads take no lock and may run concurrently with appends.
+ */
+public final class MessageLog implements Closeable {
+
+    public static final byte TYPE_MESSAGE = 1;
+    public static final byte TYPE_COMMIT = 2;
+    public static final byte FLAG_COMMITTED = 1;
+
+    private static final int HEADER = 16;
+    private static final int MESSAGE_HEADER = HEADER + 5 * Long.BYTES;
+    private static final long NO_SEQ = Long.MIN_VALUE;
+    private static final String SUFFIX = ".log";
+
+    /** One message record; {@code offset} is where it starts in the log. */
+    public record Entry(long offset, byte flags, long id, long senderId, long receiverId,
+                        Long seq, long sentAtMicros, String content) {
+
+        public boolean committed() {
+            return (flags & FLAG_COMMITTED) != 0;
+        }
+    }
+
+    /** What a scan sees: a message, or the ids of a committed transaction. */
+    public interface Visitor {
+        void message(Entry entry);
+
+        void commit(long offset, long[] ids);
+    }
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        volatile int end;
+        int forcedUpTo;
+
+        Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long fsyncIntervalMs;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+    // Segments sealed since the last force; they still have unforced records
+    private final List<Segment> sealedUnforced = new ArrayList<>();
+    private final Object durableMonitor = new Object();
+    private final Object forceLock = new Object();
+    private volatile long writtenUpTo;
+    private volatile long durableUpTo;
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    private MessageLog(Path dir, int segmentBytes, long fsyncIntervalMs) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    public static MessageLog open(Path dir, int segmentBytes, long fsyncIntervalMs) {
+        MessageLog log = new MessageLog(dir, segmentBytes, fsyncIntervalMs);
+        try {
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                Segment segment = log.map(base, file, (int) Files.size(file));
+                segment.end = log.recoverEnd(segment);
+                segment.forcedUpTo = segment.end;
+                log.segments.put(base, segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open message log in " + dir, e);
+        }
+
+        Map.Entry<Long, Segment> last = log.segments.lastEntry();
+        log.active = last != null ? last.getValue() : log.createSegment(0);
+        log.writtenUpTo = log.active.base + log.active.end;
+        log.durableUpTo = log.writtenUpTo;
+        if (fsyncIntervalMs > 0) {
+            log.flusher = new Thread(log::flushLoop, "message-log-fsync");
+            log.flusher.setDaemon(true);
+            log.flusher.start();
+        }
+        return log;
+    }
+
+    // ✍️ Appends one message record and returns its offset
+    public synchronized long appendMessage(long id, long senderId, long receiverId, Long seq,
+                                           long sentAtMicros, String content, boolean committed) {
+        byte[] text = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(MESSAGE_HEADER + text.length);
+        record.putInt(record.capacity()).putInt(0)
+                .put(TYPE_MESSAGE).put(committed ? FLAG_COMMITTED : 0).put(new byte[6])
+                .putLong(id).putLong(senderId).putLong(receiverId)
+                .putLong(seq != null ? seq : NO_SEQ).putLong(sentAtMicros)
+                .put(text);
+        return write(record);
+    }
+
+    // ✅ Records that the messages with these ids were committed to the database
+    public synchronized long appendCommit(long[] ids) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER + Integer.BYTES + ids.length * Long.BYTES);
+        record.putInt(record.capacity()).putInt(0)
+                .put(TYPE_COMMIT).put((byte) 0).put(new byte[6])
+                .putInt(ids.length);
+        for (long id : ids) record.putLong(id);
+        return write(record);
+    }
+
+    private long write(ByteBuffer record) {
+        int length = record.capacity();
+        if (length + Integer.BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a log segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+
+        // Keep room for the zero length that ends the segment
+        if (active.end + length + Integer.BYTES > active.capacity()) roll();
+        int position = active.end;
+        active.buffer.put(position, record.array(), 0, length);
+        active.end = position + length;
+        writtenUpTo = active.base + active.end;
+        return active.base + position;
+    }
+
+    private void roll() {
+        Segment sealed = active;
+        synchronized (durableMonitor) {
+            sealedUnforced.add(sealed);
+        }
+        active = createSegment(sealed.base + sealed.end);
+        System.out.println("📜 Message log rolled to segment " + active.base);
+    }
+
+    /**
+     * Blocks until everything up to {@code offset} is on disk. Call it after the append and
+     * outside any lock, so concurrent appenders share one fsync.
+     */
+    public void awaitDurable(long offset) {
+        if (durableUpTo >= offset) return;
+        if (fsyncIntervalMs <= 0) {
+            force();
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durableUpTo < offset && running) {
+                try {
+                    durableMonitor.wait(fsyncIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // 💾 Forces every written record to disk and wakes the waiting appenders
+    public void force() {
+        synchronized (forceLock) {
+            long target = writtenUpTo;
+            Segment current;
+            synchronized (this) {
+                current = active;
+            }
+            List<Segment> pending;
+            synchronized (durableMonitor) {
+                pending = new ArrayList<>(sealedUnforced);
+                sealedUnforced.clear();
+            }
+            for (Segment segment : pending) forceSegment(segment);
+            forceSegment(current);
+            synchronized (durableMonitor) {
+                if (target > durableUpTo) durableUpTo = target;
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void forceSegment(Segment segment) {
+        int end = segment.end;
+        if (end <= segment.forcedUpTo) return;
+        segment.buffer.force(segment.forcedUpTo, end - segment.forcedUpTo);
+        segment.forcedUpTo = end;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(fsyncIntervalMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (writtenUpTo > durableUpTo) {
+                try {
+                    force();
+                } catch (RuntimeException e) {
+                    System.out.println("❌ Message log fsync failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 📖 The message record at an offset
+    public Entry read(long offset) {
+        Segment segment = segmentFor(offset);
+        return readMessage(segment, (int) (offset - segment.base));
+    }
+
+    // The (sentAt, id) sort key of the message at an offset, without decoding its text
+    public long sentAtMicros(long offset) {
+        Segment segment = segmentFor(offset);
+        return segment.buffer.getLong((int) (offset - segment.base) + HEADER + 4 * Long.BYTES);
+    }
+
+    public long id(long offset) {
+        Segment segment = segmentFor(offset);
+        return segment.buffer.getLong((int) (offset - segment.base) + HEADER);
+    }
+
+    // 🔁 Visits every record of every segment, oldest first
+    public void scan(Visitor visitor) {
+        for (Segment segment : segments.values()) {
+            scan(segment, 0, segment.end, visitor);
+        }
+    }
+
+    // Records written at or after `fromOffset`
+    public void scanFrom(long fromOffset, Visitor visitor) {
+        Long first = segments.floorKey(fromOffset);
+        for (Segment segment : (first != null ? segments.tailMap(first) : segments).values()) {
+            int from = (int) Math.max(0, Math.min(fromOffset - segment.base, segment.end));
+            scan(segment, from, segment.end, visitor);
+        }
+    }
+
+    private void scan(Segment segment, int from, int to, Visitor visitor) {
+        int position = from;
+        while (position < to) {
+            int length = segment.buffer.getInt(position);
+            byte type = segment.buffer.get(position + 8);
+            if (type == TYPE_MESSAGE) {
+                visitor.message(readMessage(segment, position));
+            } else if (type == TYPE_COMMIT) {
+                int count = segment.buffer.getInt(position + HEADER);
+                long[] ids = new long[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = segment.buffer.getLong(position + HEADER + Integer.BYTES + i * Long.BYTES);
+                }
+                visitor.commit(segment.base + position, ids);
+            }
+            position += length;
+        }
+    }
+
+    public long endOffset() {
+        return writtenUpTo;
+    }
+
+    // Base offsets of the sealed segments (every segment but the one being appended to)
+    public synchronized List<Long> sealedSegments() {
+        return new ArrayList<>(segments.headMap(active.base).keySet());
+    }
+
+    // Bytes in use (records) and on disk for a segment
+    public long[] segmentUsage(long base) {
+        Segment segment = segments.get(base);
+        return new long[] {segment.end, segment.capacity()};
+    }
+
+    public void scanSegment(long base, Consumer<Entry> messages) {
+        Segment segment = segments.get(base);
+        scan(segment, 0, segment.end, new Visitor() {
+            @Override
+            public void message(Entry entry) {
+                messages.accept(entry);
+            }
+
+            @Override
+            public void commit(long offset, long[] ids) {
+            }
+        });
+    }
+
+    /**
+     * 🧹 Writes the given messages of a sealed segment to a new file next to it, in order and
+     * tightly packed, and returns it with each message's new offset. The live segment is not
+     * touched until {@link #replaceSegment}.
+     */
+    public Path writeCompacted(long base, List<Entry> keep, long[] newOffsets) {
+        Path target = dir.resolve(fileName(base) + ".compacting");
+        int size = Integer.BYTES;
+        for (Entry e : keep) size += MESSAGE_HEADER + e.content().getBytes(StandardCharsets.UTF_8).length;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (int i = 0; i < keep.size(); i++) {
+                Entry e = keep.get(i);
+                byte[] text = e.content().getBytes(StandardCharsets.UTF_8);
+                int length = MESSAGE_HEADER + text.length;
+                newOffsets[i] = base + out.position();
+                ByteBuffer record = ByteBuffer.allocate(length);
+                record.putInt(length).putInt(0)
+                        .put(TYPE_MESSAGE).put(e.flags()).put(new byte[6])
+                        .putLong(e.id()).putLong(e.senderId()).putLong(e.receiverId())
+                        .putLong(e.seq() != null ? e.seq() : NO_SEQ).putLong(e.sentAtMicros())
+                        .put(text);
+                CRC32C crc = new CRC32C();
+                crc.update(record.array(), 8, length - 8);
+                record.putInt(4, (int) crc.getValue());
+                out.put(record.array());
+            }
+            out.putInt(0);
+            out.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write compacted segment " + base, e);
+        }
+        return target;
+    }
+
+    // Swaps a sealed segment for its compacted file; callers must stop reading old offsets first
+    public synchronized void replaceSegment(long base, Path compacted) {
+        Segment old = segments.get(base);
+        if (old == null || old == active) {
+            throw new IllegalStateException("Segment " + base + " is not sealed");
+        }
+        try {
+            Files.move(compacted, old.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Segment replacement = map(base, old.path, (int) Files.size(old.path));
+            replacement.end = recoverEnd(replacement);
+            replacement.forcedUpTo = replacement.end;
+            segments.put(base, replacement);
+            old.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace segment " + base, e);
+        }
+    }
+
+    // Drops a sealed segment that has nothing left worth keeping
+    public synchronized void deleteSegment(long base) {
+        Segment old = segments.get(base);
+        if (old == null || old == active) return;
+        segments.remove(base);
+        try {
+            old.channel.close();
+            Files.deleteIfExists(old.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete segment " + base, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (flusher != null) flusher.interrupt();
+        force();
+        for (Segment segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException ignored) {
+                // closing on shutdown; the data is already forced
+            }
+        }
+    }
+
+    private Segment segmentFor(long offset) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+        if (entry == null) throw new IllegalArgumentException("No log segment holds offset " + offset);
+        return entry.getValue();
+    }
+
+    private Entry readMessage(Segment segment, int position) {
+        ByteBuffer b = segment.buffer;
+        int length = b.getInt(position);
+        byte flags = b.get(position + 9);
+        int p = position + HEADER;
+        long seq = b.getLong(p + 3 * Long.BYTES);
+        byte[] text = new byte[length - MESSAGE_HEADER];
+        b.get(position + MESSAGE_HEADER, text);
+        return new Entry(segment.base + position, flags, b.getLong(p), b.getLong(p + Long.BYTES),
+                b.getLong(p + 2 * Long.BYTES), seq == NO_SEQ ? null : seq, b.getLong(p + 4 * Long.BYTES),
+                new String(text, StandardCharsets.UTF_8));
+    }
+
+    // First position that is not a complete, intact record
+    private int recoverEnd(Segment segment) {
+        ByteBuffer b = segment.buffer;
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER <= segment.capacity()) {
+            int length = b.getInt(position);
+            if (length < HEADER || position + length > segment.capacity()) break;
+            crc.reset();
+            crc.update(b.slice(position + 8, length - 8));
+            if ((int) crc.getValue() != b.getInt(position + 4)) {
+                System.out.println("⚠️ Message log " + segment.path.getFileName() + ": torn record at " + position + ", truncating");
+                break;
+            }
+            position += length;
+        }
+        // Clear a torn tail so a later scan cannot mistake it for records
+        if (position + Integer.BYTES <= segment.capacity() && b.getInt(position) != 0) {
+            b.putInt(position, 0);
+        }
+        return position;
+    }
+
+    private Segment createSegment(long base) {
+        Path path = dir.resolve(fileName(base) + SUFFIX);
+        Segment segment = map(base, path, segmentBytes);
+        segments.put(base, segment);
+        return segment;
+    }
+
+    private Segment map(long base, Path path, int size) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(base, path, channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map log segment " + path, e);
+        }
+    }
+
+    private static String fileName(long base) {
+        return String.format("%020d", base);
+    }
+}
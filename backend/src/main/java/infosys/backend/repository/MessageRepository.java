@@ -1,12 +1,16 @@
 package infosys.backend.repository;
 
+import infosys.backend.dto.MessageDTO;
 import infosys.backend.model.Message;
 import infosys.backend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -28,4 +32,94 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             @Param("user1") User user1,
             @Param("user2") User user2
     );
+
+    // Highest seq in one direction (notes-to-self have no conversation row to read it from)
+    @Query("SELECT MAX(m.seq) FROM Message m WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId")
+    Long findMaxSeqInDirection(@Param("senderId") Long senderId, @Param("receiverId") Long receiverId);
+
+    // ---------------- Keyset pagination (one direction of a conversation) ---------------- //
+    // Each query is a single range scan on idx_message_pair_sent; the service merges both directions.
+
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m " +
+           "WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId " +
+           "ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageDTO> findLatestInDirection(
+            @Param("senderId") Long senderId,
+            @Param("receiverId") Long receiverId,
+            Pageable pageable
+    );
+
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m " +
+           "WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId " +
+           "AND (m.sentAt < :sentAt OR (m.sentAt = :sentAt AND m.id < :id)) " +
+           "ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageDTO> findBeforeInDirection(
+            @Param("senderId") Long senderId,
+            @Param("receiverId") Long receiverId,
+            @Param("sentAt") LocalDateTime sentAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m " +
+           "WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId " +
+           "AND (m.sentAt > :sentAt OR (m.sentAt = :sentAt AND m.id > :id)) " +
+           "ORDER BY m.sentAt ASC, m.id ASC")
+    List<MessageDTO> findAfterInDirection(
+            @Param("senderId") Long senderId,
+            @Param("receiverId") Long receiverId,
+            @Param("sentAt") LocalDateTime sentAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    // ---------------- Delta sync ---------------- //
+
+    // One direction of a conversation after the client's last seq (idx_message_pair_seq)
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m " +
+           "WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId AND m.seq > :seq " +
+           "ORDER BY m.seq ASC")
+    List<MessageDTO> findAfterSeqInDirection(
+            @Param("senderId") Long senderId,
+            @Param("receiverId") Long receiverId,
+            @Param("seq") Long seq,
+            Pageable pageable
+    );
+
+    // Everything the user received after a message id (idx_message_receiver_id)
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m WHERE m.receiver.id = :userId AND m.id > :afterId ORDER BY m.id ASC")
+    List<MessageDTO> findReceivedAfterId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Everything the user sent after a message id (idx_message_sender_id)
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m WHERE m.sender.id = :userId AND m.id > :afterId ORDER BY m.id ASC")
+    List<MessageDTO> findSentAfterId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.receiver.id = :userId")
+    Long findLatestReceivedId(@Param("userId") Long userId);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.sender.id = :userId")
+    Long findLatestSentId(@Param("userId") Long userId);
+
+    // Search hits: the messages behind a page of postings (primary-key lookups)
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m WHERE m.id IN :ids")
+    List<MessageDTO> findDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    // Search index backfill: messages with ids in (afterId, upToId], oldest first
+    @Query("SELECT new infosys.backend.dto.MessageDTO(m.id, m.sender.id, m.receiver.id, m.content, m.sentAt, m.seq) " +
+           "FROM Message m WHERE m.id > :afterId AND m.id <= :upToId ORDER BY m.id ASC")
+    List<MessageDTO> findChunkForIndexing(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Pageable pageable);
+
+    @Query("SELECT MAX(m.id) FROM Message m")
+    Long findMaxId();
+
+    // Which of these ids have a row (LogMessageStore checks log records whose commit it did not see)
+    @Query("SELECT m.id FROM Message m WHERE m.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,109 @@
+package infosys.backend.repository;
+
+import infosys.backend.model.MessagePosting;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the chat search index (message_search_postings). Every query is bounded by
+ * owner_id and term, so it is a range scan of idx_posting_owner_term; no query looks at message text.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageSearchRepository {
+
+    // IGNORE: re-indexing a message that is already indexed is a no-op
+    private static final String INSERT_POSTING =
+            "INSERT IGNORE INTO message_search_postings (owner_id, term, message_id, positions) VALUES (?, ?, ?, ?)";
+
+    private static final RowMapper<Posting> POSTING = (rs, i) ->
+            new Posting(rs.getString("term"), rs.getLong("message_id"), rs.getString("positions"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public record Posting(String term, long messageId, String positions) {
+    }
+
+    public void insertPostings(List<MessagePosting> postings) {
+        if (postings.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_POSTING, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                MessagePosting p = postings.get(i);
+                ps.setLong(1, p.getOwnerId());
+                ps.setString(2, p.getTerm());
+                ps.setLong(3, p.getMessageId());
+                ps.setString(4, p.getPositions());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return postings.size();
+            }
+        });
+    }
+
+    public boolean isEmpty() {
+        Integer any = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM message_search_postings LIMIT 1) t", Integer.class);
+        return any == null || any == 0;
+    }
+
+    // Indexed terms of one user that start with the prefix, alphabetically
+    public List<String> expandPrefix(Long ownerId, String prefix, int limit) {
+        return namedJdbcTemplate.queryForList(
+                "SELECT DISTINCT term FROM message_search_postings " +
+                "WHERE owner_id = :owner AND term LIKE :pattern ORDER BY term LIMIT :limit",
+                new MapSqlParameterSource("owner", ownerId)
+                        .addValue("pattern", prefix + "%")
+                        .addValue("limit", limit),
+                String.class);
+    }
+
+    // How many of the user's messages contain any of the terms, counting no further than `cap`
+    public long countPostings(Long ownerId, Collection<String> terms, int cap) {
+        Long count = namedJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM message_search_postings " +
+                "WHERE owner_id = :owner AND term IN (:terms) LIMIT :cap) t",
+                new MapSqlParameterSource("owner", ownerId)
+                        .addValue("terms", terms)
+                        .addValue("cap", cap),
+                Long.class);
+        return count != null ? count : 0L;
+    }
+
+    // The user's postings for the terms in messages older than `beforeId`, newest first
+    public List<Posting> findBefore(Long ownerId, Collection<String> terms, long beforeId, int limit) {
+        return namedJdbcTemplate.query(
+                "SELECT term, message_id, positions FROM message_search_postings " +
+                "WHERE owner_id = :owner AND term IN (:terms) AND message_id < :before " +
+                "ORDER BY message_id DESC LIMIT :limit",
+                new MapSqlParameterSource("owner", ownerId)
+                        .addValue("terms", terms)
+                        .addValue("before", beforeId)
+                        .addValue("limit", limit),
+                POSTING);
+    }
+
+    // The user's postings for the terms, restricted to the given messages
+    public List<Posting> findIn(Long ownerId, Collection<String> terms, Collection<Long> messageIds) {
+        return namedJdbcTemplate.query(
+                "SELECT term, message_id, positions FROM message_search_postings " +
+                "WHERE owner_id = :owner AND term IN (:terms) AND message_id IN (:ids)",
+                new MapSqlParameterSource("owner", ownerId)
+                        .addValue("terms", terms)
+                        .addValue("ids", messageIds),
+                POSTING);
+    }
+}
@@ -0,0 +1,35 @@
+package infosys.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched writes of users.last_seen. The guard on the current value means a late or
+ * replayed flush can never move a user's last-seen time backwards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserActivityRepository {
+
+    private static final String UPDATE_LAST_SEEN =
+            "UPDATE users SET last_seen = ? WHERE id = ? AND (last_seen IS NULL OR last_seen < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void updateLastSeen(Map<Long, LocalDateTime> lastSeenByUser) {
+        if (lastSeenByUser.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(lastSeenByUser.size());
+        lastSeenByUser.forEach((userId, seenAt) -> {
+            Timestamp ts = Timestamp.valueOf(seenAt);
+            args.add(new Object[] {ts, userId, ts});
+        });
+        jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, args);
+    }
+}
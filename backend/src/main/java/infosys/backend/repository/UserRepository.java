@@ -3,7 +3,12 @@ package infosys.backend.repository;
 import infosys.backend.enums.Role;
 import infosys.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +24,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // ✅ Count users by role (used in analytics)
     long countByRole(Role role);
+
+    // Moves the notification read watermark forward only; returns 0 if it was already later
+    @Modifying
+    @Query("UPDATE User u SET u.notificationsReadUpTo = :readUpTo WHERE u.id = :userId " +
+           "AND (u.notificationsReadUpTo IS NULL OR u.notificationsReadUpTo < :readUpTo)")
+    int advanceNotificationWatermark(@Param("userId") Long userId, @Param("readUpTo") LocalDateTime readUpTo);
+
+    // Moves the announcement read watermark forward only; returns 0 if it was already further
+    @Modifying
+    @Query("UPDATE User u SET u.announcementsReadUpTo = :readUpTo WHERE u.id = :userId " +
+           "AND (u.announcementsReadUpTo IS NULL OR u.announcementsReadUpTo < :readUpTo)")
+    int advanceAnnouncementWatermark(@Param("userId") Long userId, @Param("readUpTo") Long readUpTo);
+
+    @Query("SELECT u.announcementsReadUpTo FROM User u WHERE u.id = :userId")
+    Optional<Long> findAnnouncementWatermark(@Param("userId") Long userId);
+
+    // Rows of [id, email]
+    @Query("SELECT u.id, u.email FROM User u WHERE u.id IN :ids")
+    List<Object[]> findEmailsByIds(@Param("ids") Collection<Long> ids);
+
+    // Rows of [id, lastSeen]
+    @Query("SELECT u.id, u.lastSeen FROM User u WHERE u.id IN :ids")
+    List<Object[]> findLastSeenByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.notificationsReadUpTo FROM User u WHERE u.id = :userId")
+    Optional<LocalDateTime> findNotificationWatermark(@Param("userId") Long userId);
 }
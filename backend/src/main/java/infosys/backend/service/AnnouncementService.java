@@ -0,0 +1,166 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.AnnouncementDTO;
+import infosys.backend.dto.AnnouncementRequest;
+import infosys.backend.dto.AnnouncementStateDTO;
+import infosys.backend.enums.Role;
+import infosys.backend.model.Announcement;
+import infosys.backend.model.User;
+import infosys.backend.repository.AnnouncementRepository;
+import infosys.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 📢 Platform announcements from admins.
+ *
+ * An announcement is stored once and published once, on the topic of its audience:
+ * /topic/announcements for everyone, with ".role.{role}" and/or ".location.{location}" appended
+ * when it is aimed at one role or location. Each client subscribes to the (up to four) topics
+ * that match its own role and location, so the broker does the fan-out and the server does
+ * not touch per-user rows. Read state is one watermark per user: every announcement with an
+ * id up to users.announcements_read_up_to is read.
+ *
+ * The segments pick who is interested, they are not access control: announcements are not
+ * private, and only the server can publish on these topics (see WebSocketConfig).
+ */
+@Service
+@RequiredArgsConstructor
+public class AnnouncementService {
+
+    public static final String TOPIC = "/topic/announcements";
+
+    private static final int MAX_CONTENT_LENGTH = 2000;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final AnnouncementRepository announcementRepository;
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // 📤 One insert and one publish, however many users it reaches
+    public AnnouncementDTO publish(User admin, AnnouncementRequest request) {
+        String content = request.getContent() != null ? request.getContent().trim() : "";
+        if (content.isEmpty()) {
+            throw new IllegalArgumentException("Announcement content is required");
+        }
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Announcement is longer than " + MAX_CONTENT_LENGTH + " characters");
+        }
+        String location = request.getTargetLocation() != null && !request.getTargetLocation().isBlank()
+                ? request.getTargetLocation().trim()
+                : null;
+        String locationKey = locationKey(location);
+        if (location != null && locationKey == null) {
+            throw new IllegalArgumentException("Invalid target location: " + location);
+        }
+
+        // save() commits before returning, so subscribers never see an announcement that is not stored
+        Announcement saved = announcementRepository.save(Announcement.builder()
+                .author(admin)
+                .content(content)
+                .targetRole(request.getTargetRole())
+                .targetLocation(location)
+                .locationKey(locationKey)
+                .build());
+
+        AnnouncementDTO dto = toDTO(saved, false);
+        String destination = destination(saved.getTargetRole(), locationKey);
+        messagingTemplate.convertAndSend(destination, dto);
+        System.out.println("📢 Announcement " + saved.getId() + " published on " + destination);
+        return dto;
+    }
+
+    // 📄 What this user sees, newest first; pass the last id as `before` for the next page
+    @Transactional(readOnly = true)
+    public List<AnnouncementDTO> getAnnouncements(User user, Long before, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long readUpTo = watermark(user);
+        return announcementRepository.findVisibleBefore(
+                        user.getRole(), locationKey(user.getLocation()),
+                        before != null ? before : Long.MAX_VALUE, PageRequest.of(0, pageSize))
+                .stream()
+                .map(a -> toDTO(a, a.getId() <= readUpTo))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public AnnouncementStateDTO getState(User user) {
+        long readUpTo = watermark(user);
+        String locationKey = locationKey(user.getLocation());
+        return AnnouncementStateDTO.builder()
+                .readUpTo(readUpTo)
+                .unread(announcementRepository.countVisibleAfter(user.getRole(), locationKey, readUpTo))
+                .topics(topicsFor(user.getRole(), locationKey))
+                .build();
+    }
+
+    // ✅ Everything up to `upTo` (default: the latest announcement) is read; the watermark never moves back
+    @Transactional
+    public AnnouncementStateDTO markReadUpTo(User user, Long upTo) {
+        Long latest = announcementRepository.findMaxId();
+        if (latest != null) {
+            long target = upTo == null || upTo > latest ? latest : upTo;
+            userRepository.advanceAnnouncementWatermark(user.getId(), target);
+        }
+        return getState(user);
+    }
+
+    private long watermark(User user) {
+        // Read from the database: the column is not written through the entity, so `user` may be stale
+        return userRepository.findAnnouncementWatermark(user.getId()).orElse(0L);
+    }
+
+    // The topic an announcement for this audience is published on
+    static String destination(Role role, String locationKey) {
+        StringBuilder destination = new StringBuilder(TOPIC);
+        if (role != null) destination.append(".role.").append(role.name().toLowerCase(Locale.ROOT));
+        if (locationKey != null) destination.append(".location.").append(locationKey);
+        return destination.toString();
+    }
+
+    // Every topic that can carry announcements for a user with this role and location
+    static List<String> topicsFor(Role role, String locationKey) {
+        List<String> topics = new ArrayList<>(4);
+        topics.add(destination(null, null));
+        if (role != null) topics.add(destination(role, null));
+        if (locationKey != null) {
+            topics.add(destination(null, locationKey));
+            if (role != null) topics.add(destination(role, locationKey));
+        }
+        return topics;
+    }
+
+    /**
+     * 📍 Folds a free-text location into a topic-safe key ("New Delhi " -> "new-delhi"), so
+     * announcements match users whatever the capitalisation and spacing. Null if nothing is left.
+     */
+    static String locationKey(String location) {
+        if (location == null) return null;
+        String key = SearchTokenizer.tokenize(location).stream()
+                .map(SearchTokenizer.Token::term)
+                .filter(term -> term != null)
+                .reduce((a, b) -> a + "-" + b)
+                .orElse("");
+        return key.isEmpty() ? null : key;
+    }
+
+    private AnnouncementDTO toDTO(Announcement announcement, boolean read) {
+        return AnnouncementDTO.builder()
+                .id(announcement.getId())
+                .authorId(announcement.getAuthor().getId())
+                .authorName(announcement.getAuthor().getName())
+                .content(announcement.getContent())
+                .targetRole(announcement.getTargetRole())
+                .targetLocation(announcement.getTargetLocation())
+                .createdAt(announcement.getCreatedAt())
+                .read(read)
+                .build();
+    }
+}
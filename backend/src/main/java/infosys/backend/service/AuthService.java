@@ -29,6 +29,8 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setRole(request.getRole());
         user.setLocation(request.getLocation());
+        user.setLatitude(request.getLatitude());
+        user.setLongitude(request.getLongitude());
 
         return userRepository.save(user);
     }
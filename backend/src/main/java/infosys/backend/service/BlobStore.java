@@ -0,0 +1,64 @@
+package infosys.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Where document files are kept, addressed by a storage-neutral key such as
+ * "blobs/dd/37/dd37…ffa4.pdf" (what Document.fileUrl holds).
+ * documents.storage.type picks the implementation: "local" ({@link LocalBlobStore}, a directory
+ * on this machine), "memory" ({@link InMemoryBlobStore}, for tests and throwaway runs) or "s3"
+ * ({@link S3BlobStore}, any S3-compatible object store, shared by all instances).
+ *
+ * Keys are relative paths with '/' separators; {@link #checkKey} rejects anything that could
+ * leave the store's root.
+ */
+public interface BlobStore {
+
+    // Size and modification time of a stored blob
+    record BlobInfo(long size, Instant lastModified) {}
+
+    // Stores the stream under `key`, replacing what was there; size is -1 when not known up front
+    void put(String key, InputStream in, long size, String contentType) throws IOException;
+
+    // Stores a local file under `key`; the file may be moved away (it is a staged upload)
+    default void putFile(String key, Path file, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            put(key, in, Files.size(file), contentType);
+        }
+    }
+
+    // Size and modification time, or null when there is no such blob
+    BlobInfo stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key) != null;
+    }
+
+    // Reads `length` bytes starting at `offset`
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    // The blob as a file on this machine, for zero-copy serving; empty for remote stores
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    static String checkKey(String key) {
+        if (key == null || key.isEmpty() || key.startsWith("/") || key.indexOf('\\') >= 0
+                || key.chars().anyMatch(c -> c < 0x20)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        for (String segment : key.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Invalid blob key: " + key);
+            }
+        }
+        return key;
+    }
+}
@@ -17,9 +17,14 @@ public class BookingService {
     @Autowired
     private BookingRepository bookingRepository;
 
+    @Autowired
+    private RouteOptimizerService routeOptimizerService;
+
     // Create a new booking
     public Booking createBooking(Booking booking) {
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        routeOptimizerService.evict(saved);
+        return saved;
     }
 
     // Get bookings by customer
@@ -42,7 +47,9 @@ public class BookingService {
     public Booking updateBookingStatus(Long bookingId, BookingStatus status) {
         Booking booking = getBookingById(bookingId);
         booking.setStatus(status);
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        routeOptimizerService.evict(saved);
+        return saved;
     }
 
     // Get all bookings
@@ -60,7 +67,9 @@ public class BookingService {
             booking.setStatus(BookingStatus.COMPLETED);
         }
 
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        routeOptimizerService.evict(saved);
+        return saved;
     }
 
     // Customer verifies booking completion
@@ -73,6 +82,8 @@ public class BookingService {
             booking.setStatus(BookingStatus.COMPLETED);
         }
 
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        routeOptimizerService.evict(saved);
+        return saved;
     }
 }
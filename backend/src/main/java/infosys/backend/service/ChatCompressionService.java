@@ -0,0 +1,199 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.ChatCompressionStatsDTO;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brings stored chat texts in line with the current compression settings.
+ *
+ * Rows written before compression existed, or with an older dictionary, are rewritten in
+ * chunks of chunk-size primary keys (each UPDATE its own statement, guarded by the old value so
+ * a concurrent change wins). A pass is done per table whenever the codec's settings differ from
+ * those of the last finished pass, i.e. after startup or after a new dictionary was trained.
+ * With chat.compression.enabled=false the same pass writes everything back uncompressed.
+ * A row is only rewritten when the new value fits its column: chat_notifications.message_content
+ * may still be a VARCHAR(255) from before it was compressed, and a decompressed text can be
+ * longer than that. Rows that would not fit are left as they are.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatCompressionService {
+
+    private static final String[][] TABLES = {
+            {"message", "content"},
+            {"chat_notifications", "message_content"},
+    };
+
+    private final ChatContentCodec codec;
+    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.compression.recompress.enabled:true}")
+    private boolean recompressEnabled;
+
+    @Value("${chat.compression.recompress.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${chat.compression.recompress.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    @Value("${chat.compression.dictionary-samples:20000}")
+    private int dictionarySamples;
+
+    // table -> codec settings of its last finished pass
+    private final Map<String, String> passDone = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong bytesBefore = new AtomicLong();
+    private final AtomicLong bytesAfter = new AtomicLong();
+
+    private Counter rewritten;
+
+    @PostConstruct
+    void init() {
+        rewritten = Counter.builder("chat.compression.recompressed")
+                .description("Stored chat texts rewritten by the re-compression job")
+                .register(meterRegistry);
+    }
+
+    // 🗜️ Periodic pass over tables whose rows may not match the current settings
+    @Scheduled(initialDelayString = "${chat.compression.recompress.initial-delay-ms:120000}",
+               fixedDelayString = "${chat.compression.recompress.interval-ms:3600000}")
+    public void recompress() {
+        if (!recompressEnabled || !running.compareAndSet(false, true)) return;
+        try {
+            for (String[] t : TABLES) {
+                String settings = codec.settings();
+                if (settings.equals(passDone.get(t[0]))) continue;
+                long changed = recompressTable(t[0], t[1]);
+                passDone.put(t[0], settings);
+                if (changed > 0) System.out.println("🗜️ Re-compressed " + changed + " rows of " + t[0]);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("❌ Chat re-compression failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long recompressTable(String table, String column) {
+        long width = columnWidth(table, column);
+        if (width < 0) {
+            System.out.println("⚠ Not re-compressing " + table + "." + column + ": its width could not be read");
+            return 0;
+        }
+        String select = "SELECT id, " + column + " FROM " + table + " WHERE id > ? AND " + column + " IS NOT NULL ORDER BY id LIMIT ?";
+        String update = "UPDATE " + table + " SET " + column + " = ? WHERE id = ? AND " + column + " = ?";
+        long afterId = 0;
+        long total = 0;
+        long tooLong = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(select,
+                    (rs, i) -> new Object[] {rs.getLong(1), rs.getString(2)}, afterId, chunkSize);
+            if (rows.isEmpty()) break;
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Object[] row : rows) {
+                String stored = (String) row[1];
+                String wanted = codec.encode(codec.decode(stored));
+                if (wanted.equals(stored)) continue;
+                if (wanted.length() > width) {
+                    tooLong++;
+                    continue;
+                }
+                updates.add(new Object[] {wanted, row[0], stored});
+                bytesBefore.addAndGet(stored.length());
+                bytesAfter.addAndGet(wanted.length());
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(update, updates);
+                total += updates.size();
+                rewritten.increment(updates.size());
+            }
+
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < chunkSize) break;
+            sleepQuietly(chunkPauseMs);
+        }
+        if (tooLong > 0) {
+            System.out.println("⚠ Left " + tooLong + " rows of " + table + " as they are: rewritten they would not fit "
+                    + column + " (" + width + " characters)");
+        }
+        return total;
+    }
+
+    // Characters the column holds, according to the schema; -1 when it is not there
+    private long columnWidth(String table, String column) {
+        List<Long> widths = jdbcTemplate.query(
+                "SELECT character_maximum_length FROM information_schema.columns"
+                        + " WHERE table_schema = SCHEMA() AND LOWER(table_name) = ? AND LOWER(column_name) = ?",
+                (rs, i) -> {
+                    long w = rs.getLong(1);
+                    return rs.wasNull() ? -1L : w;
+                }, table, column);
+        return widths.isEmpty() ? -1 : widths.get(0);
+    }
+
+    // 🎓 Train a dictionary on the most recent messages; existing rows follow on the next pass
+    public ChatCompressionStatsDTO trainDictionary() {
+        Long maxId = messageRepository.findMaxId();
+        if (maxId == null) throw new IllegalArgumentException("There are no messages to train a dictionary on");
+        long fromId = Math.max(0, maxId - dictionarySamples);
+        List<String> samples = new ArrayList<>();
+        List<MessageDTO> chunk;
+        long afterId = fromId;
+        do {
+            chunk = messageRepository.findChunkForIndexing(afterId, maxId, PageRequest.of(0, chunkSize));
+            messageStore.fillContents(chunk);
+            for (MessageDTO m : chunk) {
+                if (m.getContent() != null && !m.getContent().isEmpty()) samples.add(m.getContent());
+            }
+            if (!chunk.isEmpty()) afterId = chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == chunkSize);
+
+        codec.train(samples);
+        return getStats();
+    }
+
+    public ChatCompressionStatsDTO getStats() {
+        return ChatCompressionStatsDTO.builder()
+                .settings(codec.settings())
+                .dictionaryId(codec.activeDictionaryId())
+                .recompressRunning(running.get())
+                .tablesUpToDate(passDone.entrySet().stream()
+                        .filter(e -> e.getValue().equals(codec.settings()))
+                        .map(Map.Entry::getKey)
+                        .toList())
+                .rowsRewritten((long) rewritten.count())
+                .bytesBefore(bytesBefore.get())
+                .bytesAfter(bytesAfter.get())
+                .build();
+    }
+
+    private static void sleepQuietly(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package infosys.backend.service;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 🗜️ Compression of chat texts at rest (message.content, legacy chat_notifications.message_content).
+ *
+ * Texts of at least chat.compression.min-bytes are stored as a zstd frame, Base64-encoded behind
+ * a "\u0001z" marker so the columns stay TEXT and uncompressed rows remain readable as they are.
+ * A text is only stored compressed when that is shorter. Frames can use a dictionary trained on
+ * our own chat history ({@link #train}); dictionaries are kept as {id}.dict files and every one
+ * ever used must stay in chat.compression.dictionary-dir, because the frames refer to them by id.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatContentCodec {
+
+    private static final String MARKER = "\u0001z";
+    private static final String DICT_SUFFIX = ".dict";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.compression.min-bytes:512}")
+    private int minBytes;
+
+    @Value("${chat.compression.level:3}")
+    private int level;
+
+    @Value("${chat.compression.dictionary-dir:data/chat-dictionaries}")
+    private String dictionaryDir;
+
+    // "latest" (newest file in the dir), "none", or a dictionary id
+    @Value("${chat.compression.dictionary:latest}")
+    private String dictionarySetting;
+
+    @Value("${chat.compression.dictionary-size:65536}")
+    private int dictionarySize;
+
+    private final Map<Long, ZstdDictDecompress> decompressDicts = new ConcurrentHashMap<>();
+    private volatile ZstdDictCompress activeDict;
+    private volatile long activeDictId;
+
+    private Counter rawBytes;
+    private Counter storedBytes;
+    private Timer decodeTimer;
+
+    @PostConstruct
+    void init() {
+        Path dir = Path.of(dictionaryDir);
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                List<Path> dicts = files.filter(p -> p.getFileName().toString().endsWith(DICT_SUFFIX))
+                        .sorted(Comparator.comparing(ChatContentCodec::modified))
+                        .toList();
+                for (Path p : dicts) load(Files.readAllBytes(p));
+                if ("latest".equalsIgnoreCase(dictionarySetting) && !dicts.isEmpty()) {
+                    activate(Files.readAllBytes(dicts.get(dicts.size() - 1)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read chat dictionaries from " + dir, e);
+            }
+        }
+        if (!"latest".equalsIgnoreCase(dictionarySetting) && !"none".equalsIgnoreCase(dictionarySetting)) {
+            Path file = dir.resolve(dictionarySetting + DICT_SUFFIX);
+            try {
+                activate(Files.readAllBytes(file));
+            } catch (IOException e) {
+                throw new IllegalStateException("chat.compression.dictionary=" + dictionarySetting + " but " + file + " cannot be read");
+            }
+        }
+
+        rawBytes = Counter.builder("chat.compression.raw")
+                .baseUnit("bytes")
+                .description("UTF-8 size of chat texts written through the codec")
+                .register(meterRegistry);
+        storedBytes = Counter.builder("chat.compression.stored")
+                .baseUnit("bytes")
+                .description("Size of the same texts as stored")
+                .register(meterRegistry);
+        decodeTimer = Timer.builder("chat.compression.decode")
+                .description("Decompressing one stored chat text")
+                .register(meterRegistry);
+
+        System.out.println("🗜️ Chat compression " + (enabled ? "on" : "off") + ", min " + minBytes + " bytes, level " + level
+                + ", dictionary " + (activeDict != null ? activeDictId : "none") + " (" + decompressDicts.size() + " known)");
+    }
+
+    // ✅ Text as it should be stored
+    public String encode(String text) {
+        if (text == null) return null;
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        // A text that happens to start with the marker is always wrapped, so it reads back unchanged
+        boolean mustWrap = text.startsWith(MARKER);
+        String stored = text;
+        if (mustWrap || (enabled && raw.length >= minBytes)) {
+            ZstdDictCompress dict = activeDict;
+            byte[] frame = dict != null ? Zstd.compress(raw, dict) : Zstd.compress(raw, level);
+            String wrapped = MARKER + Base64.getEncoder().withoutPadding().encodeToString(frame);
+            if (mustWrap || wrapped.length() < raw.length) stored = wrapped;
+        }
+        rawBytes.increment(raw.length);
+        storedBytes.increment(stored == text ? raw.length : stored.length());
+        return stored;
+    }
+
+    // ✅ Stored value back to the text
+    public String decode(String stored) {
+        if (stored == null || !stored.startsWith(MARKER)) return stored;
+        long started = System.nanoTime();
+        byte[] frame = Base64.getDecoder().decode(stored.substring(MARKER.length()));
+        int size = (int) Zstd.getFrameContentSize(frame);
+        long dictId = Zstd.getDictIdFromFrame(frame);
+        byte[] raw;
+        if (dictId == 0) {
+            raw = Zstd.decompress(frame, size);
+        } else {
+            ZstdDictDecompress dict = decompressDicts.get(dictId);
+            if (dict == null) {
+                throw new IllegalStateException("Chat dictionary " + dictId + " is missing from " + dictionaryDir);
+            }
+            raw = Zstd.decompress(frame, dict, size);
+        }
+        decodeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    public boolean isCompressed(String stored) {
+        return stored != null && stored.startsWith(MARKER);
+    }
+
+    /**
+     * 🎓 Trains a dictionary on sample texts, saves it and uses it for new writes from now on.
+     * Returns the dictionary id. Rows compressed before keep their old dictionary until the
+     * re-compression job rewrites them.
+     */
+    public long train(List<String> samples) {
+        long total = 0;
+        for (String s : samples) total += s.getBytes(StandardCharsets.UTF_8).length;
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE - 8, total + 1), dictionarySize);
+        for (String s : samples) {
+            if (!s.isEmpty()) trainer.addSample(s.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] dict;
+        try {
+            dict = trainer.trainSamples();
+        } catch (ZstdException | IllegalStateException e) {
+            throw new IllegalArgumentException("Not enough chat history to train a dictionary: " + e.getMessage());
+        }
+        long id = Zstd.getDictIdFromDict(dict);
+        Path dir = Path.of(dictionaryDir);
+        try {
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(id + DICT_SUFFIX + ".tmp");
+            Files.write(tmp, dict);
+            Files.move(tmp, dir.resolve(id + DICT_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot save chat dictionary " + id, e);
+        }
+        activate(dict);
+        System.out.println("🎓 Trained chat dictionary " + id + " (" + dict.length + " bytes) on " + samples.size() + " texts");
+        return id;
+    }
+
+    // What encode() currently produces; the re-compression job redoes its pass when this changes
+    public String settings() {
+        return enabled + "/" + minBytes + "/" + level + "/" + (activeDict != null ? activeDictId : 0);
+    }
+
+    public long activeDictionaryId() {
+        return activeDict != null ? activeDictId : 0;
+    }
+
+    private void load(byte[] dict) {
+        decompressDicts.putIfAbsent(Zstd.getDictIdFromDict(dict), new ZstdDictDecompress(dict));
+    }
+
+    private void activate(byte[] dict) {
+        load(dict);
+        activeDictId = Zstd.getDictIdFromDict(dict);
+        activeDict = new ZstdDictCompress(dict, level);
+    }
+
+    private static FileTime modified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
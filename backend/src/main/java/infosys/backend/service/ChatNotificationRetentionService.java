@@ -0,0 +1,220 @@
+package infosys.backend.service;
+
+import infosys.backend.model.ChatNotification;
+import infosys.backend.repository.ChatNotificationRepository;
+import infosys.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps chat_notifications small.
+ *
+ * 1. Read notifications (explicitly, or by the receiver's read watermark) older than
+ *    chat.notifications.retention.read-max-age-days are deleted in chunks of
+ *    chunk-size primary keys, each its own short transaction, walking the
+ *    (sentAt, id) index instead of issuing one long DELETE.
+ * 2. Several unread notifications from the same sender are merged into the newest one,
+ *    whose collapsedCount then carries the total, so unread counts are unchanged.
+ * 3. Row count, data and index size are read from information_schema (MySQL only)
+ *    and exposed as gauges.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatNotificationRetentionService {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String TABLE_STATS =
+            "SELECT table_rows, data_length, index_length FROM information_schema.tables " +
+            "WHERE table_schema = DATABASE() AND table_name = 'chat_notifications'";
+
+    private final ChatNotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.notifications.retention.read-max-age-days:30}")
+    private int readMaxAgeDays;
+
+    @Value("${chat.notifications.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${chat.notifications.retention.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    @Value("${chat.notifications.retention.collapse-unread:true}")
+    private boolean collapseUnread;
+
+    private final AtomicLong tableRows = new AtomicLong(-1);
+    private final AtomicLong dataBytes = new AtomicLong(-1);
+    private final AtomicLong indexBytes = new AtomicLong(-1);
+
+    private Counter deleted;
+    private Counter collapsed;
+
+    @PostConstruct
+    void init() {
+        deleted = Counter.builder("chat.notifications.retention.deleted")
+                .description("Read notifications deleted by the retention job")
+                .register(meterRegistry);
+        collapsed = Counter.builder("chat.notifications.retention.collapsed")
+                .description("Unread notifications merged into a per-sender summary row")
+                .register(meterRegistry);
+        Gauge.builder("chat.notifications.table.rows", tableRows, AtomicLong::get)
+                .description("Approximate row count of chat_notifications")
+                .register(meterRegistry);
+        Gauge.builder("chat.notifications.table.data", dataBytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Data size of chat_notifications")
+                .register(meterRegistry);
+        Gauge.builder("chat.notifications.table.index", indexBytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Index size of chat_notifications")
+                .register(meterRegistry);
+
+        relaxLegacyContentColumn();
+    }
+
+    // 🧹 Periodic sweep: delete old read rows, merge unread rows, refresh size gauges
+    @Scheduled(initialDelayString = "${chat.notifications.retention.initial-delay-ms:60000}",
+               fixedDelayString = "${chat.notifications.retention.interval-ms:3600000}")
+    public void runRetention() {
+        try {
+            long removed = deleteExpiredRead();
+            long merged = collapseUnread ? collapseUnread() : 0;
+            refreshTableStats();
+            if (removed > 0 || merged > 0) {
+                System.out.println("🧹 Notification retention: deleted " + removed + ", collapsed " + merged);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("❌ Notification retention failed: " + e.getMessage());
+        }
+    }
+
+    public long deleteExpiredRead() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(readMaxAgeDays);
+        LocalDateTime afterSentAt = BEGINNING;
+        long afterId = 0;
+        long total = 0;
+
+        while (true) {
+            List<Object[]> chunk = notificationRepository.findExpiredReadChunk(
+                    cutoff, afterSentAt, afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) break;
+
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Object[] row : chunk) ids.add((Long) row[0]);
+            notificationRepository.deleteAllByIdInBatch(ids);
+            total += ids.size();
+            deleted.increment(ids.size());
+
+            Object[] last = chunk.get(chunk.size() - 1);
+            afterId = (Long) last[0];
+            afterSentAt = (LocalDateTime) last[1];
+            if (chunk.size() < chunkSize) break;
+            sleepQuietly(chunkPauseMs);
+        }
+        return total;
+    }
+
+    public long collapseUnread() {
+        long total = 0;
+        while (true) {
+            List<Object[]> pairs = notificationRepository.findCollapsibleSenders(PageRequest.of(0, chunkSize));
+            long round = 0;
+            for (Object[] pair : pairs) {
+                Long receiverId = (Long) pair[0];
+                Long senderId = (Long) pair[1];
+                Long newestId = (Long) pair[2];
+                Integer merged = transactionTemplate.execute(status -> collapsePair(receiverId, senderId, newestId));
+                round += merged != null ? merged : 0;
+            }
+            total += round;
+            // Stop when nothing is left, or when rows were read concurrently and nothing merged
+            if (pairs.size() < chunkSize || round == 0) break;
+        }
+        collapsed.increment(total);
+        return total;
+    }
+
+    // Fold a pair's older unread rows into its newest one; returns how many rows were removed
+    private int collapsePair(Long receiverId, Long senderId, Long newestId) {
+        LocalDateTime after = userRepository.findNotificationWatermark(receiverId).orElse(BEGINNING);
+        List<ChatNotification> rows = notificationRepository.lockUnreadFromSender(receiverId, senderId, after, newestId);
+        if (rows.size() < 2) return 0;
+
+        ChatNotification newest = rows.get(rows.size() - 1);
+        List<Long> older = new ArrayList<>(rows.size() - 1);
+        int count = 0;
+        for (ChatNotification n : rows) {
+            count += n.getCollapsedCount();
+            if (n != newest) older.add(n.getId());
+        }
+        newest.setCollapsedCount(count);
+        newest.setUpdatedAt(LocalDateTime.now());
+        notificationRepository.deleteAllByIdInBatch(older);
+        return older.size();
+    }
+
+    private void refreshTableStats() {
+        try {
+            jdbcTemplate.query(TABLE_STATS, rs -> {
+                tableRows.set(rs.getLong(1));
+                dataBytes.set(rs.getLong(2));
+                indexBytes.set(rs.getLong(3));
+            });
+        } catch (DataAccessException e) {
+            // Not MySQL (e.g. an embedded test database): leave the gauges at -1
+        }
+    }
+
+    // Rows created before notifications referenced their message have NOT NULL message_content,
+    // and ddl-auto=update never relaxes a constraint, so do that once here.
+    private void relaxLegacyContentColumn() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                DatabaseMetaData meta = con.getMetaData();
+                if (!meta.getDatabaseProductName().toLowerCase().contains("mysql")) return null;
+                try (ResultSet rs = meta.getColumns(con.getCatalog(), null, "chat_notifications", "message_content")) {
+                    if (rs.next() && "NO".equals(rs.getString("IS_NULLABLE"))) {
+                        try (Statement st = con.createStatement()) {
+                            st.execute("ALTER TABLE chat_notifications MODIFY message_content VARCHAR(255) NULL");
+                        }
+                        System.out.println("🛠️ chat_notifications.message_content is now nullable");
+                    }
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            System.out.println("⚠ Could not relax chat_notifications.message_content: " + e.getMessage());
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
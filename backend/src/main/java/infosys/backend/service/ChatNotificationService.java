@@ -1,83 +1,186 @@
 package infosys.backend.service;
 
 import infosys.backend.dto.ChatNotificationDTO;
+import infosys.backend.dto.ChatNotificationSyncResponse;
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.UnreadCountDTO;
 import infosys.backend.model.ChatNotification;
+import infosys.backend.model.Message;
 import infosys.backend.model.User;
 import infosys.backend.repository.ChatNotificationRepository;
 import infosys.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class ChatNotificationService {
 
+    private static final LocalDateTime NO_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SYNC_SIZE = 500;
+    private static final Comparator<ChatNotificationDTO> NEWEST_FIRST =
+            Comparator.comparing(ChatNotificationDTO::getSentAt).thenComparing(ChatNotificationDTO::getId).reversed();
+
     private final ChatNotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationDeduplicator deduplicator;
+    private final UnreadCountStore unreadCounts;
+    private final NotificationDigestService digestService;
+    private final MessageStore messageStore;
 
+    // Returns empty when the same text was already notified within the dedupe window,
+    // or when the receiver is offline and the message went into their digest
     @Transactional
-    public ChatNotification createNotification(User sender, User receiver, String messageContent, LocalDateTime sentAt) {
-        // Check for duplicate notification within 5 seconds window
-        LocalDateTime startTime = sentAt.minusSeconds(5);
-        LocalDateTime endTime = sentAt.plusSeconds(5);
-        
-        var existingNotification = notificationRepository.findDuplicate(
-            sender, receiver, messageContent, startTime, endTime
-        );
-        
-        if (existingNotification.isPresent()) {
+    public Optional<ChatNotification> createNotification(Message message) {
+        User sender = message.getSender();
+        User receiver = message.getReceiver();
+        if (!deduplicator.tryAcquire(sender.getId(), receiver.getId(), message.getContent())) {
             System.out.println("⚠ Duplicate notification detected, skipping creation");
-            return existingNotification.get();
+            return Optional.empty();
         }
-        
+        if (digestService.shouldDefer(receiver.getId())) {
+            afterCommit(() -> digestService.add(message));
+            return Optional.empty();
+        }
+
         ChatNotification notification = ChatNotification.builder()
                 .sender(sender)
                 .receiver(receiver)
-                .messageContent(messageContent)
-                .sentAt(sentAt)
+                .message(message)
+                .sentAt(message.getSentAt())
                 .isRead(false)
                 .build();
 
         ChatNotification saved = notificationRepository.save(notification);
-        
-        // Send real-time notification via WebSocket
-        ChatNotificationDTO dto = convertToDTO(saved);
+        afterCommit(() -> publish(saved));
+        return Optional.of(saved);
+    }
+
+    // Count a committed notification and send it (plus the new unread count) to its receiver
+    public void publish(ChatNotification notification) {
+        User receiver = notification.getReceiver();
+        UnreadCountStore.Snapshot counts = unreadCounts.add(
+                receiver.getId(), notification.getSender().getId(), notification.getCollapsedCount());
+
+        ChatNotificationDTO dto = convertToDTO(notification);
         messagingTemplate.convertAndSendToUser(
             receiver.getEmail().toLowerCase(),
             "/queue/notifications",
             dto
         );
-        
-        System.out.println("🔔 Notification sent to " + receiver.getEmail() + " from " + sender.getName());
-        
-        return saved;
+        pushCount(receiver, counts);
+
+        System.out.println("🔔 Notification sent to " + notification.getReceiver().getEmail()
+                + " from " + notification.getSender().getName());
     }
 
-    public List<ChatNotificationDTO> getUnreadNotifications(User receiver) {
-        List<ChatNotification> notifications = notificationRepository
-                .findByReceiverAndIsReadFalseOrderBySentAtDesc(receiver);
-        return notifications.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // 📄 One page of unread notifications, newest first; `before` is the last item's cursor
+    public List<ChatNotificationDTO> getUnreadNotifications(User receiver, KeysetCursor before, int size) {
+        KeysetCursor cursor = before != null ? before : KeysetCursor.NEWEST;
+        List<ChatNotificationDTO> page = notificationRepository.findPageBefore(
+                receiver.getId(), false, watermark(receiver), cursor.at(), cursor.id(), pageOf(size));
+        return finish(receiver, page);
     }
 
-    public List<ChatNotificationDTO> getAllNotifications(User receiver) {
-        List<ChatNotification> notifications = notificationRepository
-                .findByReceiverOrderBySentAtDesc(receiver);
-        return notifications.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // 📄 One page of all notifications, newest first. Read and unread rows are two range scans
+    // on the same index, merged here; rows under the watermark are reported as read.
+    public List<ChatNotificationDTO> getAllNotifications(User receiver, KeysetCursor before, int size) {
+        KeysetCursor cursor = before != null ? before : KeysetCursor.NEWEST;
+        Pageable page = pageOf(size);
+        List<ChatNotificationDTO> merged = new ArrayList<>(page.getPageSize() * 2);
+        merged.addAll(notificationRepository.findPageBefore(
+                receiver.getId(), false, NO_WATERMARK, cursor.at(), cursor.id(), page));
+        merged.addAll(notificationRepository.findPageBefore(
+                receiver.getId(), true, NO_WATERMARK, cursor.at(), cursor.id(), page));
+        merged.sort(NEWEST_FIRST);
+        if (merged.size() > page.getPageSize()) merged.subList(page.getPageSize(), merged.size()).clear();
+        return finish(receiver, merged);
     }
 
+    /**
+     * Notifications created or changed (read, collapsed) after the cursor, oldest change first.
+     * Without a cursor nothing is returned but the starting cursor: take it before loading the
+     * first page and every later change is picked up.
+     *
+     * Moving the read watermark does not touch rows, so the response carries readUpTo; rows
+     * sent up to it count as read. Collapsing deletes a sender's older unread rows and bumps
+     * the newest one, so a changed row with collapsedCount > 1 replaces the older unread rows
+     * from that sender. A change that commits slightly later than it was stamped can land
+     * below a cursor already handed out; the unread count pushes still cover it.
+     */
+    public ChatNotificationSyncResponse getChangedSince(User receiver, KeysetCursor since, int size) {
+        LocalDateTime readUpTo = receiver.getNotificationsReadUpTo();
+        if (since == null) {
+            return ChatNotificationSyncResponse.builder()
+                    .notifications(List.of())
+                    .readUpTo(readUpTo)
+                    .cursor(new KeysetCursor(LocalDateTime.now(), 0L).toString())
+                    .build();
+        }
+
+        int limit = Math.max(1, Math.min(size, MAX_SYNC_SIZE));
+        List<ChatNotificationDTO> changed = new ArrayList<>(notificationRepository.findChangedAfter(
+                receiver.getId(), since.at(), since.id(), PageRequest.of(0, limit + 1)));
+        boolean hasMore = changed.size() > limit;
+        if (hasMore) changed.subList(limit, changed.size()).clear();
+
+        KeysetCursor next = since;
+        if (!changed.isEmpty()) {
+            ChatNotificationDTO last = changed.get(changed.size() - 1);
+            next = new KeysetCursor(last.getUpdatedAt(), last.getId());
+        }
+        return ChatNotificationSyncResponse.builder()
+                .notifications(finish(receiver, changed))
+                .readUpTo(readUpTo)
+                .cursor(next.toString())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static Pageable pageOf(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    // Receiver name from the current user, watermark applied, page cursor set, text from the message store
+    private List<ChatNotificationDTO> finish(User receiver, List<ChatNotificationDTO> page) {
+        LocalDateTime readUpTo = watermark(receiver);
+        Map<Long, String> contents = messageStore.findContents(
+                page.stream().map(ChatNotificationDTO::getMessageId).filter(Objects::nonNull).toList());
+        for (ChatNotificationDTO dto : page) {
+            if (dto.getMessageId() != null && contents.containsKey(dto.getMessageId())) {
+                dto.setMessageContent(contents.get(dto.getMessageId()));
+            }
+            dto.setReceiverName(receiver.getName());
+            if (!dto.getSentAt().isAfter(readUpTo)) dto.setIsRead(true);
+            dto.setCursor(new KeysetCursor(dto.getSentAt(), dto.getId()).toString());
+        }
+        return page;
+    }
+
+    // Served from memory; see UnreadCountStore
     public long getUnreadCount(User receiver) {
-        return notificationRepository.countByReceiverAndIsReadFalse(receiver);
+        return unreadCounts.total(receiver.getId());
+    }
+
+    public long getUnreadCountFromSender(User receiver, Long senderId) {
+        return unreadCounts.fromSender(receiver.getId(), senderId);
     }
 
     @Transactional
@@ -89,32 +192,102 @@ public class ChatNotificationService {
             throw new RuntimeException("Unauthorized to mark this notification as read");
         }
         
+        if (Boolean.TRUE.equals(notification.getIsRead()) || !notification.getSentAt().isAfter(watermark(receiver))) {
+            return; // already read, explicitly or by the watermark
+        }
         notification.setIsRead(true);
+        notification.setUpdatedAt(LocalDateTime.now());
         notificationRepository.save(notification);
+
+        Long senderId = notification.getSender().getId();
+        int count = notification.getCollapsedCount();
+        afterCommit(() -> pushCount(receiver, unreadCounts.add(receiver.getId(), senderId, -count)));
     }
 
+    // ✅ One UPDATE for all of the receiver's unread rows; returns how many were flipped
     @Transactional
-    public void markAllAsRead(User receiver) {
-        List<ChatNotification> unreadNotifications = notificationRepository
-                .findByReceiverAndIsReadFalseOrderBySentAtDesc(receiver);
-        
-        unreadNotifications.forEach(notification -> notification.setIsRead(true));
-        notificationRepository.saveAll(unreadNotifications);
+    public int markAllAsRead(User receiver) {
+        int updated = notificationRepository.markAllRead(receiver.getId(), watermark(receiver), LocalDateTime.now());
+
+        afterCommit(() -> {
+            digestService.discard(receiver.getId());
+            pushCount(receiver, unreadCounts.clearAll(receiver.getId()));
+        });
+        return updated;
     }
 
     @Transactional
-    public void markAllFromSenderAsRead(User receiver, Long senderId) {
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new RuntimeException("Sender not found"));
-        
-        List<ChatNotification> notifications = notificationRepository
-                .findByReceiverAndSenderOrderBySentAtDesc(receiver, sender);
-        
-        notifications.stream()
-                .filter(n -> !n.getIsRead())
-                .forEach(n -> n.setIsRead(true));
-        
-        notificationRepository.saveAll(notifications);
+    public int markAllFromSenderAsRead(User receiver, Long senderId) {
+        if (!userRepository.existsById(senderId)) {
+            throw new RuntimeException("Sender not found");
+        }
+
+        int updated = notificationRepository.markAllReadFromSender(
+                receiver.getId(), senderId, watermark(receiver), LocalDateTime.now());
+
+        afterCommit(() -> {
+            digestService.discard(receiver.getId(), senderId);
+            pushCount(receiver, unreadCounts.clearSender(receiver.getId(), senderId));
+        });
+        return updated;
+    }
+
+    /**
+     * Marks everything sent up to {@code readUpTo} (default: now) as read by moving the
+     * receiver's watermark; no notification rows are written. The watermark never moves
+     * backwards. Returns the watermark in effect afterwards.
+     */
+    @Transactional
+    public LocalDateTime markReadUpTo(User receiver, LocalDateTime readUpTo) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime target = readUpTo == null || readUpTo.isAfter(now) ? now : readUpTo;
+
+        if (userRepository.advanceNotificationWatermark(receiver.getId(), target) == 0) {
+            return watermark(receiver);
+        }
+        receiver.setNotificationsReadUpTo(target);
+
+        // Recount what is still unread past the new watermark (an indexed read, no writes)
+        Map<Long, Long> remaining = new HashMap<>();
+        for (Object[] row : notificationRepository.countUnreadBySender(receiver.getId(), target)) {
+            remaining.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        afterCommit(() -> {
+            // Buffered digest entries newer than the watermark stay unread
+            digestService.discardUpTo(receiver.getId(), target).forEach((senderId, count) -> remaining.merge(senderId, count, Long::sum));
+            pushCount(receiver, unreadCounts.reset(receiver.getId(), remaining));
+        });
+        return target;
+    }
+
+    private static LocalDateTime watermark(User receiver) {
+        LocalDateTime readUpTo = receiver.getNotificationsReadUpTo();
+        return readUpTo != null ? readUpTo : NO_WATERMARK;
+    }
+
+    // 🔢 Tell the receiver's open tabs about their new unread count
+    private void pushCount(User receiver, UnreadCountStore.Snapshot counts) {
+        UnreadCountDTO dto = UnreadCountDTO.builder()
+                .total(counts.total())
+                .senderId(counts.senderId())
+                .fromSender(counts.fromSender())
+                .version(counts.version())
+                .build();
+        messagingTemplate.convertAndSendToUser(receiver.getEmail().toLowerCase(), "/queue/notifications", dto);
+    }
+
+    // Counters and pushes must only reflect committed rows
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private ChatNotificationDTO convertToDTO(ChatNotification notification) {
@@ -124,10 +297,15 @@ public class ChatNotificationService {
                 .senderName(notification.getSender().getName())
                 .receiverId(notification.getReceiver().getId())
                 .receiverName(notification.getReceiver().getName())
-                .messageContent(notification.getMessageContent())
+                .messageId(notification.getMessage() != null ? notification.getMessage().getId() : null)
+                .messageContent(notification.getMessage() != null
+                        ? notification.getMessage().getContent()
+                        : notification.getMessageContent())
+                .collapsedCount(notification.getCollapsedCount())
                 .sentAt(notification.getSentAt())
                 .isRead(notification.getIsRead())
                 .createdAt(notification.getCreatedAt())
+                .updatedAt(notification.getUpdatedAt())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,376 @@
+package infosys.backend.service;
+
+import infosys.backend.model.ChatDeadLetter;
+import infosys.backend.model.ChatNotification;
+import infosys.backend.model.Message;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.ChatDeadLetterRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for WebSocket chat messages.
+ *
+ * In "write-behind" mode the controller delivers a message to both users first and then
+ * hands it to a bounded buffer. A single writer thread drains the buffer and commits each
+ * batch of messages, conversation updates and notifications in one transaction, then
+ * pushes the notifications (which need their database ids) to the receivers.
+ *
+ * Durability: a message is at risk only while it sits in the buffer, i.e. for at most
+ * chat.persistence.flush-interval-ms plus one commit; shutdown drains the buffer.
+ * A batch that fails with a transient error (connection lost, deadlock, ...) is retried
+ * with backoff until it succeeds, and everything behind it waits, so the order is kept.
+ * Any other error is tried a few times, then the batch is written one message at a time
+ * and the messages that are still refused go to chat_dead_letters (or the log, if even
+ * that fails), so one bad message cannot stop persistence for everybody.
+ * When the buffer stays full for chat.persistence.enqueue-timeout-ms the message is
+ * rejected: the controller tells the sender and delivers nothing, so a database outage
+ * sheds sends instead of parking every inbound thread. The buffer is the only way into
+ * the database, so messages of a conversation are written in the order they were delivered.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatPersistencePipeline {
+
+    private static final long RETRY_BACKOFF_MS = 100;
+    private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+    // Attempts for a batch that fails with a non-transient error before it is split up
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private final ConversationService conversationService;
+    private final ChatNotificationService notificationService;
+    private final MessageSearchService searchService;
+    private final NotificationDigestService digestService;
+    private final ChatBatchRepository chatBatchRepository;
+    private final ChatDeadLetterRepository deadLetterRepository;
+    private final MessageStore messageStore;
+    private final NotificationDeduplicator deduplicator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.persistence.mode:sync}")
+    private String mode;
+
+    @Value("${chat.persistence.buffer-capacity:8192}")
+    private int bufferCapacity;
+
+    @Value("${chat.persistence.batch-size:256}")
+    private int batchSize;
+
+    @Value("${chat.persistence.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    @Value("${chat.persistence.enqueue-timeout-ms:50}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<Message> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    // Set when the database is unreachable during shutdown: the rest of the buffer goes straight to the log
+    private boolean giveUp;
+
+    // Highest seq per conversation that is delivered but not committed yet (see ConversationDispatcher)
+    private final Map<ConversationKey, Long> pendingSeq = new ConcurrentHashMap<>();
+
+    private record ConversationKey(long low, long high) {
+        static ConversationKey of(Message m) {
+            long a = m.getSender().getId(), b = m.getReceiver().getId();
+            return new ConversationKey(Math.min(a, b), Math.max(a, b));
+        }
+    }
+
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        if (!isWriteBehind()) return;
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "chat-persistence");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("🗄️ Chat write-behind enabled (buffer=" + bufferCapacity + ", batch=" + batchSize + ")");
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) return;
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            System.out.println("❌ Chat writer still retrying at shutdown, " + buffer.size() + " queued messages not persisted");
+        }
+    }
+
+    public boolean isWriteBehind() {
+        return "write-behind".equalsIgnoreCase(mode);
+    }
+
+    // 📥 Queue a message for persistence before it is delivered. Returns false (and counts a
+    // rejection) if the buffer has no room within the enqueue timeout; the message must then not be delivered.
+    public boolean submit(Message message) {
+        // Recorded first so the writer never commits the seq before it is marked pending
+        Long seq = message.getSeq();
+        ConversationKey key = seq != null ? ConversationKey.of(message) : null;
+        // Only this conversation's lane adds to its entry, so nothing else raises it in between
+        Long previous = key != null ? pendingSeq.get(key) : null;
+        if (key != null) pendingSeq.merge(key, seq, Math::max);
+        boolean queued;
+        try {
+            queued = buffer.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            // The lane hands this seq out again, so it must not stay pending
+            if (key != null) pendingSeq.computeIfPresent(key, (k, v) -> v.equals(seq) ? previous : v);
+            rejected.incrementAndGet();
+        }
+        return queued;
+    }
+
+    // 0 when nothing of the conversation is waiting to be written
+    public long getPendingSeq(long low, long high) {
+        return pendingSeq.getOrDefault(new ConversationKey(low, high), 0L);
+    }
+
+    public long getBacklog() {
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    public long getPersistedCount() {
+        return persisted.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getFailedCommitCount() {
+        return failedCommits.get();
+    }
+
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Message first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and drain whatever is left
+                buffer.drainTo(batch, batchSize);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // 💾 Group commit: messages, conversation summaries, search postings and notifications in one transaction
+    private void flush(List<Message> messages) {
+        // Offline receivers get a digest later instead of a row now
+        List<ChatNotification> notifications = new ArrayList<>(messages.size());
+        List<ChatNotification> deferred = new ArrayList<>();
+        for (ChatNotification n : toNotifications(messages)) {
+            (digestService.shouldDefer(n.getReceiver().getId()) ? deferred : notifications).add(n);
+        }
+        if (giveUp) {
+            deadLetter(messages, "database unreachable at shutdown");
+            return;
+        }
+
+        RuntimeException error = commit(messages, notifications, MAX_BATCH_ATTEMPTS);
+        if (error == null) {
+            committed(messages, notifications, deferred);
+            return;
+        }
+        if (isTransient(error)) {
+            // Only happens at shutdown: the database is gone, so don't try the rest one by one
+            giveUp = true;
+            deadLetter(messages, error.getMessage());
+            return;
+        }
+
+        // Something in the batch is refused for good (constraint, over-long value, indexing, ...):
+        // write the messages one at a time so only the bad ones are left over
+        System.out.println("⚠ Chat batch of " + messages.size() + " refused, writing its messages one by one: "
+                + error.getMessage());
+        for (Message m : messages) {
+            List<ChatNotification> own = ofMessage(notifications, m);
+            RuntimeException e = commit(List.of(m), own, 1);
+            if (e == null) {
+                committed(List.of(m), own, ofMessage(deferred, m));
+            } else {
+                deadLetter(List.of(m), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the transaction until it commits or the attempts are used up, and returns the last
+     * error (null on success). Transient database errors (connection lost, deadlock, ...) are
+     * retried with backoff for as long as it takes, since everything behind this batch is
+     * in the same position; at shutdown they count against the attempts too.
+     */
+    private RuntimeException commit(List<Message> messages, List<ChatNotification> notifications, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    messageStore.appendAll(messages);
+                    conversationService.recordMessages(messages);
+                    searchService.index(messages);
+                    chatBatchRepository.insertNotifications(notifications);
+                });
+                return null;
+            } catch (RuntimeException e) {
+                notifications.forEach(n -> n.setId(null));
+                failedCommits.incrementAndGet();
+                if (attempt >= maxAttempts && (!isTransient(e) || !running)) {
+                    return e;
+                }
+                long backoff = Math.min(MAX_RETRY_BACKOFF_MS, RETRY_BACKOFF_MS << Math.min(attempt - 1, 16));
+                System.out.println("⚠ Chat batch of " + messages.size() + " failed to persist (attempt " + attempt
+                        + "), retrying in " + backoff + " ms: " + e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    private void committed(List<Message> messages, List<ChatNotification> notifications, List<ChatNotification> deferred) {
+        // The database has these seqs now (unless a later message is still pending)
+        forgetPending(messages);
+        persisted.addAndGet(messages.size());
+        batches.incrementAndGet();
+        notifications.forEach(notificationService::publish);
+        deferred.forEach(n -> digestService.add(n.getMessage()));
+    }
+
+    // ☠️ Delivered but not writable: keep a copy in chat_dead_letters, or at least in the log
+    private void deadLetter(List<Message> messages, String error) {
+        forgetPending(messages);
+        deadLettered.addAndGet(messages.size());
+        String reason = error == null ? "unknown" : error.length() > 500 ? error.substring(0, 500) : error;
+        if (!giveUp) {
+            LocalDateTime now = LocalDateTime.now();
+            List<ChatDeadLetter> rows = new ArrayList<>(messages.size());
+            for (Message m : messages) {
+                rows.add(ChatDeadLetter.builder()
+                        .messageId(m.getId())
+                        .senderId(m.getSender().getId())
+                        .receiverId(m.getReceiver().getId())
+                        .seq(m.getSeq())
+                        .content(m.getContent())
+                        .sentAt(m.getSentAt())
+                        .error(reason)
+                        .failedAt(now)
+                        .build());
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> deadLetterRepository.saveAll(rows));
+                System.out.println("☠️ " + messages.size() + " chat message(s) moved to chat_dead_letters: " + reason);
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("❌ Could not write chat dead letters: " + e.getMessage());
+            }
+        }
+        for (Message m : messages) {
+            System.out.println("☠️ Chat message not persisted: id=" + m.getId() + " sender=" + m.getSender().getId()
+                    + " receiver=" + m.getReceiver().getId() + " seq=" + m.getSeq() + " sentAt=" + m.getSentAt()
+                    + " content=" + m.getContent() + " error=" + reason);
+        }
+    }
+
+    private void forgetPending(List<Message> messages) {
+        for (Message m : messages) {
+            if (m.getSeq() != null) pendingSeq.remove(ConversationKey.of(m), m.getSeq());
+        }
+    }
+
+    private static List<ChatNotification> ofMessage(List<ChatNotification> notifications, Message message) {
+        List<ChatNotification> own = new ArrayList<>(1);
+        for (ChatNotification n : notifications) {
+            if (n.getMessage() == message) own.add(n);
+        }
+        return own;
+    }
+
+    // Errors a retry can fix, wherever they sit in the cause chain
+    private static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Cut short by an interrupt (shutdown); `running` then tells the retry loop to stop waiting
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Flag consumed on purpose: the drain loop still has to write what is queued
+        }
+    }
+
+    // One notification per message, skipping repeats the dedupe window has already seen.
+    // Called once per batch (not per retry) so a retried batch keeps its notifications;
+    // message ids were assigned before delivery, so they are already set here.
+    private List<ChatNotification> toNotifications(List<Message> messages) {
+        List<ChatNotification> notifications = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            if (!deduplicator.tryAcquire(m.getSender().getId(), m.getReceiver().getId(), m.getContent())) {
+                continue;
+            }
+            notifications.add(ChatNotification.builder()
+                    .sender(m.getSender())
+                    .receiver(m.getReceiver())
+                    .message(m)
+                    .sentAt(m.getSentAt())
+                    .isRead(false)
+                    .build());
+        }
+        return notifications;
+    }
+}
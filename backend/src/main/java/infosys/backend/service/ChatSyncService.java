@@ -0,0 +1,161 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.ChatSyncRequest;
+import infosys.backend.dto.ChatSyncResponse;
+import infosys.backend.dto.ConversationDTO;
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.model.User;
+import infosys.backend.repository.MessageRepository;
+import infosys.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta sync for reconnecting chat clients.
+ *
+ * A client sends what it already has, either as the opaque cursor from its previous sync or
+ * as the last seq it holds per conversation (or both), and gets back only newer messages
+ * plus the current read state of the conversations that changed. Every query is a range scan
+ * on an index that starts at the client's position, so a client that is up to date costs a
+ * few empty index probes, whatever the size of its history. That keeps a reconnect storm
+ * after a deploy cheap even with cold caches.
+ *
+ * The cursor is "{time}_{messageId}": messages after the id and conversations changed at or
+ * after the time. Ids from different conversation lanes can commit slightly out of order, and
+ * each node hands out ids from its own block (MessageIdAllocator), so a message may land
+ * below a cursor that was already handed out. The conversation entries
+ * carry lastSeq; a client holding a lower seq for that conversation should sync it by seq.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatSyncService {
+
+    private static final int DEFAULT_LIMIT = 200;
+    private static final int MAX_LIMIT = 500;
+    private static final int MAX_CONVERSATIONS = 100;
+
+    private static final Comparator<MessageDTO> BY_ID = Comparator.comparing(MessageDTO::getId);
+    private static final Comparator<MessageDTO> BY_SEQ = Comparator.comparing(MessageDTO::getSeq);
+
+    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ConversationService conversationService;
+    private final UserRepository userRepository;
+
+    @Transactional(readOnly = true)
+    public ChatSyncResponse sync(User user, ChatSyncRequest request) {
+        boolean hasCursor = request.getCursor() != null && !request.getCursor().isBlank();
+        boolean hasSeqs = request.getConversations() != null && !request.getConversations().isEmpty();
+        if (!hasCursor && !hasSeqs) {
+            throw new IllegalArgumentException("Send a cursor, per-conversation seqs, or both");
+        }
+        if (hasSeqs && request.getConversations().size() > MAX_CONVERSATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_CONVERSATIONS + " conversations per sync");
+        }
+
+        // Taken before reading, so anything committed while we read is picked up next time
+        LocalDateTime now = LocalDateTime.now();
+        int limit = Math.max(1, Math.min(request.getLimit() != null ? request.getLimit() : DEFAULT_LIMIT, MAX_LIMIT));
+        Long me = user.getId();
+
+        Map<Long, MessageDTO> messages = new LinkedHashMap<>();
+        Map<Long, ConversationDTO> conversations = new LinkedHashMap<>();
+        boolean hasMore = false;
+        String nextCursor;
+
+        if (hasSeqs) {
+            for (Map.Entry<Long, Long> entry : request.getConversations().entrySet()) {
+                Long partner = entry.getKey();
+                long seq = entry.getValue() != null ? entry.getValue() : 0L;
+                hasMore |= addAfterSeq(me, partner, seq, limit, messages);
+            }
+            for (ConversationDTO c : conversationService.getWithPartners(user, request.getConversations().keySet())) {
+                conversations.put(c.getId(), c);
+            }
+        }
+
+        if (hasCursor) {
+            KeysetCursor cursor = KeysetCursor.parse(request.getCursor());
+            Pageable page = PageRequest.of(0, limit + 1);
+            List<MessageDTO> newer = new ArrayList<>(messageRepository.findReceivedAfterId(me, cursor.id(), page));
+            newer.addAll(messageRepository.findSentAfterId(me, cursor.id(), page));
+            newer.sort(BY_ID);
+            boolean more = newer.size() > limit;
+            if (more) newer.subList(limit, newer.size()).clear();
+            newer.forEach(m -> messages.putIfAbsent(m.getId(), m));
+
+            for (ConversationDTO c : conversationService.getChangedSince(user, cursor.at(), MAX_CONVERSATIONS)) {
+                conversations.putIfAbsent(c.getId(), c);
+            }
+
+            long lastId = newer.isEmpty() ? cursor.id() : newer.get(newer.size() - 1).getId();
+            // While more pages remain, keep the old time so no conversation change is skipped
+            nextCursor = new KeysetCursor(more ? cursor.at() : now, lastId).toString();
+            hasMore |= more;
+        } else {
+            nextCursor = new KeysetCursor(now, latestMessageId(me)).toString();
+        }
+
+        List<MessageDTO> ordered = new ArrayList<>(messages.values());
+        ordered.sort(BY_ID);
+        messageStore.fillContents(ordered);
+        fillNames(ordered);
+
+        return ChatSyncResponse.builder()
+                .messages(ordered)
+                .conversations(new ArrayList<>(conversations.values()))
+                .cursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Both directions of one conversation after `seq`; returns true if it was cut at the limit
+    private boolean addAfterSeq(Long me, Long partner, long seq, int limit, Map<Long, MessageDTO> into) {
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<MessageDTO> newer = new ArrayList<>(messageRepository.findAfterSeqInDirection(me, partner, seq, page));
+        if (!partner.equals(me)) {
+            newer.addAll(messageRepository.findAfterSeqInDirection(partner, me, seq, page));
+        }
+        newer.sort(BY_SEQ);
+        boolean more = newer.size() > limit;
+        if (more) newer.subList(limit, newer.size()).clear();
+        newer.forEach(m -> into.putIfAbsent(m.getId(), m));
+        return more;
+    }
+
+    private long latestMessageId(Long userId) {
+        Long received = messageRepository.findLatestReceivedId(userId);
+        Long sent = messageRepository.findLatestSentId(userId);
+        return Math.max(received != null ? received : 0L, sent != null ? sent : 0L);
+    }
+
+    // One lookup for every user that appears in the batch
+    private void fillNames(List<MessageDTO> messages) {
+        if (messages.isEmpty()) return;
+        Set<Long> ids = new HashSet<>();
+        for (MessageDTO m : messages) {
+            ids.add(m.getSenderId());
+            ids.add(m.getReceiverId());
+        }
+        Map<Long, String> names = new HashMap<>();
+        userRepository.findAllById(ids).forEach(u -> names.put(u.getId(), u.getName()));
+        for (MessageDTO m : messages) {
+            m.setSenderName(names.get(m.getSenderId()));
+            m.setReceiverName(names.get(m.getReceiverId()));
+        }
+    }
+}
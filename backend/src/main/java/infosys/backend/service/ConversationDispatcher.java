@@ -0,0 +1,207 @@
+package infosys.backend.service;
+
+import infosys.backend.repository.ConversationRepository;
+import infosys.backend.repository.ConversationSeqRepository;
+import infosys.backend.repository.MessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Runs chat work in conversation order.
+ *
+ * Each conversation (the unordered pair of user ids) hashes to one of chat.dispatch.lanes
+ * single-threaded lanes. Work for the same conversation runs one task at a time in the order
+ * it was submitted, so messages are persisted and delivered in order, while different
+ * conversations proceed in parallel on the other lanes.
+ *
+ * Each task is handed the next sequence number of its conversation (1, 2, 3, ...) so clients
+ * can spot a gap and fetch what they missed. The lane owns its counters, so no locking is
+ * needed; a conversation not in the cache is seeded from conversations.last_seq (or from the
+ * message table for notes-to-self), or from the highest seq still waiting in the write-behind
+ * buffer if that is higher. A number is only taken once its task succeeded, so a failed save
+ * does not leave a gap.
+ *
+ * With websocket.broker.mode=relay other nodes write to the same conversations, so a counter
+ * on this node would collide with theirs. There every number is taken from conversation_seqs
+ * instead: one row per conversation, bumped under its row lock in a short transaction of its
+ * own, so two nodes never get the same number. That costs a round trip per message, and a
+ * failed task leaves a gap (clients sync it and find nothing missing).
+ *
+ * A full lane makes the submitter wait (back-pressure) rather than run the task out of order.
+ */
+@Service
+@RequiredArgsConstructor
+@DependsOn("chatPersistencePipeline") // lanes drain into the write-behind buffer on shutdown
+public class ConversationDispatcher {
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationSeqRepository conversationSeqRepository;
+    private final MessageRepository messageRepository;
+    private final ChatPersistencePipeline persistencePipeline;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.dispatch.lanes:16}")
+    private int laneCount;
+
+    @Value("${chat.dispatch.lane-capacity:10000}")
+    private int laneCapacity;
+
+    @Value("${chat.dispatch.seq-cache-size:100000}")
+    private int seqCacheSize;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    private Lane[] lanes;
+    // Set in relay mode: numbers come from conversation_seqs, each in a transaction of its own
+    private TransactionTemplate seqTransaction;
+    private volatile boolean running;
+
+    private record Pair(long low, long high) {
+        static Pair of(Long a, Long b) {
+            return new Pair(Math.min(a, b), Math.max(a, b));
+        }
+    }
+
+    private final class Lane implements Runnable {
+        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(laneCapacity);
+        final Thread thread;
+        // Last handed-out seq per conversation; only touched by this lane's thread
+        final Map<Pair, Long> lastSeq;
+
+        Lane(int index) {
+            int perLane = Math.max(16, seqCacheSize / laneCount);
+            this.lastSeq = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Pair, Long> eldest) {
+                    return size() > perLane;
+                }
+            };
+            this.thread = new Thread(this, "chat-lane-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        long peekSeq(Pair pair) {
+            if (seqTransaction != null) return takeSharedSeq(pair);
+            return lastSeq.computeIfAbsent(pair, ConversationDispatcher.this::loadLastSeq) + 1;
+        }
+
+        // Only after the task went through, so a failed task's number is handed out again
+        void commitSeq(Pair pair, long seq) {
+            if (seqTransaction == null) lastSeq.put(pair, seq);
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Runnable task = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (task != null) task.run();
+                } catch (InterruptedException e) {
+                    // Shutdown: finish what is queued
+                    Runnable task;
+                    while ((task = queue.poll()) != null) task.run();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            seqTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            seqTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        running = true;
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].thread.start();
+        }
+        Gauge.builder("chat.dispatch.backlog", this, ConversationDispatcher::getBacklog)
+                .description("Chat tasks waiting in conversation lanes")
+                .register(meterRegistry);
+        System.out.println("🧵 Chat dispatcher started with " + laneCount + " lanes");
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Queue work for the conversation between two users. The task gets the conversation's
+     * next sequence number and runs after everything queued before it for that conversation.
+     */
+    public <T> CompletableFuture<T> dispatch(Long userA, Long userB, LongFunction<T> task) {
+        Pair pair = Pair.of(userA, userB);
+        Lane lane = lanes[Math.floorMod(pair.hashCode(), lanes.length)];
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Runnable work = () -> {
+            try {
+                long seq = lane.peekSeq(pair);
+                T value = task.apply(seq);
+                lane.commitSeq(pair, seq);
+                result.complete(value);
+            } catch (Throwable e) {
+                // Errors too: the lane thread must survive, and a caller joining the result must not hang
+                System.out.println("❌ Chat task for " + pair.low() + "/" + pair.high() + " failed: " + e);
+                result.completeExceptionally(e);
+            }
+        };
+        try {
+            lane.queue.put(work);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public long getBacklog() {
+        long total = 0;
+        for (Lane lane : lanes) total += lane.queue.size();
+        return total;
+    }
+
+    // Relay mode: the next number from the shared row, seeded like a cache miss the first time
+    private long takeSharedSeq(Pair pair) {
+        return seqTransaction.execute(status -> {
+            if (conversationSeqRepository.increment(pair.low(), pair.high()) == 0) {
+                conversationSeqRepository.seed(pair.low(), pair.high(), loadLastSeq(pair) + 1);
+            }
+            return conversationSeqRepository.findLastSeq(pair.low(), pair.high());
+        });
+    }
+
+    // Cache miss: continue from the highest seq already stored for the conversation, or still
+    // waiting to be written behind (an evicted counter must not hand those numbers out again)
+    private Long loadLastSeq(Pair pair) {
+        Long last = pair.low() == pair.high()
+                ? messageRepository.findMaxSeqInDirection(pair.low(), pair.high())
+                : conversationRepository.findLastSeq(pair.low(), pair.high());
+        return Math.max(last != null ? last : 0L, persistencePipeline.getPendingSeq(pair.low(), pair.high()));
+    }
+}
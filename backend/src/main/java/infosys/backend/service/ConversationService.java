@@ -0,0 +1,179 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.ConversationDTO;
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.ConversationRepository;
+import infosys.backend.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ConversationService {
+
+    private static final int SNIPPET_LENGTH = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int SNIPPET_CHUNK = 500;
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+
+    // 💬 Fold a freshly saved message into its conversation (runs in the caller's transaction)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMessage(Message message) {
+        recordMessages(List.of(message));
+    }
+
+    // 💬 Same for a batch: one upsert per conversation, however many of its messages are in the batch
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMessages(List<Message> messages) {
+        Map<List<Long>, PairUpdate> updates = new LinkedHashMap<>();
+        for (Message message : messages) {
+            Long senderId = message.getSender().getId();
+            Long receiverId = message.getReceiver().getId();
+            if (senderId.equals(receiverId)) {
+                continue; // notes-to-self are not listed in the inbox
+            }
+            long lowId = Math.min(senderId, receiverId);
+            long highId = Math.max(senderId, receiverId);
+            PairUpdate update = updates.computeIfAbsent(List.of(lowId, highId), k -> new PairUpdate());
+            if (receiverId == lowId) update.unreadLow++;
+            else update.unreadHigh++;
+            if (update.last == null || message.getId() > update.last.getId()) update.last = message;
+            if (message.getSeq() != null && (update.lastSeq == null || message.getSeq() > update.lastSeq)) {
+                update.lastSeq = message.getSeq();
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        updates.forEach((pair, update) -> conversationRepository.upsertLastMessage(
+                pair.get(0),
+                pair.get(1),
+                update.last.getId(),
+                snippet(update.last.getContent()),
+                update.last.getSender().getId(),
+                update.last.getSentAt(),
+                update.unreadLow,
+                update.unreadHigh,
+                update.lastSeq,
+                now
+        ));
+    }
+
+    private static final class PairUpdate {
+        private Message last;
+        private int unreadLow;
+        private int unreadHigh;
+        private Long lastSeq;
+    }
+
+    // 🔄 Existing installs: build the inbox once from chat history
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (conversationRepository.count() == 0) {
+            int created = conversationRepository.backfillFromMessages();
+            if (created > 0) {
+                fillMissingSnippets();
+                System.out.println("💬 Conversations backfilled from message history: " + created);
+            }
+        }
+    }
+
+    // SQL cannot cut a snippet from a compressed text or one kept in the message log, so those are done here
+    private void fillMissingSnippets() {
+        long afterId = 0;
+        while (true) {
+            List<Object[]> chunk = conversationRepository.findWithoutSnippet(afterId, PageRequest.of(0, SNIPPET_CHUNK));
+            if (chunk.isEmpty()) break;
+            Map<Long, Long> conversationByMessage = new HashMap<>();
+            for (Object[] row : chunk) conversationByMessage.put((Long) row[1], (Long) row[0]);
+
+            List<MessageDTO> messages = messageRepository.findDTOsByIds(conversationByMessage.keySet());
+            messageStore.fillContents(messages);
+            for (MessageDTO m : messages) {
+                conversationRepository.setSnippet(conversationByMessage.get(m.getId()), snippet(m.getContent()));
+            }
+            afterId = (Long) chunk.get(chunk.size() - 1)[0];
+            if (chunk.size() < SNIPPET_CHUNK) break;
+        }
+    }
+
+    // 📥 One page of the user's inbox, most recent conversation first
+    @Transactional(readOnly = true)
+    public List<ConversationDTO> getInbox(User user, KeysetCursor before, int size) {
+        KeysetCursor cursor = before != null ? before : KeysetCursor.NEWEST;
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        return conversationRepository.findInboxPage(user.getId(), cursor.at(), cursor.id(), pageSize)
+                .stream()
+                .map(ConversationService::toDTO)
+                .toList();
+    }
+
+    // 🔄 Conversations with a new message or read-state change at or after `since` (delta sync)
+    @Transactional(readOnly = true)
+    public List<ConversationDTO> getChangedSince(User user, LocalDateTime since, int limit) {
+        return conversationRepository.findChangedSince(user.getId(), since, limit)
+                .stream()
+                .map(ConversationService::toDTO)
+                .toList();
+    }
+
+    // 🔄 Current state of the user's conversations with these partners (delta sync)
+    @Transactional(readOnly = true)
+    public List<ConversationDTO> getWithPartners(User user, Collection<Long> partnerIds) {
+        if (partnerIds.isEmpty()) return List.of();
+        return conversationRepository.findWithPartners(user.getId(), partnerIds)
+                .stream()
+                .map(ConversationService::toDTO)
+                .toList();
+    }
+
+    // ✅ Reset the user's unread counter for the conversation with `partnerId`
+    @Transactional
+    public void markConversationRead(User user, Long partnerId) {
+        long lowId = Math.min(user.getId(), partnerId);
+        long highId = Math.max(user.getId(), partnerId);
+        if (user.getId() == lowId) {
+            conversationRepository.clearUnreadLow(lowId, highId, LocalDateTime.now());
+        } else {
+            conversationRepository.clearUnreadHigh(lowId, highId, LocalDateTime.now());
+        }
+    }
+
+    private static ConversationDTO toDTO(ConversationRepository.InboxEntry e) {
+        return ConversationDTO.builder()
+                .id(e.getId())
+                .partnerId(e.getPartnerId())
+                .partnerName(e.getPartnerName())
+                .lastSenderId(e.getLastSenderId())
+                .lastMessageSnippet(e.getLastMessageSnippet())
+                .lastMessageAt(e.getLastMessageAt())
+                .unreadCount(e.getUnreadCount() != null ? e.getUnreadCount() : 0)
+                .lastSeq(e.getLastSeq())
+                .cursor(new KeysetCursor(e.getLastMessageAt(), e.getId()).toString())
+                .build();
+    }
+
+    static String snippet(String content) {
+        if (content == null) return null;
+        return content.length() <= SNIPPET_LENGTH ? content : content.substring(0, SNIPPET_LENGTH) + "…";
+    }
+}
@@ -0,0 +1,15 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.NotificationDigestDTO;
+import infosys.backend.model.User;
+
+/**
+ * Where {@link NotificationDigestService} sends digests of receivers who stayed offline.
+ * The channel is picked by name with chat.notifications.digest.channel.
+ */
+public interface DigestChannel {
+
+    String name();
+
+    void send(User receiver, NotificationDigestDTO digest);
+}
@@ -0,0 +1,189 @@
+package infosys.backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 📄 Sends stored document blobs with HTTP caching and byte ranges.
+ *
+ * - ETag: the SHA-256 for content-addressed blobs (strong, and the file never changes, so it is
+ *   cached as immutable); size and modification time for older flat uploads (weak).
+ * - If-None-Match answers 304; a single "Range: bytes=" range answers 206. An If-Range must match
+ *   a strong ETag exactly (so weak tags of flat uploads never get a range), otherwise, and for
+ *   several ranges or numbers too large to parse, the whole file is sent.
+ * - A blob that is a file on this machine goes out through Tomcat's sendfile when the connector
+ *   offers it, so the kernel copies file to socket, otherwise through FileChannel.transferTo into
+ *   the response stream. Remote blobs are streamed from the store.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentDownloadService {
+
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]+)?");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    // Tomcat request attributes for sendfile (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this, one write is cheaper than handing the file to the poller
+    @Value("${documents.download.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    private final BlobStore blobStore;
+
+    public void serve(String key, String downloadName,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BlobStore.BlobInfo info;
+        try {
+            info = blobStore.stat(key);
+        } catch (IllegalArgumentException e) {
+            info = null;
+        }
+        if (info == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long size = info.size();
+        String fileName = key.substring(key.lastIndexOf('/') + 1);
+        Matcher blob = BLOB_NAME.matcher(fileName);
+        boolean contentAddressed = blob.matches();
+        String etag = contentAddressed
+                ? "\"" + blob.group(1) + "\""
+                : "W/\"" + Long.toHexString(size) + "-" + Long.toHexString(info.lastModified().toEpochMilli()) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // private: the link is access-checked, so shared caches must not keep it
+        response.setHeader(HttpHeaders.CACHE_CONTROL, contentAddressed
+                ? "private, max-age=31536000, immutable"
+                : "private, max-age=3600");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Blob keys are bare hashes, so the type comes from the document's name (signed with the link)
+        String name = downloadName == null || downloadName.isBlank() ? fileName : downloadName;
+        response.setContentType(MediaTypeFactory.getMediaType(name)
+                .or(() -> MediaTypeFactory.getMediaType(fileName))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        ContentDisposition.Builder disposition = ContentDisposition.inline();
+        // Plain filename= where it suffices; filename*= (RFC 5987) only for non-ASCII names
+        if (StandardCharsets.US_ASCII.newEncoder().canEncode(name)) disposition.filename(name);
+        else disposition.filename(name, StandardCharsets.UTF_8);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+
+        long start = 0;
+        long length = size;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || strongMatch(ifRange, etag))) {
+            Matcher m = SINGLE_RANGE.matcher(range.trim());
+            long[] bounds = m.matches() ? bounds(m, size) : null;
+            if (bounds != null) {
+                long first = bounds[0];
+                long last = bounds[1];
+                if (first >= size || first > last) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                start = first;
+                length = last - first + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + size);
+            }
+        }
+
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) return;
+        Optional<Path> local = blobStore.localPath(key);
+        if (local.isPresent()) {
+            transfer(local.get(), start, length, request, response);
+        } else {
+            try (InputStream in = blobStore.open(key, start, length)) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    private void transfer(Path file, long start, long length,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (length >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // First and last byte of a single range, or null when it cannot be used (then the whole file goes out)
+    private static long[] bounds(Matcher m, long size) {
+        if (m.group(1).isEmpty() && m.group(2).isEmpty()) return null;
+        try {
+            if (m.group(1).isEmpty()) {
+                // Suffix range: the last n bytes
+                long n = Long.parseLong(m.group(2));
+                return new long[] {n == 0 ? size : Math.max(0, size - n), size - 1};
+            }
+            long first = Long.parseLong(m.group(1));
+            long last = m.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(m.group(2)), size - 1);
+            return new long[] {first, last};
+        } catch (NumberFormatException e) {
+            // More digits than a long holds: not a range we can honour
+            return null;
+        }
+    }
+
+    // If-Range: strong comparison (RFC 9110 13.1.5), so a weak ETag never matches
+    private static boolean strongMatch(String ifRange, String etag) {
+        return !etag.startsWith("W/") && ifRange.trim().equals(etag);
+    }
+
+    // If-None-Match: "*" or a list of tags; weak comparison as RFC 9110 asks for this header
+    private static boolean matches(String header, String etag) {
+        if (header == null) return false;
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : header.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(tag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+package infosys.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * 🔍 Looks inside uploaded verification documents: what they really are (magic bytes, not the
+ * browser's claim), how large an image is, and a small JPEG preview of it.
+ *
+ * Content is streamed from where it is stored: the type check reads the first bytes only, and
+ * images are decoded through an ImageInputStream (cached on disk by ImageIO), never held whole.
+ * There is no PDF renderer on the classpath, so a PDF is only checked by its header and gets
+ * neither a page count nor a preview.
+ */
+@Component
+public class DocumentInspector {
+
+    public static final String PDF = "application/pdf";
+    public static final String PNG = "image/png";
+    public static final String JPEG = "image/jpeg";
+    public static final String GIF = "image/gif";
+
+    private static final int HEAD_BYTES = 16;
+    private static final long MAX_PIXELS = 200_000_000L; // larger images are not decoded for a preview
+
+    @Value("${documents.processing.thumbnail-px:256}")
+    private int thumbnailPx;
+
+    // What a document turned out to be; a null field was not applicable or could not be read
+    public record Inspection(String detectedType, Integer width, Integer height, byte[] thumbnail) {}
+
+    // The stored content; every call opens a fresh stream from its first byte
+    @FunctionalInterface
+    public interface Content {
+        InputStream open() throws IOException;
+    }
+
+    // Content type from the first bytes, or null when it is none of the accepted types
+    public static String detectType(byte[] head) {
+        if (startsWith(head, "%PDF-".getBytes(StandardCharsets.US_ASCII))) return PDF;
+        if (startsWith(head, new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'})) return PNG;
+        if (startsWith(head, new byte[] {(byte) 0xff, (byte) 0xd8, (byte) 0xff})) return JPEG;
+        if (startsWith(head, "GIF87a".getBytes(StandardCharsets.US_ASCII))
+                || startsWith(head, "GIF89a".getBytes(StandardCharsets.US_ASCII))) return GIF;
+        return null;
+    }
+
+    /**
+     * Checks the content against the declared type and reads what can be read from it.
+     * Throws IllegalArgumentException when the file is not an accepted type or not what it claims,
+     * and IOException when the content itself could not be read.
+     */
+    public Inspection inspect(Content content, String declaredType) throws IOException {
+        byte[] head;
+        try (InputStream in = content.open()) {
+            head = in.readNBytes(HEAD_BYTES);
+        }
+        String detected = detectType(head);
+        if (detected == null) {
+            throw new IllegalArgumentException("Unsupported file content (expected a PDF, PNG, JPEG or GIF)");
+        }
+        if (!matchesDeclared(declaredType, detected)) {
+            throw new IllegalArgumentException("File was sent as " + declaredType + " but is " + detected);
+        }
+        if (PDF.equals(detected)) return new Inspection(detected, null, null, null);
+
+        try (SourceStream source = new SourceStream(content.open());
+             ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            return inspectImage(detected, in, source);
+        }
+    }
+
+    // Browsers send octet-stream (or nothing) for types they do not know; anything else must match
+    private static boolean matchesDeclared(String declared, String detected) {
+        if (declared == null || declared.isBlank()) return true;
+        String type = declared.split(";")[0].trim().toLowerCase();
+        if (type.equals("application/octet-stream") || type.equals(detected)) return true;
+        return type.equals("image/jpg") && detected.equals(JPEG);
+    }
+
+    // ---------- Images ----------
+
+    // Size from the header, then a preview from the same reader
+    private Inspection inspectImage(String detected, ImageInputStream in, SourceStream source) throws IOException {
+        ImageReader reader = readerFor(in);
+        if (reader == null) throw new IllegalArgumentException("Image could not be read");
+        try {
+            reader.setInput(in, true, true);
+            int width;
+            int height;
+            try {
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            } catch (IOException e) {
+                source.rethrowFailure();
+                throw new IllegalArgumentException("Image could not be read");
+            }
+            return new Inspection(detected, width, height, thumbnail(reader, width, height, source));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * JPEG preview fitting in thumbnail-px. The image is decoded with subsampling, so a large
+     * scan does not need its full size in memory; images ImageIO cannot decode (e.g. CMYK JPEGs)
+     * get no preview, and pixel data a decoder chokes on fails the document.
+     */
+    private byte[] thumbnail(ImageReader reader, int w, int h, SourceStream source) throws IOException {
+        if ((long) w * h > MAX_PIXELS) return null;
+        ImageReadParam param = reader.getDefaultReadParam();
+        int step = Math.max(1, Math.max(w, h) / (thumbnailPx * 2));
+        param.setSourceSubsampling(step, step, 0, 0);
+        BufferedImage decoded;
+        try {
+            decoded = reader.read(0, param);
+        } catch (IOException e) {
+            source.rethrowFailure();
+            System.out.println("⚠ No preview: " + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Image data is corrupt (" + e.getClass().getSimpleName() + ")", e);
+        }
+
+        double scale = Math.min(1.0, (double) thumbnailPx / Math.max(decoded.getWidth(), decoded.getHeight()));
+        int tw = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+        int th = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+        BufferedImage thumb = new BufferedImage(tw, th, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumb.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE); // transparent areas
+            g.fillRect(0, 0, tw, th);
+            g.drawImage(decoded, 0, 0, tw, th, null);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return ImageIO.write(thumb, "jpg", out) ? out.toByteArray() : null;
+    }
+
+    // Remembers a failed read of the stored file, so a storage error is not taken for a broken image
+    private static final class SourceStream extends FilterInputStream {
+        private IOException failure;
+
+        SourceStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        void rethrowFailure() throws IOException {
+            if (failure != null) throw failure;
+        }
+    }
+
+    private static ImageReader readerFor(ImageInputStream in) {
+        if (in == null) return null;
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
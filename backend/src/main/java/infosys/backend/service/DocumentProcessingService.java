@@ -0,0 +1,375 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.DocumentProgressDTO;
+import infosys.backend.enums.ProcessingStatus;
+import infosys.backend.model.Document;
+import infosys.backend.model.DocumentJob;
+import infosys.backend.repository.DocumentContentRepository;
+import infosys.backend.repository.DocumentJobRepository;
+import infosys.backend.repository.DocumentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⚙️ Background processing of uploaded documents: checks the content against its magic bytes,
+ * reads an image's size and stores a preview (see {@link DocumentInspector}). The stored file is
+ * streamed to the inspector, never read into memory whole.
+ *
+ * Work is queued as a row in document_jobs in the upload's own transaction, so it survives a
+ * restart, and a fixed pool of worker threads picks it up once that transaction has committed.
+ * Workers claim due jobs with SELECT ... FOR UPDATE SKIP LOCKED, so several workers, or several
+ * instances, never take the same job and never wait on each other. A claim is a lease: a job
+ * whose worker died is taken again after lease-ms, as long as it has tries left; one whose last
+ * try lost its lease is failed. A worker only records its result while the job is still its claim
+ * (PROCESSING, same attempt), so a worker that outlived its lease cannot overwrite the next one.
+ * Failures that may pass (storage errors) are retried with exponential backoff up to
+ * max-attempts; content that is not acceptable fails at once. The provider sees progress and the
+ * result on /user/queue/documents.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentProcessingService {
+
+    private static final String DOCUMENTS_QUEUE = "/queue/documents";
+
+    private final DocumentJobRepository jobRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentContentRepository documentContentRepository;
+    private final BlobStore blobStore;
+    private final DocumentStorage documentStorage;
+    private final DocumentInspector inspector;
+    private final DocumentUrlSigner urlSigner;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${documents.processing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${documents.processing.workers:2}")
+    private int workerCount;
+
+    @Value("${documents.processing.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${documents.processing.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${documents.processing.retry-backoff-ms:10000}")
+    private long retryBackoffMs;
+
+    @Value("${documents.processing.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${documents.processing.max-bytes:26214400}")
+    private long maxBytes;
+
+    // Released when a job was queued, so an idle worker does not wait for its next poll
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Counter done;
+    private Counter retried;
+    private Counter failed;
+    private Timer duration;
+
+    // What a worker needs from the job and its document, read in the claiming worker's transaction
+    private record Work(Long jobId, int attempts, Long documentId, String fileName, String fileUrl,
+                        String fileType, String sha256, String providerEmail) {}
+
+    @PostConstruct
+    void start() {
+        done = Counter.builder("documents.processing.jobs").tag("outcome", "done")
+                .description("Document processing jobs by outcome").register(meterRegistry);
+        retried = Counter.builder("documents.processing.jobs").tag("outcome", "retried")
+                .description("Document processing jobs by outcome").register(meterRegistry);
+        failed = Counter.builder("documents.processing.jobs").tag("outcome", "failed")
+                .description("Document processing jobs by outcome").register(meterRegistry);
+        duration = Timer.builder("documents.processing.duration")
+                .description("Time to process one document")
+                .register(meterRegistry);
+        if (!enabled) return;
+
+        running = true;
+        for (int i = 1; i <= Math.max(1, workerCount); i++) {
+            Thread worker = new Thread(this::workLoop, "document-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        System.out.println("⚙️ Document processing started with " + workers.size() + " workers");
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) worker.interrupt();
+        for (Thread worker : workers) worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // 📥 Queue processing of a new document; runs in the upload's transaction, workers start after commit
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Document document) {
+        LocalDateTime now = LocalDateTime.now();
+        jobRepository.save(DocumentJob.builder()
+                .document(document)
+                .status(ProcessingStatus.QUEUED)
+                .runAfter(now)
+                .createdAt(now)
+                .build());
+        document.setProcessingStatus(ProcessingStatus.QUEUED);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeups.release();
+            }
+        });
+    }
+
+    // 🔄 Documents uploaded before processing existed get a job once
+    @EventListener(ApplicationReadyEvent.class)
+    public void enqueueUnprocessed() {
+        if (!enabled) return;
+        Integer queued = transactionTemplate.execute(status -> {
+            List<Document> docs = documentRepository.findByProcessingStatusIsNull();
+            docs.forEach(this::enqueue);
+            return docs.size();
+        });
+        if (queued != null && queued > 0) System.out.println("⚙️ Queued processing for " + queued + " existing documents");
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Work work = claim();
+                if (work == null) {
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                Timer.Sample sample = Timer.start(meterRegistry);
+                process(work);
+                sample.stop(duration);
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                // Database unreachable and the like: back off instead of spinning
+                System.out.println("❌ Document worker: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Takes the oldest due job, if any, and marks it PROCESSING with a lease
+    private Work claim() {
+        failExhausted();
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = jobRepository.lockDueIds(now, maxAttempts, 1);
+            if (ids.isEmpty()) return null;
+            jobRepository.markClaimed(ids, ProcessingStatus.PROCESSING, now.plusNanos(leaseMs * 1_000_000));
+            DocumentJob job = jobRepository.findWithDocument(ids.get(0)).orElse(null);
+            if (job == null) return null;
+            Document doc = job.getDocument();
+            doc.setProcessingStatus(ProcessingStatus.PROCESSING);
+            doc.setProcessingError(null);
+            return workOf(job);
+        });
+    }
+
+    // 💀 Jobs whose last try never finished (worker died or hung past its lease) are given up
+    private void failExhausted() {
+        List<Work> exhausted = transactionTemplate.execute(status -> {
+            List<Work> given = new ArrayList<>();
+            for (Long id : jobRepository.lockExhaustedIds(LocalDateTime.now(), maxAttempts, 10)) {
+                DocumentJob job = jobRepository.findWithDocument(id).orElse(null);
+                if (job == null) continue;
+                String message = "Gave up after " + job.getAttempts() + " attempts (processing did not finish in time)";
+                job.setStatus(ProcessingStatus.FAILED);
+                job.setLockedUntil(null);
+                job.setLastError(message);
+                job.setFinishedAt(LocalDateTime.now());
+                job.getDocument().setProcessingStatus(ProcessingStatus.FAILED);
+                job.getDocument().setProcessingError(message);
+                given.add(workOf(job));
+            }
+            return given;
+        });
+        if (exhausted == null) return;
+        for (Work work : exhausted) {
+            failed.increment();
+            System.out.println("❌ Processing failed for document " + work.documentId() + ": out of attempts");
+            DocumentProgressDTO dto = progress(work, ProcessingStatus.FAILED, 0, "failed");
+            dto.setError("Processing did not finish");
+            push(work, dto);
+        }
+    }
+
+    private static Work workOf(DocumentJob job) {
+        Document doc = job.getDocument();
+        return new Work(job.getId(), job.getAttempts(), doc.getId(), doc.getFileName(), doc.getFileUrl(),
+                doc.getFileType(), doc.getSha256(), doc.getProvider() != null ? doc.getProvider().getEmail() : null);
+    }
+
+    // The job row, locked, if it is still this worker's claim (not finished, failed or re-claimed meanwhile)
+    private DocumentJob lockClaim(Work work) {
+        DocumentJob job = jobRepository.lockById(work.jobId()).orElse(null);
+        if (job == null) return null;
+        if (job.getStatus() != ProcessingStatus.PROCESSING || job.getAttempts() != work.attempts()) {
+            System.out.println("⚠ Document job " + work.jobId() + " is no longer this worker's (attempt "
+                    + work.attempts() + "), result dropped");
+            return null;
+        }
+        return job;
+    }
+
+    private void process(Work work) {
+        push(work, progress(work, ProcessingStatus.PROCESSING, 10, "validating"));
+        try {
+            BlobStore.BlobInfo info = checkStored(work.fileUrl());
+            push(work, progress(work, ProcessingStatus.PROCESSING, 40, "inspecting"));
+            DocumentInspector.Inspection result = inspector.inspect(
+                    () -> blobStore.open(work.fileUrl(), 0, info.size()), work.fileType());
+
+            String thumbnailKey = null;
+            if (result.thumbnail() != null && work.sha256() != null) {
+                push(work, progress(work, ProcessingStatus.PROCESSING, 75, "thumbnail"));
+                thumbnailKey = storeThumbnail(work, result.thumbnail());
+            }
+            finish(work, result, thumbnailKey);
+        } catch (IllegalArgumentException e) {
+            fail(work, e.getMessage(), false);
+        } catch (IOException | RuntimeException e) {
+            fail(work, e.getClass().getSimpleName() + ": " + e.getMessage(), true);
+        }
+    }
+
+    // Under the content's lock, and only while the document exists: a preview stored after its last
+    // document was deleted would never be cleaned up
+    private String storeThumbnail(Work work, byte[] jpeg) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                documentContentRepository.lock(work.sha256());
+                if (!documentRepository.existsById(work.documentId())) return null;
+                try {
+                    return documentStorage.storeThumbnail(work.sha256(), jpeg);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private BlobStore.BlobInfo checkStored(String key) throws IOException {
+        BlobStore.BlobInfo info = blobStore.stat(key);
+        if (info == null) throw new IOException("Stored file " + key + " is missing");
+        if (info.size() > maxBytes) throw new IllegalArgumentException("File is too large to process");
+        return info;
+    }
+
+    private void finish(Work work, DocumentInspector.Inspection result, String thumbnailKey) {
+        Boolean stillThere = transactionTemplate.execute(status -> {
+            DocumentJob job = lockClaim(work);
+            Document doc = documentRepository.findById(work.documentId()).orElse(null);
+            if (job == null || doc == null) return false; // deleted or taken over meanwhile
+            doc.setProcessingStatus(ProcessingStatus.DONE);
+            doc.setProcessingError(null);
+            doc.setDetectedType(result.detectedType());
+            doc.setWidth(result.width());
+            doc.setHeight(result.height());
+            doc.setThumbnailKey(thumbnailKey);
+            job.setStatus(ProcessingStatus.DONE);
+            job.setLockedUntil(null);
+            job.setLastError(null);
+            job.setFinishedAt(LocalDateTime.now());
+            return true;
+        });
+        if (!Boolean.TRUE.equals(stillThere)) return;
+        done.increment();
+
+        DocumentProgressDTO dto = progress(work, ProcessingStatus.DONE, 100, "done");
+        dto.setDetectedType(result.detectedType());
+        dto.setWidth(result.width());
+        dto.setHeight(result.height());
+        if (thumbnailKey != null) dto.setThumbnailUrl(urlSigner.sign(thumbnailKey, "preview.jpg"));
+        push(work, dto);
+        System.out.println("✅ Processed document " + work.documentId() + " (" + result.detectedType() + ")");
+    }
+
+    // Retryable failures go back in the queue with exponential backoff until max-attempts
+    private void fail(Work work, String error, boolean retryable) {
+        String message = error.length() > 250 ? error.substring(0, 250) : error;
+        boolean retry = retryable && work.attempts() < maxAttempts;
+        Boolean stillThere = transactionTemplate.execute(status -> {
+            DocumentJob job = lockClaim(work);
+            Document doc = documentRepository.findById(work.documentId()).orElse(null);
+            if (job == null || doc == null) return false;
+            job.setLastError(message);
+            job.setLockedUntil(null);
+            if (retry) {
+                long delay = Math.min(retryBackoffMs << Math.min(work.attempts() - 1, 10), TimeUnit.HOURS.toMillis(1));
+                job.setStatus(ProcessingStatus.QUEUED);
+                job.setRunAfter(LocalDateTime.now().plusNanos(delay * 1_000_000));
+                doc.setProcessingStatus(ProcessingStatus.QUEUED);
+            } else {
+                job.setStatus(ProcessingStatus.FAILED);
+                job.setFinishedAt(LocalDateTime.now());
+                doc.setProcessingStatus(ProcessingStatus.FAILED);
+            }
+            doc.setProcessingError(message);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(stillThere)) return;
+
+        (retry ? retried : failed).increment();
+        System.out.println((retry ? "🔁 Will retry document " : "❌ Processing failed for document ")
+                + work.documentId() + ": " + message);
+        DocumentProgressDTO dto = progress(work, retry ? ProcessingStatus.QUEUED : ProcessingStatus.FAILED,
+                0, retry ? "retrying" : "failed");
+        dto.setError(message);
+        push(work, dto);
+    }
+
+    private static DocumentProgressDTO progress(Work work, ProcessingStatus status, int percent, String stage) {
+        return DocumentProgressDTO.builder()
+                .documentId(work.documentId())
+                .fileName(work.fileName())
+                .status(status)
+                .progress(percent)
+                .stage(stage)
+                .build();
+    }
+
+    private void push(Work work, DocumentProgressDTO dto) {
+        if (work.providerEmail() == null) return;
+        messagingTemplate.convertAndSendToUser(work.providerEmail().toLowerCase(), DOCUMENTS_QUEUE, dto);
+    }
+}
@@ -2,17 +2,21 @@ package infosys.backend.service;
 
 import infosys.backend.model.Document;
 import infosys.backend.model.User;
+import infosys.backend.repository.DocumentContentRepository;
+import infosys.backend.repository.DocumentJobRepository;
 import infosys.backend.repository.DocumentRepository;
 import infosys.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -23,46 +27,91 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
 
-    private final String uploadDir = "uploads/";
+    private final DocumentJobRepository documentJobRepository;
+    private final DocumentContentRepository documentContentRepository;
 
-    // 📤 Upload a new document
+    private final DocumentStorage documentStorage;
+    private final DocumentUrlSigner documentUrlSigner;
+    private final DocumentProcessingService documentProcessingService;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final String LEGACY_DIR = "uploads";
+
+    // 📤 Upload a new document (streamed to disk, stored once per distinct content; inspected in the background)
     public Document uploadDocument(Long providerId, MultipartFile file) throws IOException {
         User provider = userRepository.findById(providerId)
                 .orElseThrow(() -> new RuntimeException("Provider not found"));
 
-        // Create uploads directory if not exists
-        File directory = new File(uploadDir);
-        if (!directory.exists()) directory.mkdirs();
-
-        // Save file locally
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = Paths.get(uploadDir + fileName);
-        Files.write(filePath, file.getBytes());
-
-        Document document = Document.builder()
-                .fileName(fileName)
-                .fileType(file.getContentType())
-                .fileUrl(filePath.toString())
-                .provider(provider)
-                .approved(false)
-                .rejected(false)
-                .rejectionReason(null)
-                .uploadedAt(LocalDateTime.now())
-                .build();
-
-        return documentRepository.save(document);
+        DocumentStorage.Staged staged;
+        try (InputStream in = file.getInputStream()) {
+            staged = documentStorage.stage(in);
+        }
+        try {
+            // The content's row lock (every instance) keeps a delete of the same blob out until the row is saved
+            Document saved = transactionTemplate.execute(status -> {
+                documentContentRepository.lock(staged.sha256());
+                String key;
+                try {
+                    key = documentStorage.commit(staged, file.getContentType());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                Document document = Document.builder()
+                        .fileName(displayName(file.getOriginalFilename()))
+                        .fileType(file.getContentType())
+                        .fileUrl(key)
+                        .sha256(staged.sha256())
+                        .sizeBytes(staged.size())
+                        .provider(provider)
+                        .approved(false)
+                        .rejected(false)
+                        .rejectionReason(null)
+                        .uploadedAt(LocalDateTime.now())
+                        .build();
+
+                // Row and processing job commit together; workers pick the job up after the commit
+                Document d = documentRepository.save(document);
+                documentProcessingService.enqueue(d);
+                return d;
+            });
+            return withDownloadUrl(saved);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            documentStorage.discard(staged);
+        }
+    }
+
+    // 🔄 Older rows hold a local path ("uploads/1712_x.pdf"); turn those into blob keys once
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateFileUrlsToKeys() {
+        List<Document> legacy = documentRepository.findByFileUrlStartingWith(LEGACY_DIR);
+        int migrated = 0;
+        for (Document doc : legacy) {
+            String path = doc.getFileUrl().replace('\\', '/');
+            if (path.startsWith(LEGACY_DIR + "/")) {
+                doc.setFileUrl(path.substring(LEGACY_DIR.length() + 1));
+                migrated++;
+            }
+        }
+        if (migrated > 0) {
+            documentRepository.saveAll(legacy);
+            System.out.println("📦 Document file paths migrated to blob keys: " + migrated);
+        }
     }
 
     // 📄 Get documents for a specific provider
     public List<Document> getDocumentsByProvider(Long providerId) {
         User provider = userRepository.findById(providerId)
                 .orElseThrow(() -> new RuntimeException("Provider not found"));
-        return documentRepository.findByProvider(provider);
+        return withDownloadUrls(documentRepository.findByProvider(provider));
     }
 
     // 👀 Get all documents (admin)
     public List<Document> getAllDocuments() {
-        return documentRepository.findAll();
+        return withDownloadUrls(documentRepository.findAll());
     }
 
     // ✅ Approve a document
@@ -78,7 +127,7 @@ public class DocumentService {
         provider.setVerified(true);
         userRepository.save(provider);
 
-        return documentRepository.save(doc);
+        return withDownloadUrl(documentRepository.save(doc));
     }
 
     // ❌ Reject a document with optional reason
@@ -96,11 +145,60 @@ public class DocumentService {
             userRepository.save(provider);
         }
 
-        return documentRepository.save(doc);
+        return withDownloadUrl(documentRepository.save(doc));
     }
 
-    // 🗑️ Delete a document
+    // 🗑️ Delete a document (and its file, once no other document has the same content)
     public void deleteDocument(Long id) {
-        documentRepository.deleteById(id);
+        Document doc = documentRepository.findById(id).orElse(null);
+        transactionTemplate.executeWithoutResult(status -> {
+            // Same lock as uploads of this content: nobody can start reusing the blob while it goes
+            if (doc != null && doc.getSha256() != null) documentContentRepository.lock(doc.getSha256());
+            documentJobRepository.deleteByDocumentId(id);
+            documentRepository.deleteById(id);
+            if (doc == null || doc.getSha256() == null) return;
+            // Blobs are deleted before the commit, while the lock is still held
+            if (documentRepository.countByFileUrl(doc.getFileUrl()) == 0) {
+                deleteBlob(doc.getFileUrl());
+            }
+            if (doc.getThumbnailKey() != null && documentRepository.countByThumbnailKey(doc.getThumbnailKey()) == 0) {
+                deleteBlob(doc.getThumbnailKey());
+            }
+        });
+    }
+
+    private void deleteBlob(String key) {
+        try {
+            documentStorage.delete(key);
+        } catch (IOException e) {
+            System.out.println("⚠ Could not delete " + key + ": " + e.getMessage());
+        }
+    }
+
+    // 🔗 Signed download links; a row without a valid blob key (should not happen) simply gets none
+    private Document withDownloadUrl(Document doc) {
+        if (doc.getFileUrl() != null) {
+            try {
+                doc.setDownloadUrl(documentUrlSigner.sign(doc.getFileUrl(), doc.getFileName()));
+                if (doc.getThumbnailKey() != null) {
+                    doc.setThumbnailUrl(documentUrlSigner.sign(doc.getThumbnailKey(), "preview.jpg"));
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("⚠ " + e.getMessage());
+            }
+        }
+        return doc;
+    }
+
+    private List<Document> withDownloadUrls(List<Document> docs) {
+        docs.forEach(this::withDownloadUrl);
+        return docs;
+    }
+
+    // Original name without any directory part, for display
+    private static String displayName(String originalName) {
+        if (originalName == null || originalName.isBlank()) return "document";
+        String name = originalName.replace('\\', '/');
+        return name.substring(name.lastIndexOf('/') + 1);
     }
 }
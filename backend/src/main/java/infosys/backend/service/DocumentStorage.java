@@ -0,0 +1,127 @@
+package infosys.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 📦 Content-addressed document files in the {@link BlobStore}.
+ *
+ * An upload is streamed through a fixed 64 KB buffer into a local temp directory while its
+ * SHA-256 is computed, so heap use per upload does not depend on the file size. It is then
+ * stored under the key blobs/{h0h1}/{h2h3}/{sha256}: identical content ends up as one blob,
+ * whatever it was called, and two levels of 256 prefixes keep directories (or listings) small
+ * even with millions of blobs. Name and content type stay on the Document row; downloads take
+ * the content type from the (signed) download name. Blobs stored before keys dropped the
+ * extension keep their key.
+ */
+@Component
+@RequiredArgsConstructor
+public class DocumentStorage {
+
+    private static final String BLOBS = "blobs/";
+    private static final String THUMBNAILS = "thumbnails/";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final BlobStore blobStore;
+
+    // With the local store this should be on the same disk, so storing a blob is a rename
+    @Value("${documents.storage.tmp-dir:uploads/tmp}")
+    private String tmpDir;
+
+    // Streamed to a temp file and hashed, not yet in its place
+    public record Staged(Path tmp, String sha256, long size) {}
+
+    // 📥 Stream the upload to a temp file, computing its SHA-256 on the way
+    public Staged stage(InputStream in) throws IOException {
+        Path dir = Path.of(tmpDir);
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "upload-", ".part");
+        boolean staged = false;
+        try {
+            MessageDigest sha256 = newDigest();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            try (ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel target = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    sha256.update(buffer.array(), 0, buffer.limit());
+                    size += buffer.limit();
+                    while (buffer.hasRemaining()) target.write(buffer);
+                    buffer.clear();
+                }
+                target.force(true);
+            }
+            if (size == 0) throw new IllegalArgumentException("File is empty");
+            staged = true;
+            return new Staged(tmp, HexFormat.of().formatHex(sha256.digest()), size);
+        } finally {
+            if (!staged) Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Stores a staged upload under its blob key and returns the key (as kept in Document.fileUrl).
+     * If the same content is already stored the staged copy is simply dropped. Callers hold the
+     * content's row lock (DocumentContentRepository.lock), so a blob is never removed while it is
+     * being reused.
+     */
+    public String commit(Staged staged, String contentType) throws IOException {
+        String key = blobKey(staged.sha256());
+        if (!blobStore.exists(key)) {
+            blobStore.putFile(key, staged.tmp(), contentType);
+        }
+        return key;
+    }
+
+    // Drops whatever is left of a staged upload
+    public void discard(Staged staged) throws IOException {
+        Files.deleteIfExists(staged.tmp());
+    }
+
+    // 🖼️ Stores the preview of a document's content; documents with the same content share it.
+    // Callers hold the content's row lock, like commit().
+    public String storeThumbnail(String sha256, byte[] jpeg) throws IOException {
+        String key = THUMBNAILS + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + "-preview.jpg";
+        if (!blobStore.exists(key)) {
+            blobStore.put(key, new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg");
+        }
+        return key;
+    }
+
+    // 🗑️ Remove a blob nobody refers to any more
+    public void delete(String key) throws IOException {
+        String checked = BlobStore.checkKey(key);
+        if (!checked.startsWith(BLOBS) && !checked.startsWith(THUMBNAILS)) {
+            throw new IllegalArgumentException("Not a stored blob: " + key);
+        }
+        blobStore.delete(key);
+    }
+
+    private static String blobKey(String hash) {
+        return BLOBS + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
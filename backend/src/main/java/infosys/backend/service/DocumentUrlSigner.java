@@ -0,0 +1,79 @@
+package infosys.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 🔏 Short-lived signed links to stored document files: /files/{blob key}?name=&exp=&sig=
+ *
+ * The signature is an HMAC-SHA256 over path, download name and expiry, so a download is checked
+ * without a database lookup or a JWT. Expiry times are rounded up to the next multiple of the
+ * TTL, which keeps the link for a file the same for a while and lets the browser cache use it.
+ */
+@Component
+public class DocumentUrlSigner {
+
+    public static final String PREFIX = "/files/";
+
+    // Empty: a random key per start (links then stop working on restart and differ between nodes)
+    @Value("${documents.download.signing-key:}")
+    private String signingKey;
+
+    @Value("${documents.download.url-ttl-seconds:1800}")
+    private long ttlSeconds;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() {
+        byte[] secret;
+        if (signingKey.isBlank()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            System.out.println("⚠ documents.download.signing-key is not set; document links are only valid until restart");
+        } else {
+            secret = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    // 🔗 Link for a Document.fileUrl (a blob key), valid for at least one TTL
+    public String sign(String key, String downloadName) {
+        String path = BlobStore.checkKey(key);
+        long now = System.currentTimeMillis() / 1000;
+        long expires = (now / ttlSeconds + 2) * ttlSeconds;
+        String name = downloadName != null ? downloadName : "";
+        return PREFIX + UriUtils.encodePath(path, StandardCharsets.UTF_8)
+                + "?name=" + UriUtils.encodeQueryParam(name, StandardCharsets.UTF_8)
+                + "&exp=" + expires
+                + "&sig=" + signature(path, name, expires);
+    }
+
+    // ✅ True when the link was issued by us for exactly this path and name and has not expired
+    public boolean verify(String path, String name, long expires, String sig) {
+        if (sig == null || expires < System.currentTimeMillis() / 1000) return false;
+        byte[] expected = signature(path, name != null ? name : "", expires).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, sig.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signature(String path, String name, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] sig = mac.doFinal((path + "\n" + name + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(sig);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.NotificationDigestDTO;
+import infosys.backend.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Sends digests as plain-text email over SMTP, without TLS or authentication.
+ * Meant for a local relay or a test stub such as MailHog (port 1025).
+ */
+@Component
+public class EmailDigestChannel implements DigestChannel {
+
+    @Value("${chat.notifications.digest.smtp.host:localhost}")
+    private String host;
+
+    @Value("${chat.notifications.digest.smtp.port:1025}")
+    private int port;
+
+    @Value("${chat.notifications.digest.smtp.from:no-reply@fixitnow.local}")
+    private String from;
+
+    @Value("${chat.notifications.digest.smtp.timeout-ms:5000}")
+    private int timeoutMs;
+
+    @Override
+    public String name() {
+        return "email";
+    }
+
+    @Override
+    public void send(User receiver, NotificationDigestDTO digest) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            expect(in, 220);
+            command(out, in, "HELO fixitnow", 250);
+            command(out, in, "MAIL FROM:<" + from + ">", 250);
+            command(out, in, "RCPT TO:<" + oneLine(receiver.getEmail()) + ">", 250);
+            command(out, in, "DATA", 354);
+            out.write(message(receiver, digest));
+            command(out, in, ".", 250);
+            command(out, in, "QUIT", 221);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Digest email to " + receiver.getEmail() + " failed", e);
+        }
+    }
+
+    private String message(User receiver, NotificationDigestDTO digest) {
+        StringBuilder mail = new StringBuilder();
+        mail.append("From: FixItNow <").append(from).append(">\r\n");
+        mail.append("To: <").append(oneLine(receiver.getEmail())).append(">\r\n");
+        mail.append("Subject: You have ").append(digest.getTotal())
+                .append(digest.getTotal() == 1 ? " unread message" : " unread messages").append("\r\n");
+        mail.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        mail.append("MIME-Version: 1.0\r\n");
+        mail.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        mail.append("Content-Transfer-Encoding: 8bit\r\n\r\n");
+
+        mail.append("Hi ").append(oneLine(receiver.getName())).append(",\r\n\r\n");
+        mail.append("While you were away:\r\n\r\n");
+        for (NotificationDigestDTO.Entry entry : digest.getEntries()) {
+            mail.append("- ").append(oneLine(entry.getSenderName())).append(": ").append(entry.getCount())
+                    .append(entry.getCount() == 1 ? " message" : " messages")
+                    .append(", latest: \"").append(oneLine(entry.getLatestSnippet())).append("\"\r\n");
+        }
+        mail.append("\r\nOpen FixItNow to reply.\r\n");
+
+        // Dot-stuffing: a line starting with "." must not end the DATA section early
+        return mail.toString().replace("\r\n.", "\r\n..");
+    }
+
+    private static String oneLine(String text) {
+        return text == null ? "" : text.replaceAll("[\\r\\n]+", " ");
+    }
+
+    private static void command(Writer out, BufferedReader in, String line, int expected) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+        expect(in, expected);
+    }
+
+    // Reads a (possibly multi-line) reply and checks its code
+    private static void expect(BufferedReader in, int expected) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) throw new IOException("SMTP server closed the connection");
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        if (!line.startsWith(String.valueOf(expected))) {
+            throw new IOException("SMTP: expected " + expected + " but got \"" + line + "\"");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package infosys.backend.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🧪 Blobs held in a map on the heap: for tests and throwaway runs, gone on restart.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.storage.type", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private record Entry(byte[] data, Instant storedAt) {}
+
+    private final Map<String, Entry> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        blobs.put(BlobStore.checkKey(key), new Entry(in.readAllBytes(), Instant.now()));
+    }
+
+    @Override
+    public BlobInfo stat(String key) {
+        Entry e = blobs.get(key);
+        return e != null ? new BlobInfo(e.data().length, e.storedAt()) : null;
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        Entry e = blobs.get(key);
+        if (e == null) throw new IOException("No such blob: " + key);
+        int from = (int) Math.min(offset, e.data().length);
+        int len = (int) Math.min(length, e.data().length - from);
+        return new ByteArrayInputStream(e.data(), from, len);
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+}
@@ -0,0 +1,92 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.model.Message;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// 🗄️ Messages in the message table (the default store)
+@Service
+@ConditionalOnProperty(name = "chat.message-store", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaMessageStore implements MessageStore {
+
+    private static final Comparator<MessageDTO> CHRONOLOGICAL =
+            Comparator.comparing(MessageDTO::getSentAt).thenComparing(MessageDTO::getId);
+
+    private final MessageRepository messageRepository;
+    private final ChatBatchRepository chatBatchRepository;
+
+    @Override
+    public Message append(Message message) {
+        chatBatchRepository.insertMessages(List.of(message));
+        return message;
+    }
+
+    @Override
+    public void appendAll(List<Message> messages) {
+        chatBatchRepository.insertMessages(messages);
+    }
+
+    // Each direction is one range scan on idx_message_pair_sent; the two are merged here
+    @Override
+    public List<MessageDTO> findLatest(Long userA, Long userB, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<MessageDTO> merged = new ArrayList<>(limit * 2);
+        merged.addAll(messageRepository.findLatestInDirection(userA, userB, page));
+        // Notes to self: both directions are the same rows
+        if (!userA.equals(userB)) {
+            merged.addAll(messageRepository.findLatestInDirection(userB, userA, page));
+        }
+        return newest(merged, limit);
+    }
+
+    @Override
+    public List<MessageDTO> findBefore(Long userA, Long userB, KeysetCursor before, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<MessageDTO> merged = new ArrayList<>(limit * 2);
+        merged.addAll(messageRepository.findBeforeInDirection(userA, userB, before.at(), before.id(), page));
+        if (!userA.equals(userB)) {
+            merged.addAll(messageRepository.findBeforeInDirection(userB, userA, before.at(), before.id(), page));
+        }
+        return newest(merged, limit);
+    }
+
+    @Override
+    public List<MessageDTO> findAfter(Long userA, Long userB, KeysetCursor after, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<MessageDTO> merged = new ArrayList<>(limit * 2);
+        merged.addAll(messageRepository.findAfterInDirection(userA, userB, after.at(), after.id(), page));
+        if (!userA.equals(userB)) {
+            merged.addAll(messageRepository.findAfterInDirection(userB, userA, after.at(), after.id(), page));
+        }
+        merged.sort(CHRONOLOGICAL);
+        if (merged.size() > limit) merged.subList(limit, merged.size()).clear();
+        return merged;
+    }
+
+    @Override
+    public Map<Long, String> findContents(Collection<Long> messageIds) {
+        return Map.of();
+    }
+
+    // Keep the newest `limit` of the merged directions, oldest first
+    private static List<MessageDTO> newest(List<MessageDTO> merged, int limit) {
+        merged.sort(CHRONOLOGICAL.reversed());
+        if (merged.size() > limit) merged.subList(limit, merged.size()).clear();
+        merged.sort(CHRONOLOGICAL);
+        return merged;
+    }
+}
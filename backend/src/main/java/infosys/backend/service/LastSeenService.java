@@ -0,0 +1,125 @@
+package infosys.backend.service;
+
+import infosys.backend.repository.UserActivityRepository;
+import infosys.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Last seen" times for users.
+ *
+ * Activity (authenticated HTTP requests, STOMP frames) only updates an in-memory map, and
+ * at most once per last-seen.resolution-ms per user. Users whose time changed are marked
+ * dirty and written in one JDBC batch every last-seen.flush-interval-ms, and once more on
+ * shutdown. Reads come from memory; users not seen since startup are loaded from the
+ * database once and then cached.
+ */
+@Service
+@RequiredArgsConstructor
+public class LastSeenService {
+
+    // Cached "database has no last_seen for this user"
+    private static final long NEVER = 0L;
+
+    private final UserRepository userRepository;
+    private final UserActivityRepository userActivityRepository;
+
+    @Value("${last-seen.resolution-ms:1000}")
+    private long resolutionMs;
+
+    // userId -> last activity (epoch millis), or NEVER
+    private final Map<Long, Long> lastActivity = new ConcurrentHashMap<>();
+    // userId -> activity not yet written to the database
+    private final Map<Long, Long> dirty = new ConcurrentHashMap<>();
+
+    // 👣 Called on the request/frame hot path: a map read, and rarely two map writes
+    public void record(Long userId) {
+        if (userId == null) return;
+        long now = System.currentTimeMillis();
+        Long previous = lastActivity.get(userId);
+        if (previous != null && now - previous < resolutionMs) return;
+        lastActivity.merge(userId, now, Math::max);
+        dirty.merge(userId, now, Math::max);
+    }
+
+    public LocalDateTime getLastSeen(Long userId) {
+        return getLastSeen(List.of(userId)).get(userId);
+    }
+
+    // Memory first; the misses are loaded with one query and cached
+    public Map<Long, LocalDateTime> getLastSeen(Collection<Long> userIds) {
+        Map<Long, LocalDateTime> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : userIds) {
+            Long millis = lastActivity.get(id);
+            if (millis == null) misses.add(id);
+            result.put(id, toDateTime(millis));
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Long, Long> loaded = new HashMap<>();
+            for (Object[] row : userRepository.findLastSeenByIds(misses)) {
+                LocalDateTime seen = (LocalDateTime) row[1];
+                loaded.put((Long) row[0], seen != null ? seen.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : NEVER);
+            }
+            for (Long id : misses) {
+                Long millis = loaded.get(id);
+                if (millis == null) continue; // unknown user: nothing to cache
+                // Keep anything recorded while we were reading
+                Long current = lastActivity.merge(id, millis, Math::max);
+                result.put(id, toDateTime(current));
+            }
+        }
+        return result;
+    }
+
+    // 💾 Write every user whose activity changed since the last flush, in one batch
+    @Scheduled(initialDelayString = "${last-seen.flush-interval-ms:60000}",
+               fixedDelayString = "${last-seen.flush-interval-ms:60000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+
+        Map<Long, Long> batch = new HashMap<>();
+        for (Map.Entry<Long, Long> e : dirty.entrySet()) {
+            // Only take the entry if it did not change under us; otherwise the next flush gets it
+            if (dirty.remove(e.getKey(), e.getValue())) {
+                batch.put(e.getKey(), e.getValue());
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        Map<Long, LocalDateTime> rows = new HashMap<>();
+        batch.forEach((id, millis) -> rows.put(id, toDateTime(millis)));
+        try {
+            userActivityRepository.updateLastSeen(rows);
+        } catch (DataAccessException e) {
+            batch.forEach((id, millis) -> dirty.merge(id, millis, Math::max));
+            System.out.println("❌ Last-seen flush of " + batch.size() + " users failed, will retry: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private static LocalDateTime toDateTime(Long millis) {
+        if (millis == null || millis == NEVER) return null;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,21 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.NotificationDigestDTO;
+import infosys.backend.model.User;
+import org.springframework.stereotype.Component;
+
+// 📝 Prints digests instead of sending them; handy in development
+@Component
+public class LogDigestChannel implements DigestChannel {
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public void send(User receiver, NotificationDigestDTO digest) {
+        System.out.println("📬 Digest for " + receiver.getEmail() + ": " + digest.getTotal()
+                + " messages from " + digest.getEntries().size() + " senders");
+    }
+}
@@ -0,0 +1,526 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.model.Message;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.MessageLog;
+import infosys.backend.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 📜 Message store on an append-only, memory-mapped log ({@link MessageLog}), chat.message-store=log.
+ *
+ * Each message still gets a row in the message table, for its id and for everything that refers
+ * to it, but the row's text is empty: the text lives in the log. History pages are served from
+ * an in-memory index of the log (per conversation, the offsets of its messages in (sentAt, id)
+ * order; per id, one offset), so reading a conversation touches neither the database nor more
+ * of the log than the page itself.
+ *
+ * Writes: the row is inserted, the record is appended, and the caller waits for the log's group
+ * fsync before its transaction commits. Once the transaction has committed a small commit record
+ * with the message ids is appended and the messages become visible; records of a rolled-back
+ * transaction stay invisible. At startup the index is rebuilt by scanning the log; records with
+ * no commit record are checked against the message table. Rows the log does not have yet (an
+ * install switching from the jpa store) are copied in.
+ *
+ * Compaction rewrites sealed segments with only their visible messages, marked committed, so
+ * commit records, records of rolled-back transactions and the unused tail of the preallocated
+ * file are reclaimed.
+ *
+ * The log is on this node's disk, so this store needs a single application node. Switching back
+ * to the jpa store needs the texts copied back into the message table first.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.message-store", havingValue = "log")
+@RequiredArgsConstructor
+public class LogMessageStore implements MessageStore {
+
+    private static final int IMPORT_CHUNK = 1000;
+    private static final int EXISTS_CHUNK = 1000;
+
+    private final ChatBatchRepository chatBatchRepository;
+    private final MessageRepository messageRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.message-store.log.dir:data/message-log}")
+    private String dir;
+
+    @Value("${chat.message-store.log.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${chat.message-store.log.fsync-interval-ms:5}")
+    private long fsyncIntervalMs;
+
+    @Value("${chat.message-store.log.wait-for-fsync:true}")
+    private boolean waitForFsync;
+
+    @Value("${chat.message-store.log.compaction-min-dirty-ratio:0.2}")
+    private double compactionMinDirtyRatio;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    private MessageLog log;
+
+    // Guards the index below; the log is only read under the read lock, so compaction can move records
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OffsetsById byId = new OffsetsById();
+    private final Map<Pair, Conversation> conversations = new HashMap<>();
+    // Appended, transaction not finished yet: id -> offset
+    private final Map<Long, Long> pending = new HashMap<>();
+    private long maxId;
+
+    private Timer appendTimer;
+    private Counter reclaimed;
+
+    private record Pair(long low, long high) {
+        static Pair of(long a, long b) {
+            return new Pair(Math.min(a, b), Math.max(a, b));
+        }
+    }
+
+    @PostConstruct
+    void open() {
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            throw new IllegalStateException("chat.message-store=log keeps messages on this node's disk; it cannot be used with websocket.broker.mode=relay");
+        }
+        long started = System.currentTimeMillis();
+        log = MessageLog.open(Path.of(dir), segmentBytes, fsyncIntervalMs);
+        rebuildIndex();
+        long imported = importFromTable();
+        System.out.println("📜 Message log " + Path.of(dir).toAbsolutePath() + ": " + byId.size() + " messages, "
+                + conversations.size() + " conversations, " + imported + " imported, in "
+                + (System.currentTimeMillis() - started) + " ms");
+
+        appendTimer = Timer.builder("chat.message-store.log.append")
+                .description("Appending a batch of messages to the log, fsync wait included")
+                .register(meterRegistry);
+        reclaimed = Counter.builder("chat.message-store.log.compaction.reclaimed")
+                .description("Bytes freed by log compaction")
+                .register(meterRegistry);
+        Gauge.builder("chat.message-store.log.end-offset", this, s -> s.log.endOffset())
+                .description("Bytes appended to the message log")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void close() {
+        log.close();
+    }
+
+    @Override
+    public Message append(Message message) {
+        appendAll(List.of(message));
+        return message;
+    }
+
+    @Override
+    public void appendAll(List<Message> messages) {
+        if (messages.isEmpty()) return;
+        // The log keeps microseconds; the row gets the same value so cursors from either side agree
+        for (Message m : messages) m.setSentAt(m.getSentAt().truncatedTo(ChronoUnit.MICROS));
+        chatBatchRepository.insertMessages(messages, false);
+
+        long started = System.nanoTime();
+        long[] ids = new long[messages.size()];
+        long end;
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                Message m = messages.get(i);
+                long offset = log.appendMessage(m.getId(), m.getSender().getId(), m.getReceiver().getId(),
+                        m.getSeq(), toMicros(m.getSentAt()), m.getContent(), false);
+                pending.put(m.getId(), offset);
+                ids[i] = m.getId();
+            }
+            end = log.endOffset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // The text must be on disk before the row that points to it commits
+        if (waitForFsync) log.awaitDurable(end);
+        appendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) committed(ids);
+                else rolledBack(ids);
+            }
+        });
+    }
+
+    // ✅ The rows are committed: write the commit record and make the messages visible
+    private void committed(long[] ids) {
+        lock.writeLock().lock();
+        try {
+            log.appendCommit(ids);
+            for (long id : ids) {
+                Long offset = pending.remove(id);
+                if (offset != null) index(log.read(offset));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rolledBack(long[] ids) {
+        lock.writeLock().lock();
+        try {
+            for (long id : ids) pending.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MessageDTO> findLatest(Long userA, Long userB, int limit) {
+        lock.readLock().lock();
+        try {
+            Conversation c = conversations.get(Pair.of(userA, userB));
+            if (c == null) return new ArrayList<>();
+            return read(c, Math.max(0, c.size - limit), c.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MessageDTO> findBefore(Long userA, Long userB, KeysetCursor before, int limit) {
+        lock.readLock().lock();
+        try {
+            Conversation c = conversations.get(Pair.of(userA, userB));
+            if (c == null) return new ArrayList<>();
+            int to = c.firstAtOrAfter(toMicros(before.at()), before.id(), false);
+            return read(c, Math.max(0, to - limit), to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MessageDTO> findAfter(Long userA, Long userB, KeysetCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            Conversation c = conversations.get(Pair.of(userA, userB));
+            if (c == null) return new ArrayList<>();
+            int from = c.firstAtOrAfter(toMicros(after.at()), after.id(), true);
+            return read(c, from, Math.min(c.size, from + limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, String> findContents(Collection<Long> messageIds) {
+        Map<Long, String> contents = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : messageIds) {
+                long offset = byId.get(id);
+                if (offset >= 0) contents.put(id, log.read(offset).content());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return contents;
+    }
+
+    private List<MessageDTO> read(Conversation c, int from, int to) {
+        List<MessageDTO> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            MessageLog.Entry e = log.read(c.offsets[i]);
+            page.add(new MessageDTO(e.id(), e.senderId(), e.receiverId(), e.content(), fromMicros(e.sentAtMicros()), e.seq()));
+        }
+        return page;
+    }
+
+    // 🧹 Rewrite sealed segments that are mostly dead weight
+    @Scheduled(initialDelayString = "${chat.message-store.log.compaction-interval-ms:21600000}",
+               fixedDelayString = "${chat.message-store.log.compaction-interval-ms:21600000}")
+    public void compact() {
+        for (long base : log.sealedSegments()) {
+            try {
+                compactSegment(base);
+            } catch (RuntimeException e) {
+                System.out.println("❌ Message log segment " + base + " not compacted: " + e.getMessage());
+            }
+        }
+    }
+
+    private void compactSegment(long base) {
+        // What is still live: visible messages (kept as committed) and ones whose transaction is running
+        List<MessageLog.Entry> keep = new ArrayList<>();
+        long[] liveBytes = {0};
+        lock.readLock().lock();
+        try {
+            log.scanSegment(base, e -> {
+                if (byId.get(e.id()) == e.offset()) {
+                    keep.add(new MessageLog.Entry(e.offset(), (byte) (e.flags() | MessageLog.FLAG_COMMITTED), e.id(),
+                            e.senderId(), e.receiverId(), e.seq(), e.sentAtMicros(), e.content()));
+                } else if (pending.getOrDefault(e.id(), -1L) == e.offset()) {
+                    keep.add(e);
+                } else {
+                    return;
+                }
+                liveBytes[0] += recordSize(e);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long fileBytes = log.segmentUsage(base)[1];
+        long dead = fileBytes - liveBytes[0];
+        boolean allCommitted = keep.stream().allMatch(MessageLog.Entry::committed);
+        if (dead < fileBytes * compactionMinDirtyRatio && allCommitted) return;
+
+        if (keep.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                log.deleteSegment(base);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reclaimed.increment(fileBytes);
+            return;
+        }
+
+        long[] newOffsets = new long[keep.size()];
+        Path compacted = log.writeCompacted(base, keep, newOffsets);
+        lock.writeLock().lock();
+        try {
+            // Find every slot first: the binary searches read sort keys at the old offsets
+            List<Runnable> moves = new ArrayList<>(keep.size());
+            for (int i = 0; i < keep.size(); i++) {
+                MessageLog.Entry e = keep.get(i);
+                long to = newOffsets[i];
+                if (byId.get(e.id()) == e.offset()) {
+                    Conversation c = conversations.get(Pair.of(e.senderId(), e.receiverId()));
+                    int slot = c.indexOf(e.offset());
+                    moves.add(() -> {
+                        byId.put(e.id(), to);
+                        if (slot >= 0) c.offsets[slot] = to;
+                    });
+                } else if (pending.getOrDefault(e.id(), -1L) == e.offset()) {
+                    moves.add(() -> pending.put(e.id(), to));
+                }
+            }
+            moves.forEach(Runnable::run);
+            log.replaceSegment(base, compacted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long freed = fileBytes - log.segmentUsage(base)[1];
+        reclaimed.increment(Math.max(0, freed));
+        System.out.println("🧹 Message log segment " + base + " compacted: " + keep.size() + " messages, " + freed + " bytes freed");
+    }
+
+    // 🔁 Index every committed message in the log; records without a commit record are checked against the table
+    private void rebuildIndex() {
+        Map<Long, Long> unresolved = new HashMap<>();
+        log.scan(new MessageLog.Visitor() {
+            @Override
+            public void message(MessageLog.Entry entry) {
+                if (entry.committed()) index(entry);
+                else unresolved.put(entry.id(), entry.offset());
+            }
+
+            @Override
+            public void commit(long offset, long[] ids) {
+                for (long id : ids) {
+                    Long at = unresolved.remove(id);
+                    if (at != null) index(log.read(at));
+                }
+            }
+        });
+
+        if (unresolved.isEmpty()) return;
+        List<Long> ids = new ArrayList<>(unresolved.keySet());
+        int found = 0;
+        for (int i = 0; i < ids.size(); i += EXISTS_CHUNK) {
+            for (Long id : messageRepository.findExistingIds(ids.subList(i, Math.min(ids.size(), i + EXISTS_CHUNK)))) {
+                index(log.read(unresolved.get(id)));
+                found++;
+            }
+        }
+        System.out.println("📜 Message log: " + found + " of " + unresolved.size() + " unconfirmed records were committed");
+    }
+
+    // 📥 Rows newer than anything in the log (written by the jpa store) are appended to it
+    private long importFromTable() {
+        Long upTo = messageRepository.findMaxId();
+        if (upTo == null || upTo <= maxId) return 0;
+        long after = maxId;
+        long imported = 0;
+        while (after < upTo) {
+            List<MessageDTO> chunk = messageRepository.findChunkForIndexing(after, upTo, PageRequest.of(0, IMPORT_CHUNK));
+            if (chunk.isEmpty()) break;
+            lock.writeLock().lock();
+            try {
+                for (MessageDTO m : chunk) {
+                    if (byId.get(m.getId()) >= 0) continue;
+                    long offset = log.appendMessage(m.getId(), m.getSenderId(), m.getReceiverId(), m.getSeq(),
+                            toMicros(m.getSentAt()), m.getContent(), true);
+                    index(log.read(offset));
+                    imported++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+        log.force();
+        return imported;
+    }
+
+    // Callers hold the write lock (or are still starting up)
+    private void index(MessageLog.Entry e) {
+        if (byId.get(e.id()) >= 0) return;
+        byId.put(e.id(), e.offset());
+        conversations.computeIfAbsent(Pair.of(e.senderId(), e.receiverId()), k -> new Conversation())
+                .add(e.offset(), e.sentAtMicros(), e.id());
+        if (e.id() > maxId) maxId = e.id();
+    }
+
+    private static int recordSize(MessageLog.Entry e) {
+        return 56 + e.content().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * One conversation's messages (both directions) as log offsets, sorted by (sentAt, id).
+     * Messages of a conversation are appended in send order, so adding is nearly always an append;
+     * the sort keys are read from the log when needed, which keeps this at 8 bytes per message.
+     */
+    private final class Conversation {
+        long[] offsets = new long[4];
+        int size;
+
+        void add(long offset, long micros, long id) {
+            int at = size;
+            while (at > 0 && compare(offsets[at - 1], micros, id) > 0) at--;
+            if (size == offsets.length) offsets = Arrays.copyOf(offsets, size * 2);
+            System.arraycopy(offsets, at, offsets, at + 1, size - at);
+            offsets[at] = offset;
+            size++;
+        }
+
+        // Index of the first message with key >= (micros, id), or > when `strictlyAfter`
+        int firstAtOrAfter(long micros, long id, boolean strictlyAfter) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(offsets[mid], micros, id);
+                if (cmp < 0 || (strictlyAfter && cmp == 0)) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        int indexOf(long offset) {
+            int i = firstAtOrAfter(log.sentAtMicros(offset), log.id(offset), false);
+            return i < size && offsets[i] == offset ? i : -1;
+        }
+
+        private int compare(long offset, long micros, long id) {
+            int cmp = Long.compare(log.sentAtMicros(offset), micros);
+            return cmp != 0 ? cmp : Long.compare(log.id(offset), id);
+        }
+    }
+
+    /**
+     * Message id -> log offset, open addressing on two long arrays (about 32 bytes per message
+     * instead of ~80 for a HashMap of boxed longs). Ids are positive; 0 marks a free slot.
+     */
+    static final class OffsetsById {
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        long get(long id) {
+            int mask = keys.length - 1;
+            for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == id) return values[i];
+                if (keys[i] == 0) return -1;
+            }
+        }
+
+        void put(long id, long offset) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    values[i] = offset;
+                    return;
+                }
+                if (keys[i] == 0) {
+                    keys[i] = id;
+                    values[i] = offset;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
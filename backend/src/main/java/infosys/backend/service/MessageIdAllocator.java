@@ -0,0 +1,79 @@
+package infosys.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 🔢 Message ids, handed out before the row is written.
+ *
+ * Write-behind delivers a message before it is inserted, and clients page and dedupe by id,
+ * so the id has to exist at delivery time. Each node reserves a block of ids from the
+ * id_blocks row "message" in its own transaction and serves it from memory; a block is never
+ * handed out twice, even when the transaction that used one of its ids rolls back (the id is
+ * simply skipped). Ids therefore grow per node, not globally; ChatSyncService already copes
+ * with ids that commit out of order.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageIdAllocator {
+
+    private static final String BLOCK = "message";
+
+    // Never below the highest id in the table, so rows written before the allocator existed are skipped
+    private static final String RESERVE =
+            "UPDATE id_blocks SET next_id = GREATEST(next_id, (SELECT COALESCE(MAX(id), 0) + 1 FROM message)) + ? " +
+            "WHERE name = ?";
+    private static final String SEED =
+            "INSERT INTO id_blocks (name, next_id) SELECT ?, COALESCE(MAX(id), 0) + 1 + ? FROM message";
+    private static final String READ = "SELECT next_id FROM id_blocks WHERE name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.message-ids.block-size:100}")
+    private int blockSize;
+
+    private TransactionTemplate ownTransaction;
+
+    // Ids in [next, limit) are reserved for this node
+    private long next;
+    private long limit;
+
+    @PostConstruct
+    void init() {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("chat.message-ids.block-size must be at least 1");
+        }
+        ownTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public synchronized long next() {
+        if (next == limit) {
+            limit = ownTransaction.execute(status -> reserve());
+            next = limit - blockSize;
+        }
+        return next++;
+    }
+
+    // Moves the row forward by one block and returns the end of the block
+    private long reserve() {
+        while (true) {
+            if (jdbcTemplate.update(RESERVE, blockSize, BLOCK) == 0) {
+                try {
+                    jdbcTemplate.update(SEED, BLOCK, blockSize);
+                } catch (DuplicateKeyException e) {
+                    // Another node created the row first: reserve from it
+                    continue;
+                }
+            }
+            return jdbcTemplate.queryForObject(READ, Long.class, BLOCK);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.dto.MessageSearchHit;
+import infosys.backend.dto.MessageSearchResponse;
+import infosys.backend.model.Message;
+import infosys.backend.model.MessagePosting;
+import infosys.backend.model.User;
+import infosys.backend.repository.MessageRepository;
+import infosys.backend.repository.MessageSearchRepository;
+import infosys.backend.repository.MessageSearchRepository.Posting;
+import infosys.backend.repository.UserRepository;
+import infosys.backend.service.SearchTokenizer.Token;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over a user's chat history.
+ *
+ * Messages are indexed as they are saved, in the same transaction: each word goes into
+ * message_search_postings once for the sender and once for the receiver. A search reads only
+ * the caller's postings, so its cost depends on how many of their messages match, not on the
+ * size of the message table or how long their history is.
+ *
+ * Query syntax: all words must occur; "quoted words" must occur next to each other in that
+ * order; word* matches any word starting with the prefix (at least two characters, expanded to
+ * the user's first chat.search.max-prefix-terms matching words). Case and accents are ignored.
+ *
+ * The clause with the fewest postings drives the search: its postings are read newest first,
+ * in chunks, and the other clauses are checked against just those messages. Results are newest
+ * first and paged by message id. A page that scanned many postings without filling up returns
+ * early with hasMore and a cursor to continue from.
+ *
+ * When the index is empty at startup (or with chat.search.reindex-on-startup=true) it is built
+ * from the message history in chunks; re-indexing a message is a no-op.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_CLAUSES = 8;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_TOKENS_PER_MESSAGE = 1000;
+    private static final int MAX_POSITIONS_LENGTH = 128;
+    private static final int COUNT_CAP = 10_000;
+    private static final int SCAN_CHUNK = 500;
+    private static final int MAX_SCAN_CHUNKS = 20;
+    private static final int SNIPPET_LEAD = 40;
+    private static final int SNIPPET_LENGTH = 160;
+    private static final String ELLIPSIS = "…";
+
+    // A quoted phrase (closing quote optional) or a bare word
+    private static final Pattern QUERY_PART = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+
+    private final MessageSearchRepository searchRepository;
+    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.search.max-prefix-terms:50}")
+    private int maxPrefixTerms;
+
+    @Value("${chat.search.backfill-chunk-size:500}")
+    private int backfillChunkSize;
+
+    @Value("${chat.search.reindex-on-startup:false}")
+    private boolean reindexOnStartup;
+
+    private Timer searchTimer;
+
+    // One exact word, or the words a prefix expanded to (any of them matches)
+    private record Clause(List<String> terms) {
+    }
+
+    private record ParsedQuery(Set<String> terms, List<String> prefixes, List<List<String>> phrases) {
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        searchTimer = Timer.builder("chat.search.query")
+                .description("Time to answer one chat search page")
+                .register(meterRegistry);
+    }
+
+    // 🗂️ Index freshly saved messages; called inside the transaction that saves them
+    public void index(List<Message> messages) {
+        List<MessagePosting> postings = new ArrayList<>();
+        for (Message m : messages) {
+            addPostings(m.getId(), m.getSender().getId(), m.getReceiver().getId(), m.getContent(), postings);
+        }
+        searchRepository.insertPostings(postings);
+    }
+
+    // 🔄 Existing installs: index the chat history once
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!reindexOnStartup && !searchRepository.isEmpty()) return;
+        Long upTo = messageRepository.findMaxId();
+        if (upTo == null) return;
+
+        long after = 0;
+        long indexed = 0;
+        while (after < upTo) {
+            List<MessageDTO> chunk = messageRepository.findChunkForIndexing(
+                    after, upTo, PageRequest.of(0, backfillChunkSize));
+            if (chunk.isEmpty()) break;
+            messageStore.fillContents(chunk);
+            List<MessagePosting> postings = new ArrayList<>();
+            for (MessageDTO m : chunk) {
+                addPostings(m.getId(), m.getSenderId(), m.getReceiverId(), m.getContent(), postings);
+            }
+            transactionTemplate.executeWithoutResult(status -> searchRepository.insertPostings(postings));
+            indexed += chunk.size();
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+        System.out.println("🔎 Search index built for " + indexed + " messages");
+    }
+
+    /**
+     * One page of the user's messages matching the query, newest first.
+     * {@code before} is the cursor from the previous page (a message id).
+     */
+    @Transactional(readOnly = true)
+    public MessageSearchResponse search(User user, String q, String before, int size) {
+        ParsedQuery query = parse(q);
+        long cursor = parseCursor(before);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return searchTimer.record(() -> run(user, query, cursor, pageSize));
+    }
+
+    private MessageSearchResponse run(User user, ParsedQuery query, long cursor, int pageSize) {
+        Long me = user.getId();
+
+        List<Clause> clauses = new ArrayList<>();
+        for (String term : query.terms()) {
+            clauses.add(new Clause(List.of(term)));
+        }
+        for (String prefix : query.prefixes()) {
+            List<String> expanded = searchRepository.expandPrefix(me, prefix, maxPrefixTerms);
+            if (expanded.isEmpty()) return empty();
+            clauses.add(new Clause(expanded));
+        }
+
+        // Rarest clause first: it drives the scan, the others only filter its candidates
+        Map<Clause, Long> sizes = new HashMap<>();
+        for (Clause clause : clauses) {
+            long count = searchRepository.countPostings(me, clause.terms(), COUNT_CAP);
+            if (count == 0) return empty();
+            sizes.put(clause, count);
+        }
+        clauses.sort(Comparator.comparing(sizes::get));
+        Clause driver = clauses.get(0);
+        List<Clause> filters = clauses.subList(1, clauses.size());
+
+        List<Long> hits = new ArrayList<>(pageSize + 1);
+        boolean exhausted = false;
+        for (int chunk = 0; chunk < MAX_SCAN_CHUNKS && hits.size() <= pageSize; chunk++) {
+            List<Posting> rows = searchRepository.findBefore(me, driver.terms(), cursor, SCAN_CHUNK);
+            if (rows.isEmpty()) {
+                exhausted = true;
+                break;
+            }
+
+            // term -> message id -> positions, for the phrase check
+            Map<String, Map<Long, String>> positions = new HashMap<>();
+            Set<Long> candidates = new LinkedHashSet<>();
+            for (Posting p : rows) {
+                candidates.add(p.messageId());
+                remember(positions, p);
+            }
+            for (Clause filter : filters) {
+                if (candidates.isEmpty()) break;
+                Set<Long> matched = new HashSet<>();
+                for (Posting p : searchRepository.findIn(me, filter.terms(), candidates)) {
+                    matched.add(p.messageId());
+                    remember(positions, p);
+                }
+                candidates.retainAll(matched);
+            }
+            for (Long id : candidates) {
+                if (matchesPhrases(id, query.phrases(), positions)) {
+                    hits.add(id);
+                    if (hits.size() > pageSize) break;
+                }
+            }
+
+            cursor = rows.get(rows.size() - 1).messageId();
+            if (rows.size() < SCAN_CHUNK) {
+                exhausted = true;
+                break;
+            }
+        }
+
+        String next = null;
+        boolean hasMore = false;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            next = String.valueOf(hits.get(pageSize - 1));
+            hasMore = true;
+        } else if (!exhausted) {
+            // Scan budget used up: the next page continues where this one stopped
+            next = String.valueOf(cursor);
+            hasMore = true;
+        }
+
+        return MessageSearchResponse.builder()
+                .hits(toHits(me, hits, query))
+                .cursor(next)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static ParsedQuery parse(String q) {
+        if (q == null || q.isBlank()) {
+            throw new IllegalArgumentException("Search query is empty");
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        List<List<String>> phrases = new ArrayList<>();
+
+        Matcher matcher = QUERY_PART.matcher(q);
+        while (matcher.find()) {
+            boolean quoted = matcher.group(1) != null;
+            String part = quoted ? matcher.group(1) : matcher.group(2);
+            List<String> words = new ArrayList<>();
+            for (Token token : SearchTokenizer.tokenize(part)) {
+                if (token.term() != null) words.add(token.term());
+            }
+            if (words.isEmpty()) continue;
+
+            if (!quoted && part.endsWith("*")) {
+                String prefix = words.remove(words.size() - 1);
+                if (prefix.length() < MIN_PREFIX_LENGTH) {
+                    throw new IllegalArgumentException("A prefix needs at least " + MIN_PREFIX_LENGTH + " characters");
+                }
+                prefixes.add(prefix);
+            }
+            terms.addAll(words);
+            // "e-mail" and "quoted words" both have to match as a phrase
+            if (words.size() > 1) phrases.add(words);
+        }
+
+        if (terms.isEmpty() && prefixes.isEmpty()) {
+            throw new IllegalArgumentException("Search query has no words");
+        }
+        if (terms.size() + prefixes.size() > MAX_CLAUSES) {
+            throw new IllegalArgumentException("At most " + MAX_CLAUSES + " words per search");
+        }
+        return new ParsedQuery(terms, prefixes, phrases);
+    }
+
+    private static long parseCursor(String before) {
+        if (before == null || before.isBlank()) return Long.MAX_VALUE;
+        try {
+            return Long.parseLong(before);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + before);
+        }
+    }
+
+    private static void addPostings(Long messageId, Long senderId, Long receiverId, String content,
+                                    List<MessagePosting> into) {
+        Map<String, StringBuilder> positions = new LinkedHashMap<>();
+        for (Token token : SearchTokenizer.tokenize(content)) {
+            if (token.position() >= MAX_TOKENS_PER_MESSAGE) break;
+            if (token.term() == null) continue;
+            StringBuilder list = positions.computeIfAbsent(token.term(), k -> new StringBuilder());
+            String next = (list.length() > 0 ? "," : "") + token.position();
+            if (list.length() + next.length() <= MAX_POSITIONS_LENGTH) list.append(next);
+        }
+        for (Map.Entry<String, StringBuilder> entry : positions.entrySet()) {
+            String term = entry.getKey();
+            String list = entry.getValue().toString();
+            into.add(new MessagePosting(senderId, term, messageId, list));
+            if (!receiverId.equals(senderId)) {
+                into.add(new MessagePosting(receiverId, term, messageId, list));
+            }
+        }
+    }
+
+    private static void remember(Map<String, Map<Long, String>> positions, Posting posting) {
+        positions.computeIfAbsent(posting.term(), k -> new HashMap<>()).put(posting.messageId(), posting.positions());
+    }
+
+    // Every phrase has to start at some position p with its i-th word at p + i
+    private static boolean matchesPhrases(Long messageId, List<List<String>> phrases,
+                                          Map<String, Map<Long, String>> positions) {
+        for (List<String> phrase : phrases) {
+            List<Set<Integer>> at = new ArrayList<>(phrase.size());
+            for (String term : phrase) {
+                Map<Long, String> byMessage = positions.get(term);
+                String list = byMessage != null ? byMessage.get(messageId) : null;
+                if (list == null) return false;
+                Set<Integer> set = new HashSet<>();
+                for (String p : list.split(",")) set.add(Integer.parseInt(p));
+                at.add(set);
+            }
+            boolean found = false;
+            for (int start : at.get(0)) {
+                boolean all = true;
+                for (int i = 1; i < at.size() && all; i++) {
+                    all = at.get(i).contains(start + i);
+                }
+                if (all) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    // Messages and names in two lookups, then a snippet per hit
+    private List<MessageSearchHit> toHits(Long me, List<Long> ids, ParsedQuery query) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, MessageDTO> byId = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        List<MessageDTO> messages = messageRepository.findDTOsByIds(ids);
+        messageStore.fillContents(messages);
+        for (MessageDTO m : messages) {
+            byId.put(m.getId(), m);
+            userIds.add(m.getSenderId());
+            userIds.add(m.getReceiverId());
+        }
+        Map<Long, String> names = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(u -> names.put(u.getId(), u.getName()));
+
+        List<MessageSearchHit> hits = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MessageDTO m = byId.get(id);
+            if (m == null) continue;
+            m.setSenderName(names.get(m.getSenderId()));
+            m.setReceiverName(names.get(m.getReceiverId()));
+            hits.add(snippet(m, me, query));
+        }
+        return hits;
+    }
+
+    // ✂️ A window of the message around its first match, not cutting words, with match ranges
+    private static MessageSearchHit snippet(MessageDTO message, Long me, ParsedQuery query) {
+        String content = message.getContent();
+        List<Token> matches = new ArrayList<>();
+        for (Token token : SearchTokenizer.tokenize(content)) {
+            if (token.term() != null && matches(token.term(), query)) matches.add(token);
+        }
+
+        int length = content.length();
+        int firstStart = matches.isEmpty() ? 0 : matches.get(0).start();
+        int from = Math.max(0, firstStart - SNIPPET_LEAD);
+        while (from > 0 && from < firstStart && isWordChar(content, from - 1) && isWordChar(content, from)) from++;
+        while (from < firstStart && Character.isWhitespace(content.charAt(from))) from++;
+        int to = Math.min(length, from + SNIPPET_LENGTH);
+        while (to < length && to > from && isWordChar(content, to - 1) && isWordChar(content, to)) to--;
+        if (!matches.isEmpty()) to = Math.max(to, matches.get(0).end());
+
+        String lead = from > 0 ? ELLIPSIS : "";
+        String snippet = lead + content.substring(from, to) + (to < length ? ELLIPSIS : "");
+        List<int[]> highlights = new ArrayList<>();
+        for (Token token : matches) {
+            if (token.start() >= from && token.end() <= to) {
+                int offset = lead.length() - from;
+                highlights.add(new int[]{token.start() + offset, token.end() + offset});
+            }
+        }
+
+        return MessageSearchHit.builder()
+                .message(message)
+                .partnerId(message.getSenderId().equals(me) ? message.getReceiverId() : message.getSenderId())
+                .snippet(snippet)
+                .highlights(highlights)
+                .build();
+    }
+
+    private static boolean matches(String term, ParsedQuery query) {
+        if (query.terms().contains(term)) return true;
+        for (String prefix : query.prefixes()) {
+            if (term.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isWordChar(String text, int index) {
+        return Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static MessageSearchResponse empty() {
+        return MessageSearchResponse.builder().hits(List.of()).hasMore(false).build();
+    }
+}
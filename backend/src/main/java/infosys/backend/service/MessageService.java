@@ -1,10 +1,13 @@
 package infosys.backend.service;
 
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
 import infosys.backend.model.Message;
 import infosys.backend.model.User;
 import infosys.backend.repository.MessageRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -13,19 +16,52 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MessageService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ConversationService conversationService;
+    private final MessageSearchService searchService;
 
-    // Save a message
+    // Save a message, update the conversation summary and index it for search in the same transaction
+    @Transactional
     public Message saveMessage(Message message) {
         message.setSentAt(LocalDateTime.now());
-        return messageRepository.save(message);
+        Message saved = messageStore.append(message);
+        conversationService.recordMessage(saved);
+        searchService.index(List.of(saved));
+        return saved;
     }
 
-    // Get chat history between two users
-    // Replace the existing method
-public List<Message> getMessagesBetweenUsers(User user1, User user2) {
-    return messageRepository.findMessagesBetweenUsersWithUsers(user1, user2);
-}
+    // Get one page of chat history between two users, oldest first.
+    // With no cursor the latest page is returned; `before`/`after` page backwards/forwards from a cursor.
+    public List<MessageDTO> getMessagesBetweenUsers(User currentUser, User otherUser,
+                                                    KeysetCursor before, KeysetCursor after, int size) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either 'before' or 'after', not both");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Long me = currentUser.getId();
+        Long other = otherUser.getId();
+
+        List<MessageDTO> page;
+        if (after != null) {
+            page = messageStore.findAfter(me, other, after, pageSize);
+        } else if (before != null) {
+            page = messageStore.findBefore(me, other, before, pageSize);
+        } else {
+            page = messageStore.findLatest(me, other, pageSize);
+        }
+
+        // Names come from the two users we already have instead of joining per row
+        for (MessageDTO dto : page) {
+            User sender = dto.getSenderId().equals(me) ? currentUser : otherUser;
+            User receiver = sender == currentUser ? otherUser : currentUser;
+            dto.setSenderName(sender.getName());
+            dto.setReceiverName(receiver.getName());
+        }
+        return page;
+    }
 
 
     // Optional: get all messages
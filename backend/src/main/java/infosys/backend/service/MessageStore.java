@@ -0,0 +1,50 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.model.Message;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where chat messages are written and conversation history is read from.
+ * chat.message-store picks the implementation: "jpa" ({@link JpaMessageStore}, the message
+ * table) or "log" ({@link LogMessageStore}, an append-only log on local disk).
+ *
+ * Both keep a row per message in the message table, since notifications, search postings and
+ * conversation summaries refer to messages by id; with the log store that row has no text.
+ * Code that reads message rows itself (sync, search, notifications) passes what it read
+ * through {@link #fillContents} to get the text.
+ */
+public interface MessageStore {
+
+    // Saves a message and sets its id; runs in the caller's transaction
+    Message append(Message message);
+
+    // Saves a batch of messages and sets their ids; runs in the caller's transaction
+    void appendAll(List<Message> messages);
+
+    // Newest `limit` messages between two users, oldest first (names not filled in)
+    List<MessageDTO> findLatest(Long userA, Long userB, int limit);
+
+    // Up to `limit` messages between two users just before the cursor, oldest first
+    List<MessageDTO> findBefore(Long userA, Long userB, KeysetCursor before, int limit);
+
+    // Up to `limit` messages between two users just after the cursor, oldest first
+    List<MessageDTO> findAfter(Long userA, Long userB, KeysetCursor after, int limit);
+
+    // Texts of messages whose text is not kept in the message table; empty when the table has them all
+    Map<Long, String> findContents(Collection<Long> messageIds);
+
+    default void fillContents(List<MessageDTO> messages) {
+        if (messages.isEmpty()) return;
+        Map<Long, String> contents = findContents(messages.stream().map(MessageDTO::getId).toList());
+        if (contents.isEmpty()) return;
+        for (MessageDTO m : messages) {
+            String content = contents.get(m.getId());
+            if (content != null) m.setContent(content);
+        }
+    }
+}
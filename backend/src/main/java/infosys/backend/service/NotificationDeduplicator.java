@@ -0,0 +1,173 @@
+package infosys.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory duplicate filter for chat notifications.
+ *
+ * Each (sender, receiver, content) triple is hashed to a 64-bit key that maps to the
+ * epoch second it was last accepted. The check-and-insert is a single
+ * {@link ConcurrentHashMap#compute}, so two concurrent sends of the same text cannot both
+ * pass. Keys are also appended to a ring of per-second buckets; when a bucket's slot is
+ * reused its keys are dropped, so expiry costs O(1) per key and needs no scan of the map.
+ *
+ * Memory is capped by chat.notifications.dedupe-max-entries. Once the cap is hit new keys
+ * are let through untracked (a missed dedupe is better than a missed notification).
+ */
+@Component
+public class NotificationDeduplicator {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int windowSeconds;
+    private final int maxEntries;
+
+    // key hash -> epoch second it was accepted
+    private final ConcurrentHashMap<Long, Long> lastSeen = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Bucket> ring;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter untracked;
+
+    private static final class Bucket {
+        final long second;
+        final ConcurrentLinkedQueue<Long> keys = new ConcurrentLinkedQueue<>();
+
+        Bucket(long second) {
+            this.second = second;
+        }
+    }
+
+    public NotificationDeduplicator(@Value("${chat.notifications.dedupe-window-seconds:5}") int windowSeconds,
+                                    @Value("${chat.notifications.dedupe-max-entries:100000}") int maxEntries,
+                                    MeterRegistry meterRegistry) {
+        this.windowSeconds = windowSeconds;
+        this.maxEntries = maxEntries;
+        // One spare slot so a bucket still inside the window is never reused
+        this.ring = new AtomicReferenceArray<>(windowSeconds + 2);
+
+        this.hits = Counter.builder("chat.notifications.dedupe")
+                .tag("result", "duplicate")
+                .description("Notifications suppressed as duplicates")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.notifications.dedupe")
+                .tag("result", "accepted")
+                .description("Notifications accepted by the duplicate filter")
+                .register(meterRegistry);
+        this.untracked = Counter.builder("chat.notifications.dedupe")
+                .tag("result", "untracked")
+                .description("Notifications let through without tracking because the window was full")
+                .register(meterRegistry);
+        Gauge.builder("chat.notifications.dedupe.entries", lastSeen, ConcurrentHashMap::size)
+                .description("Keys currently held in the dedupe window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns true if this notification should be sent, false if an identical one
+     * (same sender, receiver and text) was accepted within the window.
+     */
+    public boolean tryAcquire(Long senderId, Long receiverId, String content) {
+        return tryAcquire(senderId, receiverId, content, System.currentTimeMillis() / 1000);
+    }
+
+    // As above, at the given epoch second
+    boolean tryAcquire(Long senderId, Long receiverId, String content, long now) {
+        Bucket bucket = bucketFor(now);
+
+        if (lastSeen.size() >= maxEntries) {
+            untracked.increment();
+            return true;
+        }
+
+        long key = hash(senderId, receiverId, content);
+        boolean[] duplicate = {false};
+        lastSeen.compute(key, (k, seenAt) -> {
+            if (seenAt != null && now - seenAt <= windowSeconds) {
+                duplicate[0] = true;
+                return seenAt;
+            }
+            return now;
+        });
+
+        if (duplicate[0]) {
+            hits.increment();
+            return false;
+        }
+        bucket.keys.add(key);
+        misses.increment();
+        return true;
+    }
+
+    public long getHitCount() {
+        return (long) hits.count();
+    }
+
+    public long getMissCount() {
+        return (long) misses.count();
+    }
+
+    public int size() {
+        return lastSeen.size();
+    }
+
+    // ⏱️ Current second's bucket; claiming a slot from an older second expires that second's keys
+    private Bucket bucketFor(long second) {
+        int slot = (int) Math.floorMod(second, (long) ring.length());
+        while (true) {
+            Bucket current = ring.get(slot);
+            if (current != null && current.second == second) {
+                return current;
+            }
+            if (current != null && current.second > second) {
+                // Clock stepped backwards: keep the newer bucket rather than thrash the slot
+                return current;
+            }
+            Bucket fresh = new Bucket(second);
+            if (ring.compareAndSet(slot, current, fresh)) {
+                if (current != null) expire(current);
+                return fresh;
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        for (Long key : bucket.keys) {
+            // Only drop the key if it was not re-accepted in a later second
+            lastSeen.remove(key, bucket.second);
+        }
+    }
+
+    // 64-bit FNV-1a over the ids and the UTF-8 text
+    static long hash(Long senderId, Long receiverId, String content) {
+        long h = FNV_OFFSET;
+        h = mix(h, senderId != null ? senderId : 0L);
+        h = mix(h, receiverId != null ? receiverId : 0L);
+        if (content != null) {
+            for (byte b : content.getBytes(StandardCharsets.UTF_8)) {
+                h ^= (b & 0xff);
+                h *= FNV_PRIME;
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            h ^= (value >>> (i * 8)) & 0xff;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,326 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.NotificationDigestDTO;
+import infosys.backend.model.ChatNotification;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces chat notifications for receivers who are offline.
+ *
+ * Instead of a row and a WebSocket push per message, notifications for a receiver with no open
+ * session are folded into an in-memory digest: per sender, how many messages arrived and the
+ * latest one. Unread counters are updated right away, so /api/notifications/count stays right.
+ *
+ * The digest is delivered when the receiver subscribes to /user/queue/notifications again: one
+ * notification row per sender (collapsedCount = number of messages, like the retention job's
+ * collapsed rows) and a single DIGEST frame. Digests of receivers who stay away are written
+ * out after chat.notifications.digest.max-hold-ms and also sent through the configured
+ * {@link DigestChannel}. A digest whose write fails goes back into the buffer and is tried
+ * again on the next delivery or flush. Shutdown writes every digest, so only a crash (or a
+ * database that is down at shutdown) loses buffered notifications; the messages and the inbox
+ * unread counts are stored regardless.
+ *
+ * Marking notifications read drops the matching buffered entries. With
+ * websocket.broker.mode=relay the receiver may reconnect to another node, so digests are off
+ * there and every notification is written immediately.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationDigestService {
+
+    private static final String NOTIFICATIONS_QUEUE = "/queue/notifications";
+
+    private final PresenceService presenceService;
+    private final UnreadCountStore unreadCounts;
+    private final ChatBatchRepository chatBatchRepository;
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<DigestChannel> channels;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.notifications.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.notifications.digest.max-hold-ms:900000}")
+    private long maxHoldMs;
+
+    @Value("${chat.notifications.digest.max-receivers:100000}")
+    private int maxReceivers;
+
+    @Value("${chat.notifications.digest.channel:none}")
+    private String channelName;
+
+    // receiverId -> what arrived while they were away
+    private final ConcurrentHashMap<Long, Digest> pending = new ConcurrentHashMap<>();
+
+    private DigestChannel channel;
+    // add() runs after another transaction has committed, so writes need a transaction of their own
+    private TransactionTemplate ownTransaction;
+    private Counter buffered;
+    private Counter rowsWritten;
+    private Counter sent;
+
+    private static final class Digest {
+        final User receiver;
+        final long since;
+        // senderId -> entry, in order of first arrival
+        final Map<Long, Entry> bySender = new LinkedHashMap<>();
+
+        Digest(User receiver) {
+            this(receiver, System.currentTimeMillis());
+        }
+
+        Digest(User receiver, long since) {
+            this.receiver = receiver;
+            this.since = since;
+        }
+    }
+
+    private static final class Entry {
+        Message latest;
+        int count;
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled && "relay".equalsIgnoreCase(brokerMode)) {
+            enabled = false;
+            System.out.println("⚠️ Notification digests are off in relay mode");
+        }
+        ownTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (DigestChannel c : channels) {
+            if (c.name().equalsIgnoreCase(channelName)) channel = c;
+        }
+        if (channel == null && !"none".equalsIgnoreCase(channelName)) {
+            throw new IllegalStateException("Unknown chat.notifications.digest.channel: " + channelName);
+        }
+
+        buffered = Counter.builder("chat.notifications.digest.buffered")
+                .description("Notifications folded into a digest instead of written and pushed")
+                .register(meterRegistry);
+        rowsWritten = Counter.builder("chat.notifications.digest.rows")
+                .description("Notification rows written for delivered or expired digests")
+                .register(meterRegistry);
+        sent = Counter.builder("chat.notifications.digest.sent")
+                .description("Digests sent through the outbound channel")
+                .register(meterRegistry);
+        Gauge.builder("chat.notifications.digest.pending", pending, Map::size)
+                .description("Receivers with a digest waiting")
+                .register(meterRegistry);
+    }
+
+    // True when the receiver has no open session and their notifications should wait
+    public boolean shouldDefer(Long receiverId) {
+        return enabled && !presenceService.isUserOnline(receiverId);
+    }
+
+    // 📨 Fold a committed message into its receiver's digest
+    public void add(Message message) {
+        User receiver = message.getReceiver();
+        Long receiverId = receiver.getId();
+        boolean[] full = new boolean[1];
+
+        // Size check inside compute, so a receiver is never counted as new twice
+        pending.compute(receiverId, (id, digest) -> {
+            if (digest == null && pending.size() >= maxReceivers) {
+                full[0] = true;
+                return null;
+            }
+            Digest d = digest != null ? digest : new Digest(receiver);
+            Entry entry = d.bySender.computeIfAbsent(message.getSender().getId(), k -> new Entry());
+            entry.count++;
+            entry.latest = message;
+            return d;
+        });
+        unreadCounts.add(receiverId, message.getSender().getId(), 1);
+
+        if (full[0]) {
+            // Buffer full: this one is written straight away, without waiting for a digest
+            Digest single = new Digest(receiver);
+            single.bySender.put(message.getSender().getId(), entryOf(message));
+            if (persist(single) == null) requeue(single);
+            return;
+        }
+        buffered.increment();
+
+        // They may have come back while this was being added
+        if (presenceService.isUserOnline(receiverId)) deliver(receiverId);
+    }
+
+    // 🔔 The client is listening again: hand over the digest
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        if (pending.isEmpty()) return;
+        String destination = SimpMessageHeaderAccessor.getDestination(event.getMessage().getHeaders());
+        Principal user = event.getUser();
+        if (user == null || destination == null || !destination.endsWith(NOTIFICATIONS_QUEUE)) return;
+        userRepository.findByEmailIgnoreCase(user.getName()).ifPresent(u -> deliver(u.getId()));
+    }
+
+    public void deliver(Long receiverId) {
+        Digest digest = pending.remove(receiverId);
+        if (digest == null) return;
+        NotificationDigestDTO dto = persist(digest);
+        if (dto == null) {
+            requeue(digest);
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(digest.receiver.getEmail().toLowerCase(), NOTIFICATIONS_QUEUE, dto);
+        System.out.println("📬 Delivered digest of " + dto.getTotal() + " messages to " + digest.receiver.getEmail());
+    }
+
+    // ⏰ Receivers who stayed away: write their digest and send it through the channel
+    @Scheduled(fixedDelayString = "${chat.notifications.digest.flush-interval-ms:60000}")
+    public void flushExpired() {
+        long cutoff = System.currentTimeMillis() - maxHoldMs;
+        for (Long receiverId : List.copyOf(pending.keySet())) {
+            Digest digest = pending.get(receiverId);
+            if (digest == null || digest.since > cutoff) continue;
+            if (!pending.remove(receiverId, digest)) continue;
+
+            NotificationDigestDTO dto = persist(digest);
+            if (dto == null) {
+                requeue(digest);
+                continue;
+            }
+            if (channel == null) continue;
+            try {
+                channel.send(digest.receiver, dto);
+                sent.increment();
+            } catch (RuntimeException e) {
+                System.out.println("❌ Digest for " + digest.receiver.getEmail() + " not sent: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushAll() {
+        for (Long receiverId : List.copyOf(pending.keySet())) {
+            Digest digest = pending.remove(receiverId);
+            if (digest != null && persist(digest) == null) {
+                System.out.println("❌ Digest for " + digest.receiver.getEmail() + " lost at shutdown");
+            }
+        }
+    }
+
+    // ↩️ Write failed: put the digest back, ahead of anything that arrived for the receiver meanwhile
+    private void requeue(Digest failed) {
+        pending.merge(failed.receiver.getId(), failed, (newer, older) -> {
+            Digest merged = new Digest(older.receiver, older.since);
+            merged.bySender.putAll(older.bySender);
+            newer.bySender.forEach((senderId, entry) -> merged.bySender.merge(senderId, entry, (o, n) -> {
+                Entry e = new Entry();
+                e.count = o.count + n.count;
+                e.latest = n.latest;
+                return e;
+            }));
+            return merged;
+        });
+    }
+
+    // Marking everything read: nothing buffered is unread any more
+    public void discard(Long receiverId) {
+        pending.remove(receiverId);
+    }
+
+    public void discard(Long receiverId, Long senderId) {
+        pending.computeIfPresent(receiverId, (id, digest) -> {
+            digest.bySender.remove(senderId);
+            return digest.bySender.isEmpty() ? null : digest;
+        });
+    }
+
+    /**
+     * Watermark moved to {@code readUpTo}: drops senders whose latest buffered message is not
+     * newer and returns the buffered counts per sender that are still unread.
+     */
+    public Map<Long, Long> discardUpTo(Long receiverId, LocalDateTime readUpTo) {
+        Map<Long, Long> remaining = new HashMap<>();
+        pending.computeIfPresent(receiverId, (id, digest) -> {
+            digest.bySender.entrySet().removeIf(e -> !e.getValue().latest.getSentAt().isAfter(readUpTo));
+            digest.bySender.forEach((senderId, entry) -> remaining.put(senderId, (long) entry.count));
+            return digest.bySender.isEmpty() ? null : digest;
+        });
+        return remaining;
+    }
+
+    // 💾 One collapsed row per sender; returns the digest as pushed/sent, or null if the write failed
+    private NotificationDigestDTO persist(Digest digest) {
+        List<ChatNotification> rows = new ArrayList<>(digest.bySender.size());
+        for (Entry entry : digest.bySender.values()) {
+            rows.add(ChatNotification.builder()
+                    .sender(entry.latest.getSender())
+                    .receiver(digest.receiver)
+                    .message(entry.latest)
+                    .sentAt(entry.latest.getSentAt())
+                    .collapsedCount(entry.count)
+                    .isRead(false)
+                    .build());
+        }
+        try {
+            ownTransaction.executeWithoutResult(status -> chatBatchRepository.insertNotifications(rows));
+        } catch (RuntimeException e) {
+            System.out.println("❌ Digest for " + digest.receiver.getEmail() + " could not be saved: " + e.getMessage());
+            return null;
+        }
+        rowsWritten.increment(rows.size());
+
+        List<NotificationDigestDTO.Entry> entries = new ArrayList<>(rows.size());
+        long total = 0;
+        for (ChatNotification row : rows) {
+            Message latest = row.getMessage();
+            entries.add(NotificationDigestDTO.Entry.builder()
+                    .notificationId(row.getId())
+                    .senderId(row.getSender().getId())
+                    .senderName(row.getSender().getName())
+                    .count(row.getCollapsedCount())
+                    .latestMessageId(latest.getId())
+                    .latestSnippet(ConversationService.snippet(latest.getContent()))
+                    .latestSentAt(latest.getSentAt())
+                    .build());
+            total += row.getCollapsedCount();
+        }
+        entries.sort(Comparator.comparing(NotificationDigestDTO.Entry::getLatestSentAt).reversed());
+        return NotificationDigestDTO.builder().total(total).entries(entries).build();
+    }
+
+    private static Entry entryOf(Message message) {
+        Entry entry = new Entry();
+        entry.latest = message;
+        entry.count = 1;
+        return entry;
+    }
+}
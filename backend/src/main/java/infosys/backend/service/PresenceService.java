@@ -1,29 +1,319 @@
 // infosys/backend/service/PresenceService.java
 package infosys.backend.service;
 
+import infosys.backend.dto.PresenceDTO;
+import infosys.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Who is online, driven by STOMP sessions.
+ *
+ * A user is online while at least one of their sessions is open (several tabs or devices
+ * are reference-counted). Every inbound frame, heartbeats included, refreshes its session;
+ * sessions silent for longer than presence.idle-timeout-ms are swept as if they had
+ * disconnected, which covers connections that dropped without a DISCONNECT.
+ *
+ * Sessions can watch a set of user ids (/app/presence.watch). A reverse index from
+ * watched user to watching sessions means a status change is sent only to the sessions
+ * that asked for it, on /user/queue/presence.
+ *
+ * With websocket.broker.mode=relay the session counts here only cover this node. A user
+ * counts as online if any node has them, according to the shared user registry. Changes
+ * are also published on /topic/presence.{userId}, so clients connected to other nodes can
+ * follow a user too.
+ */
 @Service
+@RequiredArgsConstructor
 public class PresenceService {
-    private final Set<Long> onlineUsers = ConcurrentHashMap.newKeySet();
+
+    private static final String PRESENCE_QUEUE = "/queue/presence";
+
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final LastSeenService lastSeenService;
+    private final SimpUserRegistry userRegistry;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${presence.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${presence.max-watched:500}")
+    private int maxWatched;
+
+    // sessionId -> session state
+    private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    // userId -> number of open sessions (absent = offline)
+    private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
+    // watched userId -> sessions watching them
+    private final Map<Long, Set<String>> watchers = new ConcurrentHashMap<>();
+    // Relay mode: userId -> email of users whose last session here closed while another node had them
+    private final Map<Long, String> leftThisNode = new ConcurrentHashMap<>();
+
+    private static final class SessionInfo {
+        final Long userId;
+        final String email;
+        volatile long lastActivity = System.currentTimeMillis();
+        volatile Set<Long> watching = Set.of();
+
+        SessionInfo(Long userId, String email) {
+            this.userId = userId;
+            this.email = email;
+        }
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (user != null && sessionId != null) {
+            register(sessionId, user.getName());
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        sessionClosed(event.getSessionId());
+    }
+
+    // 💓 Any inbound frame (including heartbeats) keeps a session alive
+    public void touch(String sessionId, Principal user) {
+        SessionInfo info = sessions.get(sessionId);
+        if (info != null) {
+            info.lastActivity = System.currentTimeMillis();
+            lastSeenService.record(info.userId);
+        } else if (user != null) {
+            // Swept while idle but still connected: bring it back
+            register(sessionId, user.getName());
+        }
+    }
 
     public void userConnected(Long userId) {
-        onlineUsers.add(userId);
-        System.out.println("🟢 User connected: " + userId);
+        if (adjust(userId, 1)) {
+            System.out.println("🟢 User connected: " + userId);
+            broadcast(userId, true);
+        }
     }
 
     public void userDisconnected(Long userId) {
-        onlineUsers.remove(userId);
-        System.out.println("🔴 User disconnected: " + userId);
+        if (adjust(userId, -1)) {
+            System.out.println("🔴 User disconnected: " + userId);
+            broadcast(userId, false);
+        }
+    }
+
+    // Last local session gone; in relay mode the user may still be connected to another node
+    private void sessionEnded(SessionInfo info, String sessionId) {
+        if (!adjust(info.userId, -1)) return;
+        if (isRelay() && connectedElsewhere(info.email, sessionId)) {
+            // Other nodes' registries are snapshots; the sweep checks again once they have caught up
+            System.out.println("🟡 User " + info.userId + " left this node, still online on another");
+            leftThisNode.put(info.userId, info.email);
+            return;
+        }
+        System.out.println("🔴 User disconnected: " + info.userId);
+        broadcast(info.userId, false);
+    }
+
+    // Any session other than the one closing (null: any at all), according to the cluster-wide registry
+    private boolean connectedElsewhere(String email, String closingSessionId) {
+        SimpUser user = userRegistry.getUser(email);
+        if (user == null) return false;
+        for (SimpSession session : user.getSessions()) {
+            if (!session.getId().equals(closingSessionId)) return true;
+        }
+        return false;
     }
 
     public boolean isUserOnline(Long userId) {
-        return onlineUsers.contains(userId);
+        return onlineAmong(List.of(userId)).contains(userId);
+    }
+
+    // 👥 Bulk lookup, in the order the ids were given; like watch(), at most presence.max-watched ids
+    public List<PresenceDTO> getPresence(Collection<Long> userIds) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : userIds) {
+            if (id == null) continue;
+            if (ids.size() >= maxWatched) break;
+            ids.add(id);
+        }
+        Map<Long, LocalDateTime> lastSeen = lastSeenService.getLastSeen(ids);
+        Set<Long> online = onlineAmong(ids);
+        List<PresenceDTO> presence = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            presence.add(PresenceDTO.builder()
+                    .userId(id)
+                    .online(online.contains(id))
+                    .lastSeen(lastSeen.get(id))
+                    .build());
+        }
+        return presence;
+    }
+
+    // Local sessions first; in relay mode ask the cluster-wide registry about the rest
+    private Set<Long> onlineAmong(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        List<Long> remote = new ArrayList<>();
+        for (Long id : userIds) {
+            if (sessionCounts.containsKey(id)) online.add(id);
+            else remote.add(id);
+        }
+        if (isRelay() && !remote.isEmpty()) {
+            for (Object[] row : userRepository.findEmailsByIds(remote)) {
+                String email = (String) row[1];
+                // Principal names are lower-cased at CONNECT (WebSocketConfig), so lower-case here too
+                if (email != null && userRegistry.getUser(email.toLowerCase()) != null) {
+                    online.add((Long) row[0]);
+                }
+            }
+        }
+        return online;
+    }
+
+    private boolean isRelay() {
+        return "relay".equalsIgnoreCase(brokerMode);
     }
 
     public Set<Long> getOnlineUsers() {
-        return onlineUsers;
+        return sessionCounts.keySet();
+    }
+
+    /**
+     * Replace the set of users this session watches and return their current status.
+     * Lists longer than presence.max-watched are truncated.
+     */
+    public List<PresenceDTO> watch(String sessionId, Collection<Long> userIds) {
+        SessionInfo info = sessions.get(sessionId);
+        if (info == null) return List.of();
+
+        Set<Long> wanted = new LinkedHashSet<>();
+        for (Long id : userIds) {
+            if (id == null) continue;
+            if (wanted.size() >= maxWatched) break;
+            wanted.add(id);
+        }
+
+        synchronized (info) {
+            for (Long old : info.watching) {
+                if (!wanted.contains(old)) unwatch(old, sessionId);
+            }
+            for (Long id : wanted) {
+                watchers.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+            }
+            info.watching = wanted;
+        }
+
+        return getPresence(wanted);
+    }
+
+    // 🧹 Drop sessions that have gone quiet (missed heartbeats, dead connections)
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:15000}")
+    public void sweepIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        sessions.forEach((sessionId, info) -> {
+            if (info.lastActivity < cutoff) {
+                System.out.println("⌛ Presence session " + sessionId + " idle, dropping");
+                sessionClosed(sessionId);
+            }
+        });
+        // Users who were still on another node when they left this one: offline once no node has them
+        leftThisNode.forEach((userId, email) -> {
+            if (sessionCounts.containsKey(userId)) {
+                leftThisNode.remove(userId);
+            } else if (!connectedElsewhere(email, null)) {
+                leftThisNode.remove(userId);
+                System.out.println("🔴 User disconnected everywhere: " + userId);
+                broadcast(userId, false);
+            }
+        });
+    }
+
+    private void register(String sessionId, String email) {
+        Long userId = userRepository.findByEmailIgnoreCase(email).map(u -> u.getId()).orElse(null);
+        if (userId == null) return;
+        if (sessions.putIfAbsent(sessionId, new SessionInfo(userId, email.toLowerCase())) == null) {
+            lastSeenService.record(userId);
+            userConnected(userId);
+        }
+    }
+
+    private void sessionClosed(String sessionId) {
+        SessionInfo info = sessions.remove(sessionId);
+        if (info == null) return; // already swept or never authenticated
+        synchronized (info) {
+            for (Long id : info.watching) unwatch(id, sessionId);
+            info.watching = Set.of();
+        }
+        sessionEnded(info, sessionId);
+    }
+
+    private void unwatch(Long watchedId, String sessionId) {
+        watchers.computeIfPresent(watchedId, (id, set) -> {
+            set.remove(sessionId);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // Returns true when the user went from offline to online or back
+    private boolean adjust(Long userId, int delta) {
+        boolean[] changed = {false};
+        sessionCounts.compute(userId, (id, count) -> {
+            int before = count != null ? count : 0;
+            int after = Math.max(0, before + delta);
+            changed[0] = (before == 0) != (after == 0);
+            return after == 0 ? null : after;
+        });
+        return changed[0];
+    }
+
+    // 📣 Send a status change to each local session watching this user (plus the relay topic)
+    private void broadcast(Long userId, boolean online) {
+        Set<String> sessionIds = watchers.get(userId);
+        boolean hasLocalWatchers = sessionIds != null && !sessionIds.isEmpty();
+        if (!hasLocalWatchers && !isRelay()) return;
+
+        PresenceDTO dto = PresenceDTO.builder()
+                .userId(userId)
+                .online(online)
+                .lastSeen(lastSeenService.getLastSeen(userId))
+                .build();
+        if (isRelay()) {
+            messagingTemplate.convertAndSend("/topic/presence." + userId, dto);
+        }
+        if (!hasLocalWatchers) return;
+
+        for (String sessionId : sessionIds) {
+            SessionInfo watcher = sessions.get(sessionId);
+            if (watcher == null) continue;
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(watcher.email, PRESENCE_QUEUE, dto, headers.getMessageHeaders());
+        }
     }
 }
@@ -0,0 +1,210 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.RoutePlan;
+import infosys.backend.dto.RouteStop;
+import infosys.backend.enums.BookingStatus;
+import infosys.backend.model.Booking;
+import infosys.backend.model.User;
+import infosys.backend.repository.BookingRepository;
+import infosys.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+@RequiredArgsConstructor
+public class RouteOptimizerService {
+
+    // Matches the start of slots like "9AM - 11AM" or "2:30 PM - 4 PM"
+    private static final Pattern SLOT_START = Pattern.compile("(\\d{1,2})(?::(\\d{2}))?\\s*([AaPp][Mm])");
+    private static final int UNSLOTTED = Integer.MAX_VALUE;
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+
+    @Value("${routing.average-speed-kmh:30}")
+    private double averageSpeedKmh;
+
+    // Solved plans per provider-day; evicted whenever one of that day's bookings changes
+    private final Map<RouteKey, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long clearedAt;
+
+    private record RouteKey(Long providerId, LocalDate date) {}
+
+    // An evicted day keeps an entry without a plan, so a solve that started before the
+    // eviction (and read the old bookings) can tell and does not cache its result
+    private record CacheEntry(long version, RoutePlan plan) {}
+
+    // 🗺️ Ordered route through a provider's confirmed bookings for one day
+    public RoutePlan getDailyRoute(Long providerId, LocalDate date) {
+        RouteKey key = new RouteKey(providerId, date);
+        CacheEntry seen = cache.get(key);
+        if (seen != null && seen.plan() != null) {
+            return seen.plan();
+        }
+        long version = seen != null ? seen.version() : 0;
+        long started = evictions.get();
+
+        User provider = userRepository.findById(providerId)
+                .orElseThrow(() -> new RuntimeException("Provider not found"));
+        List<Booking> bookings = bookingRepository
+                .findByProviderIdAndBookingDateAndStatus(providerId, date, BookingStatus.CONFIRMED);
+
+        RoutePlan plan = solve(provider, date, bookings);
+
+        // Drop plans for days that are already over so the cache stays bounded
+        LocalDate today = LocalDate.now();
+        cache.keySet().removeIf(k -> k.date().isBefore(today));
+        if (date.isBefore(today)) {
+            return plan;
+        }
+        cache.compute(key, (k, current) -> {
+            long now = current != null ? current.version() : 0;
+            return now == version && clearedAt <= started ? new CacheEntry(version, plan) : current;
+        });
+        return plan;
+    }
+
+    // Bookings change in their own transaction: evict once it has committed, so a solve that
+    // runs in between cannot cache the old bookings again
+    public void evict(Booking booking) {
+        if (booking == null || booking.getProvider() == null || booking.getBookingDate() == null) {
+            return;
+        }
+        RouteKey key = new RouteKey(booking.getProvider().getId(), booking.getBookingDate());
+        afterCommit(() -> cache.put(key, new CacheEntry(evictions.incrementAndGet(), null)));
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            clearedAt = evictions.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private RoutePlan solve(User provider, LocalDate date, List<Booking> bookings) {
+        long started = System.nanoTime();
+
+        // Matrix rows: one per routable booking, plus the provider's own location as depot
+        List<Booking> routable = new ArrayList<>();
+        for (Booking b : bookings) {
+            if (hasCoordinates(b.getCustomer())) routable.add(b);
+        }
+        boolean hasDepot = hasCoordinates(provider);
+        int size = routable.size() + (hasDepot ? 1 : 0);
+        double[] lat = new double[size];
+        double[] lon = new double[size];
+        for (int i = 0; i < routable.size(); i++) {
+            lat[i] = routable.get(i).getCustomer().getLatitude();
+            lon[i] = routable.get(i).getCustomer().getLongitude();
+        }
+        int depot = -1;
+        if (hasDepot) {
+            depot = routable.size();
+            lat[depot] = provider.getLatitude();
+            lon[depot] = provider.getLongitude();
+        }
+        double[][] matrix = RouteSolver.distanceMatrix(lat, lon);
+
+        // Slots are visited in time order; only the order inside a slot is optimised
+        Map<Integer, List<Integer>> routableBySlot = new TreeMap<>();
+        Map<Integer, List<Booking>> unroutableBySlot = new TreeMap<>();
+        for (int i = 0; i < routable.size(); i++) {
+            routableBySlot.computeIfAbsent(slotStart(routable.get(i).getTimeSlot()), s -> new ArrayList<>()).add(i);
+        }
+        for (Booking b : bookings) {
+            if (!hasCoordinates(b.getCustomer())) {
+                unroutableBySlot.computeIfAbsent(slotStart(b.getTimeSlot()), s -> new ArrayList<>()).add(b);
+            }
+        }
+        TreeSet<Integer> slots = new TreeSet<>(routableBySlot.keySet());
+        slots.addAll(unroutableBySlot.keySet());
+
+        List<RouteStop> stops = new ArrayList<>();
+        double totalKm = 0;
+        int previous = depot;
+        for (Integer slot : slots) {
+            List<Integer> group = routableBySlot.getOrDefault(slot, List.of());
+            int[] order = RouteSolver.solve(matrix, group.stream().mapToInt(Integer::intValue).toArray(), previous);
+            for (int node : order) {
+                Double legKm = previous >= 0 ? matrix[previous][node] : 0.0;
+                totalKm += legKm;
+                stops.add(toStop(routable.get(node), legKm));
+                previous = node;
+            }
+            for (Booking b : unroutableBySlot.getOrDefault(slot, List.of())) {
+                stops.add(toStop(b, null));
+            }
+        }
+
+        return RoutePlan.builder()
+                .providerId(provider.getId())
+                .date(date)
+                .stops(stops)
+                .totalDistanceKm(totalKm)
+                .totalTravelMinutes(toMinutes(totalKm))
+                .solveTimeMicros((System.nanoTime() - started) / 1_000)
+                .build();
+    }
+
+    private RouteStop toStop(Booking booking, Double legKm) {
+        User customer = booking.getCustomer();
+        return RouteStop.builder()
+                .bookingId(booking.getId())
+                .customerId(customer.getId())
+                .customerName(customer.getName())
+                .location(customer.getLocation())
+                .timeSlot(booking.getTimeSlot())
+                .latitude(customer.getLatitude())
+                .longitude(customer.getLongitude())
+                .legDistanceKm(legKm)
+                .legTravelMinutes(legKm != null ? toMinutes(legKm) : null)
+                .build();
+    }
+
+    private double toMinutes(double km) {
+        return averageSpeedKmh > 0 ? km / averageSpeedKmh * 60.0 : 0.0;
+    }
+
+    private static boolean hasCoordinates(User user) {
+        return user != null && user.getLatitude() != null && user.getLongitude() != null;
+    }
+
+    // Minutes after midnight at which the slot starts; unparseable slots go last
+    static int slotStart(String timeSlot) {
+        if (timeSlot == null) return UNSLOTTED;
+        Matcher m = SLOT_START.matcher(timeSlot);
+        if (!m.find()) return UNSLOTTED;
+        int hour = Integer.parseInt(m.group(1)) % 12;
+        int minute = m.group(2) != null ? Integer.parseInt(m.group(2)) : 0;
+        if (m.group(3).equalsIgnoreCase("PM")) hour += 12;
+        return hour * 60 + minute;
+    }
+}
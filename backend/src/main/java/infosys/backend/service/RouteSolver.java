@@ -0,0 +1,196 @@
+package infosys.backend.service;
+
+/**
+ * Heuristic open-path TSP solver used by {@link RouteOptimizerService}.
+ * Builds a nearest-neighbour tour and then improves it with 2-opt and Or-opt moves.
+ * Node indices refer to rows of the distance matrix; -1 means "no node".
+ */
+public final class RouteSolver {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+
+    private RouteSolver() {
+    }
+
+    // 🌍 Great-circle distance between two coordinates
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // 📐 Symmetric distance matrix (km) for the given points
+    public static double[][] distanceMatrix(double[] lat, double[] lon) {
+        int n = lat.length;
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double km = haversineKm(lat[i], lon[i], lat[j], lon[j]);
+                d[i][j] = km;
+                d[j][i] = km;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Order {@code nodes} as an open path that leaves from {@code start}.
+     * Pass {@code start = -1} to let the solver pick the best first stop.
+     */
+    public static int[] solve(double[][] d, int[] nodes, int start) {
+        if (nodes.length <= 1) {
+            return nodes.clone();
+        }
+
+        int[] best;
+        if (start >= 0) {
+            best = nearestNeighbour(d, nodes, start, -1);
+        } else {
+            best = null;
+            double bestCost = Double.MAX_VALUE;
+            for (int first : nodes) {
+                int[] candidate = nearestNeighbour(d, nodes, -1, first);
+                double cost = pathCost(d, candidate, -1);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = candidate;
+                }
+            }
+        }
+
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(d, best, start);
+            improved |= orOpt(d, best, start);
+        }
+        return best;
+    }
+
+    public static double pathCost(double[][] d, int[] path, int start) {
+        double total = cost(d, start, path.length > 0 ? path[0] : -1);
+        for (int i = 0; i + 1 < path.length; i++) {
+            total += d[path[i]][path[i + 1]];
+        }
+        return total;
+    }
+
+    private static int[] nearestNeighbour(double[][] d, int[] nodes, int start, int first) {
+        int n = nodes.length;
+        int[] path = new int[n];
+        boolean[] used = new boolean[n];
+        int current = start;
+        int filled = 0;
+
+        if (first >= 0) {
+            for (int i = 0; i < n; i++) {
+                if (nodes[i] == first) {
+                    used[i] = true;
+                    break;
+                }
+            }
+            path[filled++] = first;
+            current = first;
+        }
+
+        while (filled < n) {
+            int next = -1;
+            double nextCost = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (used[i]) continue;
+                double c = cost(d, current, nodes[i]);
+                if (c < nextCost) {
+                    nextCost = c;
+                    next = i;
+                }
+            }
+            used[next] = true;
+            path[filled++] = nodes[next];
+            current = nodes[next];
+        }
+        return path;
+    }
+
+    // 🔁 Reverse segments while it shortens the path
+    private static boolean twoOpt(double[][] d, int[] p, int start) {
+        int n = p.length;
+        boolean changed = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                int a = i == 0 ? start : p[i - 1];
+                for (int j = i + 1; j < n; j++) {
+                    int b = j == n - 1 ? -1 : p[j + 1];
+                    double delta = cost(d, a, p[j]) + cost(d, p[i], b)
+                            - cost(d, a, p[i]) - cost(d, p[j], b);
+                    if (delta < -EPSILON) {
+                        reverse(p, i, j);
+                        improved = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    // ↪️ Relocate segments of 1..3 stops to a cheaper position
+    private static boolean orOpt(double[][] d, int[] p, int start) {
+        int n = p.length;
+        boolean changed = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            search:
+            for (int len = 1; len <= Math.min(MAX_OR_OPT_SEGMENT, n - 1); len++) {
+                for (int i = 0; i + len <= n; i++) {
+                    int first = p[i];
+                    int last = p[i + len - 1];
+                    int a = i == 0 ? start : p[i - 1];
+                    int b = i + len < n ? p[i + len] : -1;
+                    double removeGain = cost(d, a, first) + cost(d, last, b) - cost(d, a, b);
+
+                    int[] rest = new int[n - len];
+                    System.arraycopy(p, 0, rest, 0, i);
+                    System.arraycopy(p, i + len, rest, i, n - i - len);
+
+                    for (int k = 0; k <= rest.length; k++) {
+                        if (k == i) continue;
+                        int x = k == 0 ? start : rest[k - 1];
+                        int y = k < rest.length ? rest[k] : -1;
+                        double addCost = cost(d, x, first) + cost(d, last, y) - cost(d, x, y);
+                        if (addCost - removeGain < -EPSILON) {
+                            int[] segment = new int[len];
+                            System.arraycopy(p, i, segment, 0, len);
+                            System.arraycopy(rest, 0, p, 0, k);
+                            System.arraycopy(segment, 0, p, k, len);
+                            System.arraycopy(rest, k, p, k + len, rest.length - k);
+                            improved = true;
+                            changed = true;
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static double cost(double[][] d, int from, int to) {
+        if (from < 0 || to < 0) return 0.0;
+        return d[from][to];
+    }
+
+    private static void reverse(int[] p, int i, int j) {
+        while (i < j) {
+            int tmp = p[i];
+            p[i++] = p[j];
+            p[j--] = tmp;
+        }
+    }
+}
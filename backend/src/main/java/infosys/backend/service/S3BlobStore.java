@@ -0,0 +1,434 @@
+package infosys.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ☁️ Blobs in a bucket of an S3-compatible object store (AWS S3, MinIO, Ceph, …), spoken to over
+ * plain HTTP with Signature Version 4, so every instance sees the same documents.
+ *
+ * - Uploads up to part-size-bytes are one PUT. Larger ones are read part by part and sent as a
+ *   multipart upload with up to upload-parallelism parts in flight (and buffered) at a time; a
+ *   failed upload is aborted so no orphaned parts stay behind.
+ * - Reads are ranged GETs streamed straight through. Blobs of at most cache.max-blob-bytes that
+ *   are read in full are kept in a small LRU cache (cache.max-bytes in total) and then served
+ *   without asking the store; stored blobs never change, so the cache only has to forget
+ *   deleted ones.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.storage.type", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern CONTENT_RANGE_TOTAL = Pattern.compile("/(\\d+)$");
+    private static final int MIN_PART_BYTES = 5 * 1024 * 1024; // S3's lower limit for all but the last part
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final String prefix;
+    private final int partSize;
+    private final int parallelism;
+
+    private final HttpClient http;
+    private final ExecutorService uploadExecutor;
+    private final HotBlobCache cache;
+
+    public S3BlobStore(@Value("${documents.storage.s3.endpoint}") String endpoint,
+                       @Value("${documents.storage.s3.bucket}") String bucket,
+                       @Value("${documents.storage.s3.region:us-east-1}") String region,
+                       @Value("${documents.storage.s3.access-key}") String accessKey,
+                       @Value("${documents.storage.s3.secret-key}") String secretKey,
+                       @Value("${documents.storage.s3.path-style:true}") boolean pathStyle,
+                       @Value("${documents.storage.s3.prefix:}") String prefix,
+                       @Value("${documents.storage.s3.part-size-bytes:8388608}") int partSize,
+                       @Value("${documents.storage.s3.upload-parallelism:4}") int parallelism,
+                       @Value("${documents.storage.s3.cache.max-bytes:67108864}") long cacheMaxBytes,
+                       @Value("${documents.storage.s3.cache.max-blob-bytes:4194304}") long cacheMaxBlobBytes) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.partSize = Math.max(partSize, MIN_PART_BYTES);
+        this.parallelism = Math.max(1, parallelism);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        AtomicInteger threads = new AtomicInteger();
+        this.uploadExecutor = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "s3-upload-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.cache = new HotBlobCache(cacheMaxBytes, cacheMaxBlobBytes);
+        System.out.println("☁️ Documents are stored in bucket " + bucket + " at " + this.endpoint);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        BlobStore.checkKey(key);
+        byte[] first = in.readNBytes(size >= 0 && size < partSize ? (int) size : partSize);
+        if (first.length < partSize) {
+            Map<String, String> headers = new TreeMap<>();
+            if (contentType != null) headers.put("content-type", contentType);
+            expectOk(send("PUT", key, "", headers, first), "PUT", key);
+            cache.remove(key);
+            return;
+        }
+        multipartPut(key, in, first, contentType);
+        cache.remove(key);
+    }
+
+    private void multipartPut(String key, InputStream in, byte[] first, String contentType) throws IOException {
+        Map<String, String> createHeaders = new TreeMap<>();
+        if (contentType != null) createHeaders.put("content-type", contentType);
+        HttpResponse<byte[]> created = expectOk(send("POST", key, "uploads=", createHeaders, new byte[0]), "POST uploads", key);
+        Matcher m = UPLOAD_ID.matcher(new String(created.body(), StandardCharsets.UTF_8));
+        if (!m.find()) throw new IOException("S3 did not return an upload id for " + key);
+        String uploadId = m.group(1);
+
+        // At most `parallelism` parts are being sent (and held in memory) at once
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<String>> etags = new ArrayList<>();
+        try {
+            byte[] part = first;
+            int partNumber = 1;
+            while (part.length > 0) {
+                inFlight.acquire();
+                // Stop reading once a part has failed
+                for (CompletableFuture<String> sent : etags) if (sent.isCompletedExceptionally()) sent.join();
+                byte[] body = part;
+                String query = "partNumber=" + partNumber + "&uploadId=" + encode(uploadId);
+                etags.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        HttpResponse<byte[]> r = expectOk(send("PUT", key, query, new TreeMap<>(), body), "PUT part", key);
+                        return r.headers().firstValue("ETag")
+                                .orElseThrow(() -> new IOException("S3 returned no ETag for a part of " + key));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }, uploadExecutor));
+                if (part.length < partSize) break;
+                part = in.readNBytes(partSize);
+                partNumber++;
+            }
+
+            StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i).join()).append("</ETag></Part>");
+            }
+            xml.append("</CompleteMultipartUpload>");
+            HttpResponse<byte[]> done = expectOk(send("POST", key, "uploadId=" + encode(uploadId), new TreeMap<>(),
+                    xml.toString().getBytes(StandardCharsets.UTF_8)), "POST complete", key);
+            // Completing can fail after the 200 has been sent; the error is then in the body
+            if (new String(done.body(), StandardCharsets.UTF_8).contains("<Error>")) {
+                throw new IOException("S3 could not complete the upload of " + key);
+            }
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            etags.forEach(f -> f.cancel(false));
+            try {
+                send("DELETE", key, "uploadId=" + encode(uploadId), new TreeMap<>(), new byte[0]);
+            } catch (IOException abortFailed) {
+                System.out.println("⚠ Could not abort the upload of " + key + ": " + abortFailed.getMessage());
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload of " + key + " was interrupted");
+            }
+            if (e instanceof CompletionException ce && ce.getCause() instanceof UncheckedIOException u) throw u.getCause();
+            if (e instanceof IOException io) throw io;
+            throw (RuntimeException) e;
+        }
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        HotBlobCache.Entry hot = cache.get(key);
+        if (hot != null) return hot.info();
+        HttpResponse<byte[]> r = send("HEAD", BlobStore.checkKey(key), "", new TreeMap<>(), new byte[0]);
+        if (r.statusCode() == 404) return null;
+        expectOk(r, "HEAD", key);
+        long size = r.headers().firstValueAsLong("Content-Length").orElse(0);
+        return new BlobInfo(size, lastModified(r));
+    }
+
+    private static Instant lastModified(HttpResponse<?> r) {
+        return r.headers().firstValue("Last-Modified")
+                .map(v -> ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+                .orElse(Instant.EPOCH);
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        HotBlobCache.Entry hot = cache.get(key);
+        if (hot != null) {
+            int from = (int) Math.min(offset, hot.data().length);
+            return new ByteArrayInputStream(hot.data(), from, (int) Math.min(length, hot.data().length - from));
+        }
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("range", "bytes=" + offset + "-" + (offset + length - 1));
+        HttpResponse<InputStream> r = send("GET", BlobStore.checkKey(key), "", headers, new byte[0],
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (r.statusCode() / 100 != 2) {
+            try (InputStream error = r.body()) {
+                expectOk(r.statusCode(), error.readNBytes(300), "GET", key);
+            }
+        }
+
+        // Read in full and small enough: keep it; anything else is streamed through
+        long total = r.headers().firstValue("Content-Range")
+                .map(CONTENT_RANGE_TOTAL::matcher)
+                .filter(Matcher::find)
+                .map(cr -> Long.parseLong(cr.group(1)))
+                .orElse(r.headers().firstValueAsLong("Content-Length").orElse(-1));
+        if (offset == 0 && length == total && cache.accepts(total)) {
+            byte[] data;
+            try (InputStream in = r.body()) {
+                data = in.readAllBytes();
+            }
+            cache.put(key, data, new BlobInfo(total, lastModified(r)));
+            return new ByteArrayInputStream(data);
+        }
+        return r.body();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        cache.remove(key);
+        HttpResponse<byte[]> r = send("DELETE", BlobStore.checkKey(key), "", new TreeMap<>(), new byte[0]);
+        if (r.statusCode() != 404) expectOk(r, "DELETE", key);
+    }
+
+    // ---------- HTTP + Signature Version 4 ----------
+
+    private HttpResponse<byte[]> send(String method, String key, String query,
+                                      Map<String, String> headers, byte[] body) throws IOException {
+        return send(method, key, query, headers, body, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, String query, Map<String, String> headers,
+                                     byte[] body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        String host = pathStyle ? hostHeader(endpoint) : bucket + "." + hostHeader(endpoint);
+        String path = (pathStyle ? "/" + bucket : "") + "/" + encodePath(prefix + key);
+        URI uri = URI.create(endpoint.getScheme() + "://" + host + path + (query.isEmpty() ? "" : "?" + query));
+
+        String payloadHash = body.length == 0 ? EMPTY_SHA256 : HexFormat.of().formatHex(sha256(body));
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        Map<String, String> signed = new TreeMap<>(headers);
+        signed.put("host", host);
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", now.format(AMZ_DATE));
+        String authorization = authorization(method, path, query, signed, payloadHash, now);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(60))
+                .method(method, body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body))
+                .header("Authorization", authorization);
+        signed.forEach((name, value) -> {
+            if (!name.equals("host")) request.header(name, value);
+        });
+        try {
+            return http.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("S3 " + method + " " + key + " was interrupted");
+        }
+    }
+
+    // Authorization header value; `headers` are the lower-case headers to sign, sorted by name
+    String authorization(String method, String path, String query, Map<String, String> headers,
+                         String payloadHash, ZonedDateTime at) {
+        String amzDate = at.format(AMZ_DATE);
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery(query) + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    // Our queries are already encoded; they only need sorting and an "=" on bare names
+    private static String canonicalQuery(String query) {
+        if (query.isEmpty()) return "";
+        TreeMap<String, String> params = new TreeMap<>();
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) params.put(param, "");
+            else params.put(param.substring(0, eq), param.substring(eq + 1));
+        }
+        StringBuilder sb = new StringBuilder();
+        params.forEach((name, value) -> sb.append(sb.isEmpty() ? "" : "&").append(name).append('=').append(value));
+        return sb.toString();
+    }
+
+    private static HttpResponse<byte[]> expectOk(HttpResponse<byte[]> r, String what, String key) throws IOException {
+        if (r.statusCode() / 100 != 2) expectOk(r.statusCode(), r.body(), what, key);
+        return r;
+    }
+
+    private static void expectOk(int status, byte[] body, String what, String key) throws IOException {
+        if (status / 100 == 2) return;
+        String detail = new String(body, 0, Math.min(body.length, 300), StandardCharsets.UTF_8);
+        throw new IOException("S3 " + what + " " + key + " failed with " + status + ": " + detail);
+    }
+
+    // Host header as the HTTP client sends it: the port only when it is not the scheme's default
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || (port == 80 && "http".equals(uri.getScheme()))
+                || (port == 443 && "https".equals(uri.getScheme()));
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    // URI-encodes each segment the way SigV4 expects (everything but A-Z a-z 0-9 - . _ ~)
+    private static String encodePath(String key) {
+        StringBuilder sb = new StringBuilder();
+        for (String segment : key.split("/", -1)) {
+            if (!sb.isEmpty() || key.startsWith("/")) sb.append('/');
+            sb.append(encode(segment));
+        }
+        return sb.toString();
+    }
+
+    static String encode(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '.' || c == '_' || c == '~') {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    // LRU of small, fully read blobs, bounded by their total size
+    static final class HotBlobCache {
+
+        record Entry(byte[] data, BlobInfo info) {}
+
+        private final long maxBytes;
+        private final long maxBlobBytes;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        HotBlobCache(long maxBytes, long maxBlobBytes) {
+            this.maxBytes = maxBytes;
+            this.maxBlobBytes = Math.min(maxBlobBytes, maxBytes);
+        }
+
+        boolean accepts(long size) {
+            return size >= 0 && size <= maxBlobBytes;
+        }
+
+        synchronized Entry get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, byte[] data, BlobInfo info) {
+            if (data.length > maxBlobBytes) return;
+            Entry old = entries.put(key, new Entry(data, info));
+            if (old != null) bytes -= old.data().length;
+            bytes += data.length;
+            var eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().data().length;
+                eldest.remove();
+            }
+        }
+
+        synchronized void remove(String key) {
+            Entry old = entries.remove(key);
+            if (old != null) bytes -= old.data().length;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package infosys.backend.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits chat text into search terms for {@link MessageSearchService}.
+ * A term is a run of letters or digits, lower-cased and with accents removed ("Café" -> "cafe").
+ * Positions count every token, so phrase matching works on the original word order.
+ */
+public final class SearchTokenizer {
+
+    public static final int MAX_TERM_LENGTH = 40;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * A token of the original text: its normalized term, where it sits in the text
+     * (start inclusive, end exclusive) and its word position. The term is null when
+     * the word is too long to be indexed.
+     */
+    public record Token(String term, int start, int end, int position) {
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int cp = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            while (i < length) {
+                cp = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(cp)) break;
+                i += Character.charCount(cp);
+            }
+            String term = normalize(text.substring(start, i));
+            tokens.add(new Token(term.length() <= MAX_TERM_LENGTH ? term : null, start, i, tokens.size()));
+        }
+        return tokens;
+    }
+
+    // 🔤 Same folding for indexed text and queries
+    public static String normalize(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFKD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
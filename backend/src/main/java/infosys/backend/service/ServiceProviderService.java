@@ -23,6 +23,7 @@ public class ServiceProviderService {
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final ReviewRepository reviewRepository;
+    private final RouteOptimizerService routeOptimizerService;
 
     // ✅ Create a new service (PROVIDER only) using email from JWT
     public ServiceProvider createService(ServiceRequest request, String providerEmail) {
@@ -83,6 +84,7 @@ public class ServiceProviderService {
         }
         reviewRepository.deleteByServiceId(id);
         bookingRepository.deleteByServiceId(id);
+        routeOptimizerService.evictAll();
         User provider = service.getProvider();
     provider.getServices().remove(service);
 
@@ -0,0 +1,244 @@
+package infosys.backend.service;
+
+import infosys.backend.repository.ChatNotificationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unread chat-notification counts held in memory, per receiver and per (receiver, sender).
+ *
+ * Loaded from chat_notifications once at startup (before the web server takes traffic) and
+ * then kept current by {@link ChatNotificationService}, so reading a count never touches
+ * the database. Each receiver's counters sit behind that receiver's own lock, which keeps
+ * the total and the per-sender numbers consistent without a global lock. The per-sender
+ * numbers are kept in primitive arrays, so an unread count costs two longs, not a map entry
+ * and two boxed Longs.
+ *
+ * With websocket.broker.mode=relay several nodes write notifications, so no node sees every
+ * change. In that mode a receiver's counters are reloaded from the database whenever they
+ * are read or changed (one grouped query), and the in-memory copy is only a buffer.
+ */
+@Component
+@RequiredArgsConstructor
+public class UnreadCountStore {
+
+    private final ChatNotificationRepository notificationRepository;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // One entry per receiver, not per count, and it hands out the per-receiver locks, so it stays a
+    // ConcurrentHashMap; a primitive map here would need a lock of its own around every lookup
+    private final ConcurrentHashMap<Long, ReceiverCounts> counts = new ConcurrentHashMap<>();
+
+    // Counts for one receiver after a change. Pushes can overtake each other on the way
+    // to the client (or come from different nodes), so each carries a version that only
+    // increases - it follows the wall clock - and clients drop older ones.
+    public record Snapshot(long total, Long senderId, long fromSender, long version) {}
+
+    private static final class ReceiverCounts {
+        long total;
+        long version;
+        final CountsBySender bySender = new CountsBySender();
+
+        long nextVersion() {
+            version = Math.max(version + 1, System.currentTimeMillis());
+            return version;
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        if (!isNodeLocal()) return; // read-through from the database instead
+        List<Object[]> rows = notificationRepository.countUnreadByReceiverAndSender();
+        for (Object[] row : rows) {
+            add((Long) row[0], (Long) row[1], ((Number) row[2]).longValue());
+        }
+        System.out.println("🔢 Loaded unread notification counts for " + counts.size() + " receivers");
+    }
+
+    public long total(Long receiverId) {
+        ReceiverCounts c = isNodeLocal() ? counts.get(receiverId) : reload(receiverId);
+        if (c == null) return 0;
+        synchronized (c) {
+            return c.total;
+        }
+    }
+
+    public long fromSender(Long receiverId, Long senderId) {
+        ReceiverCounts c = isNodeLocal() ? counts.get(receiverId) : reload(receiverId);
+        if (c == null) return 0;
+        synchronized (c) {
+            return c.bySender.get(senderId);
+        }
+    }
+
+    // ➕ / ➖ Adjust one (receiver, sender) counter; counts never go below zero
+    public Snapshot add(Long receiverId, Long senderId, long delta) {
+        if (!isNodeLocal()) return snapshotAfterReload(receiverId, senderId);
+        ReceiverCounts c = counts.computeIfAbsent(receiverId, id -> new ReceiverCounts());
+        synchronized (c) {
+            long before = c.bySender.get(senderId);
+            long after = Math.max(0, before + delta);
+            if (after == 0) c.bySender.remove(senderId);
+            else c.bySender.put(senderId, after);
+            c.total = Math.max(0, c.total + (after - before));
+            return new Snapshot(c.total, senderId, after, c.nextVersion());
+        }
+    }
+
+    public Snapshot clearSender(Long receiverId, Long senderId) {
+        if (!isNodeLocal()) return snapshotAfterReload(receiverId, senderId);
+        ReceiverCounts c = counts.computeIfAbsent(receiverId, id -> new ReceiverCounts());
+        synchronized (c) {
+            c.total = Math.max(0, c.total - c.bySender.remove(senderId));
+            return new Snapshot(c.total, senderId, 0, c.nextVersion());
+        }
+    }
+
+    // Replace all of a receiver's counters, e.g. after a recount
+    public Snapshot reset(Long receiverId, Map<Long, Long> bySender) {
+        ReceiverCounts c = counts.computeIfAbsent(receiverId, id -> new ReceiverCounts());
+        synchronized (c) {
+            fill(c, bySender);
+            return new Snapshot(c.total, null, 0, c.nextVersion());
+        }
+    }
+
+    public Snapshot clearAll(Long receiverId) {
+        if (!isNodeLocal()) return snapshotAfterReload(receiverId, null);
+        ReceiverCounts c = counts.computeIfAbsent(receiverId, id -> new ReceiverCounts());
+        synchronized (c) {
+            c.bySender.clear();
+            c.total = 0;
+            return new Snapshot(0, null, 0, c.nextVersion());
+        }
+    }
+
+    private boolean isNodeLocal() {
+        return !"relay".equalsIgnoreCase(brokerMode);
+    }
+
+    // Relay mode: the change is already committed, so the database holds the new numbers
+    private Snapshot snapshotAfterReload(Long receiverId, Long senderId) {
+        ReceiverCounts c = reload(receiverId);
+        synchronized (c) {
+            long fromSender = senderId != null ? c.bySender.get(senderId) : 0;
+            return new Snapshot(c.total, senderId, fromSender, c.nextVersion());
+        }
+    }
+
+    private ReceiverCounts reload(Long receiverId) {
+        List<Object[]> rows = notificationRepository.countUnreadForReceiver(receiverId);
+        ReceiverCounts c = counts.computeIfAbsent(receiverId, id -> new ReceiverCounts());
+        synchronized (c) {
+            c.bySender.clear();
+            c.total = 0;
+            for (Object[] row : rows) put(c, (Long) row[0], ((Number) row[1]).longValue());
+        }
+        return c;
+    }
+
+    private static void fill(ReceiverCounts c, Map<Long, Long> bySender) {
+        c.bySender.clear();
+        c.total = 0;
+        bySender.forEach((senderId, count) -> put(c, senderId, count));
+    }
+
+    private static void put(ReceiverCounts c, long senderId, long count) {
+        if (count <= 0) return;
+        c.bySender.put(senderId, count);
+        c.total += count;
+    }
+
+    /**
+     * Unread count per sender id: open addressing with linear probing over two long arrays,
+     * 0 marking a free slot (user ids start at 1). Removal shifts the following entries back
+     * instead of leaving tombstones, so clearing senders never slows lookups down. Not thread
+     * safe; guarded by the receiver's lock.
+     */
+    static final class CountsBySender {
+        private static final int INITIAL_CAPACITY = 8; // most receivers hear from a few senders
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        // 0 when the sender has no unread notifications
+        long get(long senderId) {
+            int mask = keys.length - 1;
+            for (int i = slot(senderId, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == senderId) return values[i];
+            }
+            return 0;
+        }
+
+        void put(long senderId, long count) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(senderId, mask);
+            while (keys[i] != 0 && keys[i] != senderId) i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                keys[i] = senderId;
+                size++;
+            }
+            values[i] = count;
+        }
+
+        // The removed count, 0 when there was none
+        long remove(long senderId) {
+            int mask = keys.length - 1;
+            int hole = slot(senderId, mask);
+            while (keys[hole] != senderId) {
+                if (keys[hole] == 0) return 0;
+                hole = (hole + 1) & mask;
+            }
+            long removed = values[hole];
+            size--;
+            // Pull back each following entry of the run that may live in the hole
+            for (int j = (hole + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = 0;
+            return removed;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            values = new long[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
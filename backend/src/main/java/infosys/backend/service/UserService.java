@@ -3,6 +3,7 @@ package infosys.backend.service;
 import infosys.backend.enums.Role;
 import infosys.backend.model.User;
 import infosys.backend.repository.BookingRepository;
+import infosys.backend.repository.DocumentJobRepository;
 import infosys.backend.repository.DocumentRepository;
 import infosys.backend.repository.ReportRepository;
 import infosys.backend.repository.ReviewRepository;
@@ -23,7 +24,9 @@ public class UserService {
     private final ReviewRepository reviewRepository;
     private final ServiceRepository serviceRepository;
     private final DocumentRepository documentRepository;
+    private final DocumentJobRepository documentJobRepository;
     private final ReportRepository reportRepository;
+    private final RouteOptimizerService routeOptimizerService;
 
     // 🔹 Read all users
     public List<User> getAllUsers() {
@@ -50,12 +53,18 @@ public class UserService {
         existing.setName(updatedUser.getName());
         existing.setEmail(updatedUser.getEmail());
         existing.setLocation(updatedUser.getLocation());
+        if (updatedUser.getLatitude() != null && updatedUser.getLongitude() != null) {
+            existing.setLatitude(updatedUser.getLatitude());
+            existing.setLongitude(updatedUser.getLongitude());
+        }
         existing.setRole(updatedUser.getRole());
         if (updatedUser.getPassword() != null && !updatedUser.getPassword().isBlank()) {
             existing.setPassword(updatedUser.getPassword());
         }
 
-        return userRepository.save(existing);
+        User saved = userRepository.save(existing);
+        routeOptimizerService.evictAll(); // location may have moved
+        return saved;
     }
 
     @Transactional
@@ -69,12 +78,14 @@ public void deleteUser(Long id) {
     reviewRepository.deleteByCustomerId(id);
     reviewRepository.deleteByProviderId(id);
     serviceRepository.deleteByProviderId(id);
+    documentJobRepository.deleteByProviderId(id);
     documentRepository.deleteByProviderId(id);
     reportRepository.deleteByReportedById(id);
     reportRepository.deleteByTargetId(id);
 
     // 2️⃣ Delete user
     userRepository.deleteById(id);
+    routeOptimizerService.evictAll();
 }
 
     public User findByUsername(String username) {
@@ -0,0 +1,252 @@
+package infosys.backend.config;
+
+import infosys.backend.BackendApplication;
+import infosys.backend.enums.Role;
+import infosys.backend.model.User;
+import infosys.backend.repository.UserRepository;
+import infosys.backend.security.JwtUtil;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🌐 websocket.broker.mode=relay against an embedded ActiveMQ (STOMP): two application nodes share
+ * the broker and the database, like two instances behind a load balancer.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BrokerRelayIntegrationTest {
+
+    private static BrokerService broker;
+    private static int brokerPort;
+    private static ConfigurableApplicationContext secondNode;
+
+    @LocalServerPort
+    private int firstNodePort;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) throws Exception {
+        startBroker();
+        registry.add("websocket.broker.mode", () -> "relay");
+        registry.add("websocket.broker.relay.host", () -> "127.0.0.1");
+        registry.add("websocket.broker.relay.port", () -> brokerPort);
+        registry.add("presence.sweep-interval-ms", () -> 1000);
+    }
+
+    @BeforeAll
+    static void startSecondNode() throws Exception {
+        startBroker();
+        // Command-line arguments, so they win over application.properties like the first node's do
+        secondNode = new SpringApplicationBuilder(BackendApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--websocket.broker.mode=relay",
+                        "--websocket.broker.relay.host=127.0.0.1",
+                        "--websocket.broker.relay.port=" + brokerPort,
+                        "--presence.sweep-interval-ms=1000");
+    }
+
+    @AfterAll
+    static void stopAll() throws Exception {
+        if (secondNode != null) secondNode.close();
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    private static synchronized void startBroker() throws Exception {
+        if (broker != null) return;
+        broker = new BrokerService();
+        broker.setBrokerName("relay-test");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        TransportConnector stomp = broker.addConnector("stomp://127.0.0.1:0");
+        broker.start();
+        broker.waitUntilStarted();
+        brokerPort = stomp.getConnectUri().getPort();
+    }
+
+    private int secondNodePort() {
+        return Integer.parseInt(secondNode.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private User createUser(Role role) {
+        String name = "relay-" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(name + "@test.local")
+                .password("x")
+                .role(role)
+                .location("Test")
+                .build());
+    }
+
+    private String tokenFor(User user) {
+        return jwtUtil.generateToken(user.getEmail(), user.getRole().name());
+    }
+
+    @Test
+    void chatMessageAndNotificationReachUserOnOtherNode() throws Exception {
+        User alice = createUser(Role.CUSTOMER);
+        User bob = createUser(Role.PROVIDER);
+
+        try (StompTestClient aliceClient = StompTestClient.connect(firstNodePort, tokenFor(alice));
+             StompTestClient bobClient = StompTestClient.connect(secondNodePort(), tokenFor(bob))) {
+            BlockingQueue<Map<String, Object>> bobMessages = bobClient.subscribe("/user/queue/messages");
+            BlockingQueue<Map<String, Object>> bobNotifications = bobClient.subscribe("/user/queue/notifications");
+            BlockingQueue<Map<String, Object>> aliceMessages = aliceClient.subscribe("/user/queue/messages");
+            Thread.sleep(500); // subscriptions travel through the broker
+
+            aliceClient.send("/app/chat.sendMessage", Map.of("receiverId", bob.getId(), "content", "hello from node 1"));
+
+            Map<String, Object> received = bobMessages.poll(10, TimeUnit.SECONDS);
+            assertNotNull(received, "message did not reach the receiver on the other node");
+            assertEquals("hello from node 1", received.get("content"));
+            assertEquals(alice.getId().intValue(), ((Number) received.get("senderId")).intValue());
+
+            Map<String, Object> echo = aliceMessages.poll(10, TimeUnit.SECONDS);
+            assertNotNull(echo, "sender did not get its own message back");
+            assertEquals(received.get("id"), echo.get("id"));
+
+            assertNotNull(pollUntil(bobNotifications, n -> !"UNREAD_COUNT".equals(n.get("type"))),
+                    "notification did not reach the receiver on the other node");
+        }
+    }
+
+    @Test
+    void nodesNeverHandOutTheSameSeq() throws Exception {
+        User alice = createUser(Role.CUSTOMER);
+        User bob = createUser(Role.PROVIDER);
+        int perSide = 10;
+
+        try (StompTestClient aliceClient = StompTestClient.connect(firstNodePort, tokenFor(alice));
+             StompTestClient bobClient = StompTestClient.connect(secondNodePort(), tokenFor(bob))) {
+            BlockingQueue<Map<String, Object>> aliceMessages = aliceClient.subscribe("/user/queue/messages");
+            Thread.sleep(500);
+
+            // Both sides write to the same conversation at once, each through its own node
+            for (int i = 0; i < perSide; i++) {
+                aliceClient.send("/app/chat.sendMessage", Map.of("receiverId", bob.getId(), "content", "a" + i));
+                bobClient.send("/app/chat.sendMessage", Map.of("receiverId", alice.getId(), "content", "b" + i));
+            }
+
+            Set<Long> seqs = new TreeSet<>();
+            for (int i = 0; i < 2 * perSide; i++) {
+                Map<String, Object> frame = aliceMessages.poll(10, TimeUnit.SECONDS);
+                assertNotNull(frame, "only " + i + " of " + 2 * perSide + " messages arrived");
+                seqs.add(((Number) frame.get("seq")).longValue());
+            }
+            assertEquals(LongStream.rangeClosed(1, 2 * perSide).boxed().toList(), List.copyOf(seqs));
+        }
+    }
+
+    @Test
+    void clientsCannotPublishOnServerTopics() throws Exception {
+        User carol = createUser(Role.CUSTOMER);
+        User watcher = createUser(Role.CUSTOMER);
+        User mallory = createUser(Role.CUSTOMER);
+
+        try (StompTestClient watcherClient = StompTestClient.connect(secondNodePort(), tokenFor(watcher));
+             StompTestClient malloryClient = StompTestClient.connect(firstNodePort, tokenFor(mallory))) {
+            BlockingQueue<Map<String, Object>> presence = watcherClient.subscribe("/topic/presence." + carol.getId());
+            Thread.sleep(500);
+
+            // Forged "carol is online" (and a forged chat message) are dropped by the inbound interceptor
+            malloryClient.send("/topic/presence." + carol.getId(), Map.of("userId", carol.getId(), "online", true));
+            malloryClient.send("/user/" + watcher.getEmail() + "/queue/messages", Map.of("content", "forged"));
+            assertNull(presence.poll(1500, TimeUnit.MILLISECONDS), "client SEND reached a server topic");
+            assertTrue(malloryClient.isConnected());
+
+            // The real thing still arrives: carol connects on node 1, the watcher hears it on node 2
+            try (StompTestClient carolClient = StompTestClient.connect(firstNodePort, tokenFor(carol))) {
+                Map<String, Object> online = presence.poll(10, TimeUnit.SECONDS);
+                assertNotNull(online, "presence change did not reach the other node");
+                assertEquals(Boolean.TRUE, online.get("online"));
+            }
+        }
+    }
+
+    @Test
+    void leavingOneNodeIsNotOfflineWhileAnotherNodeHasTheUser() throws Exception {
+        User dave = createUser(Role.PROVIDER);
+        User watcher = createUser(Role.CUSTOMER);
+
+        try (StompTestClient watcherClient = StompTestClient.connect(secondNodePort(), tokenFor(watcher));
+             StompTestClient daveOnNode2 = StompTestClient.connect(secondNodePort(), tokenFor(dave))) {
+            // Node 1 learns about node 2's users from the registry broadcast
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            while (userRegistry.getUser(dave.getEmail()) == null && System.nanoTime() < deadline) {
+                Thread.sleep(200);
+            }
+            assertNotNull(userRegistry.getUser(dave.getEmail()), "node 1 never saw the user on node 2");
+
+            BlockingQueue<Map<String, Object>> presence = watcherClient.subscribe("/topic/presence." + dave.getId());
+            Thread.sleep(500);
+
+            StompTestClient daveOnNode1 = StompTestClient.connect(firstNodePort, tokenFor(dave));
+            Thread.sleep(500);
+            daveOnNode1.close();
+            Map<String, Object> offline = pollUntil(presence, p -> Boolean.FALSE.equals(p.get("online")), 2);
+            assertNull(offline, "offline was published while the user is still connected to node 2");
+
+            // Gone from node 2 as well: offline arrives (node 2's view of node 1 may lag a registry broadcast)
+            daveOnNode2.close();
+            assertNotNull(pollUntil(presence, p -> Boolean.FALSE.equals(p.get("online")), 30),
+                    "offline never arrived after the last session closed");
+        }
+    }
+
+    private static Map<String, Object> pollUntil(BlockingQueue<Map<String, Object>> frames,
+                                                 java.util.function.Predicate<Map<String, Object>> wanted)
+            throws InterruptedException {
+        return pollUntil(frames, wanted, 10);
+    }
+
+    private static Map<String, Object> pollUntil(BlockingQueue<Map<String, Object>> frames,
+                                                 java.util.function.Predicate<Map<String, Object>> wanted,
+                                                 int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            Map<String, Object> frame = frames.poll(200, TimeUnit.MILLISECONDS);
+            if (frame != null && wanted.test(frame)) return frame;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package infosys.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import infosys.backend.dto.ChatNotificationDTO;
+import infosys.backend.dto.MessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 📦 Bytes per frame and serialization CPU for JSON frames and the compact CBOR frames that
+ * CompactFrameInterceptor sends to /ws-native sessions, for typical chat payloads.
+ *
+ * Run with: mvn test -Dbenchmarks=true -Dtest=CompactFrameBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CompactFrameBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 200_000;
+    private static final String SESSION = "bench-session";
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CompactFrameInterceptor interceptor = new CompactFrameInterceptor(new SimpleMeterRegistry());
+
+    @Test
+    void jsonVersusCompactCbor() throws Exception {
+        negotiateCbor();
+
+        Map<String, Object> payloads = new LinkedHashMap<>();
+        payloads.put("short message", message("On my way!"));
+        payloads.put("typical message", message("Hi, the kitchen tap is leaking again near the base. "
+                + "Could you come tomorrow between 10 and 12? The gate code is 4512."));
+        payloads.put("long message", message(("Flat 12B, Green Meadows Apartments, 3rd cross, near the temple. "
+                + "Please call before coming, the lift is under maintenance. ").repeat(5)));
+        payloads.put("notification", ChatNotificationDTO.builder()
+                .id(90211L).senderId(4711L).senderName("Priya Raman").receiverId(815L).receiverName("Arun Kumar")
+                .messageId(1234567L).messageContent("Hi, the kitchen tap is leaking again near the base.")
+                .collapsedCount(1).sentAt(LocalDateTime.of(2025, 10, 19, 10, 15, 30, 123_000_000))
+                .isRead(false).build());
+
+        // One round over every payload first, so the first row is not the one paying for the JIT
+        for (Object dto : payloads.values()) {
+            byte[] json = jsonMapper.writeValueAsBytes(dto);
+            nanosPerOp(() -> jsonMapper.writeValueAsBytes(dto).length);
+            nanosPerOp(() -> ((byte[]) interceptor.preSend(brokerFrame(json), null).getPayload()).length);
+        }
+
+        System.out.printf("%-16s %10s %10s %8s %14s %14s%n",
+                "payload", "json B", "cbor B", "saved", "json ns/op", "+cbor ns/op");
+        for (Map.Entry<String, Object> entry : payloads.entrySet()) {
+            Object dto = entry.getValue();
+            byte[] json = jsonMapper.writeValueAsBytes(dto);
+            byte[] cbor = (byte[]) interceptor.preSend(brokerFrame(json), null).getPayload();
+            assertTrue(cbor.length < json.length, "compact frame is not smaller");
+
+            double jsonNs = nanosPerOp(() -> jsonMapper.writeValueAsBytes(dto).length);
+            double cborNs = nanosPerOp(() -> ((byte[]) interceptor.preSend(brokerFrame(json), null).getPayload()).length);
+
+            System.out.printf("%-16s %10d %10d %7.1f%% %14.0f %14.0f%n", entry.getKey(), json.length, cbor.length,
+                    100.0 * (json.length - cbor.length) / json.length, jsonNs, cborNs);
+        }
+    }
+
+    private static MessageDTO message(String content) {
+        return new MessageDTO(1234567L, 4711L, "Priya Raman", 815L, "Arun Kumar", content,
+                LocalDateTime.of(2025, 10, 19, 10, 15, 30, 123_000_000), 42L);
+    }
+
+    // The CONNECT a /ws-native client sends with "payload-encoding: cbor"
+    private void negotiateCbor() {
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId(SESSION);
+        connect.setNativeHeader(CompactFrameInterceptor.ENCODING_HEADER, "cbor");
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(CompactFrameInterceptor.NATIVE_TRANSPORT_ATTR, true);
+        connect.setSessionAttributes(attributes);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), null);
+    }
+
+    // A JSON frame as the broker hands it to the outbound channel
+    private static Message<byte[]> brokerFrame(byte[] json) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(SESSION);
+        headers.setDestination("/user/queue/messages");
+        return MessageBuilder.createMessage(json, headers.getMessageHeaders());
+    }
+
+    private interface Op {
+        int run() throws Exception;
+    }
+
+    private static double nanosPerOp(Op op) throws Exception {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) sink += op.run();
+        long started = System.nanoTime();
+        for (int i = 0; i < MEASURED; i++) sink += op.run();
+        long elapsed = System.nanoTime() - started;
+        assertTrue(sink > 0);
+        return (double) elapsed / MEASURED;
+    }
+}
@@ -0,0 +1,100 @@
+package infosys.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 🧪 Minimal STOMP client for tests: connects to /ws-native with a JWT, collects JSON frames
+ * per subscription and sends JSON payloads with the Authorization header the controllers read.
+ */
+class StompTestClient implements AutoCloseable {
+
+    private static final WebSocketStompClient CLIENT = createClient();
+
+    private final StompSession session;
+    private final String token;
+
+    private StompTestClient(StompSession session, String token) {
+        this.session = session;
+        this.token = token;
+    }
+
+    static StompTestClient connect(int port, String token) throws Exception {
+        StompHeaders headers = new StompHeaders();
+        headers.add("Authorization", "Bearer " + token);
+        StompSession session = CLIENT.connectAsync("ws://localhost:" + port + "/ws-native",
+                new WebSocketHttpHeaders(), headers, new StompSessionHandlerAdapter() {
+                }).get(10, TimeUnit.SECONDS);
+        return new StompTestClient(session, token);
+    }
+
+    // Frames arriving on the destination, in order
+    BlockingQueue<Map<String, Object>> subscribe(String destination) {
+        BlockingQueue<Map<String, Object>> frames = new LinkedBlockingQueue<>();
+        subscribe(destination, frames::add);
+        return frames;
+    }
+
+    @SuppressWarnings("unchecked")
+    void subscribe(String destination, Consumer<Map<String, Object>> onFrame) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.add("Authorization", "Bearer " + token);
+        session.subscribe(headers, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onFrame.accept((Map<String, Object>) payload);
+            }
+        });
+    }
+
+    void send(String destination, Object payload) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.add("Authorization", "Bearer " + token);
+        session.send(headers, payload);
+    }
+
+    boolean isConnected() {
+        return session.isConnected();
+    }
+
+    @Override
+    public void close() {
+        if (session.isConnected()) session.disconnect();
+    }
+
+    private static WebSocketStompClient createClient() {
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(new ObjectMapper().registerModule(new JavaTimeModule()));
+        client.setMessageConverter(converter);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        client.setTaskScheduler(scheduler);
+        client.setDefaultHeartbeat(new long[] {10_000, 10_000});
+        return client;
+    }
+}
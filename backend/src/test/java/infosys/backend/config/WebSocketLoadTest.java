@@ -0,0 +1,234 @@
+package infosys.backend.config;
+
+import infosys.backend.enums.Role;
+import infosys.backend.model.User;
+import infosys.backend.repository.UserRepository;
+import infosys.backend.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🏋️ Delivery latency with thousands of concurrent STOMP sessions on /ws-native, while one
+ * client stops reading and is flooded with frames.
+ *
+ * Each round sends one frame to every session's /user/queue/load and records the time until
+ * it arrives. The flooded client must be closed as a slow consumer (websocket.transport.*)
+ * without holding up delivery to everyone else.
+ *
+ * Run with: mvn test -Dbenchmarks=true -Dtest=WebSocketLoadTest
+ * Options: -Dload.sessions=2000 -Dload.rounds=10 -Dload.virtual-threads=false -Dload.virtual-max-concurrency=1000
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WebSocketLoadTest {
+
+    private static final int SESSIONS = Integer.getInteger("load.sessions", 2000);
+    private static final int ROUNDS = Integer.getInteger("load.rounds", 10);
+    private static final int FLOOD_FRAMES_PER_ROUND = 2000; // ~2 MB, more than the socket buffers hold after a few rounds
+    private static final String PADDING = "x".repeat(1024);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void loadProperties(DynamicPropertyRegistry registry) {
+        registry.add("websocket.channel.virtual-threads", () -> System.getProperty("load.virtual-threads", "false"));
+        registry.add("websocket.channel.virtual-max-concurrency", () -> System.getProperty("load.virtual-max-concurrency", "1000"));
+        // Give up on a client that stops reading within a couple of seconds
+        registry.add("websocket.transport.send-time-limit-ms", () -> 2000);
+        registry.add("websocket.transport.send-buffer-size-limit", () -> 256 * 1024);
+        registry.add("presence.idle-timeout-ms", () -> 600_000);
+    }
+
+    @Test
+    void deliveryLatencyStaysFlatWithThousandsOfSessions() throws Exception {
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        List<User> users = new ArrayList<>(SESSIONS + 1);
+        for (int i = 0; i <= SESSIONS; i++) {
+            users.add(User.builder().name("load-" + i).email("load-" + runId + "-" + i + "@test.local")
+                    .password("x").role(Role.CUSTOMER).location("Test").build());
+        }
+        users = userRepository.saveAll(users);
+        User slow = users.remove(SESSIONS);
+
+        long[][] latencies = new long[ROUNDS][SESSIONS];
+        AtomicInteger[] received = new AtomicInteger[ROUNDS];
+        CountDownLatch[] roundDone = new CountDownLatch[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            received[r] = new AtomicInteger();
+            roundDone[r] = new CountDownLatch(SESSIONS);
+        }
+
+        List<StompTestClient> clients = connectAll(users, latencies, received, roundDone);
+        try (Socket slowClient = connectWithoutReading(jwtUtil.generateToken(slow.getEmail(), "CUSTOMER"))) {
+            awaitSubscriptions(SESSIONS + 1);
+
+            System.out.printf("%d sessions, virtual threads: %s%n", SESSIONS, System.getProperty("load.virtual-threads", "false"));
+            System.out.printf("%6s %10s %10s %10s %10s%n", "round", "delivered", "p50 ms", "p99 ms", "max ms");
+            for (int r = 0; r < ROUNDS; r++) {
+                // The client that does not read gets a burst of its own every round
+                for (int i = 0; i < FLOOD_FRAMES_PER_ROUND; i++) {
+                    messagingTemplate.convertAndSendToUser(slow.getEmail(), "/queue/load",
+                            Map.of("round", -1, "index", -1, "sentAt", System.nanoTime(), "padding", PADDING));
+                }
+                for (int i = 0; i < SESSIONS; i++) {
+                    messagingTemplate.convertAndSendToUser(users.get(i).getEmail(), "/queue/load",
+                            Map.of("round", r, "index", i, "sentAt", System.nanoTime(), "padding", PADDING));
+                }
+                roundDone[r].await(60, TimeUnit.SECONDS);
+
+                long[] sorted = Arrays.copyOf(latencies[r], received[r].get());
+                Arrays.sort(sorted);
+                System.out.printf("%6d %10d %10.1f %10.1f %10.1f%n", r, received[r].get(),
+                        millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 1.0));
+                assertEquals(SESSIONS, received[r].get(), "frames lost in round " + r);
+                Thread.sleep(200);
+            }
+
+            double slowClosed = 0;
+            for (int i = 0; i < 50 && slowClosed == 0; i++) {
+                Thread.sleep(200);
+                slowClosed = meterRegistry.get("websocket.sessions.slow-consumer-closed").counter().count();
+            }
+            System.out.printf("slow consumers closed: %.0f, rejected inbound/outbound: %.0f/%.0f%n", slowClosed,
+                    meterRegistry.get("websocket.channel.rejected").tag("channel", "inbound").counter().count(),
+                    meterRegistry.get("websocket.channel.rejected").tag("channel", "outbound").counter().count());
+            assertTrue(slowClosed >= 1, "the client that stopped reading was never closed");
+        } finally {
+            clients.forEach(StompTestClient::close);
+        }
+    }
+
+    private List<StompTestClient> connectAll(List<User> users, long[][] latencies, AtomicInteger[] received,
+                                             CountDownLatch[] roundDone) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<StompTestClient>> pending = new ArrayList<>(users.size());
+            for (User user : users) {
+                String token = jwtUtil.generateToken(user.getEmail(), "CUSTOMER");
+                pending.add(pool.submit(() -> {
+                    StompTestClient client = StompTestClient.connect(port, token);
+                    client.subscribe("/user/queue/load", frame -> {
+                        int round = ((Number) frame.get("round")).intValue();
+                        long latency = System.nanoTime() - ((Number) frame.get("sentAt")).longValue();
+                        latencies[round][received[round].getAndIncrement()] = latency;
+                        roundDone[round].countDown();
+                    });
+                    return client;
+                }));
+            }
+            List<StompTestClient> clients = new ArrayList<>(users.size());
+            for (Future<StompTestClient> f : pending) clients.add(f.get(60, TimeUnit.SECONDS));
+            return clients;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void awaitSubscriptions(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            if (userRegistry.findSubscriptions(s -> "/user/queue/load".equals(s.getDestination())).size() >= expected) return;
+            Thread.sleep(100);
+        }
+        throw new AssertionError("subscriptions did not register in time: "
+                + userRegistry.findSubscriptions(s -> "/user/queue/load".equals(s.getDestination())).size()
+                + " of " + expected + ", users " + userRegistry.getUserCount());
+    }
+
+    /**
+     * A bare WebSocket client that connects and subscribes, then never reads again, with a
+     * tiny receive buffer: a phone on a dead link, as far as the server can tell.
+     */
+    private Socket connectWithoutReading(String token) throws Exception {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /ws-native HTTP/1.1\r\nHost: localhost:" + port + "\r\nUpgrade: websocket\r\n"
+                + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        int matched = 0;
+        while (matched < 4) { // read up to the end of the handshake response
+            int b = in.read();
+            if (b < 0) throw new AssertionError("handshake failed");
+            matched = (b == "\r\n\r\n".charAt(matched)) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        writeText(out, "CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + token + "\n\n\0");
+        int b;
+        while ((b = in.read()) != 0) { // the CONNECTED frame
+            if (b < 0) throw new AssertionError("no CONNECTED frame");
+        }
+        writeText(out, "SUBSCRIBE\nid:0\ndestination:/user/queue/load\n\n\0");
+        return socket;
+    }
+
+    // Client-to-server frames must be masked; a zero mask keeps the payload as is
+    private static void writeText(OutputStream out, String text) throws Exception {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        out.write(0x81);
+        if (payload.length < 126) {
+            out.write(0x80 | payload.length);
+        } else {
+            out.write(0x80 | 126);
+            out.write(payload.length >> 8);
+            out.write(payload.length & 0xff);
+        }
+        out.write(new byte[4]);
+        out.write(payload);
+        out.flush();
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) return Double.NaN;
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,100 @@
+package infosys.backend.config;
+
+import infosys.backend.enums.Role;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.MessageRepository;
+import infosys.backend.repository.UserRepository;
+import infosys.backend.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ⚡ chat.persistence.mode=write-behind: messages are delivered before they are written, and the
+ * delivered copy must already carry the id the row gets.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "chat.persistence.mode=write-behind")
+class WriteBehindChatIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private User createUser(Role role) {
+        String name = "wb-" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(name + "@test.local")
+                .password("x")
+                .role(role)
+                .location("Test")
+                .build());
+    }
+
+    private String tokenFor(User user) {
+        return jwtUtil.generateToken(user.getEmail(), user.getRole().name());
+    }
+
+    @Test
+    void deliveredMessagesCarryTheirDatabaseIds() throws Exception {
+        User alice = createUser(Role.CUSTOMER);
+        User bob = createUser(Role.PROVIDER);
+
+        try (StompTestClient aliceClient = StompTestClient.connect(port, tokenFor(alice));
+             StompTestClient bobClient = StompTestClient.connect(port, tokenFor(bob))) {
+            BlockingQueue<Map<String, Object>> bobMessages = bobClient.subscribe("/user/queue/messages");
+            BlockingQueue<Map<String, Object>> aliceMessages = aliceClient.subscribe("/user/queue/messages");
+            Thread.sleep(300);
+
+            aliceClient.send("/app/chat.sendMessage", Map.of("receiverId", bob.getId(), "content", "first"));
+            aliceClient.send("/app/chat.sendMessage", Map.of("receiverId", bob.getId(), "content", "second"));
+
+            Map<String, Object> first = bobMessages.poll(10, TimeUnit.SECONDS);
+            Map<String, Object> second = bobMessages.poll(10, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertNotNull(second);
+            assertNotNull(first.get("id"), "write-behind delivered a message without an id");
+            assertEquals(first.get("id"), aliceMessages.poll(10, TimeUnit.SECONDS).get("id"));
+            long firstId = ((Number) first.get("id")).longValue();
+            long secondId = ((Number) second.get("id")).longValue();
+            assertTrue(secondId > firstId, "ids of one conversation should grow in send order");
+
+            // The rows show up under the delivered ids once the writer has flushed
+            assertEquals("first", awaitRow(firstId).getContent());
+            assertEquals("second", awaitRow(secondId).getContent());
+        }
+    }
+
+    private Message awaitRow(long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Optional<Message> row = messageRepository.findById(id);
+            if (row.isPresent()) return row.get();
+            Thread.sleep(50);
+        }
+        throw new AssertionError("message " + id + " was not persisted");
+    }
+}
@@ -0,0 +1,111 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * What every BlobStore has to do, whichever documents.storage.type is configured.
+ * One subclass per implementation supplies the store.
+ */
+abstract class BlobStoreContractTest {
+
+    @TempDir
+    Path tempDir;
+
+    abstract BlobStore store();
+
+    static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] read(BlobStore store, String key, long offset, long length) throws IOException {
+        try (InputStream in = store.open(key, offset, length)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void storedBlobIsReadBackWholeAndInRanges() throws IOException {
+        byte[] data = bytes("0123456789abcdef");
+        store().put("blobs/aa/one.pdf", new ByteArrayInputStream(data), data.length, "application/pdf");
+
+        assertArrayEquals(data, read(store(), "blobs/aa/one.pdf", 0, data.length));
+        assertArrayEquals(bytes("3456"), read(store(), "blobs/aa/one.pdf", 3, 4));
+        assertArrayEquals(bytes("f"), read(store(), "blobs/aa/one.pdf", 15, 1));
+    }
+
+    @Test
+    void statReportsSizeAndNothingForMissingBlobs() throws IOException {
+        byte[] data = bytes("hello");
+        store().put("blobs/bb/two.txt", new ByteArrayInputStream(data), data.length, "text/plain");
+
+        BlobStore.BlobInfo info = store().stat("blobs/bb/two.txt");
+        assertNotNull(info);
+        assertEquals(5, info.size());
+        assertNotNull(info.lastModified());
+        assertTrue(store().exists("blobs/bb/two.txt"));
+
+        assertNull(store().stat("blobs/bb/missing.txt"));
+        assertFalse(store().exists("blobs/bb/missing.txt"));
+    }
+
+    @Test
+    void sizeMayBeUnknown() throws IOException {
+        byte[] data = bytes("no size given");
+        store().put("blobs/cc/three.txt", new ByteArrayInputStream(data), -1, null);
+        assertArrayEquals(data, read(store(), "blobs/cc/three.txt", 0, data.length));
+    }
+
+    @Test
+    void putReplacesWhatWasStored() throws IOException {
+        store().put("blobs/dd/four.txt", new ByteArrayInputStream(bytes("first version")), 13, "text/plain");
+        read(store(), "blobs/dd/four.txt", 0, 13);
+        store().put("blobs/dd/four.txt", new ByteArrayInputStream(bytes("second")), 6, "text/plain");
+
+        assertEquals(6, store().stat("blobs/dd/four.txt").size());
+        assertArrayEquals(bytes("second"), read(store(), "blobs/dd/four.txt", 0, 6));
+    }
+
+    @Test
+    void deleteRemovesTheBlobAndIgnoresMissingOnes() throws IOException {
+        byte[] data = bytes("short lived");
+        store().put("blobs/ee/five.txt", new ByteArrayInputStream(data), data.length, "text/plain");
+        read(store(), "blobs/ee/five.txt", 0, data.length);
+
+        store().delete("blobs/ee/five.txt");
+        assertNull(store().stat("blobs/ee/five.txt"));
+        assertThrows(IOException.class, () -> read(store(), "blobs/ee/five.txt", 0, data.length));
+
+        store().delete("blobs/ee/five.txt");
+    }
+
+    @Test
+    void putFileStoresTheStagedFile() throws IOException {
+        Path staged = Files.write(tempDir.resolve("staged.part"), bytes("staged upload"));
+        store().putFile("blobs/ff/six.txt", staged, "text/plain");
+        assertArrayEquals(bytes("staged upload"), read(store(), "blobs/ff/six.txt", 0, 13));
+    }
+
+    @Test
+    void keysThatCouldLeaveTheStoreAreRejected() {
+        for (String key : new String[] {"../escape.txt", "/absolute.txt", "blobs//double.txt", "blobs\\win.txt"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> store().put(key, new ByteArrayInputStream(bytes("x")), 1, null), key);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package infosys.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 🗜️ Storage savings and cost of chat text compression: stored size as a share of the raw
+ * UTF-8 size, plus encode and decode time per text, for each min-bytes setting with and
+ * without a trained dictionary.
+ *
+ * The corpus is synthetic (service-booking chat built from phrases, most texts short, some long
+ * job descriptions), so the dictionary numbers are on the optimistic side; train on real history
+ * to know for sure.
+ *
+ * Run with: mvn test -Dbenchmarks=true -Dtest=ChatCompressionBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ChatCompressionBenchmark {
+
+    private static final int TRAINING_TEXTS = 20_000;
+    private static final int MEASURED_TEXTS = 20_000;
+    private static final int ROUNDS = 5;
+
+    private static final String[] PHRASES = {
+            "Hi, is the booking for tomorrow still on?",
+            "I can come by at {n}:30 to have a look at the {thing}.",
+            "The {thing} in the {room} has been leaking since last week.",
+            "Please bring the spare parts for the {thing}, the old ones are worn out.",
+            "Thanks for the quick fix, everything works again!",
+            "Could you send me a quote before starting the work on the {thing}?",
+            "I'm running about {n}{n} minutes late because of traffic, sorry.",
+            "The gate code is {n}{n}{n}{n}, the flat is on the {floor} floor.",
+            "Payment is done, you should see it in the app.",
+            "Can we move the appointment to {day} afternoon instead?",
+            "I noticed some damage near the {thing}, I'll take a photo and upload it.",
+            "The total comes to Rs. {n}{n}{n}0 including parts and labour.",
+            "Please make sure the power is switched off before I arrive.",
+            "Does the warranty cover the {thing} in the {room} as well?",
+            "Great, see you on {day} then.",
+    };
+    private static final String[] THINGS = {"kitchen tap", "bathroom sink", "water heater", "ceiling fan",
+            "washing machine", "air conditioner", "main switchboard", "balcony door", "wardrobe hinge", "geyser"};
+    private static final String[] ROOMS = {"kitchen", "bathroom", "bedroom", "hall", "balcony", "utility area"};
+    private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
+    private static final String[] FLOORS = {"first", "second", "third", "fourth"};
+
+    @Test
+    void storageSavingsAndDecodeCost() {
+        Random random = new Random(42);
+        List<String> training = corpus(random, TRAINING_TEXTS);
+        List<String> texts = corpus(random, MEASURED_TEXTS);
+        long rawBytes = 0;
+        for (String t : texts) rawBytes += t.getBytes(StandardCharsets.UTF_8).length;
+
+        System.out.printf("%10s %10s %10s %12s %12s %12s%n",
+                "min-bytes", "dict", "stored %", "compressed", "encode us", "decode us");
+        for (int minBytes : new int[] {64, 128, 256, 512}) {
+            for (boolean dictionary : new boolean[] {false, true}) {
+                ChatContentCodec codec = codec(minBytes);
+                if (dictionary) codec.train(training);
+
+                String[] stored = new String[texts.size()];
+                long encodeNanos = 0;
+                long decodeNanos = 0;
+                for (int round = 0; round <= ROUNDS; round++) {
+                    long started = System.nanoTime();
+                    for (int i = 0; i < texts.size(); i++) stored[i] = codec.encode(texts.get(i));
+                    long encoded = System.nanoTime();
+                    for (int i = 0; i < texts.size(); i++) assertEquals(texts.get(i), codec.decode(stored[i]));
+                    // Round 0 warms up
+                    if (round > 0) {
+                        encodeNanos += encoded - started;
+                        decodeNanos += System.nanoTime() - encoded;
+                    }
+                }
+
+                long storedBytes = 0;
+                int compressed = 0;
+                for (String s : stored) {
+                    storedBytes += s.getBytes(StandardCharsets.UTF_8).length;
+                    if (codec.isCompressed(s)) compressed++;
+                }
+                long operations = (long) ROUNDS * texts.size();
+                System.out.printf("%10d %10s %9.1f%% %12d %12.2f %12.2f%n", minBytes, dictionary ? "trained" : "none",
+                        100.0 * storedBytes / rawBytes, compressed,
+                        encodeNanos / 1_000.0 / operations, decodeNanos / 1_000.0 / operations);
+            }
+        }
+        System.out.println("(" + texts.size() + " texts, " + rawBytes + " raw bytes; times are per text, all texts)");
+    }
+
+    private static ChatContentCodec codec(int minBytes) {
+        ChatContentCodec codec = new ChatContentCodec(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(codec, "enabled", true);
+        ReflectionTestUtils.setField(codec, "minBytes", minBytes);
+        ReflectionTestUtils.setField(codec, "level", 3);
+        ReflectionTestUtils.setField(codec, "dictionaryDir", "target/bench-chat-dictionaries/" + System.nanoTime());
+        ReflectionTestUtils.setField(codec, "dictionarySetting", "none");
+        ReflectionTestUtils.setField(codec, "dictionarySize", 65536);
+        codec.init();
+        return codec;
+    }
+
+    // Mostly one or two phrases; one in ten is a long job description of 6-30 phrases
+    private static List<String> corpus(Random random, int count) {
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int phrases = random.nextInt(10) == 0 ? 6 + random.nextInt(25) : 1 + random.nextInt(2);
+            StringBuilder text = new StringBuilder();
+            for (int p = 0; p < phrases; p++) {
+                if (p > 0) text.append(' ');
+                text.append(phrase(random));
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+    private static String phrase(Random random) {
+        String text = PHRASES[random.nextInt(PHRASES.length)];
+        while (text.contains("{n}")) text = text.replaceFirst("\\{n}", String.valueOf(random.nextInt(10)));
+        return text.replace("{thing}", THINGS[random.nextInt(THINGS.length)])
+                .replace("{room}", ROOMS[random.nextInt(ROOMS.length)])
+                .replace("{day}", DAYS[random.nextInt(DAYS.length)])
+                .replace("{floor}", FLOORS[random.nextInt(FLOORS.length)]);
+    }
+}
@@ -0,0 +1,103 @@
+package infosys.backend.service;
+
+import com.github.luben.zstd.Zstd;
+import infosys.backend.enums.Role;
+import infosys.backend.model.User;
+import infosys.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ChatCompressionServiceTest {
+
+    @Autowired
+    private ChatCompressionService compressionService;
+
+    @Autowired
+    private ChatContentCodec codec;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rowsThatWouldOutgrowTheirColumnAreLeftAlone() {
+        long width = ReflectionTestUtils.invokeMethod(compressionService, "columnWidth", "chat_notifications", "message_content");
+        assertEquals(255, width);
+        long messageWidth = ReflectionTestUtils.invokeMethod(compressionService, "columnWidth", "message", "content");
+        assertTrue(messageWidth > 255);
+
+        User sender = user();
+        User receiver = user();
+        String longText = "a".repeat(600);
+        String longStored = compressed(longText);
+        String shortStored = compressed("hello there");
+        long longId = insertNotification(sender, receiver, longStored);
+        long shortId = insertNotification(sender, receiver, shortStored);
+
+        boolean enabled = (boolean) ReflectionTestUtils.getField(codec, "enabled");
+        ReflectionTestUtils.setField(codec, "enabled", false);
+        try {
+            ReflectionTestUtils.invokeMethod(compressionService, "recompressTable", "chat_notifications", "message_content");
+        } finally {
+            ReflectionTestUtils.setField(codec, "enabled", enabled);
+        }
+
+        // 600 characters do not fit VARCHAR(255): still compressed, still readable
+        assertEquals(longStored, content(longId));
+        assertEquals(longText, codec.decode(content(longId)));
+        assertEquals("hello there", content(shortId));
+    }
+
+    private static String compressed(String text) {
+        byte[] frame = Zstd.compress(text.getBytes(StandardCharsets.UTF_8), 3);
+        return "\u0001z" + Base64.getEncoder().withoutPadding().encodeToString(frame);
+    }
+
+    private User user() {
+        String name = "zstd-" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder().name(name).email(name + "@test.local")
+                .password("x").role(Role.CUSTOMER).location("Test").build());
+    }
+
+    private long insertNotification(User sender, User receiver, String stored) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO chat_notifications (sender_id, receiver_id, "
+                    + "message_content, collapsed_count, sent_at, is_read, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, 1, ?, FALSE, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, sender.getId());
+            ps.setLong(2, receiver.getId());
+            ps.setString(3, stored);
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    private String content(long id) {
+        return jdbcTemplate.queryForObject("SELECT message_content FROM chat_notifications WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,190 @@
+package infosys.backend.service;
+
+import infosys.backend.model.ChatDeadLetter;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.ChatDeadLetterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatPersistencePipelineTest {
+
+    private final User alice = User.builder().id(1L).name("alice").build();
+    private final User bob = User.builder().id(2L).name("bob").build();
+
+    private final MessageStore messageStore = mock(MessageStore.class);
+    private final ChatNotificationService notificationService = mock(ChatNotificationService.class);
+    private final ChatDeadLetterRepository deadLetterRepository = mock(ChatDeadLetterRepository.class);
+    private final NotificationDigestService digestService = mock(NotificationDigestService.class);
+    private final NotificationDeduplicator deduplicator = mock(NotificationDeduplicator.class);
+
+    // Counts the transactions the pipeline runs
+    private final AtomicInteger transactions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(deduplicator.tryAcquire(anyLong(), anyLong(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void fullBufferRejectsAfterTheTimeoutAndForgetsThePendingSeq() {
+        ChatPersistencePipeline pipeline = pipeline(1, 20);
+
+        assertTrue(pipeline.submit(message(1, "m1")));
+        long started = System.nanoTime();
+        assertFalse(pipeline.submit(message(2, "m2")));
+        long waitedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(waitedMs >= 15, "gave up before the enqueue timeout: " + waitedMs + " ms");
+        assertEquals(1, pipeline.getRejectedCount());
+        assertEquals(1, pipeline.getBacklog());
+        // Seq 2 goes back to the lane, so only seq 1 is still waiting to be written
+        assertEquals(1, pipeline.getPendingSeq(1, 2));
+    }
+
+    @Test
+    void interruptedSenderIsRejectedAndKeepsItsInterruptFlag() {
+        ChatPersistencePipeline pipeline = pipeline(1, 10_000);
+        assertTrue(pipeline.submit(message(1, "m1")));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(pipeline.submit(message(2, "m2")));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(1, pipeline.getRejectedCount());
+    }
+
+    @Test
+    void refusedMessageIsDeadLetteredAndTheRestOfTheBatchIsWritten() {
+        ChatPersistencePipeline pipeline = pipeline(16, 10);
+        doAnswer(inv -> {
+            List<Message> batch = inv.getArgument(0);
+            if (batch.stream().anyMatch(m -> m.getContent().equals("bad"))) {
+                throw new DataIntegrityViolationException("Data too long for column 'content'");
+            }
+            return null;
+        }).when(messageStore).appendAll(any());
+
+        List<Message> batch = List.of(message(1, "m1"), message(2, "bad"), message(3, "m3"));
+        batch.forEach(pipeline::submit);
+        flush(pipeline, batch);
+
+        assertEquals(2, pipeline.getPersistedCount());
+        assertEquals(1, pipeline.getDeadLetterCount());
+        verify(notificationService, times(2)).publish(any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChatDeadLetter>> rows = ArgumentCaptor.forClass(List.class);
+        verify(deadLetterRepository).saveAll(rows.capture());
+        ChatDeadLetter row = rows.getValue().get(0);
+        assertEquals(2L, row.getMessageId());
+        assertEquals("bad", row.getContent());
+        assertTrue(row.getError().contains("Data too long"));
+        // Nothing of the batch is left pending, written or not
+        assertEquals(0, pipeline.getPendingSeq(1, 2));
+    }
+
+    @Test
+    void transientErrorsAreRetriedPastTheAttemptLimit() {
+        ChatPersistencePipeline pipeline = pipeline(16, 10);
+        ReflectionTestUtils.setField(pipeline, "running", true);
+        AtomicInteger failuresLeft = new AtomicInteger(4);
+        doAnswer(inv -> {
+            if (failuresLeft.getAndDecrement() > 0) throw new TransientDataAccessResourceException("connection lost");
+            return null;
+        }).when(messageStore).appendAll(any());
+
+        flush(pipeline, List.of(message(1, "m1"), message(2, "m2")));
+
+        assertEquals(2, pipeline.getPersistedCount());
+        assertEquals(4, pipeline.getFailedCommitCount());
+        assertEquals(0, pipeline.getDeadLetterCount());
+    }
+
+    @Test
+    void databaseDownAtShutdownGivesUpAndLogsTheRest() {
+        ChatPersistencePipeline pipeline = pipeline(16, 10);
+        ReflectionTestUtils.setField(pipeline, "running", false);
+        doAnswer(inv -> {
+            throw new TransientDataAccessResourceException("connection refused");
+        }).when(messageStore).appendAll(any());
+
+        flush(pipeline, List.of(message(1, "m1")));
+        int afterFirstBatch = transactions.get();
+        flush(pipeline, List.of(message(2, "m2")));
+
+        assertEquals(3, afterFirstBatch);
+        assertEquals(afterFirstBatch, transactions.get(), "second batch should not try the database again");
+        assertEquals(2, pipeline.getDeadLetterCount());
+        verify(deadLetterRepository, never()).saveAll(any());
+    }
+
+    // No writer thread: nothing drains the buffer, tests call flush directly
+    private ChatPersistencePipeline pipeline(int capacity, long enqueueTimeoutMs) {
+        ChatPersistencePipeline pipeline = new ChatPersistencePipeline(
+                mock(ConversationService.class), notificationService, mock(MessageSearchService.class), digestService,
+                mock(ChatBatchRepository.class), deadLetterRepository, messageStore, deduplicator, transactionTemplate());
+        ReflectionTestUtils.setField(pipeline, "buffer", new ArrayBlockingQueue<Message>(capacity));
+        ReflectionTestUtils.setField(pipeline, "enqueueTimeoutMs", enqueueTimeoutMs);
+        return pipeline;
+    }
+
+    private static void flush(ChatPersistencePipeline pipeline, List<Message> batch) {
+        ReflectionTestUtils.invokeMethod(pipeline, "flush", new ArrayList<>(batch));
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                transactions.incrementAndGet();
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        });
+    }
+
+    private Message message(long seq, String content) {
+        return Message.builder().id(seq).sender(alice).receiver(bob).content(content)
+                .sentAt(LocalDateTime.now()).seq(seq).build();
+    }
+}
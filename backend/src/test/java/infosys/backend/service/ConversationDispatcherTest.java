@@ -0,0 +1,55 @@
+package infosys.backend.service;
+
+import infosys.backend.repository.ConversationRepository;
+import infosys.backend.repository.ConversationSeqRepository;
+import infosys.backend.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class ConversationDispatcherTest {
+
+    private ConversationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new ConversationDispatcher(mock(ConversationRepository.class), mock(ConversationSeqRepository.class),
+                mock(MessageRepository.class), mock(ChatPersistencePipeline.class), new SimpleMeterRegistry(),
+                mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(dispatcher, "laneCount", 1);
+        ReflectionTestUtils.setField(dispatcher, "laneCapacity", 16);
+        ReflectionTestUtils.setField(dispatcher, "seqCacheSize", 16);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void errorInATaskFailsItsFutureAndKeepsTheLaneRunning() throws Exception {
+        CompletableFuture<Long> broken = dispatcher.dispatch(1L, 2L, seq -> {
+            throw new StackOverflowError("boom");
+        });
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> broken.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(StackOverflowError.class, failure.getCause());
+
+        // Same lane still works, and the failed task's number is handed out again
+        assertEquals(1L, dispatcher.dispatch(1L, 2L, seq -> seq).get(5, TimeUnit.SECONDS));
+        assertEquals(2L, dispatcher.dispatch(2L, 1L, seq -> seq).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,178 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentDownloadServiceTest {
+
+    private static final String SHA = "ab".repeat(32);
+    private static final String KEY = "blobs/ab/ab/" + SHA + ".pdf";
+    private static final String LEGACY_KEY = "legacy/scan.pdf";
+    private static final String BODY = "0123456789";
+
+    private final InMemoryBlobStore store = new InMemoryBlobStore();
+    private final DocumentDownloadService downloads = new DocumentDownloadService(store);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(downloads, "sendfileMinBytes", 49152L);
+        store.put(KEY, new ByteArrayInputStream(bytes(BODY)), 10, "application/pdf");
+        store.put(LEGACY_KEY, new ByteArrayInputStream(bytes(BODY)), 10, "application/pdf");
+    }
+
+    @Test
+    void wholeFileWithStrongEtagAndImmutableCaching() throws IOException {
+        MockHttpServletResponse r = get(KEY, null, null);
+
+        assertEquals(200, r.getStatus());
+        assertEquals(BODY, r.getContentAsString());
+        assertEquals("\"" + SHA + "\"", r.getHeader("ETag"));
+        assertEquals("bytes", r.getHeader("Accept-Ranges"));
+        assertTrue(r.getHeader("Cache-Control").contains("immutable"));
+        assertEquals("application/pdf", r.getContentType());
+        assertEquals(10, r.getContentLengthLong());
+    }
+
+    @Test
+    void singleRangesAreServedAsPartialContent() throws IOException {
+        assertPartial("bytes=2-5", "2345", "bytes 2-5/10");
+        assertPartial("bytes=7-", "789", "bytes 7-9/10");
+        assertPartial("bytes=-3", "789", "bytes 7-9/10");
+        assertPartial("bytes=-30", BODY, "bytes 0-9/10");
+        assertPartial("bytes=8-100", "89", "bytes 8-9/10");
+        assertPartial(" bytes=0-0 ", "0", "bytes 0-0/10");
+    }
+
+    @Test
+    void rangesOutsideTheFileAreNotSatisfiable() throws IOException {
+        for (String range : new String[] {"bytes=10-", "bytes=12-20", "bytes=5-3", "bytes=-0"}) {
+            MockHttpServletResponse r = get(KEY, range, null);
+            assertEquals(416, r.getStatus(), range);
+            assertEquals("bytes */10", r.getHeader("Content-Range"), range);
+            assertEquals("", r.getContentAsString(), range);
+        }
+    }
+
+    @Test
+    void rangesWeDoNotHonourGetTheWholeFile() throws IOException {
+        for (String range : new String[] {"bytes=0-1,4-5", "bytes=-", "items=0-1", "bytes=99999999999999999999-",
+                "bytes=0-99999999999999999999"}) {
+            MockHttpServletResponse r = get(KEY, range, null);
+            assertEquals(200, r.getStatus(), range);
+            assertEquals(BODY, r.getContentAsString(), range);
+            assertNull(r.getHeader("Content-Range"), range);
+        }
+    }
+
+    @Test
+    void ifRangeNeedsTheExactStrongEtag() throws IOException {
+        assertEquals(206, get(KEY, "bytes=0-1", "\"" + SHA + "\"").getStatus());
+        assertEquals(206, get(KEY, "bytes=0-1", " \"" + SHA + "\" ").getStatus());
+        assertEquals(200, get(KEY, "bytes=0-1", "\"" + "cd".repeat(32) + "\"").getStatus());
+        assertEquals(200, get(KEY, "bytes=0-1", "W/\"" + SHA + "\"").getStatus());
+        assertEquals(200, get(KEY, "bytes=0-1", "Tue, 01 Oct 2024 10:00:00 GMT").getStatus());
+
+        // Flat uploads have weak tags, which never satisfy If-Range, even when echoed back verbatim
+        MockHttpServletResponse legacy = get(LEGACY_KEY, null, null);
+        String weak = legacy.getHeader("ETag");
+        assertTrue(weak.startsWith("W/"));
+        assertEquals(200, get(LEGACY_KEY, "bytes=0-1", weak).getStatus());
+        assertEquals(206, get(LEGACY_KEY, "bytes=0-1", null).getStatus());
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() throws IOException {
+        MockHttpServletRequest request = request(KEY);
+        request.addHeader("If-None-Match", "\"other\", W/\"" + SHA + "\"");
+        MockHttpServletResponse r = new MockHttpServletResponse();
+        downloads.serve(KEY, "scan.pdf", request, r);
+        assertEquals(304, r.getStatus());
+        assertEquals("", r.getContentAsString());
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = request(KEY);
+        request.setMethod("HEAD");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse r = new MockHttpServletResponse();
+        downloads.serve(KEY, "scan.pdf", request, r);
+
+        assertEquals(206, r.getStatus());
+        assertEquals(4, r.getContentLengthLong());
+        assertEquals("", r.getContentAsString());
+    }
+
+    @Test
+    void missingOrInvalidKeysAreNotFound() throws IOException {
+        assertEquals(404, get("blobs/ab/ab/" + "cd".repeat(32) + ".pdf", null, null).getStatus());
+        assertEquals(404, get("../etc/passwd", null, null).getStatus());
+    }
+
+    @Test
+    void localFilesGoThroughSendfileWhenTheConnectorOffersIt(@TempDir Path dir) throws IOException {
+        LocalBlobStore local = new LocalBlobStore(dir.toString());
+        local.put(KEY, new ByteArrayInputStream(bytes(BODY)), 10, "application/pdf");
+        DocumentDownloadService service = new DocumentDownloadService(local);
+        ReflectionTestUtils.setField(service, "sendfileMinBytes", 4L);
+
+        MockHttpServletRequest request = request(KEY);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-7");
+        MockHttpServletResponse r = new MockHttpServletResponse();
+        service.serve(KEY, "scan.pdf", request, r);
+
+        assertEquals(206, r.getStatus());
+        assertEquals(dir.resolve(KEY).toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(8L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals("", r.getContentAsString());
+
+        // Too small for sendfile: copied through the channel instead
+        ReflectionTestUtils.setField(service, "sendfileMinBytes", 49152L);
+        MockHttpServletRequest small = request(KEY);
+        small.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        small.addHeader("Range", "bytes=2-7");
+        MockHttpServletResponse copied = new MockHttpServletResponse();
+        service.serve(KEY, "scan.pdf", small, copied);
+        assertEquals("234567", copied.getContentAsString());
+    }
+
+    private void assertPartial(String range, String body, String contentRange) throws IOException {
+        MockHttpServletResponse r = get(KEY, range, null);
+        assertEquals(206, r.getStatus(), range);
+        assertEquals(contentRange, r.getHeader("Content-Range"), range);
+        assertEquals(body, r.getContentAsString(), range);
+        assertEquals(body.length(), r.getContentLengthLong(), range);
+    }
+
+    private MockHttpServletResponse get(String key, String range, String ifRange) throws IOException {
+        MockHttpServletRequest request = request(key);
+        if (range != null) request.addHeader("Range", range);
+        if (ifRange != null) request.addHeader("If-Range", ifRange);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloads.serve(key, "scan.pdf", request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String key) {
+        return new MockHttpServletRequest("GET", DocumentUrlSigner.PREFIX + key);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
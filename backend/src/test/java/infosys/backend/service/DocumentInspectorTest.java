@@ -0,0 +1,102 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DocumentInspectorTest {
+
+    private DocumentInspector inspector;
+
+    @BeforeEach
+    void setUp() {
+        inspector = new DocumentInspector();
+        ReflectionTestUtils.setField(inspector, "thumbnailPx", 64);
+    }
+
+    @Test
+    void imageSizeAndPreviewAreReadFromTheStream() throws IOException {
+        byte[] png = png(640, 480);
+        DocumentInspector.Inspection result = inspector.inspect(() -> new ByteArrayInputStream(png), "image/png");
+
+        assertEquals(DocumentInspector.PNG, result.detectedType());
+        assertEquals(640, result.width());
+        assertEquals(480, result.height());
+        assertNotNull(result.thumbnail());
+        BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(result.thumbnail()));
+        assertEquals(64, thumb.getWidth());
+        assertEquals(48, thumb.getHeight());
+    }
+
+    @Test
+    void pdfIsOnlyCheckedByItsHeader() throws IOException {
+        byte[] pdf = "%PDF-1.7\n1 0 obj << /Type /Pages /Count 3 >> endobj".getBytes(StandardCharsets.ISO_8859_1);
+        DocumentInspector.Inspection result = inspector.inspect(() -> new ByteArrayInputStream(pdf), "application/pdf");
+
+        assertEquals(DocumentInspector.PDF, result.detectedType());
+        assertNull(result.width());
+        assertNull(result.thumbnail());
+    }
+
+    @Test
+    void contentMustMatchWhatWasDeclared() throws IOException {
+        byte[] png = png(10, 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> inspector.inspect(() -> new ByteArrayInputStream(png), "application/pdf"));
+        assertThrows(IllegalArgumentException.class,
+                () -> inspector.inspect(() -> new ByteArrayInputStream("plain text".getBytes()), null));
+    }
+
+    @Test
+    void truncatedImageIsRejected() throws IOException {
+        byte[] cut = Arrays.copyOf(png(10, 10), 12);
+        assertThrows(IllegalArgumentException.class,
+                () -> inspector.inspect(() -> new ByteArrayInputStream(cut), "image/png"));
+    }
+
+    @Test
+    void storageErrorStaysAnIOException() throws IOException {
+        byte[] png = png(200, 200);
+        // Type check succeeds, then the stored file breaks off while the image is read
+        IOException e = assertThrows(IOException.class, () -> inspector.inspect(
+                () -> new FailingStream(png, 40), "image/png"));
+        assertEquals("connection reset", e.getMessage());
+    }
+
+    private static byte[] png(int w, int h) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static final class FailingStream extends InputStream {
+        private final byte[] data;
+        private final int failAt;
+        private int pos;
+
+        FailingStream(byte[] data, int failAt) {
+            this.data = data;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= failAt) throw new IOException("connection reset");
+            return pos < data.length ? data[pos++] & 0xff : -1;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package infosys.backend.service;
+
+import infosys.backend.enums.Role;
+import infosys.backend.model.Document;
+import infosys.backend.model.User;
+import infosys.backend.repository.DocumentContentRepository;
+import infosys.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DocumentServiceTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private DocumentContentRepository documentContentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User provider;
+
+    @BeforeEach
+    void setUp() {
+        String name = "docs-" + UUID.randomUUID().toString().substring(0, 8);
+        provider = userRepository.save(User.builder().name(name).email(name + "@test.local")
+                .password("x").role(Role.PROVIDER).location("Test").build());
+    }
+
+    @Test
+    void sharedBlobIsDeletedWithItsLastDocument() throws Exception {
+        byte[] content = ("%PDF-1.4 shared " + UUID.randomUUID()).getBytes(StandardCharsets.ISO_8859_1);
+        Document first = documentService.uploadDocument(provider.getId(), pdf("a.pdf", content));
+        Document second = documentService.uploadDocument(provider.getId(), pdf("b.pdf", content));
+        assertEquals(first.getFileUrl(), second.getFileUrl());
+
+        documentService.deleteDocument(first.getId());
+        assertTrue(blobStore.exists(second.getFileUrl()), "blob deleted while another document uses it");
+
+        documentService.deleteDocument(second.getId());
+        assertFalse(blobStore.exists(second.getFileUrl()));
+    }
+
+    @Test
+    void contentLockHoldsOffOtherInstancesUntilCommit() throws Exception {
+        String sha256 = "ab".repeat(32);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Stands in for an upload (or delete) of this content on another instance
+            Future<?> holder = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                documentContentRepository.lock(sha256);
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+            Future<?> waiter = pool.submit(() ->
+                    transactionTemplate.executeWithoutResult(status -> documentContentRepository.lock(sha256)));
+            Thread.sleep(300);
+            assertFalse(waiter.isDone(), "second transaction got the content lock while it was held");
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            waiter.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    private static MockMultipartFile pdf(String name, byte[] content) {
+        return new MockMultipartFile("file", name, "application/pdf", content);
+    }
+}
@@ -0,0 +1,108 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentUrlSignerTest {
+
+    private static final String KEY = "blobs/ab/cd/" + "ab".repeat(32) + ".pdf";
+    private static final long TTL = 1800;
+
+    private DocumentUrlSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        signer = signer("test-signing-key");
+    }
+
+    @Test
+    void signedLinkVerifies() {
+        Link link = Link.parse(signer.sign(KEY, "Aadhaar card (front).pdf"));
+
+        assertEquals(KEY, link.path);
+        assertEquals("Aadhaar card (front).pdf", link.name);
+        assertTrue(signer.verify(link.path, link.name, link.exp, link.sig));
+    }
+
+    @Test
+    void expiryIsAtLeastOneTtlAwayAndRounded() {
+        long now = System.currentTimeMillis() / 1000;
+        Link link = Link.parse(signer.sign(KEY, "a.pdf"));
+
+        assertEquals(0, link.exp % TTL);
+        assertTrue(link.exp - now >= TTL, "expires in " + (link.exp - now) + "s");
+        assertTrue(link.exp - now <= 2 * TTL, "expires in " + (link.exp - now) + "s");
+        // Rounded up, so links issued moments apart are the same (browser cache friendly)
+        assertEquals(signer.sign(KEY, "a.pdf"), signer.sign(KEY, "a.pdf"));
+    }
+
+    @Test
+    void expiredLinkIsRejectedEvenWithAValidSignature() {
+        long past = System.currentTimeMillis() / 1000 - 1;
+        String sig = ReflectionTestUtils.invokeMethod(signer, "signature", KEY, "a.pdf", past);
+        assertFalse(signer.verify(KEY, "a.pdf", past, sig));
+
+        long future = past + 60;
+        String stillValid = ReflectionTestUtils.invokeMethod(signer, "signature", KEY, "a.pdf", future);
+        assertTrue(signer.verify(KEY, "a.pdf", future, stillValid));
+    }
+
+    @Test
+    void tamperedLinksAreRejected() {
+        Link link = Link.parse(signer.sign(KEY, "a.pdf"));
+
+        assertFalse(signer.verify("blobs/ab/cd/" + "cd".repeat(32) + ".pdf", link.name, link.exp, link.sig));
+        assertFalse(signer.verify(link.path, "b.pdf", link.exp, link.sig));
+        assertFalse(signer.verify(link.path, link.name, link.exp + TTL, link.sig));
+        assertFalse(signer.verify(link.path, link.name, link.exp, link.sig.substring(1) + "A"));
+        assertFalse(signer.verify(link.path, link.name, link.exp, ""));
+        assertFalse(signer.verify(link.path, link.name, link.exp, null));
+        assertFalse(signer("another-key").verify(link.path, link.name, link.exp, link.sig));
+    }
+
+    @Test
+    void missingNameSignsAsEmpty() {
+        Link link = Link.parse(signer.sign(KEY, null));
+        assertEquals("", link.name);
+        assertTrue(signer.verify(link.path, null, link.exp, link.sig));
+    }
+
+    @Test
+    void onlyBlobKeysCanBeSigned() {
+        assertThrows(IllegalArgumentException.class, () -> signer.sign("../secrets.txt", "x"));
+        assertThrows(IllegalArgumentException.class, () -> signer.sign("/etc/passwd", "x"));
+    }
+
+    private static DocumentUrlSigner signer(String key) {
+        DocumentUrlSigner s = new DocumentUrlSigner();
+        ReflectionTestUtils.setField(s, "signingKey", key);
+        ReflectionTestUtils.setField(s, "ttlSeconds", TTL);
+        s.init();
+        return s;
+    }
+
+    private record Link(String path, String name, long exp, String sig) {
+        static Link parse(String url) {
+            assertTrue(url.startsWith(DocumentUrlSigner.PREFIX), url);
+            UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+            MultiValueMap<String, String> q = uri.getQueryParams();
+            return new Link(
+                    UriUtils.decode(uri.getPath().substring(DocumentUrlSigner.PREFIX.length()), StandardCharsets.UTF_8),
+                    UriUtils.decode(q.getFirst("name"), StandardCharsets.UTF_8),
+                    Long.parseLong(q.getFirst("exp")),
+                    q.getFirst("sig"));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package infosys.backend.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Just enough of the S3 REST API, path-style and in memory, to run S3BlobStore against:
+ * PUT/GET (with Range)/HEAD/DELETE of objects and multipart uploads (create, upload part,
+ * complete, abort). Requests must carry a SigV4 Authorization header and a payload hash
+ * that matches the body. Counts what it was asked so tests can see how the store behaved.
+ */
+class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+    private final String bucket;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    final AtomicInteger gets = new AtomicInteger();
+    final AtomicInteger heads = new AtomicInteger();
+    final AtomicInteger singlePuts = new AtomicInteger();
+    final AtomicInteger completedUploads = new AtomicInteger();
+    final AtomicInteger abortedUploads = new AtomicInteger();
+    final AtomicInteger partsInFlight = new AtomicInteger();
+    final AtomicInteger maxPartsInFlight = new AtomicInteger();
+    volatile int failPartNumber = -1;
+    volatile long partDelayMs = 100;
+
+    FakeS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    byte[] object(String key) {
+        return objects.get(key);
+    }
+
+    int openUploads() {
+        return uploads.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            byte[] body = ex.getRequestBody().readAllBytes();
+            String auth = ex.getRequestHeaders().getFirst("Authorization");
+            if (auth == null || !auth.startsWith("AWS4-HMAC-SHA256 Credential=")) {
+                reply(ex, 403, "<Error><Code>AccessDenied</Code></Error>");
+                return;
+            }
+            if (!sha256Hex(body).equals(ex.getRequestHeaders().getFirst("x-amz-content-sha256"))) {
+                reply(ex, 400, "<Error><Code>XAmzContentSHA256Mismatch</Code></Error>");
+                return;
+            }
+            String path = ex.getRequestURI().getPath();
+            String prefix = "/" + bucket + "/";
+            if (!path.startsWith(prefix)) {
+                reply(ex, 404, "<Error><Code>NoSuchBucket</Code></Error>");
+                return;
+            }
+            String key = path.substring(prefix.length());
+            Map<String, String> query = query(ex.getRequestURI().getRawQuery());
+
+            switch (ex.getRequestMethod()) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) uploadPart(ex, query, body);
+                    else {
+                        singlePuts.incrementAndGet();
+                        objects.put(key, body);
+                        ex.getResponseHeaders().set("ETag", "\"" + sha256Hex(body) + "\"");
+                        reply(ex, 200, "");
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = UUID.randomUUID().toString();
+                        uploads.put(uploadId, new ConcurrentHashMap<>());
+                        reply(ex, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId
+                                + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        complete(ex, key, query.get("uploadId"), new String(body, StandardCharsets.UTF_8));
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        if (uploads.remove(query.get("uploadId")) != null) abortedUploads.incrementAndGet();
+                    } else {
+                        objects.remove(key);
+                    }
+                    reply(ex, 204, null);
+                }
+                case "HEAD" -> {
+                    heads.incrementAndGet();
+                    byte[] data = objects.get(key);
+                    if (data == null) {
+                        ex.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    ex.getResponseHeaders().set("Content-Length", Integer.toString(data.length));
+                    ex.getResponseHeaders().set("Last-Modified", lastModified());
+                    ex.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> get(ex, key);
+                default -> reply(ex, 405, "");
+            }
+        }
+    }
+
+    private void uploadPart(HttpExchange ex, Map<String, String> query, byte[] body) throws IOException {
+        Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+        if (parts == null) {
+            reply(ex, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+        int partNumber = Integer.parseInt(query.get("partNumber"));
+        int inFlight = partsInFlight.incrementAndGet();
+        maxPartsInFlight.accumulateAndGet(inFlight, Math::max);
+        try {
+            Thread.sleep(partDelayMs); // long enough for the store to have several parts on the wire
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            partsInFlight.decrementAndGet();
+        }
+        if (partNumber == failPartNumber) {
+            reply(ex, 500, "<Error><Code>InternalError</Code></Error>");
+            return;
+        }
+        parts.put(partNumber, body);
+        ex.getResponseHeaders().set("ETag", "\"part-" + partNumber + "\"");
+        reply(ex, 200, "");
+    }
+
+    private void complete(HttpExchange ex, String key, String uploadId, String xml) throws IOException {
+        Map<Integer, byte[]> parts = uploadId != null ? uploads.remove(uploadId) : null;
+        if (parts == null) {
+            reply(ex, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+        var out = new ByteArrayOutputStream();
+        Matcher m = PART.matcher(xml);
+        int expected = 1;
+        while (m.find()) {
+            int n = Integer.parseInt(m.group(1));
+            byte[] part = parts.get(n);
+            if (n != expected++ || part == null) {
+                reply(ex, 400, "<Error><Code>InvalidPart</Code></Error>");
+                return;
+            }
+            out.writeBytes(part);
+        }
+        objects.put(key, out.toByteArray());
+        completedUploads.incrementAndGet();
+        reply(ex, 200, "<CompleteMultipartUploadResult><Key>" + key + "</Key></CompleteMultipartUploadResult>");
+    }
+
+    private void get(HttpExchange ex, String key) throws IOException {
+        gets.incrementAndGet();
+        byte[] data = objects.get(key);
+        if (data == null) {
+            reply(ex, 404, "<Error><Code>NoSuchKey</Code></Error>");
+            return;
+        }
+        ex.getResponseHeaders().set("Last-Modified", lastModified());
+        String range = ex.getRequestHeaders().getFirst("Range");
+        Matcher m = range != null ? RANGE.matcher(range) : null;
+        if (m == null || !m.matches()) {
+            ex.sendResponseHeaders(200, data.length);
+            ex.getResponseBody().write(data);
+            return;
+        }
+        int from = Integer.parseInt(m.group(1));
+        int to = Math.min(Integer.parseInt(m.group(2)), data.length - 1);
+        ex.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+        ex.sendResponseHeaders(206, to - from + 1);
+        ex.getResponseBody().write(data, from, to - from + 1);
+    }
+
+    private static void reply(HttpExchange ex, int status, String body) throws IOException {
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) return params;
+        for (String param : raw.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) params.put(param, "");
+            else params.put(param.substring(0, eq), URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String lastModified() {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package infosys.backend.service;
+
+class InMemoryBlobStoreTest extends BlobStoreContractTest {
+
+    private final InMemoryBlobStore store = new InMemoryBlobStore();
+
+    @Override
+    BlobStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,57 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.enums.Role;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JpaMessageStoreTest {
+
+    @Autowired
+    private JpaMessageStore store;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void notesToSelfAreReturnedOnce() {
+        User me = userRepository.save(User.builder().name("self").email("self-" + UUID.randomUUID() + "@test.local")
+                .password("x").role(Role.CUSTOMER).location("Test").build());
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        List<Message> notes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            notes.add(Message.builder().sender(me).receiver(me).content("note " + i)
+                    .sentAt(start.plusMinutes(i)).seq((long) i + 1).build());
+        }
+        transactionTemplate.executeWithoutResult(status -> store.appendAll(notes));
+
+        List<MessageDTO> latest = store.findLatest(me.getId(), me.getId(), 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), latest.stream().map(MessageDTO::getSeq).toList());
+
+        MessageDTO third = latest.get(2);
+        KeysetCursor cursor = new KeysetCursor(third.getSentAt(), third.getId());
+        assertEquals(List.of(1L, 2L),
+                store.findBefore(me.getId(), me.getId(), cursor, 10).stream().map(MessageDTO::getSeq).toList());
+        assertEquals(List.of(4L, 5L),
+                store.findAfter(me.getId(), me.getId(), cursor, 10).stream().map(MessageDTO::getSeq).toList());
+    }
+}
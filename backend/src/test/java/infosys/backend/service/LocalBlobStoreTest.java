@@ -0,0 +1,18 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+
+class LocalBlobStoreTest extends BlobStoreContractTest {
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalBlobStore(tempDir.resolve("uploads").toString());
+    }
+
+    @Override
+    BlobStore store() {
+        return store;
+    }
+}
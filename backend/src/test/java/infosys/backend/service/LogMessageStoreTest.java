@@ -0,0 +1,178 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.enums.Role;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.MessageLog;
+import infosys.backend.repository.MessageRepository;
+import infosys.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LogMessageStoreTest {
+
+    private static final int SMALL_SEGMENT = 8 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private ChatBatchRepository chatBatchRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageIdAllocator messageIdAllocator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User alice;
+    private User bob;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        alice = user();
+        bob = user();
+        start = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Test
+    void restartKeepsCommittedMessagesAndChecksUnconfirmedOnesAgainstTheTable() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LogMessageStore store = open(registry, 64 * 1024 * 1024);
+        Message sent = message(0, "committed normally");
+        transactionTemplate.executeWithoutResult(status -> store.appendAll(List.of(sent)));
+        store.close();
+
+        // A crash between the row's commit and the commit record, and one before the row committed
+        Message rowCommitted = message(1, "row committed, no commit record");
+        transactionTemplate.executeWithoutResult(status -> chatBatchRepository.insertMessages(List.of(rowCommitted), false));
+        long rolledBackId = messageIdAllocator.next();
+        MessageLog log = MessageLog.open(dir, 64 * 1024 * 1024, 0);
+        log.appendMessage(rowCommitted.getId(), alice.getId(), bob.getId(), 2L,
+                LogMessageStore.toMicros(rowCommitted.getSentAt()), rowCommitted.getContent(), false);
+        log.appendMessage(rolledBackId, alice.getId(), bob.getId(), 3L,
+                LogMessageStore.toMicros(start.plusSeconds(2)), "transaction rolled back", false);
+        log.force();
+        log.close();
+
+        LogMessageStore reopened = open(registry, 64 * 1024 * 1024);
+        try {
+            assertEquals(List.of("committed normally", "row committed, no commit record"),
+                    reopened.findLatest(alice.getId(), bob.getId(), 10).stream().map(MessageDTO::getContent).toList());
+            Map<Long, String> contents = reopened.findContents(List.of(rowCommitted.getId(), rolledBackId));
+            assertEquals("row committed, no commit record", contents.get(rowCommitted.getId()));
+            assertFalse(contents.containsKey(rolledBackId));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void compactionDropsDeadRecordsAndKeepsTheRestReadable() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LogMessageStore store = open(registry, SMALL_SEGMENT);
+        List<String> expected = new ArrayList<>();
+        int n = 0;
+        for (int batch = 0; batch < 40; batch++) {
+            List<Message> messages = new ArrayList<>();
+            for (int i = 0; i < 5; i++, n++) messages.add(message(n, "message " + n + " " + "x".repeat(40)));
+            boolean rollBack = batch % 3 == 0;
+            transactionTemplate.executeWithoutResult(status -> {
+                store.appendAll(messages);
+                if (rollBack) status.setRollbackOnly();
+            });
+            if (!rollBack) messages.forEach(m -> expected.add(m.getContent()));
+        }
+        assertEquals(expected, contentsOf(store));
+
+        store.compact();
+        assertTrue(registry.get("chat.message-store.log.compaction.reclaimed").counter().count() > 0,
+                "nothing reclaimed");
+        assertEquals(expected, contentsOf(store));
+
+        // Compacted records are marked committed: a restart needs neither commit records nor the table
+        store.close();
+        LogMessageStore reopened = open(registry, SMALL_SEGMENT);
+        try {
+            assertEquals(expected, contentsOf(reopened));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void offsetsByIdKeepsEveryIdThroughGrowth() {
+        LogMessageStore.OffsetsById offsets = new LogMessageStore.OffsetsById();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(45);
+        for (int i = 0; i < 100_000; i++) {
+            long id = 1 + random.nextInt(1_000_000);
+            long offset = random.nextLong(Long.MAX_VALUE);
+            offsets.put(id, offset);
+            expected.put(id, offset);
+        }
+        assertEquals(expected.size(), offsets.size());
+        expected.forEach((id, offset) -> assertEquals(offset, offsets.get(id), "id " + id));
+        assertEquals(-1, offsets.get(2_000_000));
+    }
+
+    private List<String> contentsOf(LogMessageStore store) {
+        List<MessageDTO> page = store.findLatest(alice.getId(), bob.getId(), 1000);
+        return page.stream().map(MessageDTO::getContent).toList();
+    }
+
+    private Message message(int i, String content) {
+        return Message.builder().sender(alice).receiver(bob).content(content)
+                .sentAt(start.plusNanos(i * 1_000_000L)).seq((long) i + 1).build();
+    }
+
+    private User user() {
+        String name = "log-" + UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder().name(name).email(name + "@test.local")
+                .password("x").role(Role.CUSTOMER).location("Test").build());
+    }
+
+    private LogMessageStore open(SimpleMeterRegistry registry, int segmentBytes) {
+        LogMessageStore store = new LogMessageStore(chatBatchRepository, messageRepository, registry);
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(store, "fsyncIntervalMs", 0L);
+        ReflectionTestUtils.setField(store, "waitForFsync", true);
+        ReflectionTestUtils.setField(store, "compactionMinDirtyRatio", 0.2);
+        ReflectionTestUtils.setField(store, "brokerMode", "simple");
+        store.open();
+        return store;
+    }
+}
@@ -0,0 +1,148 @@
+package infosys.backend.service;
+
+import infosys.backend.dto.KeysetCursor;
+import infosys.backend.dto.MessageDTO;
+import infosys.backend.enums.Role;
+import infosys.backend.model.Message;
+import infosys.backend.model.User;
+import infosys.backend.repository.ChatBatchRepository;
+import infosys.backend.repository.MessageRepository;
+import infosys.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 📜 Message store comparison: write throughput (group commits of BATCH messages) and history
+ * read latency (latest page, then paging back with a cursor) for the jpa and log stores.
+ *
+ * Uses the test profile, so the jpa store runs on in-memory H2: its numbers are a floor for
+ * MySQL, where every commit also goes to disk. The log store fsyncs for real (target/).
+ *
+ * Run with: mvn test -Dbenchmarks=true -Dtest=MessageStoreBenchmark
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class MessageStoreBenchmark {
+
+    private static final int CONVERSATIONS = 20;
+    private static final int MESSAGES = 20_000;
+    private static final int BATCH = 256;
+    private static final int PAGE = 50;
+    private static final int READS = 2_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatBatchRepository chatBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void writeThroughputAndReadLatency() {
+        // Opened first, so it has nothing to import from the message table
+        LogMessageStore logStore = openLogStore();
+        JpaMessageStore jpaStore = new JpaMessageStore(messageRepository, chatBatchRepository);
+        try {
+            System.out.printf("%6s %12s %12s %12s %12s %12s%n",
+                    "store", "writes/s", "latest p50", "latest p99", "before p50", "before p99");
+            run("jpa", jpaStore, users("jpa"));
+            run("log", logStore, users("log"));
+            System.out.println("(read latencies in us, pages of " + PAGE + ")");
+        } finally {
+            logStore.close();
+        }
+    }
+
+    private void run(String name, MessageStore store, List<User> users) {
+        Random random = new Random(42);
+        String padding = "x".repeat(160);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+
+        long started = System.nanoTime();
+        for (int written = 0; written < MESSAGES; written += BATCH) {
+            List<Message> batch = new ArrayList<>(BATCH);
+            for (int i = written; i < Math.min(MESSAGES, written + BATCH); i++) {
+                int c = random.nextInt(CONVERSATIONS);
+                batch.add(Message.builder()
+                        .sender(users.get(2 * c + (i & 1)))
+                        .receiver(users.get(2 * c + 1 - (i & 1)))
+                        .content("message " + i + " " + padding)
+                        .sentAt(start.plusNanos(i * 1_000_000L))
+                        .seq((long) i + 1)
+                        .build());
+            }
+            transactionTemplate.executeWithoutResult(status -> store.appendAll(batch));
+        }
+        double writesPerSecond = MESSAGES / ((System.nanoTime() - started) / 1e9);
+
+        long[] latest = new long[READS];
+        long[] before = new long[READS];
+        for (int r = -READS / 10; r < READS; r++) {
+            int c = random.nextInt(CONVERSATIONS);
+            Long a = users.get(2 * c).getId();
+            Long b = users.get(2 * c + 1).getId();
+
+            long t0 = System.nanoTime();
+            List<MessageDTO> page = store.findLatest(a, b, PAGE);
+            store.fillContents(page);
+            long t1 = System.nanoTime();
+            MessageDTO oldest = page.get(0);
+            List<MessageDTO> older = store.findBefore(a, b, new KeysetCursor(oldest.getSentAt(), oldest.getId()), PAGE);
+            store.fillContents(older);
+            long t2 = System.nanoTime();
+
+            assertEquals(PAGE, page.size());
+            assertEquals(PAGE, older.size());
+            if (r >= 0) {
+                latest[r] = (t1 - t0) / 1_000;
+                before[r] = (t2 - t1) / 1_000;
+            }
+        }
+        Arrays.sort(latest);
+        Arrays.sort(before);
+        System.out.printf("%6s %12.0f %12d %12d %12d %12d%n", name, writesPerSecond,
+                latest[READS / 2], latest[READS * 99 / 100], before[READS / 2], before[READS * 99 / 100]);
+    }
+
+    private List<User> users(String store) {
+        String runId = store + "-" + System.nanoTime();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2 * CONVERSATIONS; i++) {
+            users.add(User.builder().name("bench-" + i).email("bench-" + runId + "-" + i + "@test.local")
+                    .password("x").role(Role.CUSTOMER).location("Test").build());
+        }
+        return userRepository.saveAll(users);
+    }
+
+    private LogMessageStore openLogStore() {
+        LogMessageStore store = new LogMessageStore(chatBatchRepository, messageRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "dir", "target/bench-message-log/" + System.nanoTime());
+        ReflectionTestUtils.setField(store, "segmentBytes", 64 * 1024 * 1024);
+        ReflectionTestUtils.setField(store, "fsyncIntervalMs", 5L);
+        ReflectionTestUtils.setField(store, "waitForFsync", true);
+        ReflectionTestUtils.setField(store, "compactionMinDirtyRatio", 0.2);
+        ReflectionTestUtils.setField(store, "brokerMode", "simple");
+        store.open();
+        return store;
+    }
+}
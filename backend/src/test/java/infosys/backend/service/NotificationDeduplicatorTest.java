@@ -0,0 +1,106 @@
+package infosys.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationDeduplicatorTest {
+
+    private static final int WINDOW = 5;
+    private static final long T = 1_700_000_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void sameTextWithinTheWindowIsADuplicate() {
+        NotificationDeduplicator dedupe = new NotificationDeduplicator(WINDOW, 1000, registry);
+
+        assertTrue(dedupe.tryAcquire(1L, 2L, "hi", T));
+        assertFalse(dedupe.tryAcquire(1L, 2L, "hi", T + WINDOW));
+        assertTrue(dedupe.tryAcquire(1L, 3L, "hi", T));
+        assertTrue(dedupe.tryAcquire(2L, 1L, "hi", T));
+        assertTrue(dedupe.tryAcquire(1L, 2L, "hello", T));
+
+        assertTrue(dedupe.tryAcquire(1L, 2L, "hi", T + WINDOW + 1));
+        assertEquals(1, dedupe.getHitCount());
+        assertEquals(5, dedupe.getMissCount());
+    }
+
+    @Test
+    void reusingABucketSlotExpiresItsKeys() {
+        NotificationDeduplicator dedupe = new NotificationDeduplicator(WINDOW, 1000, registry);
+        int ringLength = WINDOW + 2;
+
+        for (int i = 0; i < 10; i++) dedupe.tryAcquire(1L, 2L, "text " + i, T);
+        dedupe.tryAcquire(1L, 2L, "later", T + 1);
+        assertEquals(11, dedupe.size());
+
+        // Another second mapping to the same slot as T drops T's keys, but not those of T + 1
+        dedupe.tryAcquire(3L, 4L, "next round", T + ringLength);
+        assertEquals(2, dedupe.size());
+        assertTrue(dedupe.tryAcquire(1L, 2L, "text 0", T + ringLength));
+        assertFalse(dedupe.tryAcquire(1L, 2L, "later", T + WINDOW + 1));
+    }
+
+    @Test
+    void keyAcceptedAgainSurvivesItsOldBucket() {
+        NotificationDeduplicator dedupe = new NotificationDeduplicator(WINDOW, 1000, registry);
+
+        assertTrue(dedupe.tryAcquire(1L, 2L, "again", T));
+        assertTrue(dedupe.tryAcquire(1L, 2L, "again", T + WINDOW + 1));
+        // T's slot is reused now; the key belongs to T + WINDOW + 1 and must stay
+        assertFalse(dedupe.tryAcquire(1L, 2L, "again", T + WINDOW + 2));
+        assertEquals(1, dedupe.size());
+    }
+
+    @Test
+    void fullWindowLetsNotificationsThroughUntracked() {
+        NotificationDeduplicator dedupe = new NotificationDeduplicator(WINDOW, 3, registry);
+
+        for (int i = 0; i < 3; i++) assertTrue(dedupe.tryAcquire(1L, 2L, "m" + i, T));
+        assertTrue(dedupe.tryAcquire(1L, 2L, "overflow", T));
+        assertTrue(dedupe.tryAcquire(1L, 2L, "overflow", T));
+        assertEquals(3, dedupe.size());
+        assertEquals(2.0, registry.get("chat.notifications.dedupe").tag("result", "untracked").counter().count());
+
+        // Once the old keys expire there is room again
+        dedupe.tryAcquire(5L, 6L, "fresh", T + WINDOW + 2);
+        assertEquals(1, dedupe.size());
+    }
+
+    @Test
+    void concurrentSendsOfTheSameTextPassOnce() throws Exception {
+        NotificationDeduplicator dedupe = new NotificationDeduplicator(WINDOW, 1000, registry);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                String text = "race " + round;
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(pool.submit(() -> {
+                        go.await();
+                        return dedupe.tryAcquire(1L, 2L, text, T);
+                    }));
+                }
+                go.countDown();
+                int passed = 0;
+                for (Future<Boolean> r : results) if (r.get(5, TimeUnit.SECONDS)) passed++;
+                assertEquals(1, passed, text);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 🗺️ Solve times of the route heuristic for 5–50 stops scattered over a city.
+ *
+ * Run with: mvn test -Dbenchmarks=true -Dtest=RouteSolverBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class RouteSolverBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 500;
+
+    @Test
+    void solveTimes() {
+        Random random = new Random(42);
+        System.out.printf("%6s %12s %12s %12s%n", "stops", "median us", "p95 us", "route km");
+        for (int stops : new int[] {5, 10, 20, 30, 40, 50}) {
+            // Customers within ~20 km of the city centre, the provider's depot is the last row
+            double[] lat = new double[stops + 1];
+            double[] lon = new double[stops + 1];
+            for (int i = 0; i <= stops; i++) {
+                lat[i] = 12.97 + (random.nextDouble() - 0.5) * 0.36;
+                lon[i] = 77.59 + (random.nextDouble() - 0.5) * 0.36;
+            }
+            int[] nodes = IntStream.range(0, stops).toArray();
+
+            int[] order = null;
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                order = RouteSolver.solve(RouteSolver.distanceMatrix(lat, lon), nodes, stops);
+            }
+            long[] micros = new long[MEASURED_ROUNDS];
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long started = System.nanoTime();
+                order = RouteSolver.solve(RouteSolver.distanceMatrix(lat, lon), nodes, stops);
+                micros[i] = (System.nanoTime() - started) / 1_000;
+            }
+            Arrays.sort(micros);
+
+            // Every stop is visited exactly once
+            int[] visited = order.clone();
+            Arrays.sort(visited);
+            assertArrayEquals(nodes, visited);
+
+            double km = RouteSolver.pathCost(RouteSolver.distanceMatrix(lat, lon), order, stops);
+            System.out.printf("%6d %12d %12d %12.1f%n", stops,
+                    micros[MEASURED_ROUNDS / 2], micros[MEASURED_ROUNDS * 95 / 100], km);
+        }
+    }
+}
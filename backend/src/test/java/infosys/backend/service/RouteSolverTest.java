@@ -0,0 +1,144 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteSolverTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void stopsOnALineAreVisitedInOrder() {
+        // Node 0 is the provider's position, stops 1..5 lie east of it in shuffled order
+        double[] x = {0, 4, 1, 5, 2, 3};
+        double[][] d = planar(x, new double[x.length]);
+
+        int[] path = RouteSolver.solve(d, new int[] {1, 2, 3, 4, 5}, 0);
+
+        assertArrayEquals(new int[] {2, 4, 5, 1, 3}, path);
+        assertEquals(5.0, RouteSolver.pathCost(d, path, 0), EPSILON);
+    }
+
+    @Test
+    void twoOptUncrossesTheNearestNeighbourTour() {
+        // Nearest neighbour from 0 runs 1, 2, 3 and then has to jump back across to 4
+        double[] x = {0, 1, 2, 2, 0.9};
+        double[] y = {0, 0, 0, 1, 1.05};
+        double[][] d = planar(x, y);
+
+        int[] path = RouteSolver.solve(d, new int[] {1, 2, 3, 4}, 0);
+
+        assertLocallyOptimal(d, path, 0);
+        assertEquals(bruteForce(d, new int[] {1, 2, 3, 4}, 0), RouteSolver.pathCost(d, path, 0), EPSILON);
+    }
+
+    @Test
+    void resultIsLocallyOptimalAndCloseToTheBestRoute() {
+        Random random = new Random(26);
+        for (int round = 0; round < 200; round++) {
+            int n = 3 + random.nextInt(6);
+            double[] x = new double[n + 1];
+            double[] y = new double[n + 1];
+            for (int i = 0; i <= n; i++) {
+                x[i] = random.nextDouble() * 50;
+                y[i] = random.nextDouble() * 50;
+            }
+            double[][] d = planar(x, y);
+            int[] nodes = new int[n];
+            for (int i = 0; i < n; i++) nodes[i] = i + 1;
+            int start = round % 2 == 0 ? 0 : -1;
+
+            int[] path = RouteSolver.solve(d, nodes, start);
+
+            int[] sorted = path.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(nodes, sorted, "every stop exactly once");
+            assertLocallyOptimal(d, path, start);
+            double best = bruteForce(d, nodes, start);
+            assertTrue(RouteSolver.pathCost(d, path, start) <= best * 1.15 + EPSILON,
+                    "round " + round + ": " + RouteSolver.pathCost(d, path, start) + " vs best " + best);
+        }
+    }
+
+    @Test
+    void tinyInputsAreReturnedAsGiven() {
+        double[][] d = planar(new double[] {0, 1}, new double[] {0, 0});
+        assertArrayEquals(new int[0], RouteSolver.solve(d, new int[0], 0));
+        assertArrayEquals(new int[] {1}, RouteSolver.solve(d, new int[] {1}, 0));
+    }
+
+    @Test
+    void haversineMatchesAKnownDistance() {
+        // Chennai Central to Bengaluru City, roughly 290 km as the crow flies
+        double km = RouteSolver.haversineKm(13.0827, 80.2707, 12.9716, 77.5946);
+        assertEquals(290.2, km, 1.0);
+        assertEquals(0.0, RouteSolver.haversineKm(13.0, 80.0, 13.0, 80.0), EPSILON);
+    }
+
+    // No segment reversal (2-opt) and no move of 1..3 consecutive stops (Or-opt) shortens the path
+    private static void assertLocallyOptimal(double[][] d, int[] path, int start) {
+        double cost = RouteSolver.pathCost(d, path, start);
+        int n = path.length;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int[] p = path.clone();
+                for (int a = i, b = j; a < b; a++, b--) {
+                    int t = p[a];
+                    p[a] = p[b];
+                    p[b] = t;
+                }
+                assertTrue(RouteSolver.pathCost(d, p, start) >= cost - 1e-6,
+                        "2-opt move " + i + ".." + j + " improves " + Arrays.toString(path));
+            }
+        }
+        for (int len = 1; len <= Math.min(3, n - 1); len++) {
+            for (int i = 0; i + len <= n; i++) {
+                int[] rest = new int[n - len];
+                System.arraycopy(path, 0, rest, 0, i);
+                System.arraycopy(path, i + len, rest, i, n - i - len);
+                for (int k = 0; k <= rest.length; k++) {
+                    int[] p = new int[n];
+                    System.arraycopy(rest, 0, p, 0, k);
+                    System.arraycopy(path, i, p, k, len);
+                    System.arraycopy(rest, k, p, k + len, rest.length - k);
+                    assertTrue(RouteSolver.pathCost(d, p, start) >= cost - 1e-6,
+                            "Or-opt move of " + len + " at " + i + " to " + k + " improves " + Arrays.toString(path));
+                }
+            }
+        }
+    }
+
+    private static double bruteForce(double[][] d, int[] nodes, int start) {
+        return permute(d, nodes.clone(), 0, start);
+    }
+
+    private static double permute(double[][] d, int[] p, int k, int start) {
+        if (k == p.length) return RouteSolver.pathCost(d, p, start);
+        double best = Double.MAX_VALUE;
+        for (int i = k; i < p.length; i++) {
+            int t = p[k];
+            p[k] = p[i];
+            p[i] = t;
+            best = Math.min(best, permute(d, p, k + 1, start));
+            p[i] = p[k];
+            p[k] = t;
+        }
+        return best;
+    }
+
+    private static double[][] planar(double[] x, double[] y) {
+        double[][] d = new double[x.length][x.length];
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                d[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,129 @@
+package infosys.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3BlobStoreTest extends BlobStoreContractTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024; // the smallest part S3 accepts
+    private static final int PARALLELISM = 3;
+
+    private FakeS3Server s3;
+    private S3BlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new FakeS3Server("documents");
+        store = new S3BlobStore(s3.endpoint(), "documents", "us-east-1", "test-key", "test-secret", true,
+                "", PART_SIZE, PARALLELISM, 1024 * 1024, 64 * 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        s3.close();
+    }
+
+    @Override
+    BlobStore store() {
+        return store;
+    }
+
+    @Test
+    void largeBlobsGoUpAsMultipartWithPartsInParallel() throws IOException {
+        byte[] data = randomBytes(4 * PART_SIZE + 12345);
+        store.put("blobs/11/big.pdf", new ByteArrayInputStream(data), data.length, "application/pdf");
+
+        assertArrayEquals(data, s3.object("blobs/11/big.pdf"));
+        assertEquals(1, s3.completedUploads.get());
+        assertEquals(0, s3.singlePuts.get());
+        assertTrue(s3.maxPartsInFlight.get() > 1, "parts were sent one at a time");
+        assertTrue(s3.maxPartsInFlight.get() <= PARALLELISM, "more parts in flight than upload-parallelism");
+
+        assertArrayEquals(new byte[] {data[PART_SIZE - 1], data[PART_SIZE]},
+                read(store, "blobs/11/big.pdf", PART_SIZE - 1, 2));
+    }
+
+    @Test
+    void sizeUnknownUpFrontStillSplitsIntoParts() throws IOException {
+        byte[] data = randomBytes(PART_SIZE + 1);
+        store.put("blobs/12/unsized.bin", new ByteArrayInputStream(data), -1, null);
+
+        assertArrayEquals(data, s3.object("blobs/12/unsized.bin"));
+        assertEquals(1, s3.completedUploads.get());
+    }
+
+    @Test
+    void failedPartAbortsTheUpload() {
+        s3.failPartNumber = 2;
+        byte[] data = randomBytes(3 * PART_SIZE);
+
+        assertThrows(IOException.class,
+                () -> store.put("blobs/13/broken.pdf", new ByteArrayInputStream(data), data.length, "application/pdf"));
+        assertEquals(1, s3.abortedUploads.get());
+        assertEquals(0, s3.openUploads());
+        assertNull(s3.object("blobs/13/broken.pdf"));
+    }
+
+    @Test
+    void smallBlobsReadInFullAreServedFromTheCache() throws IOException {
+        byte[] data = randomBytes(1000);
+        store.put("blobs/14/hot.png", new ByteArrayInputStream(data), data.length, "image/png");
+
+        assertArrayEquals(data, read(store, "blobs/14/hot.png", 0, data.length));
+        assertArrayEquals(data, read(store, "blobs/14/hot.png", 0, data.length));
+        assertArrayEquals(new byte[] {data[10], data[11]}, read(store, "blobs/14/hot.png", 10, 2));
+        assertEquals(1000, store.stat("blobs/14/hot.png").size());
+        assertEquals(1, s3.gets.get());
+        assertEquals(0, s3.heads.get());
+    }
+
+    @Test
+    void partialAndLargeReadsAreNotCached() throws IOException {
+        byte[] small = randomBytes(1000);
+        byte[] large = randomBytes(128 * 1024);
+        store.put("blobs/15/small.png", new ByteArrayInputStream(small), small.length, "image/png");
+        store.put("blobs/15/large.png", new ByteArrayInputStream(large), large.length, "image/png");
+
+        read(store, "blobs/15/small.png", 0, 10);
+        read(store, "blobs/15/small.png", 0, 10);
+        read(store, "blobs/15/large.png", 0, large.length);
+        read(store, "blobs/15/large.png", 0, large.length);
+        assertEquals(4, s3.gets.get());
+    }
+
+    @Test
+    void deleteAndReplaceForgetTheCachedCopy() throws IOException {
+        byte[] data = randomBytes(1000);
+        store.put("blobs/16/gone.png", new ByteArrayInputStream(data), data.length, "image/png");
+        read(store, "blobs/16/gone.png", 0, data.length);
+
+        store.delete("blobs/16/gone.png");
+        assertNull(s3.object("blobs/16/gone.png"));
+        assertNull(store.stat("blobs/16/gone.png"));
+        assertThrows(IOException.class, () -> read(store, "blobs/16/gone.png", 0, data.length));
+
+        byte[] replaced = randomBytes(500);
+        store.put("blobs/16/gone.png", new ByteArrayInputStream(data), data.length, "image/png");
+        read(store, "blobs/16/gone.png", 0, data.length);
+        store.put("blobs/16/gone.png", new ByteArrayInputStream(replaced), replaced.length, "image/png");
+        assertArrayEquals(replaced, read(store, "blobs/16/gone.png", 0, replaced.length));
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] data = new byte[n];
+        new Random(n).nextBytes(data);
+        return data;
+    }
+}
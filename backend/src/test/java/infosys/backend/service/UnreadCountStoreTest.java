@@ -0,0 +1,58 @@
+package infosys.backend.service;
+
+import infosys.backend.repository.ChatNotificationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class UnreadCountStoreTest {
+
+    @Test
+    void countsPerSenderAddUpToTheTotal() {
+        UnreadCountStore store = new UnreadCountStore(mock(ChatNotificationRepository.class));
+
+        store.add(1L, 2L, 3);
+        store.add(1L, 5L, 1);
+        UnreadCountStore.Snapshot s = store.add(1L, 2L, -1);
+        assertEquals(3, s.total());
+        assertEquals(2, s.fromSender());
+
+        assertEquals(2, store.clearSender(1L, 5L).total());
+        assertEquals(0, store.fromSender(1L, 5L));
+        assertEquals(0, store.add(1L, 2L, -10).total());
+        assertEquals(0, store.total(7L));
+    }
+
+    @Test
+    void countsBySenderMatchesAHashMapThroughGrowthAndRemovals() {
+        UnreadCountStore.CountsBySender counts = new UnreadCountStore.CountsBySender();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(31);
+
+        for (int step = 0; step < 50_000; step++) {
+            // Few distinct ids, so runs collide and removals have to shift entries back
+            long id = 1 + random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(id, 0L), counts.remove(id));
+                expected.remove(id);
+            } else {
+                long count = 1 + random.nextInt(100);
+                counts.put(id, count);
+                expected.put(id, count);
+            }
+        }
+        assertEquals(expected.size(), counts.size());
+        for (long id = 1; id <= 300; id++) {
+            assertEquals(expected.getOrDefault(id, 0L), counts.get(id), "sender " + id);
+        }
+
+        counts.clear();
+        assertEquals(0, counts.size());
+        assertEquals(0, counts.get(1));
+    }
+}